@@ -1,34 +1,92 @@
 package com.example.demo;
 
+import com.example.demo.security.BCryptCalibracion;
+import com.example.demo.security.CustomUserDetailsService;
+import com.example.demo.security.MatrizPermisos;
+import com.example.demo.security.SesionTokenFilter;
+import com.example.demo.security.SesionTokenService;
+import com.example.demo.security.UsuarioAutenticadoRefreshFilter;
+import com.example.demo.security.UsuarioAutenticadoRegistro;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authenticationConfiguration)
             throws Exception {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    /**
+     * Hashes con prefijo de esquema ({bcrypt}...) para poder migrar de uno a
+     * otro; los hashes antiguos sin prefijo se verifican como BCrypt y se
+     * re-hashean en el siguiente login. Con auth.bcrypt.coste=0 el coste se
+     * calibra al arrancar según auth.bcrypt.objetivo-ms; nunca baja de
+     * auth.bcrypt.coste-minimo, que es también el umbral de re-hash.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.bcrypt.coste:0}") int coste,
+            @Value("${auth.bcrypt.objetivo-ms:100}") long objetivoMs,
+            @Value("${auth.bcrypt.coste-minimo:10}") int costeMinimo,
+            @Value("${auth.bcrypt.coste-maximo:16}") int costeMaximo) {
+        if (coste <= 0) {
+            coste = BCryptCalibracion.calibrar(objetivoMs, costeMinimo, costeMaximo);
+            logger.info("Coste de BCrypt calibrado: {} (objetivo {} ms)", coste, objetivoMs);
+        }
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptCalibracion.Encoder(coste, costeMinimo));
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", encoders);
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return encoder;
     }
 
+    /**
+     * Con auth.sesion.modo=TOKEN la identidad viaja en una cookie firmada y no
+     * se crean sesiones HTTP; por defecto (SESSION) se guarda en la sesión.
+     * Los endpoints de actuator, salvo health, exigen el rol auth.actuator.rol.
+     */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, CustomUserDetailsService userDetailsService,
+            UsuarioAutenticadoRegistro usuarioAutenticadoRegistro, SesionTokenService sesionTokenService,
+            MatrizPermisos matrizPermisos, @Value("${auth.actuator.rol:ADMIN}") String rolActuator)
+            throws Exception {
+        if (sesionTokenService.isActivo()) {
+            http
+                    .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                    .addFilterAfter(new SesionTokenFilter(sesionTokenService, userDetailsService,
+                            usuarioAutenticadoRegistro, matrizPermisos), SecurityContextHolderFilter.class);
+        } else {
+            http.addFilterAfter(new UsuarioAutenticadoRefreshFilter(userDetailsService, usuarioAutenticadoRegistro),
+                    SecurityContextHolderFilter.class);
+        }
         http
                 .authorizeHttpRequests(authorize -> authorize
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .requestMatchers(EndpointRequest.toAnyEndpoint()).hasRole(rolActuator.toUpperCase())
                         .anyRequest().permitAll())
                 .csrf(csrf -> csrf.disable());
         return http.build();
@@ -1,16 +1,39 @@
 package com.example.demo;
 
+import com.example.demo.config.RespuestaCondicionalInterceptor;
+import com.example.demo.security.PermisoInterceptor;
+import com.example.demo.security.SesionLoginInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.http.MediaType;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final PermisoInterceptor permisoInterceptor;
+    private final RespuestaCondicionalInterceptor respuestaCondicionalInterceptor;
+    private final SesionLoginInterceptor sesionLoginInterceptor;
+
+    public WebConfig(PermisoInterceptor permisoInterceptor,
+            RespuestaCondicionalInterceptor respuestaCondicionalInterceptor,
+            SesionLoginInterceptor sesionLoginInterceptor) {
+        this.permisoInterceptor = permisoInterceptor;
+        this.respuestaCondicionalInterceptor = respuestaCondicionalInterceptor;
+        this.sesionLoginInterceptor = sesionLoginInterceptor;
+    }
+
     @Override
     public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
         configurer.ignoreAcceptHeader(true)
                 .defaultContentType(MediaType.APPLICATION_JSON, MediaType.TEXT_HTML);
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(permisoInterceptor);
+        registry.addInterceptor(respuestaCondicionalInterceptor);
+        registry.addInterceptor(sesionLoginInterceptor).addPathPatterns("/login");
+    }
 }
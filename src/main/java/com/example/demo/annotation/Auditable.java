@@ -0,0 +1,19 @@
+package com.example.demo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca una entidad para que sus INSERT/UPDATE/DELETE se auditen desde los
+ * eventos de Hibernate cuando auditoria.captura=HIBERNATE.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Auditable {
+    String model() default "";
+
+    /** Propiedades que nunca se escriben en la auditoría (p. ej. password). */
+    String[] exclude() default {};
+}
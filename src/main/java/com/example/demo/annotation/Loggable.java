@@ -5,10 +5,40 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Marca un método cuyo resultado se registra en auditoria_logs. Además del model
+ * y la acción, define la política de auditoría del método; los valores globales
+ * auditoria.politica.* pueden rebajarla (nunca ampliarla).
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Loggable {
     String model() default "";
 
     String accion() default "";
+
+    /** Qué se guarda del valor devuelto en datos_nuevos. */
+    Payload payload() default Payload.FULL;
+
+    /** Fracción de llamadas que se auditan, entre 0 y 1. */
+    double muestreo() default 1.0;
+
+    /** ASYNC encola el evento; SYNC lo escribe antes de devolver el control. */
+    Entrega entrega() default Entrega.ASYNC;
+
+    /** Tamaño máximo de datos_nuevos en bytes UTF-8; 0 usa el valor global. */
+    int maxPayload() default 0;
+
+    enum Payload {
+        /** Sólo el evento, sin id ni datos. */
+        NONE,
+        /** Sólo model_id, sin serializar el resultado. */
+        ID,
+        /** El resultado completo serializado a JSON. */
+        FULL
+    }
+
+    enum Entrega {
+        ASYNC, SYNC
+    }
 }
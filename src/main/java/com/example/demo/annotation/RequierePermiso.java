@@ -0,0 +1,17 @@
+package com.example.demo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Permiso que necesita el rol del usuario para invocar el endpoint, por su
+ * nombre en la tabla permissions (p. ej. "ver clientes"). En la clase aplica a
+ * todos sus métodos; en un método tiene prioridad sobre el de la clase.
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequierePermiso {
+    String value();
+}
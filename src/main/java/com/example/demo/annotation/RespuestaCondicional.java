@@ -0,0 +1,23 @@
+package com.example.demo.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Activa el GET condicional en el endpoint. El ETag (débil) y Last-Modified
+ * salen de la versión de las tablas indicadas, así que una petición con
+ * If-None-Match vigente se responde con 304 sin cargar ni serializar nada.
+ * Las tablas deben cubrir todo lo que incluye la respuesta (p. ej. users y
+ * roles si se devuelve el nombre del rol).
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RespuestaCondicional {
+    /** Tablas de las que depende la respuesta. */
+    String[] value();
+
+    /** Segundos que el navegador puede reutilizarla sin revalidar; 0 revalida siempre. */
+    long maxAge() default 0;
+}
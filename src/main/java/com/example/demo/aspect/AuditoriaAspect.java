@@ -1,68 +1,166 @@
 package com.example.demo.aspect;
 
 import com.example.demo.annotation.Loggable;
+import com.example.demo.service.AuditoriaEvento;
 import com.example.demo.service.AuditoriaService;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Registra en auditoría el resultado de los métodos {@link Loggable}.
+ *
+ * La política de cada método (anotación combinada con auditoria.politica.*) se
+ * calcula una sola vez y queda en caché por Method, igual que el getter del id
+ * de cada tipo devuelto.
+ */
 @Aspect
 @Component
 public class AuditoriaAspect {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaAspect.class);
+
+    private static final String OBSERVACIONES = "Registro automático vía AOP";
+
+    private record Politica(String model, String accion, Loggable.Payload payload, double muestreo,
+            boolean sincrono, int maxPayload) {
+    }
+
     private final AuditoriaService auditoriaService;
     private final ObjectMapper objectMapper;
+    private final boolean capturaHibernate;
+    private final Loggable.Payload payloadMaximo;
+    private final double muestreoMaximo;
+    private final Loggable.Entrega entregaForzada;
+    private final int maxPayloadGlobal;
+    private final Map<Method, Politica> politicas = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Optional<Method>> getterId = new ConcurrentHashMap<>();
 
-    public AuditoriaAspect(AuditoriaService auditoriaService, ObjectMapper objectMapper) {
+    public AuditoriaAspect(AuditoriaService auditoriaService, ObjectMapper objectMapper,
+            @Value("${auditoria.captura:AOP}") String captura,
+            @Value("${auditoria.politica.payload:FULL}") Loggable.Payload payloadMaximo,
+            @Value("${auditoria.politica.muestreo:1.0}") double muestreoMaximo,
+            @Value("${auditoria.politica.entrega:}") String entregaForzada,
+            @Value("${auditoria.politica.max-payload:65535}") int maxPayloadGlobal) {
         this.auditoriaService = auditoriaService;
         this.objectMapper = objectMapper;
+        this.capturaHibernate = "HIBERNATE".equalsIgnoreCase(captura);
+        this.payloadMaximo = payloadMaximo;
+        this.muestreoMaximo = muestreoMaximo;
+        this.entregaForzada = entregaForzada.isBlank() ? null
+                : Loggable.Entrega.valueOf(entregaForzada.trim().toUpperCase());
+        this.maxPayloadGlobal = maxPayloadGlobal;
     }
 
-    @AfterReturning(value = "@annotation(loggable)", returning = "result")
-    public void logAction(JoinPoint joinPoint, Loggable loggable, Object result) {
-        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
-                .getRequest();
+    @AfterReturning(value = "@annotation(com.example.demo.annotation.Loggable)", returning = "result")
+    public void logAction(JoinPoint joinPoint, Object result) {
+        // Con captura HIBERNATE la auditoría sale de AuditoriaEntityListener
+        if (capturaHibernate) {
+            return;
+        }
 
-        String model = loggable.model();
-        String action = loggable.accion();
+        Politica politica = politicas.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                this::politica);
+        if (politica.muestreo() <= 0
+                || (politica.muestreo() < 1 && ThreadLocalRandom.current().nextDouble() >= politica.muestreo())) {
+            return;
+        }
 
-        if (action.isEmpty()) {
+        HttpServletRequest request = requestActual();
+        String action = politica.accion();
+        if (action.isEmpty() && request != null) {
             action = request.getMethod();
         }
 
-        Map<String, Object> newData = null;
         Long modelId = null;
+        String datosNuevos = null;
+        if (politica.payload() != Loggable.Payload.NONE) {
+            modelId = id(result, joinPoint.getArgs());
+        }
+        if (politica.payload() == Loggable.Payload.FULL && result != null) {
+            datosNuevos = serializar(result, politica.maxPayload());
+        }
+
+        auditoriaService.registrarSerializado(
+                action,
+                politica.model(),
+                modelId,
+                null,
+                datosNuevos,
+                OBSERVACIONES,
+                request,
+                politica.sincrono());
+    }
 
+    private Politica politica(Method method) {
+        Loggable loggable = AnnotatedElementUtils.findMergedAnnotation(method, Loggable.class);
+        Loggable.Payload payload = loggable.payload().compareTo(payloadMaximo) <= 0 ? loggable.payload()
+                : payloadMaximo;
+        double muestreo = Math.max(0, Math.min(loggable.muestreo(), muestreoMaximo));
+        Loggable.Entrega entrega = entregaForzada != null ? entregaForzada : loggable.entrega();
+        int maxPayload = loggable.maxPayload() > 0 ? Math.min(loggable.maxPayload(), maxPayloadGlobal)
+                : maxPayloadGlobal;
+        return new Politica(loggable.model(), loggable.accion(), payload, muestreo,
+                entrega == Loggable.Entrega.SYNC, maxPayload);
+    }
+
+    /**
+     * Id del registro: el getId() del resultado o, en métodos sin resultado como
+     * deleteById, el primer argumento numérico.
+     */
+    private Long id(Object result, Object[] args) {
         if (result != null) {
-            try {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> converted = objectMapper.convertValue(result, Map.class);
-                newData = converted;
-                if (newData.containsKey("id")) {
-                    Object idValue = newData.get("id");
-                    if (idValue instanceof Number) {
-                        modelId = ((Number) idValue).longValue();
-                    }
+            Optional<Method> getter = getterId.computeIfAbsent(result.getClass(), AuditoriaAspect::getterId);
+            if (getter.isPresent()) {
+                try {
+                    return getter.get().invoke(result) instanceof Number numero ? numero.longValue() : null;
+                } catch (ReflectiveOperationException e) {
+                    return null;
                 }
-            } catch (Exception e) {
-                // Ignore conversion errors for logging
             }
+            return null;
         }
+        return args.length > 0 && args[0] instanceof Number numero ? numero.longValue() : null;
+    }
 
-        auditoriaService.registrarAuditoria(
-                action,
-                model,
-                modelId,
-                null,
-                newData,
-                "Registro automático vía AOP",
-                request);
+    private static Optional<Method> getterId(Class<?> clase) {
+        try {
+            Method getter = clase.getMethod("getId");
+            return Number.class.isAssignableFrom(getter.getReturnType()) ? Optional.of(getter) : Optional.empty();
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
+    }
+
+    private String serializar(Object result, int maxPayload) {
+        try {
+            return AuditoriaEvento.truncar(objectMapper, objectMapper.writeValueAsString(result), maxPayload);
+        } catch (JsonProcessingException e) {
+            logger.warn("No se pudo serializar el resultado para auditoría: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static HttpServletRequest requestActual() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet.getRequest() : null;
     }
 }
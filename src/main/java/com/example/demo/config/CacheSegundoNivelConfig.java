@@ -0,0 +1,85 @@
+package com.example.demo.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regiones de la caché de segundo nivel de Hibernate sobre Caffeine (JCache,
+ * en memoria del nodo). Cada región toma su tamaño y TTL de
+ * cache.l2.region.&lt;clave&gt;.maximo / .ttl-segundos, con
+ * cache.l2.defecto.* como respaldo; Hibernate falla al arrancar si una entidad
+ * pide una región que no está aquí.
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    /** Clave en application.properties → nombre de la región en Hibernate. */
+    public static final Map<String, String> REGIONES = regiones();
+
+    private static Map<String, String> regiones() {
+        Map<String, String> regiones = new LinkedHashMap<>();
+        regiones.put("modulo", "modulo");
+        regiones.put("permiso", "permiso");
+        regiones.put("rol", "rol");
+        regiones.put("rol-permisos", "rol.permisos");
+        regiones.put("configuracion", "configuracion");
+        regiones.put("empresa", "empresa");
+        regiones.put("consultas", RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+        return Collections.unmodifiableMap(regiones);
+    }
+
+    @Bean
+    public CacheManager cacheSegundoNivelManager(Environment env) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        long maximoDefecto = env.getProperty("cache.l2.defecto.maximo", Long.class, 1000L);
+        long ttlDefecto = env.getProperty("cache.l2.defecto.ttl-segundos", Long.class, 600L);
+        for (Map.Entry<String, String> region : REGIONES.entrySet()) {
+            String prefijo = "cache.l2.region." + region.getKey();
+            long maximo = env.getProperty(prefijo + ".maximo", Long.class, maximoDefecto);
+            long ttl = env.getProperty(prefijo + ".ttl-segundos", Long.class, ttlDefecto);
+            CaffeineConfiguration<Object, Object> configuracion = new CaffeineConfiguration<>();
+            configuracion.setMaximumSize(OptionalLong.of(maximo));
+            if (ttl > 0) {
+                configuracion.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttl)));
+            }
+            crear(cacheManager, region.getValue(), configuracion);
+        }
+
+        // Las marcas de tiempo por tabla invalidan la caché de consultas: no
+        // pueden expirar ni desalojarse antes que los resultados que protegen.
+        crear(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    private static void crear(CacheManager cacheManager, String nombre, CaffeineConfiguration<Object, Object> config) {
+        // Con devtools el proveedor puede sobrevivir a un reinicio del contexto
+        if (cacheManager.getCache(nombre) != null) {
+            cacheManager.destroyCache(nombre);
+        }
+        cacheManager.createCache(nombre, config);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelHibernate(CacheManager cacheSegundoNivelManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheSegundoNivelManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
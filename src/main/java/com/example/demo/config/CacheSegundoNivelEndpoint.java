@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import com.example.demo.service.CacheSegundoNivelService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/** /actuator/cachel2: aciertos, fallos y ocupación de cada región de la caché de segundo nivel. */
+@Component
+@Endpoint(id = "cachel2")
+public class CacheSegundoNivelEndpoint {
+
+    private final CacheSegundoNivelService cacheSegundoNivelService;
+
+    public CacheSegundoNivelEndpoint(CacheSegundoNivelService cacheSegundoNivelService) {
+        this.cacheSegundoNivelService = cacheSegundoNivelService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> estadisticas() {
+        return cacheSegundoNivelService.estadisticas();
+    }
+}
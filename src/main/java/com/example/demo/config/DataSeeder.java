@@ -96,7 +96,7 @@ public class DataSeeder {
         }
 
         // 3. Seed Modulos y Permisos
-        String[] moduloNombres = { "Users", "Roles", "Configuracion", "Empresas", "Auditoria" };
+        String[] moduloNombres = { "Users", "Roles", "Configuracion", "Empresas", "Auditoria", "Clientes" };
         List<Permission> allPermissions = new ArrayList<>();
 
         for (String modNombre : moduloNombres) {
@@ -0,0 +1,83 @@
+package com.example.demo.config;
+
+import com.example.demo.annotation.RespuestaCondicional;
+import com.example.demo.service.VersionTablas;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplica {@link RespuestaCondicional} antes de invocar el controlador: con la
+ * versión de las tablas calcula ETag y Last-Modified, y si el cliente ya tiene
+ * esa versión responde 304 sin llegar al servicio. Si no, deja las cabeceras
+ * puestas y la petición sigue su curso. Va después de PermisoInterceptor, así
+ * que un 304 nunca se da a quien no tiene permiso.
+ */
+@Component
+public class RespuestaCondicionalInterceptor implements HandlerInterceptor {
+
+    private record Politica(String[] tablas, String cacheControl) {
+    }
+
+    private final VersionTablas versionTablas;
+    private final Counter noModificadas;
+    private final Map<Method, Optional<Politica>> politicas = new ConcurrentHashMap<>();
+
+    public RespuestaCondicionalInterceptor(VersionTablas versionTablas, MeterRegistry meterRegistry) {
+        this.versionTablas = versionTablas;
+        this.noModificadas = Counter.builder("http.condicional.no_modificadas")
+                .description("Peticiones GET respondidas con 304 por @RespuestaCondicional")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)
+                || !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))) {
+            return true;
+        }
+        Politica politica = politicas.computeIfAbsent(handlerMethod.getMethod(),
+                m -> Optional.ofNullable(politica(m))).orElse(null);
+        if (politica == null) {
+            return true;
+        }
+
+        // Cache-Control va también en el 304, así que se pone antes de comprobar
+        response.setHeader(HttpHeaders.CACHE_CONTROL, politica.cacheControl());
+        String etag = versionTablas.etag(politica.tablas());
+        long ultimaModificacion = versionTablas.ultimaModificacion(politica.tablas());
+        if (new ServletWebRequest(request, response).checkNotModified(etag, ultimaModificacion)) {
+            noModificadas.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private static Politica politica(Method metodo) {
+        RespuestaCondicional anotacion = AnnotatedElementUtils.findMergedAnnotation(metodo,
+                RespuestaCondicional.class);
+        if (anotacion == null) {
+            return null;
+        }
+        // Respuestas de usuarios autenticados: sólo la caché del navegador
+        CacheControl cacheControl = anotacion.maxAge() > 0
+                ? CacheControl.maxAge(anotacion.maxAge(), TimeUnit.SECONDS).cachePrivate()
+                : CacheControl.noCache().cachePrivate();
+        return new Politica(anotacion.value(), cacheControl.getHeaderValue());
+    }
+}
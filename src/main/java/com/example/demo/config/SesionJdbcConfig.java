@@ -0,0 +1,37 @@
+package com.example.demo.config;
+
+import com.example.demo.security.SesionJdbcRepository;
+import com.example.demo.service.CacheVersiones;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * Sustituye las sesiones en memoria de Tomcat por {@link SesionJdbcRepository}
+ * cuando auth.sesion.almacen=JDBC.
+ */
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(name = "auth.sesion.almacen", havingValue = "JDBC")
+public class SesionJdbcConfig {
+
+    @Bean
+    public SesionJdbcRepository sessionRepository(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            CacheVersiones cacheVersiones,
+            @Value("${server.servlet.session.timeout:30m}") Duration timeout,
+            @Value("${auth.sesion.cache-ttl-ms:2000}") long cacheTtlMs,
+            @Value("${auth.sesion.cache-max:10000}") int cacheMax,
+            @Value("${auth.sesion.intervalo-acceso-segundos:60}") long intervaloAccesoSegundos,
+            @Value("${auth.sesion.limpieza-lote:500}") int loteLimpieza) {
+        // El classloader de la aplicación (también con devtools) para leer los atributos
+        return new SesionJdbcRepository(jdbcTemplate, transactionTemplate, cacheVersiones,
+                getClass().getClassLoader(), timeout, cacheTtlMs, cacheMax, Duration.ofSeconds(intervaloAccesoSegundos),
+                loteLimpieza);
+    }
+}
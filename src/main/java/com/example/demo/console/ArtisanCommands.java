@@ -1,5 +1,6 @@
 package com.example.demo.console;
 
+import com.example.demo.annotation.RequierePermiso;
 import com.example.demo.config.DataSeeder;
 import com.example.demo.model.Modulo;
 import com.example.demo.model.Permission;
@@ -9,16 +10,23 @@ import com.example.demo.repository.ModuloRepository;
 import com.example.demo.repository.PermissionRepository;
 import com.example.demo.repository.RoleRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.service.AuditoriaResumenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.lang.reflect.Method;
+import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 @Component
 public class ArtisanCommands implements CommandLineRunner {
@@ -41,6 +49,9 @@ public class ArtisanCommands implements CommandLineRunner {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private AuditoriaResumenService auditoriaResumenService;
+
     @Override
     public void run(String... args) throws Exception {
         if (args.length == 0)
@@ -64,6 +75,13 @@ public class ArtisanCommands implements CommandLineRunner {
                 asignarAdmin(args[1]);
             }
             exitApp();
+        } else if ("auditoria:resumen".equals(command)) {
+            // Uso: auditoria:resumen [AAAA-MM-DD] (sin fecha, desde el primer registro)
+            LocalDate desde = args.length > 1 && !args[1].startsWith("--") ? LocalDate.parse(args[1]) : null;
+            System.out.println("Reconstruyendo auditoria_resumen...");
+            long filas = auditoriaResumenService.reconstruir(desde);
+            System.out.println("✅ Resumen de auditoría reconstruido (" + filas + " filas).");
+            exitApp();
         } else if ("migrate".equals(command)) {
             System.out.println("Ejecutando migraciones (migrate)...");
             // Flyway / Hibernate ya corrieron al iniciar el contexto de Spring Boot.
@@ -108,9 +126,15 @@ public class ArtisanCommands implements CommandLineRunner {
                     System.out.println("📦 Módulo registrado: " + modNombre);
                 }
 
+                // Los cuatro permisos por defecto y los que exigen sus endpoints
+                Set<String> permNames = new LinkedHashSet<>();
                 String[] acciones = { "ver", "crear", "editar", "eliminar" };
                 for (String accion : acciones) {
-                    String permName = accion + " " + modNombre.toLowerCase();
+                    permNames.add(accion + " " + modNombre.toLowerCase());
+                }
+                permNames.addAll(permisosRequeridos(ClassUtils.getUserClass(controller)));
+
+                for (String permName : permNames) {
                     final Modulo currentModulo = modulo;
                     Permission permission = permissionRepository.findAll().stream()
                             .filter(p -> permName.equals(p.getName()))
@@ -131,6 +155,22 @@ public class ArtisanCommands implements CommandLineRunner {
         System.out.println("✅ Escaneo de módulos completado.");
     }
 
+    /** Permisos de {@link RequierePermiso} en el controlador y sus métodos. */
+    private Set<String> permisosRequeridos(Class<?> clase) {
+        Set<String> permisos = new LinkedHashSet<>();
+        RequierePermiso deClase = AnnotatedElementUtils.findMergedAnnotation(clase, RequierePermiso.class);
+        if (deClase != null) {
+            permisos.add(deClase.value());
+        }
+        for (Method method : clase.getMethods()) {
+            RequierePermiso anotacion = AnnotatedElementUtils.findMergedAnnotation(method, RequierePermiso.class);
+            if (anotacion != null) {
+                permisos.add(anotacion.value());
+            }
+        }
+        return permisos;
+    }
+
     private void asignarAdmin(String email) {
         User user = userRepository.findByEmail(email).orElse(null);
         if (user == null) {
@@ -1,27 +1,185 @@
 package com.example.demo.controller;
 
+import com.example.demo.annotation.RequierePermiso;
+import com.example.demo.dto.AuditoriaFiltroDTO;
 import com.example.demo.model.AuditoriaLog;
+import com.example.demo.repository.AuditoriaQueryRepository;
+import com.example.demo.service.AuditoriaExportService;
+import com.example.demo.service.AuditoriaIndiceService;
+import com.example.demo.service.AuditoriaResumenService;
 import com.example.demo.service.AuditoriaService;
+import com.example.demo.service.AuditoriaSnapshotService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/auditoria")
 public class AuditoriaLogController {
 
     private final AuditoriaService auditoriaService;
+    private final AuditoriaExportService auditoriaExportService;
+    private final AuditoriaSnapshotService auditoriaSnapshotService;
+    private final AuditoriaResumenService auditoriaResumenService;
+    private final AuditoriaIndiceService auditoriaIndiceService;
+    private final AuditoriaQueryRepository auditoriaQueryRepository;
 
-    public AuditoriaLogController(AuditoriaService auditoriaService) {
+    public AuditoriaLogController(AuditoriaService auditoriaService, AuditoriaExportService auditoriaExportService,
+            AuditoriaSnapshotService auditoriaSnapshotService, AuditoriaResumenService auditoriaResumenService,
+            AuditoriaIndiceService auditoriaIndiceService, AuditoriaQueryRepository auditoriaQueryRepository) {
         this.auditoriaService = auditoriaService;
+        this.auditoriaExportService = auditoriaExportService;
+        this.auditoriaSnapshotService = auditoriaSnapshotService;
+        this.auditoriaResumenService = auditoriaResumenService;
+        this.auditoriaIndiceService = auditoriaIndiceService;
+        this.auditoriaQueryRepository = auditoriaQueryRepository;
     }
 
+    @RequierePermiso("ver auditoria")
     @GetMapping
-    public List<AuditoriaLog> index() {
-        return auditoriaService.findAll();
+    public ResponseEntity<?> index(@ModelAttribute AuditoriaFiltroDTO filtro) {
+        try {
+            return ResponseEntity.ok(auditoriaService.buscar(filtro));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("cursor", e.getMessage()));
+        }
     }
 
+    @RequierePermiso("ver auditoria")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@ModelAttribute AuditoriaFiltroDTO filtro,
+            @RequestParam(defaultValue = "NDJSON") AuditoriaExportService.Formato formato,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        String extension = formato == AuditoriaExportService.Formato.CSV ? "csv" : "ndjson";
+        MediaType mediaType = formato == AuditoriaExportService.Formato.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                auditoriaExportService.exportar(filtro, formato, gzipOut);
+                gzipOut.finish();
+            } else {
+                auditoriaExportService.exportar(filtro, formato, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"auditoria." + extension + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @RequierePermiso("ver auditoria")
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats(
+            @RequestParam(defaultValue = "HORA") AuditoriaResumenService.Granularidad granularidad,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(defaultValue = "periodo") List<String> agrupar,
+            @RequestParam(required = false) String model,
+            @RequestParam(required = false) String accion,
+            @RequestParam(name = "user_id", required = false) Long userId) {
+        try {
+            return ResponseEntity.ok(Map.of(
+                    "granularidad", granularidad,
+                    "data", auditoriaResumenService.estadisticas(granularidad, desde, hasta, agrupar, model, accion,
+                            userId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("agrupar", e.getMessage()));
+        }
+    }
+
+    @RequierePermiso("ver auditoria")
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+            @RequestParam(name = "antes_de", required = false) Long antesDe,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "false") boolean filas) {
+        if (!auditoriaIndiceService.isActivo()) {
+            return ResponseEntity.status(503).body(Map.of("message", "El índice de auditoría no está activo"));
+        }
+        long inicio = System.nanoTime();
+        AuditoriaIndiceService.Resultado resultado;
+        try {
+            resultado = auditoriaIndiceService.buscar(q, antesDe, Math.max(1, Math.min(limit, 500)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("q", e.getMessage()));
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ids", resultado.ids());
+        if (filas) {
+            body.put("data", auditoriaQueryRepository.buscarPorIds(resultado.ids()));
+        }
+        body.put("has_more", resultado.hasMore());
+        body.put("next_antes_de", resultado.nextAntesDe());
+        body.put("took_ms", (System.nanoTime() - inicio) / 1_000_000.0);
+        return ResponseEntity.ok(body);
+    }
+
+    @RequierePermiso("ver auditoria")
+    @GetMapping("/{model}/{modelId}/history")
+    public ResponseEntity<?> history(@PathVariable String model, @PathVariable Long modelId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean datos) {
+        try {
+            return ResponseEntity.ok(auditoriaService.historial(model, modelId, cursor, limit, datos));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("cursor", e.getMessage()));
+        }
+    }
+
+    @RequierePermiso("ver auditoria")
+    @GetMapping("/{model}/{modelId}/snapshot")
+    public ResponseEntity<?> snapshot(@PathVariable String model, @PathVariable Long modelId,
+            @RequestParam(name = "hasta_id", required = false) Long hastaId) {
+        return auditoriaSnapshotService.estadoHasta(model, modelId, hastaId)
+                .<ResponseEntity<?>>map(estado -> ResponseEntity.ok(estado(model, modelId, estado)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @RequierePermiso("ver auditoria")
+    @GetMapping("/{model}/{modelId}/as-of")
+    public ResponseEntity<?> asOf(@PathVariable String model, @PathVariable Long modelId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        return auditoriaSnapshotService.estadoEn(model, modelId, fecha)
+                .<ResponseEntity<?>>map(estado -> {
+                    Map<String, Object> body = estado(model, modelId, estado);
+                    body.put("as_of", fecha);
+                    return ResponseEntity.ok(body);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static Map<String, Object> estado(String model, Long modelId, AuditoriaSnapshotService.Estado estado) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", model);
+        body.put("model_id", modelId);
+        body.put("log_id", estado.logId());
+        body.put("secuencia", estado.secuencia());
+        body.put("created_at", estado.createdAt());
+        body.put("datos", estado.datos());
+        return body;
+    }
+
+    @RequierePermiso("ver auditoria")
     @GetMapping("/{id}")
     public ResponseEntity<AuditoriaLog> show(@PathVariable Long id) {
         return auditoriaService.findById(id)
@@ -29,17 +187,20 @@ public class AuditoriaLogController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @RequierePermiso("crear auditoria")
     @PostMapping
     public ResponseEntity<AuditoriaLog> store(@RequestBody AuditoriaLog auditoriaLog) {
         return ResponseEntity.ok(auditoriaService.save(auditoriaLog));
     }
 
+    @RequierePermiso("editar auditoria")
     @PutMapping("/{id}")
     public ResponseEntity<AuditoriaLog> update(@PathVariable Long id, @RequestBody AuditoriaLog auditoriaLog) {
         auditoriaLog.setId(id);
         return ResponseEntity.ok(auditoriaService.save(auditoriaLog));
     }
 
+    @RequierePermiso("eliminar auditoria")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> destroy(@PathVariable Long id) {
         auditoriaService.deleteById(id);
@@ -3,14 +3,19 @@ package com.example.demo.controller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import com.example.demo.dto.LoginRequest;
+import com.example.demo.dto.LoginRespuesta;
+import com.example.demo.security.LoginExecutor;
+import com.example.demo.security.LoginThrottle;
+import com.example.demo.security.SesionTokenService;
+import com.example.demo.security.UsuarioAutenticado;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -19,6 +24,9 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 public class AuthController {
@@ -26,41 +34,81 @@ public class AuthController {
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
     @Autowired
-    private AuthenticationManager authenticationManager;
+    private LoginExecutor loginExecutor;
 
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private SesionTokenService sesionTokenService;
+
+    /**
+     * La verificación de la contraseña se hace en {@link LoginExecutor}; el hilo
+     * de Tomcat queda libre mientras tanto. Si el pool está saturado se
+     * responde 429 con Retry-After. En modo sesión, la sesión se escribe en
+     * {@link com.example.demo.security.SesionLoginInterceptor}.
+     */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody(required = false) LoginRequest payload,
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody(required = false) LoginRequest payload,
             HttpServletRequest request) {
         logger.info("====== LOGIN ATTEMPT ======");
         
         String email = payload != null ? payload.getEmail() : null;
         String password = payload != null ? payload.getPassword() : null;
-        
+
+        // Los intentos de una clave con demasiados fallos no llegan a BCrypt; el
+        // resto se cuenta como fallo hasta que la verificación diga lo contrario
+        String ip = request.getRemoteAddr();
+        long espera = loginThrottle.reservar(email, ip);
+        if (espera > 0) {
+            logger.warn("Login bloqueado por exceso de fallos: {} desde {}", email, ip);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(espera))
+                    .body(Map.of("email", "Demasiados intentos de inicio de sesión. Inténtelo más tarde.")));
+        }
+
+        CompletableFuture<Authentication> verificacion;
         try {
-            UsernamePasswordAuthenticationToken authRequest = new UsernamePasswordAuthenticationToken(email, password);
-            Authentication authentication = authenticationManager.authenticate(authRequest);
+            verificacion = loginExecutor.autenticar(new UsernamePasswordAuthenticationToken(email, password));
+        } catch (RejectedExecutionException e) {
+            loginThrottle.liberar(email, ip);
+            logger.warn("Login rechazado por saturación: {}", email);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(loginExecutor.retryAfterSegundos()))
+                    .body(Map.of("email", "Demasiados intentos de inicio de sesión. Inténtelo más tarde.")));
+        }
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        return verificacion.handle((authentication, error) -> {
+            if (error == null) {
+                loginThrottle.registrarExito(email, ip);
+                logger.info("✅ Login successful for user: {}", email);
 
-            HttpSession session = request.getSession(true);
-            session.setAttribute("SPRING_SECURITY_CONTEXT", SecurityContextHolder.getContext());
+                if (sesionTokenService.isActivo()
+                        && authentication.getPrincipal() instanceof UsuarioAutenticado usuario) {
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.SET_COOKIE, sesionTokenService.emitir(usuario).toString())
+                            .body(new LoginRespuesta("Login exitoso", email, null));
+                }
 
-            logger.info("✅ Login successful for user: {}", email);
+                // Este hilo es del pool de login: la sesión la escribe SesionLoginInterceptor
+                // en el despacho del contenedor
+                return ResponseEntity.ok(new LoginRespuesta("Login exitoso", email, authentication));
+            }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Login exitoso");
-            response.put("user", email);
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (AuthenticationException e) {
-            logger.error("！！！ AUTHENTICATION FAILED ！！！: {}", e.getMessage());
+            Throwable causa = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            if (!(causa instanceof AuthenticationException)) {
+                loginThrottle.liberar(email, ip);
+                throw new CompletionException(causa);
+            }
+            logger.error("！！！ AUTHENTICATION FAILED ！！！: {}", causa.getMessage());
 
             Map<String, String> errors = new HashMap<>();
             errors.put("email", "Las credenciales no coinciden con nuestros registros.");
-            
+
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errors);
-        }
+        });
     }
 
     @PostMapping("/logout")
@@ -71,6 +119,9 @@ public class AuthController {
         }
         SecurityContextHolder.clearContext();
 
+        if (sesionTokenService.isActivo()) {
+            return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, sesionTokenService.borrar().toString()).build();
+        }
         return ResponseEntity.ok().build();
     }
 }
@@ -1,12 +1,16 @@
 package com.example.demo.controller;
 
+import com.example.demo.annotation.RequierePermiso;
+import com.example.demo.annotation.RespuestaCondicional;
 import com.example.demo.dto.ClienteDTO;
+import com.example.demo.dto.ListadoDTO;
 import com.example.demo.service.ClienteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/clientes")
@@ -19,16 +23,28 @@ public class ClienteController {
         this.clienteService = clienteService;
     }
 
+    @RequierePermiso("ver clientes")
+    @RespuestaCondicional("clientes")
     @GetMapping
-    public List<ClienteDTO> index() {
-        return clienteService.findAll();
+    public ResponseEntity<?> index(@ModelAttribute ListadoDTO listado, @RequestParam Map<String, String> parametros) {
+        if (listado.getPage() == null) {
+            return ResponseEntity.ok(clienteService.findAll());
+        }
+        try {
+            return ResponseEntity.ok(clienteService.paginar(listado, parametros));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("listado", e.getMessage()));
+        }
     }
 
+    @RequierePermiso("crear clientes")
     @PostMapping
     public ResponseEntity<ClienteDTO> store(@RequestBody ClienteDTO clienteDTO) {
         return ResponseEntity.ok(clienteService.save(clienteDTO));
     }
 
+    @RequierePermiso("ver clientes")
+    @RespuestaCondicional("clientes")
     @GetMapping("/{id}")
     public ResponseEntity<ClienteDTO> show(@PathVariable Long id) {
         return clienteService.findById(id)
@@ -36,6 +52,7 @@ public class ClienteController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @RequierePermiso("editar clientes")
     @PutMapping("/{id}")
     public ResponseEntity<ClienteDTO> update(@PathVariable Long id, @RequestBody ClienteDTO updateData) {
         return clienteService.findById(id).map(cliente -> {
@@ -44,6 +61,7 @@ public class ClienteController {
         }).orElse(ResponseEntity.notFound().build());
     }
 
+    @RequierePermiso("eliminar clientes")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> destroy(@PathVariable Long id) {
         clienteService.deleteById(id);
@@ -1,8 +1,11 @@
 package com.example.demo.controller;
 
+import com.example.demo.annotation.RequierePermiso;
 import com.example.demo.model.Configuracion;
 import com.example.demo.service.ConfiguracionService;
 import com.example.demo.service.AuditoriaService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -34,6 +37,22 @@ public class ConfiguracionController {
         return configuracionService.findAll();
     }
 
+    /**
+     * Configuración vigente para el layout, servida desde memoria con un ETag
+     * fuerte: si coincide con If-None-Match se responde 304 sin cuerpo y sin
+     * consultar la base de datos.
+     */
+    @GetMapping("/actual")
+    public ResponseEntity<byte[]> actual() {
+        return configuracionService.vigente()
+                .map(vigente -> ResponseEntity.ok()
+                        .eTag(vigente.etag())
+                        .cacheControl(CacheControl.noCache())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(vigente.json()))
+                .orElse(ResponseEntity.noContent().build());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Configuracion> show(@PathVariable Long id) {
         return configuracionService.findById(id)
@@ -41,11 +60,12 @@ public class ConfiguracionController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @RequierePermiso("crear configuracion")
     @PostMapping
     public ResponseEntity<?> store(@ModelAttribute Configuracion configuracion,
             @RequestParam(value = "logo", required = false) MultipartFile logoFile,
             HttpServletRequest request) {
-        if (configuracionService.findAll().size() > 0) {
+        if (configuracionService.existe()) {
             return ResponseEntity.badRequest().body(Map.of("message", "Ya existe una configuración"));
         }
 
@@ -59,6 +79,7 @@ public class ConfiguracionController {
         return ResponseEntity.ok(configuracion);
     }
 
+    @RequierePermiso("editar configuracion")
     @PostMapping("/{id}") // Usamos POST para soportar Multipart con @ModelAttribute en algunos clientes
     public ResponseEntity<?> update(@PathVariable Long id, @ModelAttribute Configuracion configuracion,
             @RequestParam(value = "logo", required = false) MultipartFile logoFile,
@@ -82,6 +103,7 @@ public class ConfiguracionController {
         return ResponseEntity.ok(configuracion);
     }
 
+    @RequierePermiso("eliminar configuracion")
     @DeleteMapping("/{id}")
     public ResponseEntity<?> destroy(@PathVariable Long id, HttpServletRequest request) {
         return configuracionService.findById(id).map(configuracion -> {
@@ -1,11 +1,15 @@
 package com.example.demo.controller;
 
+import com.example.demo.annotation.RequierePermiso;
+import com.example.demo.annotation.RespuestaCondicional;
 import com.example.demo.dto.EmpresaDTO;
+import com.example.demo.dto.ListadoDTO;
 import com.example.demo.service.EmpresaService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/empresas")
@@ -17,11 +21,22 @@ public class EmpresaController {
         this.empresaService = empresaService;
     }
 
+    @RequierePermiso("ver empresas")
+    @RespuestaCondicional("empresas")
     @GetMapping
-    public List<EmpresaDTO> index() {
-        return empresaService.findAll();
+    public ResponseEntity<?> index(@ModelAttribute ListadoDTO listado, @RequestParam Map<String, String> parametros) {
+        if (listado.getPage() == null) {
+            return ResponseEntity.ok(empresaService.findAll());
+        }
+        try {
+            return ResponseEntity.ok(empresaService.paginar(listado, parametros));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("listado", e.getMessage()));
+        }
     }
 
+    @RequierePermiso("ver empresas")
+    @RespuestaCondicional("empresas")
     @GetMapping("/{id}")
     public ResponseEntity<EmpresaDTO> show(@PathVariable Long id) {
         return empresaService.findById(id)
@@ -29,17 +44,20 @@ public class EmpresaController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @RequierePermiso("crear empresas")
     @PostMapping
     public ResponseEntity<EmpresaDTO> store(@RequestBody EmpresaDTO empresaDTO) {
         return ResponseEntity.ok(empresaService.save(empresaDTO));
     }
 
+    @RequierePermiso("editar empresas")
     @PutMapping("/{id}")
     public ResponseEntity<EmpresaDTO> update(@PathVariable Long id, @RequestBody EmpresaDTO empresaDTO) {
         empresaDTO.setId(id);
         return ResponseEntity.ok(empresaService.save(empresaDTO));
     }
 
+    @RequierePermiso("eliminar empresas")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> destroy(@PathVariable Long id) {
         return empresaService.findById(id).map(empresa -> {
@@ -2,12 +2,12 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.UserDTO;
 import com.example.demo.model.User;
+import com.example.demo.security.UsuarioAutenticado;
 import com.example.demo.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
@@ -29,16 +29,16 @@ public class ProfileController {
 
     @GetMapping
     public ResponseEntity<UserDTO> show() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return userService.findByEmail(auth.getName())
+        return UsuarioAutenticado.actual()
+                .flatMap(usuario -> userService.findById(usuario.getId()))
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
     }
 
     @PatchMapping
     public ResponseEntity<UserDTO> update(@RequestBody Map<String, Object> payload) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        Optional<UserDTO> userOpt = userService.findByEmail(auth.getName());
+        Optional<UserDTO> userOpt = UsuarioAutenticado.actual()
+                .flatMap(usuario -> userService.findById(usuario.getId()));
 
         if (userOpt.isPresent()) {
             UserDTO userDTO = userOpt.get();
@@ -48,6 +48,8 @@ public class ProfileController {
             if (payload.containsKey("email")) {
                 userDTO.setEmail((String) payload.get("email"));
             }
+            // Se conserva la contraseña guardada
+            userDTO.setPassword(null);
             return ResponseEntity.ok(userService.save(userDTO));
         }
 
@@ -56,8 +58,8 @@ public class ProfileController {
 
     @PutMapping("/password")
     public ResponseEntity<?> updatePassword(@RequestBody Map<String, Object> payload) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        Optional<User> userOpt = userService.findEntityByEmail(auth.getName());
+        Optional<User> userOpt = UsuarioAutenticado.actual()
+                .flatMap(usuario -> userService.findEntityById(usuario.getId()));
 
         if (userOpt.isPresent()) {
             User user = userOpt.get();
@@ -65,11 +67,7 @@ public class ProfileController {
             String newPassword = (String) payload.get("password");
 
             if (passwordEncoder.matches(currentPassword, user.getPassword())) {
-                user.setPassword(passwordEncoder.encode(newPassword));
-                // Assuming we have a way to save entity or via DTO
-                UserDTO dto = userService.findByEmail(auth.getName()).get();
-                dto.setPassword(user.getPassword());
-                userService.save(dto);
+                userService.cambiarPassword(user, newPassword);
                 return ResponseEntity.ok(Map.of("message", "Contraseña actualizada exitosamente"));
             } else {
                 return ResponseEntity.badRequest().body(Map.of("current_password", "La contraseña actual es incorrecta."));
@@ -81,17 +79,15 @@ public class ProfileController {
 
     @DeleteMapping
     public ResponseEntity<?> destroy(@RequestBody Map<String, Object> payload, HttpServletRequest request) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        Optional<User> userEntityOpt = userService.findEntityByEmail(auth.getName());
+        Optional<User> userEntityOpt = UsuarioAutenticado.actual()
+                .flatMap(usuario -> userService.findEntityById(usuario.getId()));
 
         if (userEntityOpt.isPresent()) {
             User user = userEntityOpt.get();
             String password = (String) payload.get("password");
 
             if (passwordEncoder.matches(password, user.getPassword())) {
-                UserDTO userDTO = userService.findByEmail(auth.getName()).get();
-                userDTO.setStatus(0);
-                userService.save(userDTO);
+                userService.desactivar(user);
 
                 HttpSession session = request.getSession(false);
                 if (session != null) {
@@ -1,9 +1,13 @@
 package com.example.demo.controller;
 
+import com.example.demo.annotation.RequierePermiso;
+import com.example.demo.annotation.RespuestaCondicional;
+import com.example.demo.dto.RolModuloPermisoLoteDTO;
 import com.example.demo.dto.RoleDTO;
 import com.example.demo.service.RoleService;
 import com.example.demo.service.PermissionService;
 import com.example.demo.service.ModuloService;
+import com.example.demo.service.RolPermisoService;
 import com.example.demo.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,20 +24,26 @@ public class RolesController {
         private final PermissionService permissionService;
         private final ModuloService moduloService;
         private final UserService userService;
+        private final RolPermisoService rolPermisoService;
 
         public RolesController(RoleService roleService, PermissionService permissionService,
-                        ModuloService moduloService, UserService userService) {
+                        ModuloService moduloService, UserService userService, RolPermisoService rolPermisoService) {
                 this.roleService = roleService;
                 this.permissionService = permissionService;
                 this.moduloService = moduloService;
                 this.userService = userService;
+                this.rolPermisoService = rolPermisoService;
         }
 
+        @RequierePermiso("ver roles")
+        @RespuestaCondicional({ "roles", "role_has_permissions" })
         @GetMapping
         public List<RoleDTO> index() {
                 return roleService.findAll();
         }
 
+        @RequierePermiso("ver roles")
+        @RespuestaCondicional({ "roles", "role_has_permissions" })
         @GetMapping("/{id}")
         public ResponseEntity<RoleDTO> show(@PathVariable Long id) {
                 return roleService.findById(id)
@@ -41,17 +51,34 @@ public class RolesController {
                                 .orElse(ResponseEntity.notFound().build());
         }
 
+        @RequierePermiso("crear roles")
         @PostMapping
         public ResponseEntity<RoleDTO> store(@RequestBody RoleDTO roleDTO) {
                 return ResponseEntity.ok(roleService.save(roleDTO));
         }
 
+        @RequierePermiso("editar roles")
         @PutMapping("/{id}")
         public ResponseEntity<RoleDTO> update(@PathVariable Long id, @RequestBody RoleDTO roleDTO) {
                 roleDTO.setId(id);
                 return ResponseEntity.ok(roleService.save(roleDTO));
         }
 
+        /**
+         * Concede y revoca en bloque acciones de módulos a varios roles en una
+         * sola petición y transacción; devuelve las filas afectadas.
+         */
+        @RequierePermiso("editar roles")
+        @PostMapping("/modulos")
+        public ResponseEntity<?> asignarModulos(@RequestBody RolModuloPermisoLoteDTO lote) {
+                try {
+                        return ResponseEntity.ok(rolPermisoService.aplicarLote(lote));
+                } catch (IllegalArgumentException e) {
+                        return ResponseEntity.badRequest().body(Map.of("general", e.getMessage()));
+                }
+        }
+
+        @RequierePermiso("eliminar roles")
         @DeleteMapping("/{id}")
         public ResponseEntity<?> destroy(@PathVariable Long id) {
                 if (userService.countByRoleId(id) > 0) {
@@ -67,6 +94,8 @@ public class RolesController {
                 }).orElse(ResponseEntity.notFound().build());
         }
 
+        @RequierePermiso("ver roles")
+        @RespuestaCondicional({ "permissions", "modulos" })
         @GetMapping("/getPermisos")
         public Map<String, Object> getPermisos() {
                 return Map.of(
@@ -75,6 +104,8 @@ public class RolesController {
                                 "data", permissionService.findAllWithModuloInfo());
         }
 
+        @RequierePermiso("ver roles")
+        @RespuestaCondicional("modulos")
         @GetMapping("/getModulos")
         public Map<String, Object> getModulos() {
                 return Map.of(
@@ -83,6 +114,8 @@ public class RolesController {
                                 "data", moduloService.findAll());
         }
 
+        @RequierePermiso("ver roles")
+        @RespuestaCondicional({ "roles", "role_has_permissions" })
         @GetMapping("/getRoles")
         public Map<String, Object> getRoles() {
                 return Map.of(
@@ -1,6 +1,9 @@
 package com.example.demo.controller;
 
+import com.example.demo.annotation.RequierePermiso;
+import com.example.demo.annotation.RespuestaCondicional;
 import com.example.demo.dto.UserDTO;
+import com.example.demo.dto.ListadoDTO;
 import com.example.demo.service.UserService;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
@@ -19,11 +22,21 @@ public class UserController {
         this.userService = userService;
     }
 
+    @RequierePermiso("ver users")
+    @RespuestaCondicional({ "users", "roles" })
     @GetMapping
-    public List<UserDTO> index() {
-        return userService.findAll();
+    public ResponseEntity<?> index(@ModelAttribute ListadoDTO listado, @RequestParam Map<String, String> parametros) {
+        if (listado.getPage() == null) {
+            return ResponseEntity.ok(userService.findAll());
+        }
+        try {
+            return ResponseEntity.ok(userService.paginar(listado, parametros));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("listado", e.getMessage()));
+        }
     }
 
+    @RequierePermiso("crear users")
     @PostMapping
     public ResponseEntity<UserDTO> store(@RequestBody Map<String, Object> payload) {
         UserDTO userDTO = new UserDTO();
@@ -42,6 +55,7 @@ public class UserController {
         return ResponseEntity.ok(userService.save(userDTO));
     }
 
+    @RequierePermiso("editar users")
     @PutMapping("/{id}")
     public ResponseEntity<UserDTO> update(@PathVariable Long id, @RequestBody Map<String, Object> payload) {
         Optional<UserDTO> userOpt = userService.findById(id);
@@ -69,6 +83,7 @@ public class UserController {
         return ResponseEntity.notFound().build();
     }
 
+    @RequierePermiso("eliminar users")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> destroy(@PathVariable Long id) {
         Optional<UserDTO> userOpt = userService.findById(id);
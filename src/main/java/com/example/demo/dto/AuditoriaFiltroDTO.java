@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+public class AuditoriaFiltroDTO {
+    private String model;
+    private Long model_id;
+    private Long user_id;
+    private String accion;
+    private String ip;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime desde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime hasta;
+
+    // Cursor opaco devuelto como next_cursor en la página anterior
+    private String cursor;
+    private Integer limit;
+}
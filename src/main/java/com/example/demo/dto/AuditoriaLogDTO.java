@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class AuditoriaLogDTO {
+    private Long id;
+    private Long user_id;
+    private String user_name;
+    private String user_email;
+    private String model;
+    private Long model_id;
+    private String accion;
+    private String datos_anteriores;
+    private String datos_nuevos;
+    private String ip;
+    private String user_agent;
+    private String url;
+    private String observaciones;
+    private String formato;
+    private Integer secuencia;
+    private LocalDateTime created_at;
+}
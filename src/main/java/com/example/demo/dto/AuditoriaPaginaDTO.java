@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AuditoriaPaginaDTO {
+    private List<AuditoriaLogDTO> data;
+    private String next_cursor;
+    private boolean has_more;
+    private int limit;
+}
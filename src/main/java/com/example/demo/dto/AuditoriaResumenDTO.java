@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AuditoriaResumenDTO {
+    private LocalDateTime periodo;
+    private String model;
+    private String accion;
+    private Long user_id;
+    private long total;
+}
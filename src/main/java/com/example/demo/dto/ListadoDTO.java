@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+@Data
+public class ListadoDTO {
+    // Página empezando en 1; sin ella el endpoint devuelve la lista completa
+    private Integer page;
+    private Integer per_page;
+
+    // Campos separados por comas, con "-" delante para orden descendente
+    private String sort;
+
+    // Búsqueda por prefijo en los campos de texto del listado
+    private String q;
+
+    private PaginaDTO.Conteo conteo = PaginaDTO.Conteo.EXACTO;
+}
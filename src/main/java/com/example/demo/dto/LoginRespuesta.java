@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Respuesta de un login correcto. La autenticación no se serializa: la usa
+ * {@link com.example.demo.security.SesionLoginInterceptor} para guardarla en la
+ * sesión desde el hilo del contenedor.
+ */
+@Data
+@AllArgsConstructor
+public class LoginRespuesta {
+    private String message;
+    private String user;
+    @JsonIgnore
+    private Authentication authentication;
+}
@@ -0,0 +1,30 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class PaginaDTO<T> {
+
+    /**
+     * Cómo se calcula el total: EXACTO con COUNT(*), ESTIMADO con las
+     * estadísticas de la tabla cuando no hay filtros, NINGUNO sin total (sólo
+     * has_more).
+     */
+    public enum Conteo {
+        EXACTO, ESTIMADO, NINGUNO
+    }
+
+    private List<T> data;
+    private int page;
+    private int per_page;
+    // null con conteo NINGUNO
+    private Long total;
+    private Integer last_page;
+    private boolean has_more;
+    // El conteo aplicado: un ESTIMADO con filtros se resuelve como EXACTO
+    private Conteo conteo;
+}
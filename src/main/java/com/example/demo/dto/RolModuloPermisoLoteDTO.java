@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Concesiones y revocaciones en bloque: cada matriz aplica sus acciones
+ * ("ver", "editar"...) de los módulos indicados a todos los roles indicados.
+ * Sin acciones se toman todos los permisos del módulo.
+ */
+@Data
+public class RolModuloPermisoLoteDTO {
+    private List<Matriz> conceder;
+    private List<Matriz> revocar;
+
+    @Data
+    public static class Matriz {
+        private List<Long> roles;
+        private List<Long> modulos;
+        private List<String> acciones;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+/** Filas afectadas por un lote de {@link RolModuloPermisoLoteDTO}. */
+@Data
+public class RolModuloPermisoResultadoDTO {
+    /** Filas nuevas en rol_modulo_permiso. */
+    private int concedidos;
+    /** Filas borradas de rol_modulo_permiso. */
+    private int revocados;
+    /** Filas nuevas en role_has_permissions, que es lo que se aplica. */
+    private int permisosConcedidos;
+    /**
+     * Filas borradas de role_has_permissions: sólo las que cubría el módulo
+     * revocado y ninguna otra concesión; las asignaciones directas se conservan.
+     */
+    private int permisosRevocados;
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/** Cambio aplicado a los permisos de un rol; {@code id} es el del rol. */
+@Data
+public class RolPermisosDTO {
+    private Long id;
+    private List<Long> agregados;
+    private List<Long> revocados;
+    private List<Long> permisos;
+}
@@ -5,6 +5,8 @@ import com.example.demo.model.Role;
 import com.example.demo.model.Permission;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.Named;
 
 import java.util.List;
 
@@ -13,8 +15,17 @@ public interface RoleMapper {
     @Mapping(target = "permisos", expression = "java(role.getPermissions() != null ? role.getPermissions().stream().map(Permission::getId).collect(Collectors.toList()) : null)")
     RoleDTO toDTO(Role role);
 
+    /** Sin tocar la colección de permisos, que puede no estar cargada. */
+    @Named("sinPermisos")
+    @Mapping(target = "permisos", ignore = true)
+    RoleDTO toDTOSinPermisos(Role role);
+
     @Mapping(target = "permissions", ignore = true)
     Role toEntity(RoleDTO roleDTO);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "permissions", ignore = true)
+    void updateEntity(RoleDTO roleDTO, @MappingTarget Role role);
+
     List<RoleDTO> toDTOs(List<Role> roles);
 }
@@ -18,7 +18,8 @@ public class AuditoriaLog {
 
     @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id")
+    // auditoria_logs está particionada (V7) y MySQL no admite FKs en tablas particionadas
+    @JoinColumn(name = "user_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private User user;
 
     @Column(nullable = false)
@@ -46,6 +47,15 @@ public class AuditoriaLog {
     @Column(columnDefinition = "TEXT")
     private String observaciones;
 
+    // CHECKPOINT o DELTA en modo de almacenamiento por deltas; null = snapshot completo
+    private String formato;
+
+    private Integer secuencia;
+
+    // Id del evento en el journal local; permite reenviar sin duplicar filas
+    @Column(name = "evento_id", length = 40)
+    private String eventoId;
+
     @org.hibernate.annotations.CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -141,6 +151,30 @@ public class AuditoriaLog {
         this.observaciones = observaciones;
     }
 
+    public String getFormato() {
+        return formato;
+    }
+
+    public void setFormato(String formato) {
+        this.formato = formato;
+    }
+
+    public Integer getSecuencia() {
+        return secuencia;
+    }
+
+    public void setSecuencia(Integer secuencia) {
+        this.secuencia = secuencia;
+    }
+
+    public String getEventoId() {
+        return eventoId;
+    }
+
+    public void setEventoId(String eventoId) {
+        this.eventoId = eventoId;
+    }
+
     @JsonProperty("created_at")
     public LocalDateTime getCreatedAt() {
         return createdAt;
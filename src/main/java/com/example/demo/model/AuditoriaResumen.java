@@ -0,0 +1,43 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Contadores agregados de auditoria_logs por hora y por día. Se mantienen de
+ * forma incremental desde el writer de auditoría (ver AuditoriaResumenService).
+ */
+@Entity
+@Table(name = "auditoria_resumen")
+@Data
+public class AuditoriaResumen {
+
+    @EmbeddedId
+    private Clave clave;
+
+    @Column(nullable = false)
+    private Long total;
+
+    @Embeddable
+    @Data
+    public static class Clave implements Serializable {
+        // HORA o DIA
+        @Column(length = 4, nullable = false)
+        private String granularidad;
+
+        @Column(nullable = false)
+        private LocalDateTime periodo;
+
+        @Column(length = 100, nullable = false)
+        private String model;
+
+        @Column(length = 100, nullable = false)
+        private String accion;
+
+        // 0 = sin usuario (peticiones anónimas)
+        @Column(name = "user_id", nullable = false)
+        private Long userId;
+    }
+}
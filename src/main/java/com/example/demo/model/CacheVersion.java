@@ -0,0 +1,26 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Versión de una región de caché (V14). Se lee y escribe con JDBC desde
+ * CacheVersiones; la entidad sólo describe el esquema.
+ */
+@Entity
+@Table(name = "cache_versiones", indexes = @Index(name = "idx_cache_versiones_actualizado", columnList = "actualizado"))
+@Data
+public class CacheVersion {
+
+    @Id
+    @Column(length = 150)
+    private String region;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false, columnDefinition = "TIMESTAMP(3)")
+    private LocalDateTime actualizado;
+}
@@ -1,11 +1,13 @@
 package com.example.demo.model;
 
+import com.example.demo.annotation.Auditable;
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import org.hibernate.annotations.SQLRestriction;
 
 @Entity
-@Table(name = "clientes")
+@Auditable(model = "Cliente")
+@Table(name = "clientes", indexes = @Index(name = "idx_clientes_status_nombre", columnList = "status, nombre"))
 @SQLRestriction("status = 1")
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Cliente {
@@ -1,15 +1,21 @@
 package com.example.demo.model;
 
+import com.example.demo.annotation.Auditable;
 import jakarta.persistence.*;
 import lombok.Data;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.SQLRestriction;
 
 @Entity
+@Auditable(model = "Configuracion")
 @Table(name = "configuracion")
 @SQLRestriction("status = 1")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "configuracion")
 @Data
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Configuracion {
@@ -1,13 +1,19 @@
 package com.example.demo.model;
 
+import com.example.demo.annotation.Auditable;
 import jakarta.persistence.*;
 import lombok.Data;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.SQLRestriction;
 
 @Entity
-@Table(name = "empresas")
+@Auditable(model = "Empresa")
+@Table(name = "empresas", indexes = @Index(name = "idx_empresas_status_nombre", columnList = "status, nombre"))
 @SQLRestriction("status = 1")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "empresa")
 @Data
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Empresa {
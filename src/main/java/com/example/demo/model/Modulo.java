@@ -1,14 +1,20 @@
 package com.example.demo.model;
 
+import com.example.demo.annotation.Auditable;
 import jakarta.persistence.*;
 import java.util.List;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.SQLRestriction;
 
 @Entity
+@Auditable(model = "Modulo")
 @Table(name = "modulos")
 @SQLRestriction("status = 1")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "modulo")
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Modulo {
     @Id
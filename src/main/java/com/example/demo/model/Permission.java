@@ -1,15 +1,21 @@
 package com.example.demo.model;
 
+import com.example.demo.annotation.Auditable;
 import jakarta.persistence.*;
 import java.util.List;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.SQLRestriction;
 
 @Entity
+@Auditable(model = "Permiso")
 @Table(name = "permissions")
 @SQLRestriction("status = 1")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "permiso")
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Permission {
     @Id
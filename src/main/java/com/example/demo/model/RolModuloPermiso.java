@@ -7,7 +7,8 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "rol_modulo_permiso")
+@Table(name = "rol_modulo_permiso", uniqueConstraints = @UniqueConstraint(name = "uk_rol_modulo_permiso", columnNames = {
+        "role_id", "modulo_id", "permission_id" }))
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class RolModuloPermiso {
     @Id
@@ -0,0 +1,35 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Sesión HTTP persistida (V12). Se lee y escribe con JDBC desde
+ * SesionJdbcRepository; la entidad sólo describe el esquema.
+ */
+@Entity
+@Table(name = "sesiones", indexes = @Index(name = "idx_sesiones_expira", columnList = "expira"))
+@Data
+public class Sesion {
+
+    @Id
+    @Column(name = "primary_id", length = 36)
+    private String primaryId;
+
+    @Column(name = "session_id", length = 36, nullable = false, unique = true)
+    private String sessionId;
+
+    // Instantes en milisegundos desde epoch
+    @Column(nullable = false)
+    private Long creado;
+
+    @Column(name = "ultimo_acceso", nullable = false)
+    private Long ultimoAcceso;
+
+    // Segundos
+    @Column(name = "max_inactivo", nullable = false)
+    private Integer maxInactivo;
+
+    @Column(nullable = false)
+    private Long expira;
+}
@@ -0,0 +1,32 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.io.Serializable;
+
+/**
+ * Atributo serializado de una {@link Sesion}; una fila por atributo para poder
+ * escribir sólo los que cambian.
+ */
+@Entity
+@Table(name = "sesion_atributos")
+@Data
+public class SesionAtributo {
+
+    @EmbeddedId
+    private Clave clave;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "LONGBLOB")
+    private byte[] valor;
+
+    @Embeddable
+    @Data
+    public static class Clave implements Serializable {
+        @Column(name = "sesion_primary_id", length = 36, nullable = false)
+        private String sesionPrimaryId;
+
+        @Column(length = 200, nullable = false)
+        private String nombre;
+    }
+}
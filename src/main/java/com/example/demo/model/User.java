@@ -1,5 +1,6 @@
 package com.example.demo.model;
 
+import com.example.demo.annotation.Auditable;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -9,7 +10,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import org.hibernate.annotations.SQLRestriction;
 
 @Entity
-@Table(name = "users")
+@Auditable(model = "Usuario", exclude = { "password", "rememberToken" })
+@Table(name = "users", indexes = @Index(name = "idx_users_status_name", columnList = "status, name"))
 @SQLRestriction("status = 1")
 @Data
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
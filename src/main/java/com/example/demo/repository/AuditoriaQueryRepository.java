@@ -0,0 +1,241 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.AuditoriaFiltroDTO;
+import com.example.demo.dto.AuditoriaLogDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Consultas de auditoria_logs con filtros dinámicos y paginación por cursor
+ * sobre (created_at, id). Cada filtro tiene su índice compuesto terminado en
+ * (created_at, id) para que la página N cueste lo mismo que la primera.
+ */
+@Repository
+public class AuditoriaQueryRepository {
+
+    static final String SELECT_COLUMNAS = "SELECT a.id, a.user_id, u.name AS user_name, u.email AS user_email, "
+            + "a.model, a.model_id, a.accion, a.datos_anteriores, a.datos_nuevos, a.ip, a.user_agent, a.url, "
+            + "a.observaciones, a.formato, a.secuencia, a.created_at "
+            + "FROM auditoria_logs a LEFT JOIN users u ON u.id = a.user_id";
+
+    // Sólo columnas de idx_auditoria_model_historial (V11) más el nombre del
+    // usuario por PK: la línea de tiempo no toca las filas de auditoria_logs.
+    static final String SELECT_HISTORIAL = "SELECT a.id, a.user_id, u.name AS user_name, u.email AS user_email, "
+            + "a.model, a.model_id, a.accion, NULL AS datos_anteriores, NULL AS datos_nuevos, NULL AS ip, "
+            + "NULL AS user_agent, NULL AS url, NULL AS observaciones, a.formato, a.secuencia, a.created_at "
+            + "FROM auditoria_logs a LEFT JOIN users u ON u.id = a.user_id";
+
+    static final RowMapper<AuditoriaLogDTO> ROW_MAPPER = (rs, rowNum) -> {
+        AuditoriaLogDTO dto = new AuditoriaLogDTO();
+        dto.setId(rs.getLong("id"));
+        dto.setUser_id(rs.getObject("user_id") != null ? rs.getLong("user_id") : null);
+        dto.setUser_name(rs.getString("user_name"));
+        dto.setUser_email(rs.getString("user_email"));
+        dto.setModel(rs.getString("model"));
+        dto.setModel_id(rs.getObject("model_id") != null ? rs.getLong("model_id") : null);
+        dto.setAccion(rs.getString("accion"));
+        dto.setDatos_anteriores(rs.getString("datos_anteriores"));
+        dto.setDatos_nuevos(rs.getString("datos_nuevos"));
+        dto.setIp(rs.getString("ip"));
+        dto.setUser_agent(rs.getString("user_agent"));
+        dto.setUrl(rs.getString("url"));
+        dto.setObservaciones(rs.getString("observaciones"));
+        dto.setFormato(rs.getString("formato"));
+        dto.setSecuencia(rs.getObject("secuencia") != null ? rs.getInt("secuencia") : null);
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        dto.setCreated_at(createdAt != null ? createdAt.toLocalDateTime() : null);
+        return dto;
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate bloquesJdbcTemplate;
+    private final int tamanoBloque;
+
+    public AuditoriaQueryRepository(NamedParameterJdbcTemplate jdbcTemplate, DataSource dataSource,
+            @Value("${auditoria.export.tamano-bloque:1000}") int tamanoBloque,
+            @Value("${auditoria.export.timeout-consulta-segundos:30}") int timeoutConsulta) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanoBloque = Math.max(1, tamanoBloque);
+
+        // Los recorridos largos van por bloques con LIMIT: cada consulta toma
+        // una conexión del pool sólo mientras lee su bloque, y nunca más de
+        // timeout-consulta-segundos.
+        JdbcTemplate bloques = new JdbcTemplate(dataSource);
+        bloques.setQueryTimeout(Math.max(0, timeoutConsulta));
+        this.bloquesJdbcTemplate = new NamedParameterJdbcTemplate(bloques);
+    }
+
+    /**
+     * Devuelve hasta {@code limit} filas ordenadas de la más reciente a la más
+     * antigua, estrictamente anteriores al cursor (cursorFecha, cursorId) si se
+     * indica.
+     */
+    public List<AuditoriaLogDTO> buscar(AuditoriaFiltroDTO filtro, LocalDateTime cursorFecha, Long cursorId,
+            int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNAS);
+        sql.append(where(filtro, cursorFecha, cursorId, params));
+        sql.append(" ORDER BY a.created_at DESC, a.id DESC LIMIT :limit");
+        params.addValue("limit", limit);
+        return jdbcTemplate.query(sql.toString(), params, ROW_MAPPER);
+    }
+
+    /**
+     * Recorre en orden cronológico todas las filas que cumplen el filtro, en
+     * bloques de tamano-bloque filas con cursor (created_at, id). Cada bloque se
+     * lee entero y se suelta la conexión antes de entregarlo, así que un
+     * cliente lento no retiene conexiones del pool.
+     */
+    public void recorrer(AuditoriaFiltroDTO filtro, Consumer<List<AuditoriaLogDTO>> consumidor) {
+        LocalDateTime cursorFecha = null;
+        Long cursorId = null;
+        while (true) {
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            String condiciones = where(filtro, null, null, params);
+            String sql = SELECT_COLUMNAS + condiciones;
+            if (cursorId != null) {
+                sql += (condiciones.isEmpty() ? " WHERE " : " AND ")
+                        + "(a.created_at > :despuesFecha OR (a.created_at = :despuesFecha AND a.id > :despuesId))";
+                params.addValue("despuesFecha", Timestamp.valueOf(cursorFecha));
+                params.addValue("despuesId", cursorId);
+            }
+            params.addValue("limit", tamanoBloque);
+            List<AuditoriaLogDTO> bloque = bloquesJdbcTemplate.query(sql + " ORDER BY a.created_at, a.id LIMIT :limit",
+                    params, ROW_MAPPER);
+            if (bloque.isEmpty()) {
+                return;
+            }
+            consumidor.accept(bloque);
+            if (bloque.size() < tamanoBloque) {
+                return;
+            }
+            AuditoriaLogDTO ultima = bloque.get(bloque.size() - 1);
+            cursorFecha = ultima.getCreated_at();
+            cursorId = ultima.getId();
+        }
+    }
+
+    /**
+     * Línea de tiempo de un registro (model, model_id), de la versión más
+     * reciente a la más antigua. Sin {@code conDatos} no se leen los payloads.
+     */
+    public List<AuditoriaLogDTO> historial(String model, Long modelId, LocalDateTime cursorFecha, Long cursorId,
+            int limit, boolean conDatos) {
+        AuditoriaFiltroDTO filtro = new AuditoriaFiltroDTO();
+        filtro.setModel(model);
+        filtro.setModel_id(modelId);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = (conDatos ? SELECT_COLUMNAS : SELECT_HISTORIAL) + where(filtro, cursorFecha, cursorId, params)
+                + " ORDER BY a.created_at DESC, a.id DESC LIMIT :limit";
+        params.addValue("limit", limit);
+        return jdbcTemplate.query(sql, params, ROW_MAPPER);
+    }
+
+    /** Filas con los ids indicados, en el mismo orden en que se piden. */
+    public List<AuditoriaLogDTO> buscarPorIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<AuditoriaLogDTO> filas = jdbcTemplate.query(SELECT_COLUMNAS + " WHERE a.id IN (:ids)",
+                new MapSqlParameterSource("ids", ids), ROW_MAPPER);
+        Map<Long, AuditoriaLogDTO> porId = new HashMap<>();
+        for (AuditoriaLogDTO fila : filas) {
+            porId.put(fila.getId(), fila);
+        }
+        List<AuditoriaLogDTO> ordenadas = new ArrayList<>(filas.size());
+        for (Long id : ids) {
+            AuditoriaLogDTO fila = porId.get(id);
+            if (fila != null) {
+                ordenadas.add(fila);
+            }
+        }
+        return ordenadas;
+    }
+
+    /**
+     * Recorre en orden de id los textos indexables de las filas con id en
+     * (desdeId, hastaId], en bloques de tamano-bloque filas.
+     */
+    public void recorrerTextos(long desdeId, long hastaId, RowCallbackHandler handler) {
+        long[] ultimo = { desdeId };
+        int leidas;
+        do {
+            int[] filas = { 0 };
+            bloquesJdbcTemplate.query("SELECT id, model, accion, observaciones, datos_nuevos, datos_anteriores "
+                    + "FROM auditoria_logs WHERE id > :desde AND id <= :hasta ORDER BY id LIMIT :limit",
+                    new MapSqlParameterSource().addValue("desde", ultimo[0]).addValue("hasta", hastaId)
+                            .addValue("limit", tamanoBloque),
+                    rs -> {
+                        handler.processRow(rs);
+                        ultimo[0] = rs.getLong("id");
+                        filas[0]++;
+                    });
+            leidas = filas[0];
+        } while (leidas == tamanoBloque);
+    }
+
+    /** Textos indexables de las filas de {@code ids} que existan, en bloques de tamano-bloque ids. */
+    public void recorrerTextos(List<Long> ids, RowCallbackHandler handler) {
+        for (int inicio = 0; inicio < ids.size(); inicio += tamanoBloque) {
+            List<Long> bloque = ids.subList(inicio, Math.min(ids.size(), inicio + tamanoBloque));
+            bloquesJdbcTemplate.query("SELECT id, model, accion, observaciones, datos_nuevos, datos_anteriores "
+                    + "FROM auditoria_logs WHERE id IN (:ids) ORDER BY id",
+                    new MapSqlParameterSource("ids", bloque), handler);
+        }
+    }
+
+    static String where(AuditoriaFiltroDTO filtro, LocalDateTime cursorFecha, Long cursorId,
+            MapSqlParameterSource params) {
+        List<String> condiciones = new ArrayList<>();
+
+        if (filtro.getModel() != null && !filtro.getModel().isBlank()) {
+            condiciones.add("a.model = :model");
+            params.addValue("model", filtro.getModel());
+        }
+        if (filtro.getModel_id() != null) {
+            condiciones.add("a.model_id = :modelId");
+            params.addValue("modelId", filtro.getModel_id());
+        }
+        if (filtro.getUser_id() != null) {
+            condiciones.add("a.user_id = :userId");
+            params.addValue("userId", filtro.getUser_id());
+        }
+        if (filtro.getAccion() != null && !filtro.getAccion().isBlank()) {
+            condiciones.add("a.accion = :accion");
+            params.addValue("accion", filtro.getAccion());
+        }
+        if (filtro.getIp() != null && !filtro.getIp().isBlank()) {
+            condiciones.add("a.ip = :ip");
+            params.addValue("ip", filtro.getIp());
+        }
+        if (filtro.getDesde() != null) {
+            condiciones.add("a.created_at >= :desde");
+            params.addValue("desde", Timestamp.valueOf(filtro.getDesde()));
+        }
+        if (filtro.getHasta() != null) {
+            condiciones.add("a.created_at < :hasta");
+            params.addValue("hasta", Timestamp.valueOf(filtro.getHasta()));
+        }
+        if (cursorFecha != null && cursorId != null) {
+            condiciones.add("(a.created_at < :cursorFecha OR (a.created_at = :cursorFecha AND a.id < :cursorId))");
+            params.addValue("cursorFecha", Timestamp.valueOf(cursorFecha));
+            params.addValue("cursorId", cursorId);
+        }
+
+        return condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones);
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.Configuracion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +13,7 @@ import java.util.List;
 @Repository
 public interface ConfiguracionRepository extends JpaRepository<Configuracion, Long> {
     @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @EntityGraph(attributePaths = { "empresa" })
     List<Configuracion> findAll();
 }
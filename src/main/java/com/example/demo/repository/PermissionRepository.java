@@ -1,9 +1,12 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.Permission;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,10 +16,15 @@ import java.util.Map;
 public interface PermissionRepository extends JpaRepository<Permission, Long> {
 
     @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @EntityGraph(attributePaths = { "modulo" })
     List<Permission> findAll();
 
     @Query("SELECT p.id as id, p.name as name, m.id as modulo_id, m.nombre as modulo_nombre " +
             "FROM Permission p JOIN p.modulo m")
     List<Map<String, Object>> findAllWithModuloInfo();
+
+    /** Pares [id, name] en orden de id, para compilar la matriz de permisos. */
+    @Query("SELECT p.id, p.name FROM Permission p ORDER BY p.id")
+    List<Object[]> findIdsAndNames();
 }
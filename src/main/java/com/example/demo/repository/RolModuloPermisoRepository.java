@@ -0,0 +1,90 @@
+package com.example.demo.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Concesión y revocación en bloque sobre rol_modulo_permiso y
+ * role_has_permissions. Cada operación es una sola sentencia INSERT ... SELECT
+ * o DELETE sobre el producto roles × permisos de los módulos, sea cual sea el
+ * tamaño de la matriz; las concesiones saltan las filas que ya existen.
+ */
+@Repository
+public class RolModuloPermisoRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public RolModuloPermisoRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int conceder(Collection<Long> roles, Collection<Long> modulos, List<String> acciones) {
+        MapSqlParameterSource params = parametros(roles, modulos, acciones);
+        return jdbcTemplate.update("INSERT INTO rol_modulo_permiso (role_id, modulo_id, permission_id, created_at, "
+                + "updated_at) SELECT r.id, p.modulo_id, p.id, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP "
+                + "FROM roles r JOIN permissions p ON p.modulo_id IN (:modulos)" + filtroAcciones(acciones)
+                + " WHERE r.id IN (:roles) AND NOT EXISTS (SELECT 1 FROM rol_modulo_permiso x "
+                + "WHERE x.role_id = r.id AND x.modulo_id = p.modulo_id AND x.permission_id = p.id)", params);
+    }
+
+    public int concederPermisos(Collection<Long> roles, Collection<Long> modulos, List<String> acciones) {
+        MapSqlParameterSource params = parametros(roles, modulos, acciones);
+        return jdbcTemplate.update("INSERT INTO role_has_permissions (role_id, permission_id) "
+                + "SELECT r.id, p.id FROM roles r JOIN permissions p ON p.modulo_id IN (:modulos)"
+                + filtroAcciones(acciones)
+                + " WHERE r.id IN (:roles) AND NOT EXISTS (SELECT 1 FROM role_has_permissions x "
+                + "WHERE x.role_id = r.id AND x.permission_id = p.id)", params);
+    }
+
+    public int revocar(Collection<Long> roles, Collection<Long> modulos, List<String> acciones) {
+        MapSqlParameterSource params = parametros(roles, modulos, acciones);
+        return jdbcTemplate.update("DELETE FROM rol_modulo_permiso WHERE role_id IN (:roles) "
+                + "AND modulo_id IN (:modulos) AND permission_id IN (SELECT p.id FROM permissions p "
+                + "WHERE p.modulo_id IN (:modulos)" + filtroAcciones(acciones) + ")", params);
+    }
+
+    /**
+     * Borra de role_has_permissions sólo lo que concedieron estos módulos: el
+     * permiso debe tener una fila en rol_modulo_permiso de uno de ellos y
+     * ninguna de otro módulo que lo siga cubriendo. Los permisos asignados
+     * directamente al rol se conservan. Debe llamarse antes de {@link #revocar}.
+     */
+    public int revocarPermisos(Collection<Long> roles, Collection<Long> modulos, List<String> acciones) {
+        MapSqlParameterSource params = parametros(roles, modulos, acciones);
+        return jdbcTemplate.update("DELETE FROM role_has_permissions WHERE role_id IN (:roles) "
+                + "AND permission_id IN (SELECT p.id FROM permissions p WHERE p.modulo_id IN (:modulos)"
+                + filtroAcciones(acciones) + ") "
+                + "AND EXISTS (SELECT 1 FROM rol_modulo_permiso x WHERE x.role_id = role_has_permissions.role_id "
+                + "AND x.permission_id = role_has_permissions.permission_id AND x.modulo_id IN (:modulos)) "
+                + "AND NOT EXISTS (SELECT 1 FROM rol_modulo_permiso y WHERE y.role_id = role_has_permissions.role_id "
+                + "AND y.permission_id = role_has_permissions.permission_id AND y.modulo_id NOT IN (:modulos))",
+                params);
+    }
+
+    private static MapSqlParameterSource parametros(Collection<Long> roles, Collection<Long> modulos,
+            List<String> acciones) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("roles", roles)
+                .addValue("modulos", modulos);
+        for (int i = 0; i < acciones.size(); i++) {
+            params.addValue("accion" + i, acciones.get(i) + " %");
+        }
+        return params;
+    }
+
+    /** Los permisos se llaman "acción módulo" (p. ej. "editar roles"). */
+    private static String filtroAcciones(List<String> acciones) {
+        if (acciones.isEmpty()) {
+            return "";
+        }
+        StringBuilder sql = new StringBuilder(" AND (");
+        for (int i = 0; i < acciones.size(); i++) {
+            sql.append(i > 0 ? " OR " : "").append("p.name LIKE :accion").append(i);
+        }
+        return sql.append(")").toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Escrituras directas sobre role_has_permissions. Hibernate trata
+ * Role.permissions como una bolsa y al cambiarla borra y reinserta todas las
+ * filas del rol; aquí sólo se tocan las que cambian.
+ */
+@Repository
+public class RolPermisoRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public RolPermisoRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> permisosDeRol(Long rolId) {
+        return jdbcTemplate.queryForList("SELECT permission_id FROM role_has_permissions WHERE role_id = :rolId",
+                new MapSqlParameterSource("rolId", rolId), Long.class);
+    }
+
+    /** Los ids indicados que existen en permissions. */
+    public List<Long> existentes(Collection<Long> permisos) {
+        if (permisos.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList("SELECT id FROM permissions WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", permisos), Long.class);
+    }
+
+    /** Una sola sentencia DELETE para todos los permisos revocados. */
+    public int revocar(Long rolId, Collection<Long> permisos) {
+        if (permisos.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("DELETE FROM role_has_permissions WHERE role_id = :rolId AND permission_id IN (:ids)",
+                new MapSqlParameterSource("rolId", rolId).addValue("ids", permisos));
+    }
+
+    /** Un único batch de INSERT para todos los permisos concedidos. */
+    public void conceder(Long rolId, Collection<Long> permisos) {
+        if (permisos.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] filas = permisos.stream()
+                .map(permiso -> new MapSqlParameterSource("rolId", rolId).addValue("permisoId", permiso))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("INSERT INTO role_has_permissions (role_id, permission_id) VALUES (:rolId, :permisoId)",
+                filas);
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.Role;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,10 +16,19 @@ import java.util.Optional;
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Long> {
     @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @EntityGraph(attributePaths = { "permissions" })
     List<Role> findAll();
 
     @Override
     @EntityGraph(attributePaths = { "permissions" })
     Optional<Role> findById(Long id);
+
+    /** El rol sin su colección de permisos, para modificarlo sin que Hibernate la reescriba. */
+    @Query("SELECT r FROM Role r WHERE r.id = :id")
+    Optional<Role> findSinPermisosById(@Param("id") Long id);
+
+    /** Pares [role_id, permission_id] de todos los roles activos. */
+    @Query("SELECT r.id, p.id FROM Role r JOIN r.permissions p")
+    List<Object[]> findRolePermissionIds();
 }
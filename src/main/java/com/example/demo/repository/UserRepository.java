@@ -3,7 +3,11 @@ package com.example.demo.repository;
 import com.example.demo.model.User;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,5 +21,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @EntityGraph(attributePaths = { "role" })
     Optional<User> findByEmail(String email);
 
+    @EntityGraph(attributePaths = { "role" })
+    Optional<User> findWithRoleById(Long id);
+
+    @Query("SELECT u.password FROM User u WHERE u.id = :id")
+    Optional<String> findPasswordById(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :nueva WHERE u.id = :id AND u.password = :anterior")
+    int actualizarPassword(@Param("id") Long id, @Param("anterior") String anterior, @Param("nueva") String nueva);
+
     long countByRoleId(Long roleId);
 }
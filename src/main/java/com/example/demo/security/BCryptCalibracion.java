@@ -0,0 +1,75 @@
+package com.example.demo.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Elige el coste de BCrypt según lo que tarda una verificación en esta
+ * máquina: el mayor coste cuya verificación no supera el objetivo, dentro de
+ * [minimo, maximo]. Cada punto de coste duplica el tiempo, así que basta con
+ * medir un coste y extrapolar.
+ */
+public final class BCryptCalibracion {
+
+    private static final int COSTE_MEDIDO = 10;
+    private static final int REPETICIONES = 5;
+
+    private BCryptCalibracion() {
+    }
+
+    public static int calibrar(long objetivoMs, int minimo, int maximo) {
+        String hash = BCrypt.hashpw("calibracion", BCrypt.gensalt(COSTE_MEDIDO));
+        BCrypt.checkpw("calibracion", hash); // calentamiento del JIT
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            BCrypt.checkpw("calibracion", hash);
+        }
+        double mediaMs = Math.max(0.01, (System.nanoTime() - inicio) / 1_000_000.0 / REPETICIONES);
+
+        int coste = COSTE_MEDIDO + (int) Math.floor(Math.log(objetivoMs / mediaMs) / Math.log(2));
+        return Math.max(minimo, Math.min(maximo, coste));
+    }
+
+    /**
+     * Coste de un hash BCrypt guardado, con o sin prefijo {bcrypt}; -1 si no
+     * es un hash BCrypt.
+     */
+    public static int coste(String hash) {
+        if (hash == null) {
+            return -1;
+        }
+        String bcrypt = hash.startsWith("{bcrypt}") ? hash.substring("{bcrypt}".length()) : hash;
+        if (bcrypt.length() < 7 || bcrypt.charAt(0) != '$' || bcrypt.charAt(3) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(bcrypt.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * BCrypt que cifra con el coste calibrado de este nodo pero sólo pide
+     * re-hash cuando el hash guardado queda por debajo de un mínimo común a
+     * todos los nodos (auth.bcrypt.coste-minimo). Comparar con el coste propio
+     * haría que dos nodos calibrados distinto se re-hashearan mutuamente las
+     * contraseñas en cada login.
+     */
+    public static final class Encoder extends BCryptPasswordEncoder {
+
+        private final int minimo;
+
+        public Encoder(int coste, int minimo) {
+            super(Math.max(coste, minimo));
+            this.minimo = minimo;
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            int guardado = coste(encodedPassword);
+            return guardado >= 0 && guardado < minimo;
+        }
+    }
+}
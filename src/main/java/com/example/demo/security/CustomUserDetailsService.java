@@ -5,14 +5,11 @@ import com.example.demo.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
@@ -21,9 +18,18 @@ public class CustomUserDetailsService implements UserDetailsService {
         @Autowired
         private UserRepository userRepository;
 
+        @Autowired
+        private MatrizPermisos matrizPermisos;
+
+        @Autowired
+        private UsuarioAutenticadoRegistro registro;
+
         @Override
         public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
                 logger.info("Loading user by username: {}", username);
+                // Se anota antes de leer para que un cambio concurrente deje el
+                // principal marcado como desactualizado
+                long cambios = registro.cambiosVistos();
                 User user = userRepository.findByEmail(username)
                                 .orElseThrow(() -> {
                                         logger.warn("User not found with email: {}", username);
@@ -32,19 +38,29 @@ public class CustomUserDetailsService implements UserDetailsService {
 
                 logger.info("User found: {}. Stored password length: {}", user.getEmail(),
                                 user.getPassword() != null ? user.getPassword().length() : 0);
-                if (user.getPassword() != null) {
-                        logger.info("Stored password starts with: {}",
-                                        user.getPassword().length() >= 5 ? user.getPassword().substring(0, 5) : "???");
-                }
-
-                return org.springframework.security.core.userdetails.User
-                                .withUsername(user.getEmail())
-                                .password(user.getPassword())
-                                .authorities(user.getRole() != null
-                                                ? Collections.singletonList(
-                                                                new SimpleGrantedAuthority("ROLE_" + user.getRole()
-                                                                                .getName().toUpperCase()))
-                                                : Collections.emptyList())
-                                .build();
+
+                return construir(user, cambios);
+        }
+
+        /** Vuelve a cargar el principal de un usuario ya autenticado. */
+        public UsuarioAutenticado cargarPorId(Long id) throws UsernameNotFoundException {
+                long cambios = registro.cambiosVistos();
+                User user = userRepository.findWithRoleById(id)
+                                .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
+                return construir(user, cambios);
+        }
+
+        private UsuarioAutenticado construir(User user, long cambios) {
+                Long rolId = user.getRole() != null ? user.getRole().getId() : null;
+                UsuarioAutenticado.Version version = registro.version(user.getId(), rolId, cambios);
+                return new UsuarioAutenticado(
+                                user.getId(),
+                                user.getEmail(),
+                                user.getName(),
+                                rolId,
+                                user.getRole() != null ? user.getRole().getName() : null,
+                                matrizPermisos.permisos(rolId),
+                                user.getPassword(),
+                                version);
         }
 }
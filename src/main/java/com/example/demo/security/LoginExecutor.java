@@ -0,0 +1,118 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta la verificación de credenciales del login (BCrypt, ~100 ms de CPU)
+ * en un pool propio con pocos hilos y una cola acotada, fuera de los hilos de
+ * Tomcat. Con la cola llena el login se rechaza en lugar de esperar, de modo
+ * que una avalancha de logins sólo degrada los logins.
+ */
+@Component
+public class LoginExecutor {
+
+    private final AuthenticationManager authenticationManager;
+    private final PasswordRehashService passwordRehashService;
+    private final ThreadPoolExecutor executor;
+    private final int hilos;
+
+    private final Timer espera;
+    private final Timer hash;
+    private final Counter rechazados;
+
+    public LoginExecutor(AuthenticationManager authenticationManager, PasswordRehashService passwordRehashService,
+            MeterRegistry meterRegistry,
+            @Value("${auth.login.hilos:0}") int hilos,
+            @Value("${auth.login.capacidad-cola:64}") int capacidadCola) {
+        this.authenticationManager = authenticationManager;
+        this.passwordRehashService = passwordRehashService;
+        // 0 = la mitad de los núcleos, para dejar CPU al resto de endpoints
+        this.hilos = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.hilos, this.hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, capacidadCola)),
+                r -> {
+                    Thread hilo = new Thread(r, "login-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.login.cola.profundidad", executor.getQueue(), BlockingQueue::size)
+                .description("Logins esperando verificación")
+                .register(meterRegistry);
+        this.espera = Timer.builder("auth.login.espera")
+                .description("Tiempo en cola antes de verificar las credenciales")
+                .register(meterRegistry);
+        this.hash = Timer.builder("auth.login.hash")
+                .description("Tiempo de verificación de las credenciales")
+                .register(meterRegistry);
+        this.rechazados = Counter.builder("auth.login.rechazados")
+                .description("Logins rechazados por cola llena")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encola la autenticación. El futuro falla con la AuthenticationException
+     * del AuthenticationManager si las credenciales no son válidas.
+     *
+     * @throws RejectedExecutionException si la cola está llena
+     */
+    public CompletableFuture<Authentication> autenticar(Authentication solicitud) {
+        long encolado = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long inicio = System.nanoTime();
+                espera.record(inicio - encolado, TimeUnit.NANOSECONDS);
+                Authentication authentication;
+                try {
+                    authentication = authenticationManager.authenticate(solicitud);
+                } finally {
+                    hash.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                }
+                // La contraseña en claro sólo está disponible aquí; si el hash
+                // guardado usa otro esquema o coste se actualiza en segundo plano
+                if (authentication.getPrincipal() instanceof UsuarioAutenticado usuario
+                        && solicitud.getCredentials() instanceof String password) {
+                    passwordRehashService.programar(usuario.getId(), password);
+                }
+                return authentication;
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rechazados.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Segundos estimados hasta que se vacíe la cola actual, para la cabecera
+     * Retry-After.
+     */
+    public long retryAfterSegundos() {
+        double mediaMs = hash.count() > 0 ? hash.mean(TimeUnit.MILLISECONDS) : 100;
+        double pendientes = executor.getQueue().size() + executor.getActiveCount();
+        return Math.max(1, (long) Math.ceil(pendientes * mediaMs / hilos / 1000));
+    }
+
+    @PreDestroy
+    void detener() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Limita los intentos de login fallidos por email y por IP antes de llegar a
+ * verificar la contraseña.
+ *
+ * Cada clave lleva un contador de fallos que decae exponencialmente (se reduce
+ * a la mitad cada {@code semivida}); mientras supere el límite, los intentos
+ * se rechazan sin tocar BCrypt. Cada intento se cuenta como fallo al
+ * reservarlo y se devuelve si resulta correcto. Las claves se reparten en franjas con su propio
+ * lock y un LRU de tamaño fijo, de modo que la memoria no crece con el número
+ * de atacantes: las claves más antiguas se descartan primero.
+ */
+@Component
+public class LoginThrottle {
+
+    private static final int FRANJAS = 64;
+
+    private static final class Contador {
+        private double fallos;
+        private long actualizadoNanos;
+    }
+
+    private static final class Franja {
+        private final Map<String, Contador> claves;
+
+        private Franja(int capacidad) {
+            this.claves = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Contador> eldest) {
+                    return size() > capacidad;
+                }
+            };
+        }
+    }
+
+    private final Franja[] franjas = new Franja[FRANJAS];
+    private final int maxFallosEmail;
+    private final int maxFallosIp;
+    private final double semividaNanos;
+    private final Counter bloqueadosEmail;
+    private final Counter bloqueadosIp;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+            @Value("${auth.throttle.max-claves:100000}") int maxClaves,
+            @Value("${auth.throttle.max-fallos-email:5}") int maxFallosEmail,
+            @Value("${auth.throttle.max-fallos-ip:20}") int maxFallosIp,
+            @Value("${auth.throttle.semivida-segundos:300}") long semividaSegundos) {
+        int porFranja = Math.max(1, maxClaves / FRANJAS);
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new Franja(porFranja);
+        }
+        this.maxFallosEmail = maxFallosEmail;
+        this.maxFallosIp = maxFallosIp;
+        this.semividaNanos = Math.max(1, semividaSegundos) * 1_000_000_000.0;
+
+        this.bloqueadosEmail = Counter.builder("auth.login.bloqueados")
+                .description("Logins rechazados por exceso de fallos")
+                .tag("por", "email")
+                .register(meterRegistry);
+        this.bloqueadosIp = Counter.builder("auth.login.bloqueados")
+                .description("Logins rechazados por exceso de fallos")
+                .tag("por", "ip")
+                .register(meterRegistry);
+        Gauge.builder("auth.throttle.claves", this, LoginThrottle::claves)
+                .description("Claves de email e IP con fallos en memoria")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserva el intento antes de verificar la contraseña: cuenta ya como un
+     * fallo del email y de la IP, de modo que peticiones concurrentes no pueden
+     * pasar todas la comprobación antes de que se registre ninguna.
+     *
+     * @return 0 si el intento queda reservado y puede verificarse; si no,
+     *         segundos hasta que se permita otro intento
+     */
+    public long reservar(String email, String ip) {
+        long ahora = System.nanoTime();
+        String claveEmail = claveEmail(email);
+        long espera = reservar(claveEmail, maxFallosEmail, ahora);
+        if (espera > 0) {
+            bloqueadosEmail.increment();
+            return espera;
+        }
+        espera = reservar(claveIp(ip), maxFallosIp, ahora);
+        if (espera > 0) {
+            devolver(claveEmail, ahora);
+            bloqueadosIp.increment();
+        }
+        return espera;
+    }
+
+    /**
+     * Un login correcto limpia los fallos del email y devuelve la reserva de la
+     * IP; sus fallos anteriores siguen decayendo.
+     */
+    public void registrarExito(String email, String ip) {
+        String clave = claveEmail(email);
+        if (clave != null) {
+            Franja franja = franja(clave);
+            synchronized (franja) {
+                franja.claves.remove(clave);
+            }
+        }
+        devolver(claveIp(ip), System.nanoTime());
+    }
+
+    /** Devuelve la reserva de un intento que no llegó a verificarse (pool saturado o error interno). */
+    public void liberar(String email, String ip) {
+        long ahora = System.nanoTime();
+        devolver(claveEmail(email), ahora);
+        devolver(claveIp(ip), ahora);
+    }
+
+    public int claves() {
+        int total = 0;
+        for (Franja franja : franjas) {
+            synchronized (franja) {
+                total += franja.claves.size();
+            }
+        }
+        return total;
+    }
+
+    private long reservar(String clave, int maximo, long ahora) {
+        if (clave == null) {
+            return 0;
+        }
+        // Se permite el intento mientras quepa un fallo más sin pasar del máximo
+        double umbral = Math.max(0.5, maximo - 1.0);
+        Franja franja = franja(clave);
+        double fallos;
+        synchronized (franja) {
+            Contador contador = franja.claves.computeIfAbsent(clave, c -> new Contador());
+            fallos = decaer(contador, ahora);
+            if (fallos <= umbral) {
+                contador.fallos = fallos + 1;
+                return 0;
+            }
+        }
+        // fallos * 2^(-t / semivida) <= umbral  =>  t >= semivida * log2(fallos / umbral)
+        double segundos = semividaNanos / 1_000_000_000.0 * (Math.log(fallos / umbral) / Math.log(2));
+        return Math.max(1, (long) Math.ceil(segundos));
+    }
+
+    private void devolver(String clave, long ahora) {
+        if (clave == null) {
+            return;
+        }
+        Franja franja = franja(clave);
+        synchronized (franja) {
+            Contador contador = franja.claves.get(clave);
+            if (contador == null) {
+                return;
+            }
+            contador.fallos = decaer(contador, ahora) - 1;
+            if (contador.fallos <= 0) {
+                franja.claves.remove(clave);
+            }
+        }
+    }
+
+    private double decaer(Contador contador, long ahora) {
+        if (contador.actualizadoNanos != 0) {
+            contador.fallos *= Math.pow(2, -(ahora - contador.actualizadoNanos) / semividaNanos);
+        }
+        contador.actualizadoNanos = ahora;
+        return contador.fallos;
+    }
+
+    private Franja franja(String clave) {
+        int h = clave.hashCode();
+        return franjas[(h ^ (h >>> 16)) & (FRANJAS - 1)];
+    }
+
+    private static String claveEmail(String email) {
+        return email == null || email.isBlank() ? null : "e:" + email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String claveIp(String ip) {
+        return ip == null || ip.isBlank() ? null : "i:" + ip;
+    }
+}
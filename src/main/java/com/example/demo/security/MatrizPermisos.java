@@ -0,0 +1,136 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.service.CacheVersiones;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * role_has_permissions compilado en memoria: cada permiso recibe un ordinal
+ * denso y cada rol un BitSet de ordinales, de modo que comprobar un permiso son
+ * dos búsquedas en mapas y un bit, sin tocar la base de datos.
+ *
+ * La matriz es inmutable; al confirmarse un cambio de roles o permisos se
+ * compila una nueva y se sustituye de forma atómica, así que una petición
+ * siempre ve una versión completa. Los cambios confirmados en otro nodo llegan
+ * por la región "permisos" de {@link CacheVersiones}.
+ */
+@Component
+public class MatrizPermisos {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrizPermisos.class);
+
+    private static final String REGION = "permisos";
+
+    private record Compilada(Map<String, Integer> ordinales, long[] ids, Map<Long, BitSet> roles) {
+    }
+
+    private final PermissionRepository permissionRepository;
+    private final RoleRepository roleRepository;
+    private final CacheVersiones cacheVersiones;
+    private final AtomicReference<Compilada> actual = new AtomicReference<>();
+
+    public MatrizPermisos(PermissionRepository permissionRepository, RoleRepository roleRepository,
+            CacheVersiones cacheVersiones) {
+        this.permissionRepository = permissionRepository;
+        this.roleRepository = roleRepository;
+        this.cacheVersiones = cacheVersiones;
+    }
+
+    @PostConstruct
+    void suscribir() {
+        cacheVersiones.suscribir(REGION, cambio -> recompilar());
+    }
+
+    /** Si el rol tiene el permiso con ese nombre. */
+    public boolean permite(Long rolId, String permiso) {
+        if (rolId == null) {
+            return false;
+        }
+        Compilada matriz = matriz();
+        Integer ordinal = matriz.ordinales().get(permiso);
+        BitSet permisos = matriz.roles().get(rolId);
+        return ordinal != null && permisos != null && permisos.get(ordinal);
+    }
+
+    /** Si el permiso existe; los que no existen no los tiene ningún rol. */
+    public boolean existe(String permiso) {
+        return matriz().ordinales().containsKey(permiso);
+    }
+
+    /** Permisos del rol como BitSet indexado por id de permiso, para el principal. */
+    public BitSet permisos(Long rolId) {
+        BitSet porId = new BitSet();
+        if (rolId == null) {
+            return porId;
+        }
+        Compilada matriz = matriz();
+        BitSet ordinales = matriz.roles().get(rolId);
+        if (ordinales != null) {
+            for (int i = ordinales.nextSetBit(0); i >= 0; i = ordinales.nextSetBit(i + 1)) {
+                porId.set((int) matriz.ids()[i]);
+            }
+        }
+        return porId;
+    }
+
+    /**
+     * Recompila cuando la transacción actual se confirme, o en el momento si no
+     * hay ninguna; así nunca se publica una matriz con datos sin confirmar. Los
+     * demás nodos recompilan al ver la nueva versión de la región.
+     */
+    public void recompilarTrasCommit() {
+        cacheVersiones.invalidar(REGION);
+    }
+
+    /**
+     * Compila la matriz a partir de la base de datos. Está sincronizado para
+     * que dos compilaciones concurrentes no publiquen la más antigua al final.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void recompilar() {
+        List<Object[]> permisos = permissionRepository.findIdsAndNames();
+        Map<String, Integer> ordinales = new HashMap<>(permisos.size() * 2);
+        Map<Long, Integer> ordinalPorId = new HashMap<>(permisos.size() * 2);
+        long[] ids = new long[permisos.size()];
+        for (Object[] fila : permisos) {
+            int ordinal = ordinalPorId.size();
+            long id = ((Number) fila[0]).longValue();
+            ids[ordinal] = id;
+            ordinalPorId.put(id, ordinal);
+            // Con nombres repetidos se queda el de menor id, el primero creado
+            ordinales.putIfAbsent((String) fila[1], ordinal);
+        }
+
+        Map<Long, BitSet> roles = new HashMap<>();
+        for (Object[] fila : roleRepository.findRolePermissionIds()) {
+            Integer ordinal = ordinalPorId.get(((Number) fila[1]).longValue());
+            if (ordinal != null) {
+                roles.computeIfAbsent(((Number) fila[0]).longValue(), r -> new BitSet(ids.length)).set(ordinal);
+            }
+        }
+
+        actual.set(new Compilada(Map.copyOf(ordinales), ids, Map.copyOf(roles)));
+        logger.info("Matriz de permisos compilada: {} permisos, {} roles", ids.length, roles.size());
+    }
+
+    private Compilada matriz() {
+        Compilada matriz = actual.get();
+        if (matriz == null) {
+            recompilar();
+            matriz = actual.get();
+        }
+        return matriz;
+    }
+}
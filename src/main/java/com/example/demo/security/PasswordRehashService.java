@@ -0,0 +1,75 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-hashea en segundo plano, tras un login correcto, las contraseñas cuyo hash
+ * guardado no usa el esquema actual o queda por debajo del coste mínimo
+ * (upgradeEncoding). Nunca se guarda un hash de coste menor que el que había.
+ * Si la cola está llena se omite: se reintentará en el siguiente login.
+ */
+@Service
+public class PasswordRehashService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordRehashService.class);
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(100), r -> {
+                Thread hilo = new Thread(r, "password-rehash");
+                hilo.setDaemon(true);
+                return hilo;
+            }, new ThreadPoolExecutor.AbortPolicy());
+
+    public PasswordRehashService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    public void programar(Long userId, String password) {
+        if (userId == null || password == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> rehashear(userId, password));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Re-hash del usuario {} omitido: cola llena", userId);
+        }
+    }
+
+    private void rehashear(Long userId, String password) {
+        try {
+            String actual = userRepository.findPasswordById(userId).orElse(null);
+            if (actual == null || !passwordEncoder.upgradeEncoding(actual)) {
+                return;
+            }
+            String nuevo = passwordEncoder.encode(password);
+            if (BCryptCalibracion.coste(nuevo) < BCryptCalibracion.coste(actual)) {
+                logger.debug("Re-hash del usuario {} omitido: bajaría el coste del hash", userId);
+                return;
+            }
+            // Sólo se sustituye si nadie ha cambiado la contraseña mientras tanto
+            if (userRepository.actualizarPassword(userId, actual, nuevo) > 0) {
+                logger.info("Contraseña del usuario {} re-hasheada con el esquema actual", userId);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("No se pudo re-hashear la contraseña del usuario {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void detener() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.security;
+
+import com.example.demo.annotation.RequierePermiso;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aplica {@link RequierePermiso}: el permiso de cada endpoint se resuelve una
+ * vez por método y se comprueba contra {@link MatrizPermisos} con el rol del
+ * principal, sin acceso a la base de datos. Los endpoints sin anotación no se
+ * restringen aquí.
+ */
+@Component
+public class PermisoInterceptor implements HandlerInterceptor {
+
+    private final MatrizPermisos matrizPermisos;
+    private final ObjectMapper objectMapper;
+    private final Counter denegados;
+    private final Map<Method, Optional<String>> permisos = new ConcurrentHashMap<>();
+
+    public PermisoInterceptor(MatrizPermisos matrizPermisos, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.matrizPermisos = matrizPermisos;
+        this.objectMapper = objectMapper;
+        this.denegados = Counter.builder("auth.permisos.denegados")
+                .description("Peticiones rechazadas por falta de permiso")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        String permiso = permisos.computeIfAbsent(handlerMethod.getMethod(),
+                m -> Optional.ofNullable(permisoRequerido(handlerMethod))).orElse(null);
+        if (permiso == null) {
+            return true;
+        }
+
+        UsuarioAutenticado usuario = UsuarioAutenticado.actual().orElse(null);
+        if (usuario == null) {
+            responder(response, HttpStatus.UNAUTHORIZED, "No autenticado");
+            return false;
+        }
+        if (!matrizPermisos.permite(usuario.getRolId(), permiso)) {
+            denegados.increment();
+            responder(response, HttpStatus.FORBIDDEN, "No tiene el permiso: " + permiso);
+            return false;
+        }
+        return true;
+    }
+
+    private static String permisoRequerido(HandlerMethod handlerMethod) {
+        RequierePermiso anotacion = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(),
+                RequierePermiso.class);
+        if (anotacion == null) {
+            anotacion = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(),
+                    RequierePermiso.class);
+        }
+        return anotacion != null ? anotacion.value() : null;
+    }
+
+    private void responder(HttpServletResponse response, HttpStatus status, String mensaje) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getWriter(), Map.of("message", mensaje));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.security;
+
+import org.springframework.session.Session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sesión de {@link SesionJdbcRepository}. Anota qué atributos y metadatos han
+ * cambiado durante la petición para que al guardarla sólo se escriba eso.
+ */
+public final class SesionJdbc implements Session {
+
+    private final String primaryId;
+    private String id;
+    private String idGuardado;
+    private final Instant creado;
+    private Instant ultimoAcceso;
+    private Instant ultimoAccesoGuardado;
+    private Duration maxInactivo;
+    private final Map<String, Object> atributos;
+    private final Set<String> sucios = new HashSet<>();
+    private boolean nueva;
+    private boolean metadatosSucios;
+
+    /** Sesión nueva, aún no guardada. */
+    SesionJdbc(Duration maxInactivo) {
+        this(UUID.randomUUID().toString(), UUID.randomUUID().toString(), Instant.now(), Instant.now(), maxInactivo,
+                new HashMap<>());
+        this.ultimoAccesoGuardado = null;
+        this.nueva = true;
+    }
+
+    /** Sesión tal como está guardada. */
+    SesionJdbc(String primaryId, String id, Instant creado, Instant ultimoAcceso, Duration maxInactivo,
+            Map<String, Object> atributos) {
+        this.primaryId = primaryId;
+        this.id = id;
+        this.idGuardado = id;
+        this.creado = creado;
+        this.ultimoAcceso = ultimoAcceso;
+        this.ultimoAccesoGuardado = ultimoAcceso;
+        this.maxInactivo = maxInactivo;
+        this.atributos = atributos;
+    }
+
+    /** Copia sin cambios pendientes, para que cada petición trabaje sobre la suya. */
+    SesionJdbc copia() {
+        SesionJdbc copia = new SesionJdbc(primaryId, id, creado, ultimoAcceso, maxInactivo, new HashMap<>(atributos));
+        copia.ultimoAccesoGuardado = ultimoAccesoGuardado;
+        return copia;
+    }
+
+    String getPrimaryId() {
+        return primaryId;
+    }
+
+    String getIdGuardado() {
+        return idGuardado;
+    }
+
+    Instant getUltimoAccesoGuardado() {
+        return ultimoAccesoGuardado;
+    }
+
+    boolean isNueva() {
+        return nueva;
+    }
+
+    boolean isMetadatosSucios() {
+        return metadatosSucios;
+    }
+
+    Set<String> getSucios() {
+        return sucios;
+    }
+
+    Map<String, Object> getAtributos() {
+        return atributos;
+    }
+
+    /** Marca la sesión como guardada tal como está. */
+    void guardada(boolean accesoGuardado) {
+        nueva = false;
+        metadatosSucios = false;
+        sucios.clear();
+        idGuardado = id;
+        if (accesoGuardado) {
+            ultimoAccesoGuardado = ultimoAcceso;
+        }
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String changeSessionId() {
+        id = UUID.randomUUID().toString();
+        return id;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String attributeName) {
+        return (T) atributos.get(attributeName);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+        return new HashSet<>(atributos.keySet());
+    }
+
+    @Override
+    public void setAttribute(String attributeName, Object attributeValue) {
+        if (attributeValue == null) {
+            removeAttribute(attributeName);
+            return;
+        }
+        atributos.put(attributeName, attributeValue);
+        sucios.add(attributeName);
+    }
+
+    @Override
+    public void removeAttribute(String attributeName) {
+        if (atributos.remove(attributeName) != null) {
+            sucios.add(attributeName);
+        }
+    }
+
+    @Override
+    public Instant getCreationTime() {
+        return creado;
+    }
+
+    @Override
+    public void setLastAccessedTime(Instant lastAccessedTime) {
+        this.ultimoAcceso = lastAccessedTime;
+    }
+
+    @Override
+    public Instant getLastAccessedTime() {
+        return ultimoAcceso;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(Duration interval) {
+        this.maxInactivo = interval;
+        this.metadatosSucios = true;
+    }
+
+    @Override
+    public Duration getMaxInactiveInterval() {
+        return maxInactivo;
+    }
+
+    @Override
+    public boolean isExpired() {
+        return !maxInactivo.isNegative() && Instant.now().minus(maxInactivo).isAfter(ultimoAcceso);
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.demo.security;
+
+import com.example.demo.service.CacheVersiones;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.SessionRepository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Almacén de sesiones HTTP en las tablas sesiones / sesion_atributos
+ * (auth.sesion.almacen=JDBC), para que cualquier nodo atienda cualquier sesión
+ * y un reinicio no cierre las de los usuarios.
+ *
+ * - Caché local: cada nodo sirve la sesión desde memoria durante
+ *   auth.sesion.cache-ttl-ms antes de volver a leerla de la tabla.
+ * - Escritura al final de la petición de sólo lo que cambió: atributos
+ *   modificados (upsert) o eliminados, y el último acceso únicamente si avanzó
+ *   más de auth.sesion.intervalo-acceso-segundos.
+ * - Las sesiones caducadas se borran en segundo plano por lotes.
+ * - Un logout o un cambio de id se publica en {@link CacheVersiones} para que
+ *   el resto de nodos deje de servir su copia en caché. Las regiones van por
+ *   cubetas del id ("sesion:0".."sesion:255") para no crear una fila por
+ *   sesión en cache_versiones.
+ * - Guardar una sesión que otro nodo ya borró no la resucita: se descarta de
+ *   la caché y la siguiente petición recibe una sesión nueva.
+ */
+public class SesionJdbcRepository implements SessionRepository<SesionJdbc> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SesionJdbcRepository.class);
+
+    private static final String SELECT_SQL = "SELECT s.primary_id, s.creado, s.ultimo_acceso, s.max_inactivo, "
+            + "a.nombre, a.valor FROM sesiones s "
+            + "LEFT JOIN sesion_atributos a ON a.sesion_primary_id = s.primary_id WHERE s.session_id = ?";
+    private static final String UPSERT_ATRIBUTO_SQL = "INSERT INTO sesion_atributos (sesion_primary_id, nombre, valor) "
+            + "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE valor = VALUES(valor)";
+
+    static final String REGION = "sesion:";
+    private static final int CUBETAS = 256;
+
+    private record Entrada(SesionJdbc sesion, long cargadoNanos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheVersiones cacheVersiones;
+    private final SerializingConverter serializador = new SerializingConverter();
+    private final DeserializingConverter deserializador;
+    private final Duration maxInactivo;
+    private final long cacheTtlNanos;
+    private final Duration intervaloAcceso;
+    private final int loteLimpieza;
+    private final Map<String, Entrada> cache;
+
+    public SesionJdbcRepository(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            CacheVersiones cacheVersiones, ClassLoader classLoader, Duration maxInactivo, long cacheTtlMs,
+            int cacheMax, Duration intervaloAcceso, int loteLimpieza) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.cacheVersiones = cacheVersiones;
+        this.deserializador = new DeserializingConverter(classLoader);
+        this.maxInactivo = maxInactivo;
+        this.cacheTtlNanos = Math.max(0, cacheTtlMs) * 1_000_000;
+        this.intervaloAcceso = intervaloAcceso;
+        this.loteLimpieza = Math.max(1, loteLimpieza);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > cacheMax;
+            }
+        };
+    }
+
+    @PostConstruct
+    void suscribir() {
+        cacheVersiones.suscribir(REGION, cambio -> {
+            synchronized (cache) {
+                cache.keySet().removeIf(id -> region(id).equals(cambio.region()));
+            }
+        });
+    }
+
+    private static String region(String id) {
+        return REGION + Math.floorMod(id.hashCode(), CUBETAS);
+    }
+
+    @Override
+    public SesionJdbc createSession() {
+        return new SesionJdbc(maxInactivo);
+    }
+
+    @Override
+    public void save(SesionJdbc sesion) {
+        // Boolean.valueOf: un ternario boolean/Boolean desempaquetaría el null de actualizar
+        Boolean accesoGuardado = transactionTemplate.execute(status -> sesion.isNueva()
+                ? Boolean.valueOf(insertar(sesion)) : actualizar(sesion));
+        String idAnterior = sesion.getIdGuardado();
+        if (accesoGuardado == null) {
+            logger.debug("La sesión {} ya no existe; no se guarda", idAnterior);
+            synchronized (cache) {
+                cache.remove(idAnterior);
+                cache.remove(sesion.getId());
+            }
+            return;
+        }
+        sesion.guardada(accesoGuardado);
+        synchronized (cache) {
+            if (!idAnterior.equals(sesion.getId())) {
+                cache.remove(idAnterior);
+            }
+            cache.put(sesion.getId(), new Entrada(sesion.copia(), System.nanoTime()));
+        }
+    }
+
+    private boolean insertar(SesionJdbc sesion) {
+        jdbcTemplate.update("INSERT INTO sesiones (primary_id, session_id, creado, ultimo_acceso, max_inactivo, expira) "
+                + "VALUES (?, ?, ?, ?, ?, ?)",
+                sesion.getPrimaryId(), sesion.getId(), sesion.getCreationTime().toEpochMilli(),
+                sesion.getLastAccessedTime().toEpochMilli(), (int) sesion.getMaxInactiveInterval().toSeconds(),
+                expira(sesion));
+        List<Object[]> filas = new ArrayList<>();
+        for (Map.Entry<String, Object> atributo : sesion.getAtributos().entrySet()) {
+            filas.add(new Object[] { sesion.getPrimaryId(), atributo.getKey(), serializar(atributo.getValue()) });
+        }
+        if (!filas.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_ATRIBUTO_SQL, filas);
+        }
+        return true;
+    }
+
+    /**
+     * Escribe lo que cambió de una sesión ya guardada.
+     *
+     * @return si se escribió el último acceso, o null si otro nodo borró la
+     *         sesión entretanto (logout o caducidad)
+     */
+    private Boolean actualizar(SesionJdbc sesion) {
+        // El último acceso cambia en cada petición; sólo se escribe si avanzó lo
+        // bastante, a costa de que la caducidad pueda adelantarse ese intervalo.
+        boolean accesoGuardado = sesion.isMetadatosSucios() || sesion.getUltimoAccesoGuardado() == null
+                || Duration.between(sesion.getUltimoAccesoGuardado(), sesion.getLastAccessedTime())
+                        .compareTo(intervaloAcceso) >= 0;
+        boolean idCambiado = !sesion.getId().equals(sesion.getIdGuardado());
+        if (!accesoGuardado && !idCambiado && sesion.getSucios().isEmpty()) {
+            return false;
+        }
+
+        // Cada escritura comprueba (y bloquea) la fila de la sesión antes de
+        // tocar sus atributos, que si no violarían fk_sesion_atributos_sesion
+        int filas;
+        if (accesoGuardado) {
+            filas = jdbcTemplate.update("UPDATE sesiones SET ultimo_acceso = ?, max_inactivo = ?, expira = ? "
+                    + "WHERE primary_id = ?",
+                    sesion.getLastAccessedTime().toEpochMilli(), (int) sesion.getMaxInactiveInterval().toSeconds(),
+                    expira(sesion), sesion.getPrimaryId());
+        } else {
+            filas = jdbcTemplate.queryForList("SELECT primary_id FROM sesiones WHERE primary_id = ? FOR UPDATE",
+                    String.class, sesion.getPrimaryId()).size();
+        }
+        if (filas == 0) {
+            return null;
+        }
+        if (idCambiado) {
+            jdbcTemplate.update("UPDATE sesiones SET session_id = ? WHERE primary_id = ?", sesion.getId(),
+                    sesion.getPrimaryId());
+            cacheVersiones.invalidar(region(sesion.getIdGuardado()));
+        }
+
+        List<Object[]> modificados = new ArrayList<>();
+        List<Object[]> eliminados = new ArrayList<>();
+        for (String nombre : sesion.getSucios()) {
+            Object valor = sesion.getAtributos().get(nombre);
+            if (valor != null) {
+                modificados.add(new Object[] { sesion.getPrimaryId(), nombre, serializar(valor) });
+            } else {
+                eliminados.add(new Object[] { sesion.getPrimaryId(), nombre });
+            }
+        }
+        if (!modificados.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_ATRIBUTO_SQL, modificados);
+        }
+        if (!eliminados.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM sesion_atributos WHERE sesion_primary_id = ? AND nombre = ?",
+                    eliminados);
+        }
+        return accesoGuardado;
+    }
+
+    @Override
+    public SesionJdbc findById(String id) {
+        synchronized (cache) {
+            Entrada entrada = cache.get(id);
+            if (entrada != null && System.nanoTime() - entrada.cargadoNanos() < cacheTtlNanos
+                    && !entrada.sesion().isExpired()) {
+                return entrada.sesion().copia();
+            }
+        }
+
+        SesionJdbc sesion = cargar(id);
+        if (sesion == null) {
+            return null;
+        }
+        if (sesion.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        synchronized (cache) {
+            cache.put(id, new Entrada(sesion.copia(), System.nanoTime()));
+        }
+        return sesion;
+    }
+
+    private SesionJdbc cargar(String id) {
+        List<SesionJdbc> resultado = new ArrayList<>(1);
+        Map<String, Object> atributos = new HashMap<>();
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            if (resultado.isEmpty()) {
+                resultado.add(new SesionJdbc(rs.getString("primary_id"), id,
+                        Instant.ofEpochMilli(rs.getLong("creado")), Instant.ofEpochMilli(rs.getLong("ultimo_acceso")),
+                        Duration.ofSeconds(rs.getInt("max_inactivo")), atributos));
+            }
+            String nombre = rs.getString("nombre");
+            if (nombre != null) {
+                try {
+                    atributos.put(nombre, deserializador.convert(rs.getBytes("valor")));
+                } catch (RuntimeException e) {
+                    // Un atributo de una versión anterior de la aplicación no
+                    // invalida la sesión entera
+                    logger.warn("Atributo de sesión {} descartado: {}", nombre, e.getMessage());
+                }
+            }
+        }, id);
+        return resultado.isEmpty() ? null : resultado.get(0);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        synchronized (cache) {
+            cache.remove(id);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> primarios = jdbcTemplate.queryForList("SELECT primary_id FROM sesiones WHERE session_id = ?",
+                    String.class, id);
+            borrar(primarios);
+            if (!primarios.isEmpty()) {
+                cacheVersiones.invalidar(region(id));
+            }
+        });
+    }
+
+    /** Borra las sesiones caducadas en lotes, cada uno en su transacción. */
+    @Scheduled(fixedDelayString = "${auth.sesion.intervalo-limpieza-ms:60000}")
+    public void limpiar() {
+        long ahora = System.currentTimeMillis();
+        int total = 0;
+        int borradas;
+        do {
+            borradas = transactionTemplate.execute(status -> {
+                List<String> primarios = jdbcTemplate.queryForList(
+                        "SELECT primary_id FROM sesiones WHERE expira < ? ORDER BY expira LIMIT " + loteLimpieza,
+                        String.class, ahora);
+                borrar(primarios);
+                return primarios.size();
+            });
+            total += borradas;
+        } while (borradas == loteLimpieza);
+
+        synchronized (cache) {
+            cache.values().removeIf(entrada -> entrada.sesion().isExpired());
+        }
+        if (total > 0) {
+            logger.info("Sesiones caducadas eliminadas: {}", total);
+        }
+    }
+
+    private void borrar(List<String> primarios) {
+        if (primarios.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", primarios);
+        namedJdbcTemplate.update("DELETE FROM sesion_atributos WHERE sesion_primary_id IN (:ids)", params);
+        namedJdbcTemplate.update("DELETE FROM sesiones WHERE primary_id IN (:ids)", params);
+    }
+
+    private byte[] serializar(Object valor) {
+        return serializador.convert(valor);
+    }
+
+    private static long expira(SesionJdbc sesion) {
+        Duration maxInactivo = sesion.getMaxInactiveInterval();
+        return maxInactivo.isNegative() ? Long.MAX_VALUE
+                : sesion.getLastAccessedTime().plus(maxInactivo).toEpochMilli();
+    }
+}
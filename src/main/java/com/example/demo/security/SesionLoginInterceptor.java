@@ -0,0 +1,43 @@
+package com.example.demo.security;
+
+import com.example.demo.dto.LoginRespuesta;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Completa un login de sesión verificado en {@link LoginExecutor}. La
+ * contraseña se comprueba en el pool de login, pero la sesión no se toca desde
+ * ese hilo: se escribe aquí, en el despacho ASYNC del contenedor y antes de
+ * escribir la respuesta. El id de sesión se cambia para que uno fijado antes
+ * del login no quede autenticado.
+ */
+@Component
+public class SesionLoginInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.ASYNC
+                || !(WebAsyncUtils.getAsyncManager(request).getConcurrentResult() instanceof ResponseEntity<?> r)
+                || !(r.getBody() instanceof LoginRespuesta login) || login.getAuthentication() == null) {
+            return true;
+        }
+
+        if (request.getSession(false) != null) {
+            request.changeSessionId();
+        }
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(login.getAuthentication());
+        SecurityContextHolder.setContext(context);
+        request.getSession(true).setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                context);
+        return true;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Autenticación por token (auth.sesion.modo=TOKEN): construye el
+ * {@link UsuarioAutenticado} a partir de la cookie firmada, sin sesión ni
+ * consulta a la base de datos (los permisos salen de {@link MatrizPermisos}).
+ *
+ * Si el usuario o su rol cambiaron después de emitir el token, se recarga desde
+ * la base de datos y se emite uno nuevo; también se renueva al pasar la mitad
+ * de su vida o si lo firmó una clave que ya no es la activa. Los tokens
+ * renovados conservan el instante del login, así que ninguno dura más que
+ * auth.token.vida-maxima-minutos.
+ */
+public class SesionTokenFilter extends OncePerRequestFilter {
+
+    private final SesionTokenService tokenService;
+    private final CustomUserDetailsService userDetailsService;
+    private final UsuarioAutenticadoRegistro registro;
+    private final MatrizPermisos matrizPermisos;
+
+    public SesionTokenFilter(SesionTokenService tokenService, CustomUserDetailsService userDetailsService,
+            UsuarioAutenticadoRegistro registro, MatrizPermisos matrizPermisos) {
+        this.tokenService = tokenService;
+        this.userDetailsService = userDetailsService;
+        this.registro = registro;
+        this.matrizPermisos = matrizPermisos;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = token(request);
+        if (token != null) {
+            autenticar(token, response);
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void autenticar(String token, HttpServletResponse response) {
+        SesionTokenService.Datos datos = tokenService.verificar(token).orElse(null);
+        if (datos == null) {
+            response.addHeader(HttpHeaders.SET_COOKIE, tokenService.borrar().toString());
+            return;
+        }
+
+        UsuarioAutenticado usuario = new UsuarioAutenticado(datos.userId(), datos.email(), datos.nombre(),
+                datos.rolId(), datos.rol(), matrizPermisos.permisos(datos.rolId()), null, datos.version());
+        boolean renovar = tokenService.debeRenovar(datos);
+        if (!registro.vigente(usuario)) {
+            try {
+                usuario = userDetailsService.cargarPorId(datos.userId());
+                usuario.eraseCredentials();
+                renovar = true;
+            } catch (UsernameNotFoundException e) {
+                response.addHeader(HttpHeaders.SET_COOKIE, tokenService.borrar().toString());
+                return;
+            }
+        }
+        if (renovar) {
+            response.addHeader(HttpHeaders.SET_COOKIE, tokenService.emitir(usuario, datos.inicio()).toString());
+        }
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(usuario, null,
+                usuario.getAuthorities()));
+        SecurityContextHolder.setContext(context);
+    }
+
+    private String token(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (tokenService.getCookie().equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+}
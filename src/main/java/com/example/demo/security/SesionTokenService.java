@@ -0,0 +1,211 @@
+package com.example.demo.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tokens de sesión firmados con HMAC-SHA256 para el modo
+ * auth.sesion.modo=TOKEN: el estado del usuario viaja en una cookie HttpOnly y
+ * cualquier nodo puede verificarlo sin sesión ni consulta a la base de datos.
+ *
+ * Formato: base64url(datos).base64url(hmac), con datos = [versión][kid]
+ * [userId][rolId][rol][email][nombre][versión del usuario][versión del rol]
+ * [construido][inicio][expira]; las tres marcas son la
+ * {@link UsuarioAutenticado.Version} del principal e inicio es el instante del
+ * login, que se conserva al renovar. Ningún token caduca más tarde de
+ * auth.token.vida-maxima-minutos después del login: a partir de ahí hay que
+ * volver a autenticarse. Las claves forman un
+ * anillo (auth.token.claves = "kid:secreto-base64,..."): la primera firma y
+ * todas verifican, así que una clave nueva se añade delante y la antigua se
+ * retira cuando caducan sus tokens.
+ */
+@Service
+public class SesionTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SesionTokenService.class);
+
+    private static final byte VERSION = 3;
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+
+    /** Contenido verificado de un token. */
+    public record Datos(String kid, Long userId, Long rolId, String rol, String email, String nombre,
+            UsuarioAutenticado.Version version, long inicio, long expira) {
+    }
+
+    private final boolean activo;
+    private final String cookie;
+    private final boolean cookieSegura;
+    private final Duration duracion;
+    private final Duration vidaMaxima;
+    private final String kidActivo;
+    private final Map<String, SecretKeySpec> claves = new LinkedHashMap<>();
+
+    public SesionTokenService(@Value("${auth.sesion.modo:SESSION}") String modo,
+            @Value("${auth.token.claves:}") String claves,
+            @Value("${auth.token.cookie:AUTH_TOKEN}") String cookie,
+            @Value("${auth.token.cookie-segura:false}") boolean cookieSegura,
+            @Value("${auth.token.duracion-minutos:60}") long duracionMinutos,
+            @Value("${auth.token.vida-maxima-minutos:720}") long vidaMaximaMinutos) {
+        this.activo = "TOKEN".equalsIgnoreCase(modo);
+        this.cookie = cookie;
+        this.cookieSegura = cookieSegura;
+        this.duracion = Duration.ofMinutes(Math.max(1, duracionMinutos));
+        this.vidaMaxima = Duration.ofMinutes(Math.max(duracion.toMinutes(), vidaMaximaMinutos));
+
+        for (String entrada : claves.split(",")) {
+            int separador = entrada.indexOf(':');
+            if (separador > 0) {
+                this.claves.put(entrada.substring(0, separador).trim(),
+                        new SecretKeySpec(Base64.getDecoder().decode(entrada.substring(separador + 1).trim()),
+                                ALGORITMO));
+            }
+        }
+        if (this.claves.isEmpty()) {
+            byte[] secreto = new byte[32];
+            new SecureRandom().nextBytes(secreto);
+            this.claves.put("local", new SecretKeySpec(secreto, ALGORITMO));
+            if (activo) {
+                logger.warn("auth.token.claves vacío: se usa una clave aleatoria; los tokens no valdrán en otros nodos "
+                        + "ni tras reiniciar");
+            }
+        }
+        this.kidActivo = this.claves.keySet().iterator().next();
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    public String getCookie() {
+        return cookie;
+    }
+
+    /** Cookie con el token de un login nuevo, firmado con la clave activa. */
+    public ResponseCookie emitir(UsuarioAutenticado usuario) {
+        return emitir(usuario, System.currentTimeMillis());
+    }
+
+    /**
+     * Cookie con un token para el usuario de una sesión que empezó en
+     * {@code inicio}; caduca como mucho al cumplir la vida máxima.
+     */
+    public ResponseCookie emitir(UsuarioAutenticado usuario, long inicio) {
+        UsuarioAutenticado.Version version = usuario.getVersion();
+        long ahora = System.currentTimeMillis();
+        long expira = Math.min(ahora + duracion.toMillis(), inicio + vidaMaxima.toMillis());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(kidActivo);
+            out.writeLong(usuario.getId());
+            out.writeLong(usuario.getRolId() != null ? usuario.getRolId() : -1);
+            out.writeUTF(usuario.getRolNombre() != null ? usuario.getRolNombre() : "");
+            out.writeUTF(usuario.getUsername());
+            out.writeUTF(usuario.getNombre() != null ? usuario.getNombre() : "");
+            out.writeLong(version.usuario());
+            out.writeLong(version.rol());
+            out.writeLong(version.construido());
+            out.writeLong(inicio);
+            out.writeLong(expira);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] datos = bytes.toByteArray();
+        String token = BASE64.encodeToString(datos) + "." + BASE64.encodeToString(firmar(claves.get(kidActivo), datos));
+        return cookie(token, Duration.ofMillis(Math.max(0, expira - ahora)));
+    }
+
+    /** Cookie que borra el token del navegador. */
+    public ResponseCookie borrar() {
+        return cookie("", Duration.ZERO);
+    }
+
+    /** Datos del token si la firma es válida y no ha caducado. */
+    public Optional<Datos> verificar(String token) {
+        int punto = token.indexOf('.');
+        if (punto <= 0) {
+            return Optional.empty();
+        }
+        try {
+            byte[] datos = BASE64_DECODER.decode(token.substring(0, punto));
+            byte[] firma = BASE64_DECODER.decode(token.substring(punto + 1));
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(datos));
+            if (in.readByte() != VERSION) {
+                return Optional.empty();
+            }
+            String kid = in.readUTF();
+            SecretKeySpec clave = claves.get(kid);
+            if (clave == null || !MessageDigest.isEqual(firmar(clave, datos), firma)) {
+                return Optional.empty();
+            }
+            long userId = in.readLong();
+            long rolId = in.readLong();
+            String rol = in.readUTF();
+            String email = in.readUTF();
+            String nombre = in.readUTF();
+            UsuarioAutenticado.Version version = new UsuarioAutenticado.Version(in.readLong(), in.readLong(),
+                    in.readLong());
+            long inicio = in.readLong();
+            long expira = in.readLong();
+            if (expira <= System.currentTimeMillis()) {
+                return Optional.empty();
+            }
+            return Optional.of(new Datos(kid, userId, rolId >= 0 ? rolId : null, rol.isEmpty() ? null : rol, email,
+                    nombre.isEmpty() ? null : nombre, version, inicio, expira));
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Los tokens se renuevan pasada la mitad de su vida, salvo que ya caduquen
+     * al cumplir la vida máxima, o si se firmaron con una clave que ya no es la
+     * activa.
+     */
+    public boolean debeRenovar(Datos datos) {
+        boolean ampliable = datos.expira() < datos.inicio() + vidaMaxima.toMillis();
+        return ampliable && datos.expira() - System.currentTimeMillis() < duracion.toMillis() / 2
+                || !kidActivo.equals(datos.kid());
+    }
+
+    private ResponseCookie cookie(String valor, Duration maxAge) {
+        return ResponseCookie.from(cookie, valor)
+                .httpOnly(true)
+                .secure(cookieSegura)
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+    }
+
+    private static byte[] firmar(SecretKeySpec clave, byte[] datos) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(clave);
+            return mac.doFinal(datos);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Principal de la sesión: identidad, rol y permisos del usuario resueltos una
+ * vez en el login, para que el resto de la aplicación no tenga que volver a
+ * consultar users ni role_has_permissions en cada petición.
+ *
+ * Los permisos se guardan como un BitSet indexado por id de permiso. La
+ * {@link Version} indica con qué versiones del usuario y de su rol se
+ * construyó, para que {@link UsuarioAutenticadoRegistro} sepa si hay que
+ * refrescarlo.
+ */
+public class UsuarioAutenticado implements UserDetails, CredentialsContainer {
+
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    /**
+     * Versiones de cache_versiones ("usuario:" + id y "rol:" + id) vistas al
+     * construir el principal, y el instante de construcción en milisegundos.
+     */
+    public record Version(long usuario, long rol, long construido) implements Serializable {
+    }
+
+    private final Long id;
+    private final String email;
+    private final String nombre;
+    private final Long rolId;
+    private final String rolNombre;
+    private final BitSet permisos;
+    private final Version version;
+    private String password;
+
+    public UsuarioAutenticado(Long id, String email, String nombre, Long rolId, String rolNombre, BitSet permisos,
+            String password, Version version) {
+        this.id = id;
+        this.email = email;
+        this.nombre = nombre;
+        this.rolId = rolId;
+        this.rolNombre = rolNombre;
+        this.permisos = (BitSet) permisos.clone();
+        this.password = password;
+        this.version = version;
+    }
+
+    /** Principal de la petición actual, si hay un usuario autenticado. */
+    public static Optional<UsuarioAutenticado> actual() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof UsuarioAutenticado usuario
+                ? Optional.of(usuario)
+                : Optional.empty();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Long getRolId() {
+        return rolId;
+    }
+
+    public String getRolNombre() {
+        return rolNombre;
+    }
+
+    public Version getVersion() {
+        return version;
+    }
+
+    public boolean tienePermiso(long permisoId) {
+        return permisoId >= 0 && permisoId <= Integer.MAX_VALUE && permisos.get((int) permisoId);
+    }
+
+    /** Copia de los permisos, para no exponer el BitSet interno. */
+    public BitSet getPermisos() {
+        return (BitSet) permisos.clone();
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return rolNombre != null ? List.of(new SimpleGrantedAuthority("ROLE_" + rolNombre.toUpperCase()))
+                : List.of();
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sustituye el {@link UsuarioAutenticado} de la sesión cuando su usuario o su
+ * rol han cambiado desde que se construyó. Si el usuario ya no existe o está
+ * dado de baja, se cierra la sesión.
+ */
+public class UsuarioAutenticadoRefreshFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsuarioAutenticadoRefreshFilter.class);
+
+    private final CustomUserDetailsService userDetailsService;
+    private final UsuarioAutenticadoRegistro registro;
+
+    public UsuarioAutenticadoRefreshFilter(CustomUserDetailsService userDetailsService,
+            UsuarioAutenticadoRegistro registro) {
+        this.userDetailsService = userDetailsService;
+        this.registro = registro;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UsuarioAutenticado usuario
+                && !registro.vigente(usuario)) {
+            refrescar(request, authentication, usuario);
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void refrescar(HttpServletRequest request, Authentication anterior, UsuarioAutenticado usuario) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        try {
+            UsuarioAutenticado actualizado = userDetailsService.cargarPorId(usuario.getId());
+            actualizado.eraseCredentials();
+            UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken
+                    .authenticated(actualizado, null, actualizado.getAuthorities());
+            authentication.setDetails(anterior.getDetails());
+            context.setAuthentication(authentication);
+        } catch (UsernameNotFoundException e) {
+            logger.info("Sesión cerrada: el usuario {} ya no está activo", usuario.getId());
+        }
+
+        SecurityContextHolder.setContext(context);
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            if (context.getAuthentication() != null) {
+                session.setAttribute("SPRING_SECURITY_CONTEXT", context);
+            } else {
+                session.invalidate();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.security;
+
+import com.example.demo.service.CacheVersiones;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registra qué usuarios y roles han cambiado para refrescar los
+ * {@link UsuarioAutenticado} guardados en sesión o en token.
+ *
+ * Cada cambio se publica en {@link CacheVersiones} ("usuario:" + id y "rol:" +
+ * id) y aquí se guarda la versión persistida que le corresponde, igual en todos
+ * los nodos, de modo que la versión de un token emitido por otro nodo sigue
+ * siendo comparable. Un principal construido con una versión anterior a la
+ * registrada para su usuario o su rol está desactualizado.
+ *
+ * Un principal también se da por desactualizado al cumplir
+ * auth.principal.vida-maxima-minutos, y por eso los cambios más antiguos que
+ * eso (con un margen para el desfase de reloj entre nodos) se pueden olvidar.
+ * Al arrancar se cargan de cache_versiones los cambios recientes, para que un
+ * token emitido antes de un cambio no vuelva a ser válido tras un reinicio.
+ */
+@Component
+public class UsuarioAutenticadoRegistro {
+
+    private static final String REGION_USUARIO = "usuario:";
+    private static final String REGION_ROL = "rol:";
+    private static final long MARGEN_RELOJ_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /** Versión persistida de un usuario o rol y cuándo la vio este nodo. */
+    private record Marca(long version, long vista) {
+    }
+
+    private final CacheVersiones cacheVersiones;
+    private final long vidaMaximaMs;
+    private final AtomicLong cambiosVistos = new AtomicLong();
+    private final Map<Long, Marca> usuarios = new ConcurrentHashMap<>();
+    private final Map<Long, Marca> roles = new ConcurrentHashMap<>();
+
+    public UsuarioAutenticadoRegistro(CacheVersiones cacheVersiones,
+            @Value("${auth.principal.vida-maxima-minutos:60}") long vidaMaximaMinutos) {
+        this.cacheVersiones = cacheVersiones;
+        this.vidaMaximaMs = TimeUnit.MINUTES.toMillis(Math.max(1, vidaMaximaMinutos));
+    }
+
+    @PostConstruct
+    void suscribir() {
+        cacheVersiones.suscribir(REGION_USUARIO, cambio -> marcar(usuarios, cambio, REGION_USUARIO));
+        cacheVersiones.suscribir(REGION_ROL, cambio -> marcar(roles, cambio, REGION_ROL));
+        cargar(usuarios, REGION_USUARIO);
+        cargar(roles, REGION_ROL);
+    }
+
+    /** Versiones persistidas que aún pueden dejar viejo algún principal. */
+    private void cargar(Map<Long, Marca> marcas, String prefijo) {
+        long limite = System.currentTimeMillis() - vidaMaximaMs - MARGEN_RELOJ_MS;
+        for (CacheVersiones.Cambio cambio : cacheVersiones.versiones(prefijo)) {
+            if (cambio.instante() >= limite) {
+                registrar(marcas, cambio, prefijo, cambio.instante());
+            }
+        }
+    }
+
+    /**
+     * Contador de cambios recibidos; se toma antes de leer el usuario y se pasa
+     * a {@link #version}.
+     */
+    public long cambiosVistos() {
+        return cambiosVistos.get();
+    }
+
+    /**
+     * Versión de un principal leído después de {@code cambiosAntes}. Si entre
+     * medias llegó algún cambio, los datos leídos pueden ser anteriores a él y
+     * el principal sale ya desactualizado, para que se vuelva a leer.
+     */
+    public UsuarioAutenticado.Version version(Long userId, Long rolId, long cambiosAntes) {
+        long ahora = System.currentTimeMillis();
+        if (cambiosVistos.get() != cambiosAntes) {
+            return new UsuarioAutenticado.Version(-1, -1, ahora);
+        }
+        return new UsuarioAutenticado.Version(version(usuarios, userId), version(roles, rolId), ahora);
+    }
+
+    public void usuarioModificado(Long userId) {
+        if (userId != null) {
+            cacheVersiones.invalidar(REGION_USUARIO + userId);
+        }
+    }
+
+    public void rolModificado(Long rolId) {
+        if (rolId != null) {
+            cacheVersiones.invalidar(REGION_ROL + rolId);
+        }
+    }
+
+    public boolean vigente(UsuarioAutenticado usuario) {
+        UsuarioAutenticado.Version version = usuario.getVersion();
+        return System.currentTimeMillis() - version.construido() < vidaMaximaMs
+                && version(usuarios, usuario.getId()) <= version.usuario()
+                && version(roles, usuario.getRolId()) <= version.rol();
+    }
+
+    /** Olvida los cambios que ya sólo podrían afectar a principales caducados. */
+    @Scheduled(fixedDelayString = "${auth.principal.intervalo-limpieza-ms:60000}")
+    public void podar() {
+        long limite = System.currentTimeMillis() - vidaMaximaMs - MARGEN_RELOJ_MS;
+        usuarios.values().removeIf(marca -> marca.vista() < limite);
+        roles.values().removeIf(marca -> marca.vista() < limite);
+    }
+
+    private void marcar(Map<Long, Marca> marcas, CacheVersiones.Cambio cambio, String prefijo) {
+        // Versión 0: la subida falló y se reintentará; la marca llega entonces
+        if (cambio.version() <= 0) {
+            return;
+        }
+        // Se cuenta antes de registrarla: quien vea la versión nueva verá también
+        // el contador cambiado
+        cambiosVistos.incrementAndGet();
+        registrar(marcas, cambio, prefijo, System.currentTimeMillis());
+    }
+
+    private static void registrar(Map<Long, Marca> marcas, CacheVersiones.Cambio cambio, String prefijo,
+            long vista) {
+        marcas.merge(Long.valueOf(cambio.region().substring(prefijo.length())), new Marca(cambio.version(), vista),
+                (anterior, nueva) -> nueva.version() > anterior.version() ? nueva : anterior);
+    }
+
+    private static long version(Map<Long, Marca> marcas, Long id) {
+        Marca marca = id != null ? marcas.get(id) : null;
+        return marca != null ? marca.version() : 0;
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Cola acotada en memoria que desacopla el registro de auditoría del hilo de la
+ * petición. Un hilo de fondo vacía la cola en lotes JDBC (multi-row con
+ * rewriteBatchedStatements) hacia auditoria_logs.
+ */
+@Component
+public class AuditoriaBatchWriter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaBatchWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO auditoria_logs "
+            + "(user_id, model, model_id, accion, datos_anteriores, datos_nuevos, ip, user_agent, url, observaciones, created_at, "
+            + "formato, secuencia, evento_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Qué hacer cuando la cola está llena: bloquear al productor, descartar el
+     * evento o escribirlo de forma síncrona en el hilo de la petición.
+     */
+    public enum PoliticaSaturacion {
+        BLOCK, DROP, SYNC
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final AuditoriaDeltaEncoder deltaEncoder;
+    private final List<AuditoriaLoteListener> listeners;
+    private final TransactionTemplate transaccion;
+    // En modo DELTA la codificación y el INSERT deben ir en el mismo orden
+    // aunque escriban a la vez el flusher y un hilo de petición (política SYNC).
+    private final ReentrantLock escrituraLock = new ReentrantLock();
+
+    private final boolean asyncEnabled;
+    private final int tamanoLote;
+    private final long intervaloFlushMs;
+    private final PoliticaSaturacion politica;
+    private final BlockingQueue<AuditoriaEvento> cola;
+
+    private final DistributionSummary loteTamano;
+    private final Timer loteLatencia;
+    private final Counter descartados;
+    private final Counter errores;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public AuditoriaBatchWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            AuditoriaDeltaEncoder deltaEncoder, List<AuditoriaLoteListener> listeners, MeterRegistry meterRegistry,
+            @Value("${auditoria.async.enabled:true}") boolean asyncEnabled,
+            @Value("${auditoria.async.capacidad-cola:10000}") int capacidadCola,
+            @Value("${auditoria.async.tamano-lote:200}") int tamanoLote,
+            @Value("${auditoria.async.intervalo-flush-ms:500}") long intervaloFlushMs,
+            @Value("${auditoria.async.politica-saturacion:SYNC}") PoliticaSaturacion politica) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.deltaEncoder = deltaEncoder;
+        this.listeners = listeners;
+        // Cada lote en su propia transacción, aparte de la del hilo que lo envía
+        this.transaccion = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.asyncEnabled = asyncEnabled;
+        this.tamanoLote = Math.max(1, tamanoLote);
+        this.intervaloFlushMs = Math.max(1, intervaloFlushMs);
+        this.politica = politica;
+        this.cola = new ArrayBlockingQueue<>(Math.max(1, capacidadCola));
+
+        Gauge.builder("auditoria.cola.profundidad", cola, BlockingQueue::size)
+                .description("Eventos de auditoría pendientes de escribir")
+                .register(meterRegistry);
+        this.loteTamano = DistributionSummary.builder("auditoria.lote.tamano")
+                .description("Filas por lote insertado en auditoria_logs")
+                .register(meterRegistry);
+        this.loteLatencia = Timer.builder("auditoria.lote.latencia")
+                .description("Tiempo de escritura de cada lote de auditoría")
+                .register(meterRegistry);
+        this.descartados = Counter.builder("auditoria.eventos.descartados")
+                .description("Eventos descartados por cola llena")
+                .register(meterRegistry);
+        this.errores = Counter.builder("auditoria.eventos.fallidos")
+                .description("Eventos perdidos por error al escribir el lote")
+                .register(meterRegistry);
+    }
+
+    public void enviar(AuditoriaEvento evento) {
+        if (!asyncEnabled || !running) {
+            escribir(List.of(evento));
+            return;
+        }
+
+        if (cola.offer(evento)) {
+            return;
+        }
+
+        switch (politica) {
+            case BLOCK -> {
+                try {
+                    cola.put(evento);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    descartados.increment();
+                }
+            }
+            case DROP -> descartados.increment();
+            case SYNC -> escribir(List.of(evento));
+        }
+    }
+
+    /**
+     * Inserta el lote en una sola llamada batch, en su propia transacción. Los
+     * usuarios que sólo vienen identificados por email se resuelven con una
+     * única consulta por lote.
+     *
+     * Si el lote falla por un error de datos (un valor que no cabe en su
+     * columna, p. ej.) se reintenta por mitades hasta aislar las filas que
+     * fallan solas; ésas se descartan y cuentan en auditoria.eventos.fallidos.
+     *
+     * @return false si parte del lote no pudo escribirse por un fallo
+     *         transitorio (conexión, bloqueo); lo ya confirmado no se deshace
+     */
+    public boolean escribir(List<AuditoriaEvento> lote) {
+        return escribir(lote, evento -> {
+        });
+    }
+
+    /**
+     * Como {@link #escribir(List)}, pero entrega a {@code rechazados} cada
+     * evento que la base de datos rechaza por sus datos, para que el llamador
+     * pueda apartarlo en lugar de perderlo.
+     */
+    public boolean escribir(List<AuditoriaEvento> lote, Consumer<AuditoriaEvento> rechazados) {
+        if (lote.isEmpty()) {
+            return true;
+        }
+
+        int[] pendientes = { lote.size() };
+        boolean delta = deltaEncoder.isActivo();
+        if (delta) {
+            escrituraLock.lock();
+        }
+        try {
+            dividir(lote, pendientes, rechazados);
+            return true;
+        } catch (RuntimeException ex) {
+            errores.increment(pendientes[0]);
+            logger.error("Falla al guardar lote de auditoria ({} de {} eventos sin escribir): {}", pendientes[0],
+                    lote.size(), ex.getMessage());
+            return false;
+        } finally {
+            if (delta) {
+                escrituraLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Escribe el lote y, si una fila lo hace fallar, repite con cada mitad por
+     * separado. Los errores transitorios se propagan sin partir el lote.
+     */
+    private void dividir(List<AuditoriaEvento> lote, int[] pendientes, Consumer<AuditoriaEvento> rechazados) {
+        try {
+            insertar(lote);
+            pendientes[0] -= lote.size();
+            return;
+        } catch (DataIntegrityViolationException ex) {
+            if (lote.size() == 1) {
+                rechazar(lote.get(0), ex);
+                pendientes[0]--;
+                rechazados.accept(lote.get(0));
+                return;
+            }
+            logger.warn("Lote de auditoría rechazado ({} eventos), se reintenta por partes: {}", lote.size(),
+                    ex.getMostSpecificCause().getMessage());
+        }
+        int mitad = lote.size() / 2;
+        dividir(lote.subList(0, mitad), pendientes, rechazados);
+        dividir(lote.subList(mitad, lote.size()), pendientes, rechazados);
+    }
+
+    private void rechazar(AuditoriaEvento evento, DataIntegrityViolationException ex) {
+        errores.increment();
+        logger.error("Evento de auditoría descartado ({} {} {}): {}", evento.accion(), evento.model(),
+                evento.modelId(), ex.getMostSpecificCause().getMessage());
+    }
+
+    /**
+     * Un intento de escritura: si falla, su transacción deshace también las
+     * filas que el driver hubiera llegado a insertar.
+     */
+    private void insertar(List<AuditoriaEvento> lote) {
+        long inicio = System.nanoTime();
+        List<AuditoriaEvento> resueltos;
+        KeyHolder claves = new GeneratedKeyHolder();
+        try {
+            resueltos = transaccion.execute(status -> {
+                List<AuditoriaEvento> filas = resolverUsuarios(deltaEncoder.codificar(lote));
+                jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[] { "id" }),
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                asignarParametros(ps, filas.get(i));
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return filas.size();
+                            }
+                        }, claves);
+                return filas;
+            });
+        } catch (RuntimeException ex) {
+            // Las versiones calculadas nunca llegaron a la base de datos
+            deltaEncoder.descartar(lote);
+            throw ex;
+        } finally {
+            loteLatencia.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+        loteTamano.record(lote.size());
+
+        List<Long> ids = idsGenerados(claves, resueltos.size());
+        for (AuditoriaLoteListener listener : listeners) {
+            try {
+                listener.lotePersistido(resueltos, ids);
+            } catch (RuntimeException ex) {
+                logger.warn("Listener de auditoría {} falló: {}", listener.getClass().getSimpleName(),
+                        ex.getMessage());
+            }
+        }
+    }
+
+    private static void asignarParametros(PreparedStatement ps, AuditoriaEvento evento) throws SQLException {
+        if (evento.userId() != null) {
+            ps.setLong(1, evento.userId());
+        } else {
+            ps.setNull(1, Types.BIGINT);
+        }
+        ps.setString(2, evento.model());
+        if (evento.modelId() != null) {
+            ps.setLong(3, evento.modelId());
+        } else {
+            ps.setNull(3, Types.BIGINT);
+        }
+        ps.setString(4, evento.accion());
+        ps.setString(5, evento.datosAnteriores());
+        ps.setString(6, evento.datosNuevos());
+        ps.setString(7, evento.ip());
+        ps.setString(8, evento.userAgent());
+        ps.setString(9, evento.url());
+        ps.setString(10, evento.observaciones());
+        ps.setTimestamp(11, Timestamp.valueOf(evento.createdAt()));
+        ps.setString(12, evento.formato());
+        if (evento.secuencia() != null) {
+            ps.setInt(13, evento.secuencia());
+        } else {
+            ps.setNull(13, Types.INTEGER);
+        }
+        ps.setString(14, evento.eventoId());
+    }
+
+    /**
+     * Ids asignados por la base de datos a cada fila del lote, en orden; null
+     * si el driver no los devolvió todos.
+     */
+    private static List<Long> idsGenerados(KeyHolder claves, int filas) {
+        List<Map<String, Object>> lista = claves.getKeyList();
+        List<Long> ids = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            Object valor = i < lista.size() && !lista.get(i).isEmpty()
+                    ? lista.get(i).values().iterator().next()
+                    : null;
+            ids.add(valor instanceof Number numero ? numero.longValue() : null);
+        }
+        return ids;
+    }
+
+    /**
+     * Devuelve el lote con userId rellenado para los eventos que sólo traen el
+     * email, usando una única consulta.
+     */
+    private List<AuditoriaEvento> resolverUsuarios(List<AuditoriaEvento> lote) {
+        Set<String> emails = lote.stream()
+                .filter(e -> e.userId() == null && e.userEmail() != null)
+                .map(AuditoriaEvento::userEmail)
+                .collect(Collectors.toSet());
+        if (emails.isEmpty()) {
+            return lote;
+        }
+
+        Map<String, Long> usuarios = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, email FROM users WHERE status = 1 AND email IN (:emails)",
+                Map.of("emails", emails),
+                rs -> {
+                    usuarios.put(rs.getString("email"), rs.getLong("id"));
+                });
+        List<AuditoriaEvento> resueltos = new ArrayList<>(lote.size());
+        for (AuditoriaEvento evento : lote) {
+            resueltos.add(evento.userId() == null && evento.userEmail() != null
+                    ? evento.conUsuario(usuarios.get(evento.userEmail()))
+                    : evento);
+        }
+        return resueltos;
+    }
+
+    private void ejecutarFlusher() {
+        List<AuditoriaEvento> lote = new ArrayList<>(tamanoLote);
+        while (running || !cola.isEmpty()) {
+            try {
+                AuditoriaEvento primero = cola.poll(intervaloFlushMs, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervaloFlushMs);
+                while (lote.size() < tamanoLote) {
+                    cola.drainTo(lote, tamanoLote - lote.size());
+                    long restante = limite - System.nanoTime();
+                    if (lote.size() >= tamanoLote || restante <= 0 || !running) {
+                        break;
+                    }
+                    AuditoriaEvento siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+
+                escribir(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                lote.clear();
+            }
+        }
+        drenar();
+    }
+
+    private void drenar() {
+        List<AuditoriaEvento> pendientes = new ArrayList<>(tamanoLote);
+        while (cola.drainTo(pendientes, tamanoLote) > 0) {
+            escribir(pendientes);
+            pendientes.clear();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!asyncEnabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::ejecutarFlusher, "auditoria-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        // Lo que haya quedado (p. ej. eventos encolados tras el último poll) se
+        // escribe antes de que se cierre el DataSource.
+        drenar();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Se detiene después del servidor web para no perder eventos de peticiones
+        // en curso, y antes de que se destruya el DataSource.
+        return Integer.MAX_VALUE - 2048;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Modo de almacenamiento DELTA: en lugar de guardar el snapshot completo en
+ * datos_nuevos (y el anterior en datos_anteriores), cada fila guarda sólo los
+ * campos que cambiaron respecto a la versión anterior del mismo (model,
+ * model_id), como una lista de operaciones estilo JSON Patch (add, replace y
+ * remove). Cada N cambios se guarda un CHECKPOINT con el estado completo para
+ * acotar la reconstrucción.
+ *
+ * datosNuevos es el estado completo del registro, salvo que el evento traiga
+ * datosAnteriores: entonces ambos contienen sólo los campos que cambiaron, y un
+ * campo presente en datosAnteriores pero no en datosNuevos se ha eliminado.
+ *
+ * El último estado de cada registro se mantiene en una caché LRU, pero sólo se
+ * usa si coincide con lo persistido: por cada lote se lee de auditoria_logs la
+ * última secuencia y el número de versiones de sus registros, y si otro nodo
+ * escribió entretanto (o la caché no lo tiene) la fila se guarda como
+ * CHECKPOINT, partiendo del estado reconstruido desde la base de datos cuando
+ * el evento es parcial. Si dos nodos escriben a la vez la misma versión, la
+ * siguiente de ese registro también sale como CHECKPOINT.
+ *
+ * datos_nuevos es TEXT: un CHECKPOINT periódico que no cabe se sustituye por un
+ * delta, y si no cabe ni eso la fila se guarda recortada con la marca
+ * {@link AuditoriaEvento#TRUNCADO}, igual que en el aspecto.
+ */
+@Component
+public class AuditoriaDeltaEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaDeltaEncoder.class);
+
+    private static final TypeReference<LinkedHashMap<String, Object>> TIPO_MAPA = new TypeReference<>() {
+    };
+
+    public enum ModoAlmacenamiento {
+        SNAPSHOT, DELTA
+    }
+
+    /** Versión {@code secuencia} de un registro, la {@code versiones}-ésima fila codificada. */
+    private record Version(int secuencia, long versiones, Map<String, Object> estado) {
+    }
+
+    private final AuditoriaSnapshotService snapshotService;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ModoAlmacenamiento modo;
+    private final int checkpointCada;
+    private final Map<String, Version> ultimas;
+
+    public AuditoriaDeltaEncoder(AuditoriaSnapshotService snapshotService, NamedParameterJdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            @Value("${auditoria.almacenamiento.modo:SNAPSHOT}") ModoAlmacenamiento modo,
+            @Value("${auditoria.almacenamiento.checkpoint-cada:20}") int checkpointCada,
+            @Value("${auditoria.almacenamiento.cache-estados:10000}") int cacheEstados) {
+        this.snapshotService = snapshotService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.modo = modo;
+        this.checkpointCada = Math.max(1, checkpointCada);
+        this.ultimas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Version> eldest) {
+                return size() > cacheEstados;
+            }
+        };
+    }
+
+    public boolean isActivo() {
+        return modo == ModoAlmacenamiento.DELTA;
+    }
+
+    /**
+     * Devuelve el lote con datos_nuevos convertido a CHECKPOINT o DELTA. Debe
+     * llamarse en el mismo orden en que se insertarán las filas.
+     */
+    public synchronized List<AuditoriaEvento> codificar(List<AuditoriaEvento> lote) {
+        if (!isActivo()) {
+            return lote;
+        }
+
+        Map<String, Version> persistidas = persistidas(lote);
+        List<AuditoriaEvento> resultado = new ArrayList<>(lote.size());
+        for (AuditoriaEvento evento : lote) {
+            resultado.add(codificar(evento, persistidas));
+        }
+        return resultado;
+    }
+
+    /**
+     * Olvida el estado en caché de los registros del lote, p. ej. porque el
+     * INSERT falló y las versiones calculadas nunca llegaron a la base de datos.
+     */
+    public synchronized void descartar(List<AuditoriaEvento> lote) {
+        for (AuditoriaEvento evento : lote) {
+            if (evento.modelId() != null) {
+                ultimas.remove(clave(evento));
+            }
+        }
+    }
+
+    /**
+     * Última secuencia y número de filas codificadas de cada registro del lote
+     * en auditoria_logs (sin estado), con una sola consulta.
+     */
+    private Map<String, Version> persistidas(List<AuditoriaEvento> lote) {
+        Map<String, Object[]> pares = new LinkedHashMap<>();
+        for (AuditoriaEvento evento : lote) {
+            if (evento.modelId() != null && evento.datosNuevos() != null) {
+                pares.putIfAbsent(clave(evento), new Object[] { evento.model(), evento.modelId() });
+            }
+        }
+        Map<String, Version> persistidas = new HashMap<>(pares.size() * 2);
+        if (pares.isEmpty()) {
+            return persistidas;
+        }
+        jdbcTemplate.query("SELECT model, model_id, MAX(secuencia) AS secuencia, COUNT(secuencia) AS versiones "
+                + "FROM auditoria_logs WHERE (model, model_id) IN (:pares) GROUP BY model, model_id",
+                Map.of("pares", new ArrayList<>(pares.values())),
+                rs -> {
+                    persistidas.put(rs.getString("model") + ":" + rs.getLong("model_id"),
+                            new Version(rs.getInt("secuencia"), rs.getLong("versiones"), null));
+                });
+        return persistidas;
+    }
+
+    private AuditoriaEvento codificar(AuditoriaEvento evento, Map<String, Version> persistidas) {
+        if (evento.modelId() == null || evento.datosNuevos() == null) {
+            return evento;
+        }
+
+        Map<String, Object> nuevos;
+        Map<String, Object> anteriores;
+        try {
+            nuevos = objectMapper.readValue(evento.datosNuevos(), TIPO_MAPA);
+            anteriores = evento.datosAnteriores() != null
+                    ? objectMapper.readValue(evento.datosAnteriores(), TIPO_MAPA)
+                    : null;
+        } catch (JsonProcessingException e) {
+            return evento;
+        }
+
+        String clave = clave(evento);
+        if (nuevos.containsKey(AuditoriaEvento.TRUNCADO)) {
+            // Payload recortado: se guarda tal cual y no cuenta como versión. Sin
+            // el estado en caché, el siguiente cambio de este nodo sale como
+            // CHECKPOINT.
+            ultimas.remove(clave);
+            return evento;
+        }
+        Version persistida = persistidas.getOrDefault(clave, new Version(0, 0, null));
+        Version cacheada = ultimas.get(clave);
+        boolean vigente = cacheada != null && cacheada.secuencia() == persistida.secuencia()
+                && cacheada.versiones() == persistida.versiones();
+
+        Map<String, Object> estado;
+        if (anteriores == null) {
+            estado = nuevos;
+        } else {
+            // Cambio parcial: se aplica sobre el último estado persistido
+            Map<String, Object> base = vigente ? cacheada.estado()
+                    : snapshotService.reconstruir(evento.model(), evento.modelId(), null)
+                            .map(AuditoriaSnapshotService.Estado::datos)
+                            .orElse(Map.of());
+            estado = new LinkedHashMap<>(base);
+            estado.putAll(nuevos);
+            for (String campo : anteriores.keySet()) {
+                if (!nuevos.containsKey(campo)) {
+                    estado.remove(campo);
+                }
+            }
+        }
+
+        int secuencia = persistida.secuencia() + 1;
+        Version version = new Version(secuencia, persistida.versiones() + 1, estado);
+        ultimas.put(clave, version);
+        persistidas.put(clave, version);
+
+        try {
+            if (!vigente || secuencia % checkpointCada == 0) {
+                String checkpoint = objectMapper.writeValueAsString(estado);
+                if (cabe(checkpoint)) {
+                    return evento.conCodificacion(checkpoint, AuditoriaSnapshotService.CHECKPOINT, secuencia);
+                }
+                if (!vigente) {
+                    return recortado(evento, clave, checkpoint, persistida, persistidas);
+                }
+                // El checkpoint periódico no cabe: se sigue la cadena con un delta
+            }
+            String delta = objectMapper.writeValueAsString(diferencias(cacheada.estado(), estado));
+            if (!cabe(delta)) {
+                return recortado(evento, clave, delta, persistida, persistidas);
+            }
+            return evento.conCodificacion(delta, AuditoriaSnapshotService.DELTA, secuencia);
+        } catch (JsonProcessingException e) {
+            logger.warn("No se pudo codificar el delta de {}: {}", clave, e.getMessage());
+            ultimas.remove(clave);
+            return evento;
+        }
+    }
+
+    private static boolean cabe(String json) {
+        return json.getBytes(StandardCharsets.UTF_8).length <= AuditoriaEvento.MAX_TEXT;
+    }
+
+    /**
+     * Fila que no cabe en datos_nuevos: se guarda recortada y sin formato, como
+     * un payload recortado del aspecto, y no cuenta como versión; el siguiente
+     * cambio del registro vuelve a salir como CHECKPOINT.
+     */
+    private AuditoriaEvento recortado(AuditoriaEvento evento, String clave, String json, Version persistida,
+            Map<String, Version> persistidas) throws JsonProcessingException {
+        logger.warn("El estado de {} no cabe en datos_nuevos; se guarda recortado", clave);
+        ultimas.remove(clave);
+        persistidas.put(clave, persistida);
+        return evento.conCodificacion(AuditoriaEvento.truncar(objectMapper, json, AuditoriaEvento.MAX_TEXT), null,
+                null);
+    }
+
+    static List<Map<String, Object>> diferencias(Map<String, Object> anterior, Map<String, Object> estado) {
+        List<Map<String, Object>> operaciones = new ArrayList<>();
+        for (Map.Entry<String, Object> campo : estado.entrySet()) {
+            boolean existia = anterior.containsKey(campo.getKey());
+            if (existia && Objects.equals(anterior.get(campo.getKey()), campo.getValue())) {
+                continue;
+            }
+            Map<String, Object> operacion = new LinkedHashMap<>();
+            operacion.put("op", existia ? "replace" : "add");
+            operacion.put("path", AuditoriaSnapshotService.rutaDesdeCampo(campo.getKey()));
+            operacion.put("value", campo.getValue());
+            operaciones.add(operacion);
+        }
+        for (String campo : anterior.keySet()) {
+            if (!estado.containsKey(campo)) {
+                Map<String, Object> operacion = new LinkedHashMap<>();
+                operacion.put("op", "remove");
+                operacion.put("path", AuditoriaSnapshotService.rutaDesdeCampo(campo));
+                operaciones.add(operacion);
+            }
+        }
+        return operaciones;
+    }
+
+    private static String clave(AuditoriaEvento evento) {
+        return evento.model() + ":" + evento.modelId();
+    }
+}
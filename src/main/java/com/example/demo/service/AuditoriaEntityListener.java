@@ -0,0 +1,226 @@
+package com.example.demo.service;
+
+import com.example.demo.annotation.Auditable;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Captura de auditoría desde los eventos post-commit de Hibernate
+ * (auditoria.captura=HIBERNATE) para las entidades marcadas con
+ * {@link Auditable}.
+ *
+ * El estado anterior sale del snapshot que Hibernate ya tiene en el contexto de
+ * persistencia, así que no hace falta una consulta extra; en los UPDATE sólo se
+ * escriben las propiedades sucias. Los valores se serializan directamente al
+ * JSON final, sin Map intermedio.
+ */
+@Component
+@ConditionalOnProperty(name = "auditoria.captura", havingValue = "HIBERNATE")
+public class AuditoriaEntityListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaEntityListener.class);
+
+    private static final String OBSERVACIONES = "Registro automático vía Hibernate";
+
+    private record Configuracion(String model, Set<String> excluidas) {
+    }
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final AuditoriaService auditoriaService;
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, Optional<Configuracion>> configuraciones = new ConcurrentHashMap<>();
+
+    private PersistenceUnitUtil persistenceUnitUtil;
+
+    public AuditoriaEntityListener(EntityManagerFactory entityManagerFactory, AuditoriaService auditoriaService,
+            ObjectMapper objectMapper) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.auditoriaService = auditoriaService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void registrar() {
+        this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return configuracion(persister.getMappedClass()).isPresent();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        configuracion(event.getPersister().getMappedClass()).ifPresent(config -> registrar(config, "CREAR",
+                event.getId(), null, escribir(config, event.getPersister(), event.getState(), null)));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Optional<Configuracion> config = configuracion(event.getPersister().getMappedClass());
+        if (config.isEmpty()) {
+            return;
+        }
+
+        EntityPersister persister = event.getPersister();
+        Object[] anterior = event.getOldState();
+        Object[] nuevo = event.getState();
+        boolean[] sucias = sucias(persister, event.getDirtyProperties(), anterior, nuevo);
+
+        String datosNuevos = escribir(config.get(), persister, nuevo, sucias);
+        if (datosNuevos == null) {
+            return;
+        }
+        String datosAnteriores = anterior != null ? escribir(config.get(), persister, anterior, sucias) : null;
+
+        // Las bajas del sistema son lógicas (status = 0), así que se registran
+        // como ELIMINAR aunque en SQL sean un UPDATE.
+        String accion = esBajaLogica(persister, anterior, nuevo) ? "ELIMINAR" : "ACTUALIZAR";
+        registrar(config.get(), accion, event.getId(), datosAnteriores, datosNuevos);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        configuracion(event.getPersister().getMappedClass()).ifPresent(config -> registrar(config, "ELIMINAR",
+                event.getId(), escribir(config, event.getPersister(), event.getDeletedState(), null), null));
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // Nada que auditar si la transacción no llegó a confirmarse
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    private void registrar(Configuracion config, String accion, Object id, String datosAnteriores,
+            String datosNuevos) {
+        Long modelId = id instanceof Number numero ? numero.longValue() : null;
+        auditoriaService.registrarSerializado(accion, config.model(), modelId, datosAnteriores, datosNuevos,
+                OBSERVACIONES, requestActual());
+    }
+
+    /**
+     * Serializa las propiedades indicadas (todas si {@code incluir} es null) en
+     * un objeto JSON. Las asociaciones se escriben como su id y las colecciones
+     * se omiten para no forzar su carga.
+     */
+    private String escribir(Configuracion config, EntityPersister persister, Object[] estado, boolean[] incluir) {
+        if (estado == null) {
+            return null;
+        }
+
+        String[] nombres = persister.getPropertyNames();
+        Type[] tipos = persister.getPropertyTypes();
+        StringWriter salida = new StringWriter(256);
+        boolean vacio = true;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(salida)) {
+            generator.writeStartObject();
+            for (int i = 0; i < nombres.length; i++) {
+                if ((incluir != null && !incluir[i]) || config.excluidas().contains(nombres[i])
+                        || tipos[i].isCollectionType()) {
+                    continue;
+                }
+                generator.writeFieldName(nombres[i]);
+                Object valor = estado[i];
+                if (valor != null && tipos[i].isEntityType()) {
+                    valor = persistenceUnitUtil.getIdentifier(valor);
+                }
+                generator.writeObject(valor);
+                vacio = false;
+            }
+            generator.writeEndObject();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("No se pudo serializar la auditoría de {}: {}", config.model(), e.getMessage());
+            return null;
+        }
+        return vacio ? null : salida.toString();
+    }
+
+    private static boolean[] sucias(EntityPersister persister, int[] dirty, Object[] anterior, Object[] nuevo) {
+        boolean[] sucias = new boolean[persister.getPropertyNames().length];
+        if (dirty != null) {
+            for (int indice : dirty) {
+                sucias[indice] = true;
+            }
+            return sucias;
+        }
+        // Sin dirty-checking (p. ej. update de una entidad separada) se comparan
+        // ambos estados; si no hay estado anterior se escribe todo.
+        for (int i = 0; i < sucias.length; i++) {
+            sucias[i] = anterior == null || !Objects.equals(anterior[i], nuevo[i]);
+        }
+        return sucias;
+    }
+
+    private static boolean esBajaLogica(EntityPersister persister, Object[] anterior, Object[] nuevo) {
+        if (anterior == null) {
+            return false;
+        }
+        String[] nombres = persister.getPropertyNames();
+        for (int i = 0; i < nombres.length; i++) {
+            if ("status".equals(nombres[i])) {
+                return Integer.valueOf(0).equals(nuevo[i]) && !Integer.valueOf(0).equals(anterior[i]);
+            }
+        }
+        return false;
+    }
+
+    private Optional<Configuracion> configuracion(Class<?> clase) {
+        return configuraciones.computeIfAbsent(clase, c -> {
+            Auditable auditable = c.getAnnotation(Auditable.class);
+            if (auditable == null) {
+                return Optional.empty();
+            }
+            String model = auditable.model().isEmpty() ? c.getSimpleName() : auditable.model();
+            return Optional.of(new Configuracion(model, Set.of(auditable.exclude())));
+        });
+    }
+
+    private static HttpServletRequest requestActual() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet.getRequest() : null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Evento de auditoría ya resuelto en el hilo de la petición (usuario, IP, URL y
+ * payload serializado), listo para persistirse de forma asíncrona en
+ * auditoria_logs.
+ *
+ * formato y secuencia sólo se rellenan en modo de almacenamiento DELTA (ver
+ * {@link AuditoriaDeltaEncoder}); eventoId sólo cuando el evento pasa por el
+ * journal local (ver {@link AuditoriaJournal}).
+ *
+ * ip, userAgent y url se recortan a sus columnas VARCHAR(255) al construir el
+ * evento: una cabecera larga no debe hacer fallar el INSERT.
+ */
+public record AuditoriaEvento(
+        Long userId,
+        String userEmail,
+        String model,
+        Long modelId,
+        String accion,
+        String datosAnteriores,
+        String datosNuevos,
+        String ip,
+        String userAgent,
+        String url,
+        String observaciones,
+        LocalDateTime createdAt,
+        String formato,
+        Integer secuencia,
+        String eventoId) {
+
+    /** Longitud de ip, user_agent y url en auditoria_logs. */
+    public static final int MAX_VARCHAR = 255;
+
+    /** Bytes que caben en las columnas TEXT (datos_anteriores, datos_nuevos). */
+    public static final int MAX_TEXT = 65_535;
+
+    /** Marca de un datos_nuevos recortado por tamaño (ver {@link #truncar}). */
+    public static final String TRUNCADO = "_truncado";
+
+    public AuditoriaEvento {
+        ip = recortar(ip);
+        userAgent = recortar(userAgent);
+        url = recortar(url);
+    }
+
+    public AuditoriaEvento conCodificacion(String datosNuevos, String formato, Integer secuencia) {
+        return new AuditoriaEvento(userId, userEmail, model, modelId, accion, null, datosNuevos, ip, userAgent,
+                url, observaciones, createdAt, formato, secuencia, eventoId);
+    }
+
+    public AuditoriaEvento conUsuario(Long userId) {
+        return new AuditoriaEvento(userId, userEmail, model, modelId, accion, datosAnteriores, datosNuevos, ip,
+                userAgent, url, observaciones, createdAt, formato, secuencia, eventoId);
+    }
+
+    public AuditoriaEvento conEventoId(String eventoId) {
+        return new AuditoriaEvento(userId, userEmail, model, modelId, accion, datosAnteriores, datosNuevos, ip,
+                userAgent, url, observaciones, createdAt, formato, secuencia, eventoId);
+    }
+
+    /** Corta a MAX_VARCHAR caracteres sin partir un par sustituto. */
+    static String recortar(String valor) {
+        if (valor == null || valor.length() <= MAX_VARCHAR) {
+            return valor;
+        }
+        int fin = Character.isHighSurrogate(valor.charAt(MAX_VARCHAR - 1)) ? MAX_VARCHAR - 1 : MAX_VARCHAR;
+        return valor.substring(0, fin);
+    }
+
+    /**
+     * Devuelve el JSON tal cual si ocupa como mucho maxBytes en UTF-8 (y nunca
+     * más que la columna TEXT); si no, un objeto con el inicio del JSON y su
+     * tamaño real, para que datos_nuevos siga siendo JSON válido. El inicio se
+     * recorta teniendo en cuenta el escapado dentro de _inicio, así que el
+     * resultado completo cabe en el límite.
+     */
+    public static String truncar(ObjectMapper objectMapper, String json, int maxBytes) throws JsonProcessingException {
+        int limite = Math.min(maxBytes, MAX_TEXT);
+        int bytes = json.getBytes(StandardCharsets.UTF_8).length;
+        if (bytes <= limite) {
+            return json;
+        }
+
+        Map<String, Object> truncado = new LinkedHashMap<>();
+        truncado.put(TRUNCADO, true);
+        truncado.put("_longitud", bytes);
+        truncado.put("_inicio", "");
+        int disponible = limite - objectMapper.writeValueAsString(truncado).getBytes(StandardCharsets.UTF_8).length;
+
+        int fin = 0;
+        while (fin < json.length() && disponible > 0) {
+            int punto = json.codePointAt(fin);
+            int coste = bytesEscapados(punto);
+            if (coste > disponible) {
+                break;
+            }
+            disponible -= coste;
+            fin += Character.charCount(punto);
+        }
+        truncado.put("_inicio", json.substring(0, fin));
+        return objectMapper.writeValueAsString(truncado);
+    }
+
+    /** Bytes UTF-8 que ocupa el carácter dentro de una cadena JSON. */
+    private static int bytesEscapados(int punto) {
+        if (punto == '"' || punto == '\\' || punto == '\b' || punto == '\t' || punto == '\n' || punto == '\f'
+                || punto == '\r') {
+            return 2;
+        }
+        if (punto < 0x20) {
+            return 6;
+        }
+        return punto < 0x80 ? 1 : punto < 0x800 ? 2 : punto < 0x10000 ? 3 : 4;
+    }
+}
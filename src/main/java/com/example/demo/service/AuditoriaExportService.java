@@ -0,0 +1,149 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AuditoriaFiltroDTO;
+import com.example.demo.dto.AuditoriaLogDTO;
+import com.example.demo.repository.AuditoriaQueryRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exportación de auditoria_logs en NDJSON o CSV, bloque a bloque: cada bloque
+ * se lee de la base de datos y se escribe al stream de salida antes de pedir el
+ * siguiente, de modo que el heap no crece con el número de filas.
+ */
+@Service
+public class AuditoriaExportService {
+
+    public enum Formato {
+        NDJSON, CSV
+    }
+
+    private static final String[] COLUMNAS = { "id", "user_id", "user_name", "user_email", "model", "model_id",
+            "accion", "datos_anteriores", "datos_nuevos", "ip", "user_agent", "url", "observaciones", "formato", "secuencia",
+            "created_at" };
+
+    private final AuditoriaQueryRepository auditoriaQueryRepository;
+    private final ObjectMapper objectMapper;
+
+    public AuditoriaExportService(AuditoriaQueryRepository auditoriaQueryRepository, ObjectMapper objectMapper) {
+        this.auditoriaQueryRepository = auditoriaQueryRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public void exportar(AuditoriaFiltroDTO filtro, Formato formato, OutputStream out) throws IOException {
+        try {
+            if (formato == Formato.CSV) {
+                exportarCsv(filtro, out);
+            } else {
+                exportarNdjson(filtro, out);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void exportarNdjson(AuditoriaFiltroDTO filtro, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // El salto de línea se escribe explícitamente tras cada objeto
+            generator.setRootValueSeparator(null);
+
+            auditoriaQueryRepository.recorrer(filtro, bloque -> {
+                try {
+                    for (AuditoriaLogDTO fila : bloque) {
+                        generator.writeStartObject();
+                        for (String columna : COLUMNAS) {
+                            escribirCampoJson(generator, columna, valor(fila, columna));
+                        }
+                        generator.writeEndObject();
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static void escribirCampoJson(JsonGenerator generator, String columna, Object valor) throws IOException {
+        if (valor instanceof Number numero) {
+            generator.writeNumberField(columna, numero.longValue());
+        } else if (valor == null) {
+            generator.writeNullField(columna);
+        } else {
+            generator.writeStringField(columna, valor.toString());
+        }
+    }
+
+    private static Object valor(AuditoriaLogDTO fila, String columna) {
+        return switch (columna) {
+            case "id" -> fila.getId();
+            case "user_id" -> fila.getUser_id();
+            case "user_name" -> fila.getUser_name();
+            case "user_email" -> fila.getUser_email();
+            case "model" -> fila.getModel();
+            case "model_id" -> fila.getModel_id();
+            case "accion" -> fila.getAccion();
+            case "datos_anteriores" -> fila.getDatos_anteriores();
+            case "datos_nuevos" -> fila.getDatos_nuevos();
+            case "ip" -> fila.getIp();
+            case "user_agent" -> fila.getUser_agent();
+            case "url" -> fila.getUrl();
+            case "observaciones" -> fila.getObservaciones();
+            case "formato" -> fila.getFormato();
+            case "secuencia" -> fila.getSecuencia();
+            case "created_at" -> fila.getCreated_at();
+            default -> throw new IllegalArgumentException(columna);
+        };
+    }
+
+    private void exportarCsv(AuditoriaFiltroDTO filtro, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(String.join(",", COLUMNAS));
+        writer.write("\r\n");
+
+        auditoriaQueryRepository.recorrer(filtro, bloque -> {
+            try {
+                for (AuditoriaLogDTO fila : bloque) {
+                    for (int i = 0; i < COLUMNAS.length; i++) {
+                        if (i > 0) {
+                            writer.write(',');
+                        }
+                        Object valor = valor(fila, COLUMNAS[i]);
+                        escribirCampoCsv(writer, valor != null ? valor.toString() : null);
+                    }
+                    writer.write("\r\n");
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static void escribirCampoCsv(Writer writer, String valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        boolean requiereComillas = valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+        if (!requiereComillas) {
+            writer.write(valor);
+            return;
+        }
+        writer.write('"');
+        writer.write(valor.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Recorrido de una lista de ids de mayor a menor, que es el orden en que se
+ * devuelven los resultados. Las listas ya están ordenadas, así que unir e
+ * intersectar es avanzar cursores: nunca se copian ni se reordenan los ids, y
+ * {@link #bajarA} permite saltar bloques enteros sin decodificarlos.
+ */
+interface AuditoriaIndiceCursor {
+
+    /** Valor de {@link #id()} cuando el cursor se ha agotado. */
+    long FIN = -1;
+
+    AuditoriaIndiceCursor VACIO = new AuditoriaIndiceCursor() {
+        @Override
+        public long id() {
+            return FIN;
+        }
+
+        @Override
+        public void siguiente() {
+        }
+
+        @Override
+        public void bajarA(long objetivo) {
+        }
+
+        @Override
+        public int cantidad() {
+            return 0;
+        }
+    };
+
+    /** Id actual, o {@link #FIN}. */
+    long id();
+
+    /** Pasa al siguiente id menor. */
+    void siguiente();
+
+    /** Se coloca en el mayor id menor o igual que {@code objetivo}. */
+    void bajarA(long objetivo);
+
+    /** Número de ids de la lista (cota superior), para elegir el orden de intersección. */
+    int cantidad();
+
+    /** Unión sin duplicados de varias listas: fusión de k vías de cursores ya ordenados. */
+    static AuditoriaIndiceCursor unir(List<AuditoriaIndiceCursor> cursores) {
+        List<AuditoriaIndiceCursor> conIds = new ArrayList<>(cursores.size());
+        for (AuditoriaIndiceCursor cursor : cursores) {
+            if (cursor.id() != FIN) {
+                conIds.add(cursor);
+            }
+        }
+        if (conIds.isEmpty()) {
+            return VACIO;
+        }
+        return conIds.size() == 1 ? conIds.get(0) : new Union(conIds.toArray(AuditoriaIndiceCursor[]::new));
+    }
+
+    /**
+     * Intersección por saltos: el candidato es el id actual de la lista más
+     * corta y las demás bajan directamente hasta él; si alguna no lo tiene, su
+     * id pasa a ser el nuevo candidato.
+     */
+    static AuditoriaIndiceCursor intersectar(List<AuditoriaIndiceCursor> cursores) {
+        if (cursores.size() == 1) {
+            return cursores.get(0);
+        }
+        AuditoriaIndiceCursor[] ordenados = cursores.toArray(AuditoriaIndiceCursor[]::new);
+        Arrays.sort(ordenados, Comparator.comparingInt(AuditoriaIndiceCursor::cantidad));
+        return new Interseccion(ordenados);
+    }
+
+    final class Union implements AuditoriaIndiceCursor {
+        private final AuditoriaIndiceCursor[] cursores;
+        private long actual;
+
+        private Union(AuditoriaIndiceCursor[] cursores) {
+            this.cursores = cursores;
+            this.actual = mayor();
+        }
+
+        private long mayor() {
+            long mayor = FIN;
+            for (AuditoriaIndiceCursor cursor : cursores) {
+                mayor = Math.max(mayor, cursor.id());
+            }
+            return mayor;
+        }
+
+        @Override
+        public long id() {
+            return actual;
+        }
+
+        @Override
+        public void siguiente() {
+            if (actual == FIN) {
+                return;
+            }
+            // Los que están en el id actual avanzan todos: así se descartan duplicados
+            for (AuditoriaIndiceCursor cursor : cursores) {
+                if (cursor.id() == actual) {
+                    cursor.siguiente();
+                }
+            }
+            actual = mayor();
+        }
+
+        @Override
+        public void bajarA(long objetivo) {
+            if (actual <= objetivo) {
+                return;
+            }
+            for (AuditoriaIndiceCursor cursor : cursores) {
+                cursor.bajarA(objetivo);
+            }
+            actual = mayor();
+        }
+
+        @Override
+        public int cantidad() {
+            int cantidad = 0;
+            for (AuditoriaIndiceCursor cursor : cursores) {
+                cantidad += cursor.cantidad();
+            }
+            return cantidad;
+        }
+    }
+
+    final class Interseccion implements AuditoriaIndiceCursor {
+        private final AuditoriaIndiceCursor[] cursores;
+        private long actual;
+
+        private Interseccion(AuditoriaIndiceCursor[] cursores) {
+            this.cursores = cursores;
+            alinear();
+        }
+
+        /** Baja todos los cursores hasta el primer id que tienen en común. */
+        private void alinear() {
+            long candidato = cursores[0].id();
+            int i = 1;
+            while (candidato != FIN && i < cursores.length) {
+                cursores[i].bajarA(candidato);
+                long id = cursores[i].id();
+                if (id == candidato) {
+                    i++;
+                } else {
+                    candidato = id;
+                    if (candidato != FIN) {
+                        cursores[0].bajarA(candidato);
+                        candidato = cursores[0].id();
+                    }
+                    i = 1;
+                }
+            }
+            actual = candidato;
+        }
+
+        @Override
+        public long id() {
+            return actual;
+        }
+
+        @Override
+        public void siguiente() {
+            if (actual != FIN) {
+                cursores[0].siguiente();
+                alinear();
+            }
+        }
+
+        @Override
+        public void bajarA(long objetivo) {
+            if (actual > objetivo) {
+                cursores[0].bajarA(objetivo);
+                alinear();
+            }
+        }
+
+        @Override
+        public int cantidad() {
+            return cursores[0].cantidad();
+        }
+    }
+}
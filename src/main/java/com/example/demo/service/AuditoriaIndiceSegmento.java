@@ -0,0 +1,367 @@
+package com.example.demo.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Segmento inmutable del índice invertido de auditoría. Cada término guarda sus
+ * ids en orden ascendente como deltas codificados en varint, lo que deja la
+ * mayoría de postings en uno o dos bytes por id.
+ *
+ * Las listas de más de {@value #BLOQUE} ids se recorren por bloques: al crear o
+ * leer el segmento se anota el último id y la posición de cada bloque, y el
+ * cursor sólo decodifica los bloques por los que pasa.
+ *
+ * Formato en disco: [int MAGIC][int versión][long minId][long maxId][int docs]
+ * [int términos] y por término [UTF término][int cantidad][int bytes][deltas].
+ */
+final class AuditoriaIndiceSegmento {
+
+    private static final int MAGIC = 0x41554958; // "AUIX"
+    private static final int VERSION = 1;
+
+    private static final int BLOQUE = 128;
+
+    /**
+     * Deltas de un término y, si ocupa más de un bloque, el último id y la
+     * posición en {@code deltas} de cada bloque.
+     */
+    private record Postings(byte[] deltas, int cantidad, long[] ultimos, int[] posiciones) {
+
+        static Postings de(byte[] deltas, int cantidad) {
+            if (cantidad <= BLOQUE) {
+                return new Postings(deltas, cantidad, null, null);
+            }
+            int bloques = (cantidad + BLOQUE - 1) / BLOQUE;
+            long[] ultimos = new long[bloques];
+            int[] posiciones = new int[bloques];
+            long actual = 0;
+            int posicion = 0;
+            for (int i = 0; i < cantidad; i++) {
+                if (i % BLOQUE == 0) {
+                    posiciones[i / BLOQUE] = posicion;
+                }
+                long delta = 0;
+                int desplazamiento = 0;
+                byte b;
+                do {
+                    b = deltas[posicion++];
+                    delta |= (long) (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while ((b & 0x80) != 0);
+                actual += delta;
+                ultimos[i / BLOQUE] = actual;
+            }
+            return new Postings(deltas, cantidad, ultimos, posiciones);
+        }
+
+        int bloques() {
+            return ultimos == null ? 1 : ultimos.length;
+        }
+
+        /** Decodifica el bloque en {@code destino} y devuelve cuántos ids tiene. */
+        int decodificar(int bloque, long[] destino) {
+            int cantidadBloque = Math.min(BLOQUE, cantidad - bloque * BLOQUE);
+            int posicion = bloque == 0 ? 0 : posiciones[bloque];
+            long actual = bloque == 0 ? 0 : ultimos[bloque - 1];
+            for (int i = 0; i < cantidadBloque; i++) {
+                long delta = 0;
+                int desplazamiento = 0;
+                byte b;
+                do {
+                    b = deltas[posicion++];
+                    delta |= (long) (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while ((b & 0x80) != 0);
+                actual += delta;
+                destino[i] = actual;
+            }
+            return cantidadBloque;
+        }
+    }
+
+    /** Recorre los ids de un término de mayor a menor, bloque a bloque. */
+    private static final class Cursor implements AuditoriaIndiceCursor {
+        private final Postings postings;
+        private final long[] bloque;
+        private int actual;
+        private int cargados;
+        private int indice;
+
+        Cursor(Postings postings) {
+            this.postings = postings;
+            this.bloque = new long[Math.min(BLOQUE, postings.cantidad())];
+            cargar(postings.bloques() - 1);
+        }
+
+        private void cargar(int numero) {
+            actual = numero;
+            cargados = postings.decodificar(numero, bloque);
+            indice = cargados - 1;
+        }
+
+        @Override
+        public long id() {
+            return actual < 0 ? FIN : bloque[indice];
+        }
+
+        @Override
+        public void siguiente() {
+            if (actual < 0) {
+                return;
+            }
+            if (indice > 0) {
+                indice--;
+            } else if (actual > 0) {
+                cargar(actual - 1);
+            } else {
+                actual = -1;
+            }
+        }
+
+        @Override
+        public void bajarA(long objetivo) {
+            if (actual < 0 || bloque[indice] <= objetivo) {
+                return;
+            }
+            int hasta = indice;
+            long[] ultimos = postings.ultimos();
+            if (ultimos != null && actual > 0 && ultimos[actual - 1] >= objetivo) {
+                // Primer bloque cuyo último id alcanza el objetivo
+                int bajo = 0;
+                int alto = actual - 1;
+                while (bajo < alto) {
+                    int medio = (bajo + alto) >>> 1;
+                    if (ultimos[medio] >= objetivo) {
+                        alto = medio;
+                    } else {
+                        bajo = medio + 1;
+                    }
+                }
+                cargar(bajo);
+                hasta = cargados - 1;
+            }
+            // Mayor posición del bloque con id <= objetivo
+            int bajo = 0;
+            int alto = hasta;
+            int encontrado = -1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (bloque[medio] <= objetivo) {
+                    encontrado = medio;
+                    bajo = medio + 1;
+                } else {
+                    alto = medio - 1;
+                }
+            }
+            if (encontrado >= 0) {
+                indice = encontrado;
+            } else if (actual > 0) {
+                // Todo el bloque es mayor: el resultado es el último del anterior
+                cargar(actual - 1);
+            } else {
+                actual = -1;
+            }
+        }
+
+        @Override
+        public int cantidad() {
+            return postings.cantidad();
+        }
+    }
+
+    private final Path ruta;
+    private final long maxId;
+    private final int docs;
+    private final Map<String, Postings> terminos;
+
+    private AuditoriaIndiceSegmento(Path ruta, long maxId, int docs, Map<String, Postings> terminos) {
+        this.ruta = ruta;
+        this.maxId = maxId;
+        this.docs = docs;
+        this.terminos = terminos;
+    }
+
+    Path getRuta() {
+        return ruta;
+    }
+
+    long getMaxId() {
+        return maxId;
+    }
+
+    int getDocs() {
+        return docs;
+    }
+
+    /** Cursor sobre los ids del término, del mayor al menor. */
+    AuditoriaIndiceCursor cursor(String termino) {
+        Postings postings = terminos.get(termino);
+        return postings == null ? AuditoriaIndiceCursor.VACIO : new Cursor(postings);
+    }
+
+    /** Ids del término en orden ascendente, decodificados enteros; para fusionar. */
+    long[] postings(String termino) {
+        Postings postings = terminos.get(termino);
+        if (postings == null) {
+            return new long[0];
+        }
+        long[] ids = new long[postings.cantidad()];
+        long[] bloque = new long[BLOQUE];
+        for (int i = 0; i < postings.bloques(); i++) {
+            int cantidad = postings.decodificar(i, bloque);
+            System.arraycopy(bloque, 0, ids, i * BLOQUE, cantidad);
+        }
+        return ids;
+    }
+
+    /**
+     * Construye y escribe un segmento a partir de listas de ids por término,
+     * cada una ascendente y sin duplicados.
+     */
+    static AuditoriaIndiceSegmento escribir(Path ruta, Map<String, long[]> listas, int docs) throws IOException {
+        Map<String, Postings> terminos = new HashMap<>(listas.size() * 2);
+        long minId = Long.MAX_VALUE;
+        long maxId = 0;
+        for (Map.Entry<String, long[]> lista : listas.entrySet()) {
+            long[] ids = lista.getValue();
+            if (ids.length == 0) {
+                continue;
+            }
+            Postings postings = codificar(ids);
+            terminos.put(lista.getKey(), postings);
+            minId = Math.min(minId, ids[0]);
+            maxId = Math.max(maxId, ids[ids.length - 1]);
+        }
+
+        Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+        try (FileOutputStream fichero = new FileOutputStream(temporal.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fichero, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(minId == Long.MAX_VALUE ? 0 : minId);
+            out.writeLong(maxId);
+            out.writeInt(docs);
+            out.writeInt(terminos.size());
+            for (String termino : new TreeSet<>(terminos.keySet())) {
+                Postings postings = terminos.get(termino);
+                out.writeUTF(termino);
+                out.writeInt(postings.cantidad());
+                out.writeInt(postings.deltas().length);
+                out.write(postings.deltas());
+            }
+            out.flush();
+            fichero.getFD().sync();
+        }
+        Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new AuditoriaIndiceSegmento(ruta, maxId, docs, terminos);
+    }
+
+    static AuditoriaIndiceSegmento leer(Path ruta) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(ruta), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Segmento de índice no reconocido: " + ruta);
+            }
+            in.readLong(); // minId, informativo
+            long maxId = in.readLong();
+            int docs = in.readInt();
+            int cantidadTerminos = in.readInt();
+            Map<String, Postings> terminos = new HashMap<>(cantidadTerminos * 2);
+            for (int i = 0; i < cantidadTerminos; i++) {
+                String termino = in.readUTF();
+                int cantidad = in.readInt();
+                byte[] deltas = new byte[in.readInt()];
+                in.readFully(deltas);
+                terminos.put(termino, Postings.de(deltas, cantidad));
+            }
+            return new AuditoriaIndiceSegmento(ruta, maxId, docs, terminos);
+        }
+    }
+
+    /** Une varios segmentos en uno nuevo escrito en {@code ruta}. */
+    static AuditoriaIndiceSegmento fusionar(Path ruta, List<AuditoriaIndiceSegmento> segmentos) throws IOException {
+        Map<String, List<long[]>> porTermino = new HashMap<>();
+        int docs = 0;
+        for (AuditoriaIndiceSegmento segmento : segmentos) {
+            docs += segmento.docs;
+            for (String termino : segmento.terminos.keySet()) {
+                porTermino.computeIfAbsent(termino, t -> new ArrayList<>()).add(segmento.postings(termino));
+            }
+        }
+        Map<String, long[]> listas = new HashMap<>(porTermino.size() * 2);
+        for (Map.Entry<String, List<long[]>> entrada : porTermino.entrySet()) {
+            listas.put(entrada.getKey(), unir(entrada.getValue()));
+        }
+        return escribir(ruta, listas, docs);
+    }
+
+    /**
+     * Une listas ascendentes en una sola, ascendente y sin duplicados, con una
+     * fusión de k vías: cada paso toma el menor de los primeros de cada lista.
+     */
+    static long[] unir(List<long[]> listas) {
+        if (listas.size() == 1) {
+            return listas.get(0);
+        }
+        int total = 0;
+        for (long[] lista : listas) {
+            total += lista.length;
+        }
+        long[] unidos = new long[total];
+        int[] posiciones = new int[listas.size()];
+        int cantidad = 0;
+        while (true) {
+            long menor = Long.MAX_VALUE;
+            for (int i = 0; i < posiciones.length; i++) {
+                long[] lista = listas.get(i);
+                if (posiciones[i] < lista.length) {
+                    menor = Math.min(menor, lista[posiciones[i]]);
+                }
+            }
+            if (menor == Long.MAX_VALUE) {
+                break;
+            }
+            unidos[cantidad++] = menor;
+            for (int i = 0; i < posiciones.length; i++) {
+                long[] lista = listas.get(i);
+                if (posiciones[i] < lista.length && lista[posiciones[i]] == menor) {
+                    posiciones[i]++;
+                }
+            }
+        }
+        return cantidad == total ? unidos : Arrays.copyOf(unidos, cantidad);
+    }
+
+    private static Postings codificar(long[] ids) {
+        byte[] buffer = new byte[ids.length * 2 + 16];
+        int posicion = 0;
+        long anterior = 0;
+        for (long id : ids) {
+            if (buffer.length - posicion < 10) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            long delta = id - anterior;
+            anterior = id;
+            while ((delta & ~0x7FL) != 0) {
+                buffer[posicion++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            buffer[posicion++] = (byte) delta;
+        }
+        return Postings.de(Arrays.copyOf(buffer, posicion), ids.length);
+    }
+}
@@ -0,0 +1,712 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.AuditoriaQueryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido en proceso sobre el texto de auditoria_logs (model, accion,
+ * observaciones, datos_nuevos y datos_anteriores) para evitar LIKE '%x%' sobre
+ * columnas TEXT.
+ *
+ * Los lotes recién insertados se indexan en un segmento en memoria; al llegar a
+ * docs-por-segmento se congela y un hilo de fondo lo escribe a disco como
+ * segmento comprimido (ver {@link AuditoriaIndiceSegmento}) y fusiona los
+ * segmentos pequeños cuando hay más de max-segmentos. Tras cada escritura se
+ * guarda en indice.marca el mayor id hasta el que todo está en disco: por
+ * debajo del primer id que sólo está en memoria y del primer hueco pendiente.
+ * Al arrancar se cargan los segmentos y se indexan desde la base de datos las
+ * filas posteriores a esa marca, así que una caída no pierde lo que estaba en
+ * memoria aunque fuera un id antiguo.
+ *
+ * Con varios nodos, cada uno sólo recibe sus propios lotes: cada
+ * intervalo-sondeo-ms se indexan también las filas con id mayor que el último
+ * sondeado. Los ids que faltan en ese rango (transacciones de otro nodo aún sin
+ * confirmar) se vuelven a buscar durante espera-huecos-segundos.
+ */
+@Service
+public class AuditoriaIndiceService implements AuditoriaLoteListener, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaIndiceService.class);
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Set<String> IGNORADOS = Set.of("null", "true", "false");
+    private static final int LONGITUD_MINIMA = 2;
+    private static final int LONGITUD_MAXIMA = 40;
+    private static final String PREFIJO = "indice-";
+    private static final String EXTENSION = ".idx";
+    private static final int MAX_HUECOS = 10_000;
+    private static final int MAX_TRAMOS = 8;
+    // Hasta el id guardado aquí, todo está en los segmentos en disco
+    private static final String MARCA = "indice.marca";
+
+    public record Resultado(List<Long> ids, boolean hasMore, Long nextAntesDe) {
+    }
+
+    /**
+     * Tramo ascendente de una lista en memoria: el último id y los deltas int
+     * de cada id respecto al anterior. Sólo crece por el final, así que un
+     * cursor puede quedarse con el array y el tamaño del momento sin copiarlos.
+     */
+    private static final class Tramo {
+        private int[] deltas = new int[4];
+        private int tamano;
+        private long ultimo;
+
+        Tramo(long id) {
+            tamano = 1;
+            ultimo = id;
+        }
+
+        void agregar(long id) {
+            if (tamano == deltas.length) {
+                deltas = Arrays.copyOf(deltas, tamano * 2);
+            }
+            deltas[tamano++] = (int) (id - ultimo);
+            ultimo = id;
+        }
+
+        AuditoriaIndiceCursor cursor() {
+            int[] vista = deltas;
+            int cantidad = tamano;
+            long mayor = ultimo;
+            return new AuditoriaIndiceCursor() {
+                private int posicion = cantidad - 1;
+                private long id = mayor;
+
+                @Override
+                public long id() {
+                    return id;
+                }
+
+                @Override
+                public void siguiente() {
+                    if (id != FIN) {
+                        id = posicion > 0 ? id - vista[posicion--] : FIN;
+                    }
+                }
+
+                @Override
+                public void bajarA(long objetivo) {
+                    while (id > objetivo) {
+                        siguiente();
+                    }
+                }
+
+                @Override
+                public int cantidad() {
+                    return cantidad;
+                }
+            };
+        }
+    }
+
+    /**
+     * Ids de un término en un segmento en memoria. Casi siempre llegan en orden
+     * creciente y se añaden al final de un tramo; uno menor que el último de
+     * todos los tramos (una fila de otro nodo o un hueco rellenado) abre un
+     * tramo nuevo, y con más de MAX_TRAMOS se funden en uno.
+     */
+    private static final class Lista {
+        private Tramo[] tramos;
+
+        Lista(long id) {
+            tramos = new Tramo[] { new Tramo(id) };
+        }
+
+        void agregar(long id) {
+            Tramo destino = null;
+            for (Tramo tramo : tramos) {
+                if (tramo.ultimo == id) {
+                    return;
+                }
+                if (tramo.ultimo < id && (destino == null || tramo.ultimo > destino.ultimo)) {
+                    destino = tramo;
+                }
+            }
+            if (destino != null) {
+                destino.agregar(id);
+                return;
+            }
+            Tramo[] nuevos = Arrays.copyOf(tramos, tramos.length + 1);
+            nuevos[tramos.length] = new Tramo(id);
+            // Se sustituye el array: los cursores abiertos siguen con los tramos que vieron
+            tramos = nuevos.length > MAX_TRAMOS ? new Tramo[] { fundir(nuevos) } : nuevos;
+        }
+
+        private static Tramo fundir(Tramo[] tramos) {
+            AuditoriaIndiceCursor cursor = cursor(tramos);
+            long[] descendentes = new long[cursor.cantidad()];
+            int cantidad = 0;
+            for (; cursor.id() != AuditoriaIndiceCursor.FIN; cursor.siguiente()) {
+                descendentes[cantidad++] = cursor.id();
+            }
+            Tramo fundido = new Tramo(descendentes[cantidad - 1]);
+            fundido.deltas = new int[cantidad];
+            for (int i = cantidad - 2; i >= 0; i--) {
+                fundido.agregar(descendentes[i]);
+            }
+            return fundido;
+        }
+
+        private static AuditoriaIndiceCursor cursor(Tramo[] tramos) {
+            List<AuditoriaIndiceCursor> cursores = new ArrayList<>(tramos.length);
+            for (Tramo tramo : tramos) {
+                cursores.add(tramo.cursor());
+            }
+            return AuditoriaIndiceCursor.unir(cursores);
+        }
+
+        AuditoriaIndiceCursor cursor() {
+            return cursor(tramos);
+        }
+
+        long[] ascendentes() {
+            AuditoriaIndiceCursor cursor = cursor();
+            long[] ids = new long[cursor.cantidad()];
+            int cantidad = 0;
+            for (; cursor.id() != AuditoriaIndiceCursor.FIN; cursor.siguiente()) {
+                ids[ids.length - ++cantidad] = cursor.id();
+            }
+            return cantidad == ids.length ? ids : Arrays.copyOfRange(ids, ids.length - cantidad, ids.length);
+        }
+    }
+
+    /**
+     * Segmento en memoria. Sus ids abarcan como mucho Integer.MAX_VALUE para
+     * que cualquier delta quepa en un int; al congelarse ya no cambia.
+     */
+    private static final class SegmentoMemoria {
+        private final Map<String, Lista> listas = new HashMap<>();
+        private int docs;
+        private long minId = Long.MAX_VALUE;
+        private long maxId = Long.MIN_VALUE;
+
+        boolean admite(long id) {
+            return docs == 0 || Math.max(maxId, id) - Math.min(minId, id) <= Integer.MAX_VALUE;
+        }
+
+        void agregar(String termino, long id) {
+            Lista lista = listas.get(termino);
+            if (lista == null) {
+                listas.put(termino, new Lista(id));
+            } else {
+                lista.agregar(id);
+            }
+        }
+
+        void documento(long id) {
+            docs++;
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+        }
+
+        AuditoriaIndiceCursor cursor(String termino) {
+            Lista lista = listas.get(termino);
+            return lista == null ? AuditoriaIndiceCursor.VACIO : lista.cursor();
+        }
+
+        Map<String, long[]> ordenadas() {
+            Map<String, long[]> ordenadas = new HashMap<>(listas.size() * 2);
+            for (Map.Entry<String, Lista> lista : listas.entrySet()) {
+                ordenadas.put(lista.getKey(), lista.getValue().ascendentes());
+            }
+            return ordenadas;
+        }
+    }
+
+    private final AuditoriaQueryRepository auditoriaQueryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Path directorio;
+    private final int docsPorSegmento;
+    private final int maxSegmentos;
+    private final long esperaHuecosNanos;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private SegmentoMemoria memoria = new SegmentoMemoria();
+    // Segmentos en memoria ya congelados pendientes de escribirse a disco
+    private volatile List<SegmentoMemoria> congelados = List.of();
+    private volatile List<AuditoriaIndiceSegmento> enDisco = List.of();
+    private final AtomicLong siguienteSegmento = new AtomicLong();
+
+    // Hasta este id todo está indexado, salvo los huecos pendientes
+    private volatile long sondeado;
+    // Ids indexados por lotePersistido por encima de sondeado: el sondeo los salta
+    private final ConcurrentSkipListSet<Long> locales = new ConcurrentSkipListSet<>();
+    // Id ausente -> instante en que se detectó; sólo lo usa el hilo de fondo
+    private final Map<Long, Long> huecos = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_HUECOS;
+        }
+    };
+    private final AtomicBoolean sondeoPendiente = new AtomicBoolean();
+
+    private ExecutorService fondo;
+    private volatile boolean running;
+
+    public AuditoriaIndiceService(AuditoriaQueryRepository auditoriaQueryRepository, JdbcTemplate jdbcTemplate,
+            @Value("${auditoria.indice.enabled:true}") boolean enabled,
+            @Value("${auditoria.indice.directorio:./data/auditoria-indice}") String directorio,
+            @Value("${auditoria.indice.docs-por-segmento:50000}") int docsPorSegmento,
+            @Value("${auditoria.indice.max-segmentos:8}") int maxSegmentos,
+            @Value("${auditoria.indice.espera-huecos-segundos:60}") long esperaHuecosSegundos) {
+        this.auditoriaQueryRepository = auditoriaQueryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.directorio = Paths.get(directorio);
+        this.docsPorSegmento = Math.max(100, docsPorSegmento);
+        this.maxSegmentos = Math.max(2, maxSegmentos);
+        this.esperaHuecosNanos = TimeUnit.SECONDS.toNanos(Math.max(0, esperaHuecosSegundos));
+    }
+
+    public boolean isActivo() {
+        return enabled && running;
+    }
+
+    @Override
+    public void lotePersistido(List<AuditoriaEvento> lote, List<Long> ids) {
+        if (!isActivo()) {
+            return;
+        }
+        for (int i = 0; i < lote.size(); i++) {
+            Long id = ids.get(i);
+            if (id != null) {
+                AuditoriaEvento e = lote.get(i);
+                indexar(id, e.model(), e.accion(), e.observaciones(), e.datosNuevos(), e.datosAnteriores());
+                if (id > sondeado) {
+                    locales.add(id);
+                }
+            }
+        }
+    }
+
+    private void indexar(long id, String... textos) {
+        Set<String> terminos = new LinkedHashSet<>();
+        for (String texto : textos) {
+            tokenizar(texto, terminos);
+        }
+        if (terminos.isEmpty()) {
+            return;
+        }
+
+        List<SegmentoMemoria> llenos = new ArrayList<>(2);
+        lock.writeLock().lock();
+        try {
+            if (!memoria.admite(id)) {
+                llenos.add(congelar());
+            }
+            for (String termino : terminos) {
+                memoria.agregar(termino, id);
+            }
+            memoria.documento(id);
+            if (memoria.docs >= docsPorSegmento) {
+                llenos.add(congelar());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (SegmentoMemoria lleno : llenos) {
+            fondo.execute(() -> persistir(lleno));
+        }
+    }
+
+    /** Debe llamarse con el write lock tomado. */
+    private SegmentoMemoria congelar() {
+        SegmentoMemoria lleno = memoria;
+        memoria = new SegmentoMemoria();
+        List<SegmentoMemoria> nuevos = new ArrayList<>(congelados);
+        nuevos.add(lleno);
+        congelados = List.copyOf(nuevos);
+        return lleno;
+    }
+
+    /**
+     * Ids que contienen todos los términos de la consulta, del más reciente al
+     * más antiguo, estrictamente anteriores a {@code antesDe} si se indica.
+     */
+    public Resultado buscar(String consulta, Long antesDe, int limit) {
+        Set<String> terminos = new LinkedHashSet<>();
+        tokenizar(consulta, terminos);
+        if (terminos.isEmpty()) {
+            throw new IllegalArgumentException("La búsqueda no contiene términos indexables");
+        }
+
+        List<AuditoriaIndiceCursor> porTermino = new ArrayList<>(terminos.size());
+        for (String termino : terminos) {
+            AuditoriaIndiceCursor cursor = cursor(termino);
+            if (cursor.id() == AuditoriaIndiceCursor.FIN) {
+                return new Resultado(List.of(), false, null);
+            }
+            porTermino.add(cursor);
+        }
+        AuditoriaIndiceCursor coincidencias = AuditoriaIndiceCursor.intersectar(porTermino);
+        if (antesDe != null) {
+            coincidencias.bajarA(antesDe - 1);
+        }
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, 512));
+        for (; coincidencias.id() != AuditoriaIndiceCursor.FIN && ids.size() < limit; coincidencias.siguiente()) {
+            ids.add(coincidencias.id());
+        }
+        boolean hasMore = coincidencias.id() != AuditoriaIndiceCursor.FIN;
+        return new Resultado(ids, hasMore, hasMore ? ids.get(ids.size() - 1) : null);
+    }
+
+    /**
+     * Ids del término en todos los segmentos, del mayor al menor. Los
+     * segmentos se leen en el orden en que se publican (memoria, congelados,
+     * disco), así que uno que cambia de sitio mientras tanto aparece dos veces
+     * y la unión descarta el duplicado, pero nunca falta.
+     */
+    private AuditoriaIndiceCursor cursor(String termino) {
+        List<AuditoriaIndiceCursor> cursores = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            cursores.add(memoria.cursor(termino));
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (SegmentoMemoria congelado : congelados) {
+            cursores.add(congelado.cursor(termino));
+        }
+        for (AuditoriaIndiceSegmento segmento : enDisco) {
+            cursores.add(segmento.cursor(termino));
+        }
+        return AuditoriaIndiceCursor.unir(cursores);
+    }
+
+    /**
+     * Minúsculas, sin acentos y partido en secuencias de letras/dígitos.
+     */
+    static void tokenizar(String texto, Set<String> terminos) {
+        if (texto == null || texto.isEmpty()) {
+            return;
+        }
+        String normalizado = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        int inicio = -1;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean valido = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+            if (valido && inicio < 0) {
+                inicio = i;
+            } else if (!valido && inicio >= 0) {
+                int longitud = i - inicio;
+                if (longitud >= LONGITUD_MINIMA && longitud <= LONGITUD_MAXIMA) {
+                    String termino = normalizado.substring(inicio, i);
+                    if (!IGNORADOS.contains(termino)) {
+                        terminos.add(termino);
+                    }
+                }
+                inicio = -1;
+            }
+        }
+    }
+
+    // ------------------------------------------------------ segmentos en disco
+
+    private void persistir(SegmentoMemoria segmento) {
+        Path ruta = directorio.resolve(String.format("%s%012d%s", PREFIJO, siguienteSegmento.incrementAndGet(),
+                EXTENSION));
+        try {
+            AuditoriaIndiceSegmento enFichero = AuditoriaIndiceSegmento.escribir(ruta, segmento.ordenadas(),
+                    segmento.docs);
+            synchronized (this) {
+                List<AuditoriaIndiceSegmento> nuevos = new ArrayList<>(enDisco);
+                nuevos.add(enFichero);
+                enDisco = List.copyOf(nuevos);
+                List<SegmentoMemoria> restantes = new ArrayList<>(congelados);
+                restantes.remove(segmento);
+                congelados = List.copyOf(restantes);
+            }
+        } catch (IOException e) {
+            // Se queda en memoria; al reiniciar se reindexará desde la base de datos
+            logger.error("No se pudo escribir el segmento de índice {}: {}", ruta, e.getMessage());
+            return;
+        }
+        try {
+            guardarMarca(marca());
+        } catch (IOException e) {
+            // La marca anterior es más baja: al arrancar sólo se reindexa de más
+            logger.warn("No se pudo guardar la marca del índice de auditoría: {}", e.getMessage());
+        }
+        fusionarSiHaceFalta();
+    }
+
+    /**
+     * Mayor id tal que él y todos los anteriores están en disco o no existen:
+     * queda por debajo del primer id que sólo está en memoria y del primer hueco
+     * pendiente. Sólo se llama desde el hilo de fondo, que es el que toca los
+     * huecos y {@code sondeado}.
+     */
+    private long marca() {
+        long marca = sondeado;
+        lock.readLock().lock();
+        try {
+            if (memoria.docs > 0) {
+                marca = Math.min(marca, memoria.minId - 1);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (SegmentoMemoria congelado : congelados) {
+            marca = Math.min(marca, congelado.minId - 1);
+        }
+        for (Long hueco : huecos.keySet()) {
+            marca = Math.min(marca, hueco - 1);
+        }
+        return Math.max(0, marca);
+    }
+
+    private void guardarMarca(long marca) throws IOException {
+        Path ruta = directorio.resolve(MARCA);
+        Path temporal = ruta.resolveSibling(MARCA + ".tmp");
+        Files.writeString(temporal, Long.toString(marca));
+        Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Con más de max-segmentos en disco, fusiona los más pequeños en uno solo
+     * para que el número de segmentos consultados se mantenga acotado.
+     */
+    private void fusionarSiHaceFalta() {
+        List<AuditoriaIndiceSegmento> actuales = enDisco;
+        if (actuales.size() <= maxSegmentos) {
+            return;
+        }
+        List<AuditoriaIndiceSegmento> candidatos = new ArrayList<>(actuales);
+        candidatos.sort(Comparator.comparingInt(AuditoriaIndiceSegmento::getDocs));
+        List<AuditoriaIndiceSegmento> fusionar = candidatos.subList(0, actuales.size() - maxSegmentos / 2);
+
+        Path ruta = directorio.resolve(String.format("%s%012d%s", PREFIJO, siguienteSegmento.incrementAndGet(),
+                EXTENSION));
+        try {
+            long inicio = System.nanoTime();
+            AuditoriaIndiceSegmento fusionado = AuditoriaIndiceSegmento.fusionar(ruta, fusionar);
+            synchronized (this) {
+                List<AuditoriaIndiceSegmento> nuevos = new ArrayList<>(enDisco);
+                nuevos.removeAll(fusionar);
+                nuevos.add(fusionado);
+                enDisco = List.copyOf(nuevos);
+            }
+            for (AuditoriaIndiceSegmento segmento : fusionar) {
+                Files.deleteIfExists(segmento.getRuta());
+            }
+            logger.info("Índice de auditoría: {} segmentos fusionados ({} docs) en {} ms", fusionar.size(),
+                    fusionado.getDocs(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        } catch (IOException e) {
+            logger.error("No se pudieron fusionar los segmentos de índice: {}", e.getMessage());
+        }
+    }
+
+    private void cargar() throws IOException {
+        Files.createDirectories(directorio);
+        List<AuditoriaIndiceSegmento> cargados = new ArrayList<>();
+        List<Path> ficheros;
+        try (Stream<Path> listado = Files.list(directorio)) {
+            ficheros = listado.sorted().toList();
+        }
+        for (Path fichero : ficheros) {
+            String nombre = fichero.getFileName().toString();
+            if (nombre.endsWith(".tmp")) {
+                Files.deleteIfExists(fichero);
+            } else if (nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION)) {
+                try {
+                    cargados.add(AuditoriaIndiceSegmento.leer(fichero));
+                    long numero = Long.parseLong(nombre.substring(PREFIJO.length(),
+                            nombre.length() - EXTENSION.length()));
+                    siguienteSegmento.accumulateAndGet(numero, Math::max);
+                } catch (IOException | NumberFormatException e) {
+                    logger.warn("Segmento de índice descartado {}: {}", fichero, e.getMessage());
+                    Files.deleteIfExists(fichero);
+                }
+            }
+        }
+        enDisco = List.copyOf(cargados);
+        long maxId = cargados.stream().mapToLong(AuditoriaIndiceSegmento::getMaxId).max().orElse(0);
+        Path marca = directorio.resolve(MARCA);
+        if (Files.exists(marca)) {
+            try {
+                maxId = Math.min(maxId, Long.parseLong(Files.readString(marca).trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("Marca del índice de auditoría no válida en {}: {}", marca, e.getMessage());
+            }
+        }
+        sondeado = maxId;
+    }
+
+    /**
+     * Indexa las filas con id mayor que el último sondeado: al arrancar, lo que
+     * no llegó a disco o se escribió mientras la aplicación estaba parada;
+     * después, lo que escriben otros nodos. Los huecos se anotan también al
+     * arrancar, porque pueden ser transacciones de otro nodo aún abiertas. Sólo
+     * se ejecuta en el hilo de fondo.
+     */
+    private void ponerseAlDia(boolean arranque) {
+        long inicio = System.nanoTime();
+        long[] indexadas = { 0 };
+        if (!huecos.isEmpty()) {
+            huecos.values().removeIf(detectado -> inicio - detectado > esperaHuecosNanos);
+            auditoriaQueryRepository.recorrerTextos(new ArrayList<>(huecos.keySet()), rs -> {
+                huecos.remove(rs.getLong("id"));
+                indexadas[0] += indexarFila(rs);
+            });
+        }
+
+        long desde = sondeado;
+        Long hasta = jdbcTemplate.queryForObject("SELECT MAX(id) FROM auditoria_logs", Long.class);
+        if (hasta != null && hasta > desde) {
+            long[] anterior = { desde };
+            auditoriaQueryRepository.recorrerTextos(desde, hasta, rs -> {
+                long id = rs.getLong("id");
+                // Las filas borradas o purgadas también dejan huecos: caducan tras espera-huecos-segundos
+                for (long hueco = Math.max(anterior[0] + 1, id - MAX_HUECOS); hueco < id; hueco++) {
+                    huecos.put(hueco, inicio);
+                }
+                anterior[0] = id;
+                indexadas[0] += indexarFila(rs);
+            });
+            sondeado = hasta;
+            locales.headSet(hasta, true).clear();
+        }
+
+        if (arranque || indexadas[0] > 0) {
+            logger.info("Índice de auditoría al día: {} filas indexadas en {} ms", indexadas[0],
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        }
+    }
+
+    private int indexarFila(ResultSet rs) throws SQLException {
+        long id = rs.getLong("id");
+        if (locales.contains(id)) {
+            return 0;
+        }
+        indexar(id, rs.getString("model"), rs.getString("accion"), rs.getString("observaciones"),
+                rs.getString("datos_nuevos"), rs.getString("datos_anteriores"));
+        return 1;
+    }
+
+    @Scheduled(fixedDelayString = "${auditoria.indice.intervalo-sondeo-ms:5000}")
+    public void sondear() {
+        if (!isActivo() || !sondeoPendiente.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            fondo.execute(() -> {
+                try {
+                    ponerseAlDia(false);
+                } catch (RuntimeException e) {
+                    logger.error("No se pudo sondear auditoria_logs para el índice: {}", e.getMessage());
+                } finally {
+                    sondeoPendiente.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Se está deteniendo
+            sondeoPendiente.set(false);
+        }
+    }
+
+    // ------------------------------------------------------------ lifecycle
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            cargar();
+        } catch (IOException e) {
+            logger.error("No se pudo abrir el índice de auditoría en {}: {}", directorio, e.getMessage());
+            return;
+        }
+        fondo = Executors.newSingleThreadExecutor(r -> {
+            Thread hilo = new Thread(r, "auditoria-indice");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        running = true;
+        fondo.execute(() -> {
+            try {
+                ponerseAlDia(true);
+            } catch (RuntimeException e) {
+                logger.error("No se pudo poner al día el índice de auditoría: {}", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // Lo que quede en memoria se escribe para no reindexarlo al arrancar
+        SegmentoMemoria pendiente = null;
+        lock.writeLock().lock();
+        try {
+            if (memoria.docs > 0) {
+                pendiente = congelar();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (pendiente != null) {
+            SegmentoMemoria persistir = pendiente;
+            fondo.execute(() -> persistir(persistir));
+        }
+        fondo.shutdown();
+        try {
+            fondo.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Arranca antes que el writer de auditoría y se detiene después, para
+        // indexar el último lote que éste vacíe al cerrar.
+        return Integer.MAX_VALUE - 4096;
+    }
+}
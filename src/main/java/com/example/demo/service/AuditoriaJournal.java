@@ -0,0 +1,694 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal local de auditoría (write-ahead log) en segmentos mapeados en
+ * memoria. La petición sólo serializa el evento y lo copia al segmento actual;
+ * un hilo de fsync agrupa los force() (group commit) y un hilo replayer envía
+ * los registros a auditoria_logs a través de {@link AuditoriaBatchWriter}. Si la
+ * base de datos está caída los eventos se quedan en disco y se reintentan.
+ *
+ * Formato de cada registro: [int longitud][int crc32c][long secuencia][payload
+ * JSON]. Una longitud 0 marca el final de los datos del segmento. El fichero
+ * checkpoint guarda la última secuencia confirmada en la base de datos; los
+ * segmentos que quedan por debajo se reciclan.
+ *
+ * Sólo los fallos transitorios (conexión, bloqueos) hacen reintentar un lote.
+ * Los eventos que la base de datos rechaza por sus datos, y los registros que
+ * no se pueden leer, se apartan en cuarentena.ndjson dentro del directorio del
+ * journal (métrica auditoria.journal.cuarentena) y el journal sigue adelante.
+ */
+@Component
+public class AuditoriaJournal implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaJournal.class);
+
+    private static final int CABECERA = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final String PREFIJO_SEGMENTO = "segmento-";
+    private static final String PREFIJO_LIBRE = "libre-";
+    private static final String EXTENSION = ".log";
+    private static final String CUARENTENA = "cuarentena.ndjson";
+    private static final long REINTENTO_MAXIMO_MS = 30_000;
+
+    private final AuditoriaBatchWriter auditoriaBatchWriter;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final Path directorio;
+    private final int tamanoSegmento;
+    private final long intervaloFsyncMs;
+    private final boolean esperarFsync;
+    private final int tamanoLote;
+    private final int segmentosLibres;
+
+    private final Timer fsyncLatencia;
+    private final Counter apartados;
+
+    private final ConcurrentSkipListMap<Long, Segmento> segmentos = new ConcurrentSkipListMap<>();
+    private final Deque<Path> libres = new ArrayDeque<>();
+    private final Object monitorFsync = new Object();
+
+    private String nodo;
+    private Segmento actual;
+    private long siguienteSecuencia;
+    private volatile long ultimaEscrita;
+    private volatile long ultimaSincronizada;
+    private volatile long checkpoint;
+    private long secuenciaRecuperacion;
+
+    private volatile boolean running;
+    private Thread fsyncThread;
+    private Thread replayerThread;
+
+    public AuditoriaJournal(AuditoriaBatchWriter auditoriaBatchWriter, NamedParameterJdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${auditoria.journal.enabled:false}") boolean enabled,
+            @Value("${auditoria.journal.directorio:./data/auditoria-journal}") String directorio,
+            @Value("${auditoria.journal.tamano-segmento:16777216}") int tamanoSegmento,
+            @Value("${auditoria.journal.intervalo-fsync-ms:5}") long intervaloFsyncMs,
+            @Value("${auditoria.journal.esperar-fsync:false}") boolean esperarFsync,
+            @Value("${auditoria.journal.tamano-lote:500}") int tamanoLote,
+            @Value("${auditoria.journal.segmentos-libres:2}") int segmentosLibres) {
+        this.auditoriaBatchWriter = auditoriaBatchWriter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.directorio = Paths.get(directorio);
+        this.tamanoSegmento = Math.max(64 * 1024, tamanoSegmento);
+        this.intervaloFsyncMs = Math.max(1, intervaloFsyncMs);
+        this.esperarFsync = esperarFsync;
+        this.tamanoLote = Math.max(1, tamanoLote);
+        this.segmentosLibres = Math.max(0, segmentosLibres);
+
+        Gauge.builder("auditoria.journal.pendientes", this, j -> j.ultimaEscrita - j.checkpoint)
+                .description("Eventos en el journal aún no confirmados en auditoria_logs")
+                .register(meterRegistry);
+        this.fsyncLatencia = Timer.builder("auditoria.journal.fsync")
+                .description("Duración de cada fsync agrupado del journal")
+                .register(meterRegistry);
+        this.apartados = Counter.builder("auditoria.journal.cuarentena")
+                .description("Eventos del journal apartados en cuarentena por datos inválidos o ilegibles")
+                .register(meterRegistry);
+    }
+
+    /**
+     * true si los eventos deben pasar por el journal en lugar de ir directamente
+     * a la cola en memoria del writer.
+     */
+    public boolean isActivo() {
+        return enabled && running;
+    }
+
+    /**
+     * Añade el evento al journal. Con esperar-fsync=true no vuelve hasta que el
+     * siguiente fsync agrupado lo haya cubierto.
+     */
+    public void registrar(AuditoriaEvento evento) {
+        long secuencia;
+        try {
+            secuencia = anexar(evento);
+        } catch (IOException | RuntimeException e) {
+            logger.error("No se pudo escribir en el journal de auditoría, se envía directo: {}", e.getMessage());
+            auditoriaBatchWriter.enviar(evento);
+            return;
+        }
+
+        synchronized (monitorFsync) {
+            monitorFsync.notifyAll();
+            if (!esperarFsync) {
+                return;
+            }
+            try {
+                while (ultimaSincronizada < secuencia && running) {
+                    monitorFsync.wait(intervaloFsyncMs * 10);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized long anexar(AuditoriaEvento evento) throws IOException {
+        if (!running) {
+            throw new IllegalStateException("journal detenido");
+        }
+
+        long secuencia = siguienteSecuencia;
+        byte[] payload = objectMapper.writeValueAsBytes(evento.conEventoId(nodo + ":" + secuencia));
+        int necesario = CABECERA + payload.length + Integer.BYTES;
+        if (necesario > tamanoSegmento) {
+            throw new IllegalArgumentException("evento de " + payload.length + " bytes no cabe en un segmento");
+        }
+        if (actual.escritura.remaining() < necesario) {
+            rotar(secuencia);
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer buffer = actual.escritura;
+        int inicio = buffer.position();
+        buffer.position(inicio + Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+        buffer.putLong(secuencia);
+        buffer.put(payload);
+        // Marca de fin antes de publicar la longitud: un lector nunca ve un
+        // registro a medias.
+        buffer.putInt(buffer.position(), 0);
+        buffer.putInt(inicio, payload.length);
+
+        siguienteSecuencia = secuencia + 1;
+        ultimaEscrita = secuencia;
+        return secuencia;
+    }
+
+    private void rotar(long primeraSecuencia) throws IOException {
+        actual.mapa.force();
+        Segmento nuevo = abrirSegmento(primeraSecuencia, true);
+        segmentos.put(primeraSecuencia, nuevo);
+        actual = nuevo;
+    }
+
+    // ---------------------------------------------------------------- fsync
+
+    private void ejecutarFsync() {
+        while (running) {
+            try {
+                synchronized (monitorFsync) {
+                    if (ultimaEscrita == ultimaSincronizada) {
+                        monitorFsync.wait(intervaloFsyncMs * 20);
+                    }
+                }
+                // Espera breve para agrupar los eventos de varias peticiones en un solo force()
+                Thread.sleep(intervaloFsyncMs);
+                sincronizar();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void sincronizar() {
+        long hasta = ultimaEscrita;
+        if (hasta == ultimaSincronizada) {
+            return;
+        }
+        Segmento segmento;
+        synchronized (this) {
+            segmento = actual;
+        }
+        long inicio = System.nanoTime();
+        // Los segmentos anteriores ya se forzaron al rotar
+        segmento.mapa.force();
+        fsyncLatencia.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+
+        synchronized (monitorFsync) {
+            ultimaSincronizada = hasta;
+            monitorFsync.notifyAll();
+        }
+    }
+
+    // ------------------------------------------------------------- replayer
+
+    private void ejecutarReplayer() {
+        Lector lector = new Lector();
+        long espera = intervaloFsyncMs;
+        while (running || checkpoint < ultimaEscrita) {
+            List<AuditoriaEvento> lote = new ArrayList<>(tamanoLote);
+            long ultima = lector.leer(lote, tamanoLote);
+            if (lote.isEmpty()) {
+                if (ultima > checkpoint) {
+                    // Sólo había registros ilegibles: se dan por procesados
+                    lector.confirmar();
+                    guardarCheckpoint(ultima);
+                }
+                if (!running) {
+                    break;
+                }
+                dormir(50);
+                continue;
+            }
+
+            if (enviar(lote)) {
+                lector.confirmar();
+                guardarCheckpoint(ultima);
+                reciclar();
+                espera = intervaloFsyncMs;
+            } else {
+                // Base de datos no disponible: se reintenta el mismo lote con espera
+                // creciente. Parte del lote pudo quedar confirmada, así que al
+                // reintentar se comprueba qué eventos ya están en la base de datos.
+                secuenciaRecuperacion = Math.max(secuenciaRecuperacion, ultima);
+                lector.retroceder();
+                if (!running) {
+                    break;
+                }
+                espera = Math.min(REINTENTO_MAXIMO_MS, Math.max(100, espera * 2));
+                dormir(espera);
+            }
+        }
+    }
+
+    private boolean enviar(List<AuditoriaEvento> lote) {
+        List<AuditoriaEvento> pendientes = lote;
+        long ultimaDelLote = secuenciaDe(lote.get(lote.size() - 1));
+        // Tras una caída, los eventos posteriores al checkpoint pueden estar ya
+        // en la base de datos; sólo en ese tramo se comprueba qué ids existen.
+        if (secuenciaDe(lote.get(0)) <= secuenciaRecuperacion) {
+            try {
+                Set<String> existentes = new HashSet<>(jdbcTemplate.queryForList(
+                        "SELECT evento_id FROM auditoria_logs WHERE evento_id IN (:ids)",
+                        Map.of("ids", lote.stream().map(AuditoriaEvento::eventoId).toList()), String.class));
+                pendientes = lote.stream().filter(e -> !existentes.contains(e.eventoId())).toList();
+            } catch (RuntimeException e) {
+                logger.warn("No se pudo comprobar el journal contra auditoria_logs: {}", e.getMessage());
+                return false;
+            }
+        }
+        boolean escrito = pendientes.isEmpty() || auditoriaBatchWriter.escribir(pendientes, this::apartar);
+        if (escrito && ultimaDelLote <= secuenciaRecuperacion) {
+            logger.info("Journal de auditoría: reenviados {} de {} eventos pendientes", pendientes.size(),
+                    lote.size());
+        }
+        return escrito;
+    }
+
+    private void apartar(AuditoriaEvento evento) {
+        try {
+            apartar(objectMapper.writeValueAsBytes(evento));
+        } catch (IOException e) {
+            logger.error("No se pudo serializar el evento {} para la cuarentena: {}", evento.eventoId(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Añade una línea a la cuarentena. Si no se puede escribir, el evento sólo
+     * queda en el log: el journal no se bloquea por él. Sólo la llama el hilo
+     * replayer.
+     */
+    private void apartar(byte[] payload) {
+        apartados.increment();
+        try (FileChannel canal = FileChannel.open(directorio.resolve(CUARENTENA), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            canal.write(new ByteBuffer[] { ByteBuffer.wrap(payload), ByteBuffer.wrap(new byte[] { '\n' }) });
+            canal.force(false);
+        } catch (IOException e) {
+            logger.error("No se pudo escribir en la cuarentena del journal: {} ({})", e.getMessage(),
+                    new String(payload, StandardCharsets.UTF_8));
+        }
+    }
+
+    private void guardarCheckpoint(long secuencia) {
+        checkpoint = secuencia;
+        Path temporal = directorio.resolve("checkpoint.tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            canal.write(ByteBuffer.wrap(Long.toString(secuencia).getBytes(StandardCharsets.US_ASCII)));
+            canal.force(true);
+        } catch (IOException e) {
+            logger.warn("No se pudo guardar el checkpoint del journal: {}", e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temporal, directorio.resolve("checkpoint"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("No se pudo guardar el checkpoint del journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Los segmentos cuyo sucesor empieza por debajo del checkpoint ya están
+     * enteros en la base de datos: se guardan para reutilizar o se borran.
+     */
+    private void reciclar() {
+        while (true) {
+            Map.Entry<Long, Segmento> primero = segmentos.firstEntry();
+            Long siguiente = primero != null ? segmentos.higherKey(primero.getKey()) : null;
+            if (siguiente == null || siguiente - 1 > checkpoint) {
+                return;
+            }
+            segmentos.remove(primero.getKey());
+            primero.getValue().cerrar();
+            try {
+                synchronized (this) {
+                    if (libres.size() < segmentosLibres) {
+                        Path libre = directorio.resolve(PREFIJO_LIBRE + UUID.randomUUID() + EXTENSION);
+                        Files.move(primero.getValue().ruta, libre);
+                        libres.push(libre);
+                    } else {
+                        Files.deleteIfExists(primero.getValue().ruta);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("No se pudo reciclar {}: {}", primero.getValue().ruta, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Posición de lectura del replayer. Sólo lee hasta la última secuencia
+     * publicada por el escritor y valida longitud, CRC y continuidad.
+     */
+    private final class Lector {
+        private long segmento = -1;
+        private ByteBuffer buffer;
+        private int posicionConfirmada;
+        private long esperada = checkpoint + 1;
+        private long esperadaConfirmada = esperada;
+        private long segmentoConfirmado = -1;
+
+        long leer(List<AuditoriaEvento> lote, int maximo) {
+            long ultima = esperada - 1;
+            while (lote.size() < maximo && esperada <= ultimaEscrita) {
+                if (buffer != null && !segmentos.containsKey(segmento)) {
+                    // El segmento se recicló: su fichero puede estar ya reutilizado
+                    buffer = null;
+                }
+                if (buffer == null && !abrir(segmentoDe(esperada))) {
+                    break;
+                }
+
+                int posicion = buffer.position();
+                int longitud = buffer.remaining() >= CABECERA ? buffer.getInt(posicion) : 0;
+                if (longitud <= 0 || longitud > buffer.remaining() - CABECERA) {
+                    // Fin del segmento: se pasa al siguiente si existe
+                    Long siguiente = segmentos.higherKey(segmento);
+                    if (siguiente == null || !abrir(siguiente)) {
+                        break;
+                    }
+                    continue;
+                }
+
+                int crc = buffer.getInt(posicion + Integer.BYTES);
+                long secuencia = buffer.getLong(posicion + 2 * Integer.BYTES);
+                byte[] payload = new byte[longitud];
+                buffer.get(posicion + CABECERA, payload);
+                CRC32C calculado = new CRC32C();
+                calculado.update(payload);
+                if ((int) calculado.getValue() != crc) {
+                    logger.error("Registro corrupto en el journal (secuencia {}), se salta el resto del segmento",
+                            secuencia);
+                    Long siguiente = segmentos.higherKey(segmento);
+                    if (siguiente == null || !abrir(siguiente)) {
+                        break;
+                    }
+                    esperada = siguiente;
+                    continue;
+                }
+                buffer.position(posicion + CABECERA + longitud);
+                if (secuencia < esperada) {
+                    continue;
+                }
+
+                try {
+                    lote.add(objectMapper.readValue(payload, AuditoriaEvento.class));
+                } catch (IOException e) {
+                    logger.error("Evento ilegible en el journal (secuencia {}): {}", secuencia, e.getMessage());
+                    apartar(payload);
+                }
+                ultima = secuencia;
+                esperada = secuencia + 1;
+            }
+            return ultima;
+        }
+
+        void confirmar() {
+            segmentoConfirmado = segmento;
+            posicionConfirmada = buffer != null ? buffer.position() : 0;
+            esperadaConfirmada = esperada;
+        }
+
+        void retroceder() {
+            esperada = esperadaConfirmada;
+            if (segmentoConfirmado >= 0 && abrir(segmentoConfirmado)) {
+                buffer.position(posicionConfirmada);
+            } else {
+                buffer = null;
+                segmento = -1;
+            }
+        }
+
+        private Long segmentoDe(long secuencia) {
+            Long clave = segmentos.floorKey(secuencia);
+            return clave != null || segmentos.isEmpty() ? clave : segmentos.firstKey();
+        }
+
+        private boolean abrir(Long clave) {
+            Segmento s = clave != null ? segmentos.get(clave) : null;
+            if (s == null) {
+                return false;
+            }
+            segmento = clave;
+            buffer = s.mapa.duplicate();
+            buffer.position(0);
+            return true;
+        }
+    }
+
+    // ------------------------------------------------------------ arranque
+
+    /**
+     * Recupera el estado tras un reinicio: lee el checkpoint, recorre los
+     * segmentos para encontrar el último registro válido y deja el escritor
+     * posicionado justo detrás.
+     */
+    private void recuperar() throws IOException {
+        Files.createDirectories(directorio);
+        nodo = leerNodo();
+        checkpoint = leerCheckpoint();
+
+        List<Path> ficheros;
+        try (Stream<Path> listado = Files.list(directorio)) {
+            ficheros = listado.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).sorted().toList();
+        }
+        for (Path fichero : ficheros) {
+            String nombre = fichero.getFileName().toString();
+            if (nombre.startsWith(PREFIJO_LIBRE)) {
+                libres.push(fichero);
+            } else if (nombre.startsWith(PREFIJO_SEGMENTO)) {
+                long base = Long.parseLong(nombre.substring(PREFIJO_SEGMENTO.length(),
+                        nombre.length() - EXTENSION.length()));
+                segmentos.put(base, abrirSegmento(base, false));
+            }
+        }
+
+        long ultima = checkpoint;
+        int posicion = 0;
+        Segmento ultimo = null;
+        for (Map.Entry<Long, Segmento> entrada : segmentos.entrySet()) {
+            ultimo = entrada.getValue();
+            long esperada = Math.max(entrada.getKey(), ultima + 1);
+            ByteBuffer buffer = ultimo.mapa.duplicate();
+            posicion = 0;
+            while (buffer.limit() - posicion >= CABECERA) {
+                int longitud = buffer.getInt(posicion);
+                if (longitud <= 0 || longitud > buffer.limit() - posicion - CABECERA) {
+                    break;
+                }
+                long secuencia = buffer.getLong(posicion + 2 * Integer.BYTES);
+                byte[] payload = new byte[longitud];
+                buffer.get(posicion + CABECERA, payload);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                // Los segmentos reciclados conservan registros viejos detrás del
+                // último escrito; la secuencia deja de ser continua en ese punto.
+                if ((int) crc.getValue() != buffer.getInt(posicion + Integer.BYTES)
+                        || secuencia < entrada.getKey() || (secuencia != esperada && secuencia > ultima)) {
+                    break;
+                }
+                posicion += CABECERA + longitud;
+                if (secuencia >= esperada) {
+                    ultima = secuencia;
+                    esperada = secuencia + 1;
+                }
+            }
+        }
+
+        secuenciaRecuperacion = ultima;
+        siguienteSecuencia = ultima + 1;
+        ultimaEscrita = ultima;
+        ultimaSincronizada = ultima;
+
+        if (ultimo == null) {
+            ultimo = abrirSegmento(siguienteSecuencia, true);
+            segmentos.put(siguienteSecuencia, ultimo);
+            posicion = 0;
+        }
+        actual = ultimo;
+        actual.escritura.position(posicion);
+        reciclar();
+
+        if (ultima > checkpoint) {
+            logger.info("Journal de auditoría: {} eventos pendientes de reenviar desde el checkpoint {}",
+                    ultima - checkpoint, checkpoint);
+        }
+    }
+
+    private Segmento abrirSegmento(long base, boolean nuevo) throws IOException {
+        Path ruta = directorio.resolve(String.format("%s%020d%s", PREFIJO_SEGMENTO, base, EXTENSION));
+        if (nuevo) {
+            Path libre;
+            synchronized (this) {
+                libre = libres.poll();
+            }
+            if (libre != null) {
+                Files.move(libre, ruta);
+            }
+        }
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanoSegmento);
+            if (nuevo) {
+                // Un segmento reciclado empieza con una marca de fin
+                mapa.putInt(0, 0);
+            }
+            return new Segmento(ruta, mapa);
+        }
+    }
+
+    private String leerNodo() throws IOException {
+        Path fichero = directorio.resolve("nodo");
+        if (Files.exists(fichero)) {
+            return Files.readString(fichero).trim();
+        }
+        String id = UUID.randomUUID().toString().substring(0, 8);
+        Files.writeString(fichero, id);
+        return id;
+    }
+
+    private long leerCheckpoint() throws IOException {
+        Path fichero = directorio.resolve("checkpoint");
+        if (!Files.exists(fichero)) {
+            return 0;
+        }
+        String valor = Files.readString(fichero).trim();
+        return valor.isEmpty() ? 0 : Long.parseLong(valor);
+    }
+
+    private static long secuenciaDe(AuditoriaEvento evento) {
+        String id = evento.eventoId();
+        return Long.parseLong(id.substring(id.indexOf(':') + 1));
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Segmento {
+        private final Path ruta;
+        private final MappedByteBuffer mapa;
+        private final ByteBuffer escritura;
+
+        Segmento(Path ruta, MappedByteBuffer mapa) {
+            this.ruta = ruta;
+            this.mapa = mapa;
+            this.escritura = mapa.duplicate();
+        }
+
+        void cerrar() {
+            // El mapeo se libera cuando el GC recoge el buffer; no hay unmap público
+        }
+    }
+
+    // ------------------------------------------------------------ lifecycle
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            recuperar();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el journal de auditoría en " + directorio, e);
+        }
+        running = true;
+        fsyncThread = new Thread(this::ejecutarFsync, "auditoria-journal-fsync");
+        fsyncThread.setDaemon(true);
+        fsyncThread.start();
+        replayerThread = new Thread(this::ejecutarReplayer, "auditoria-journal-replayer");
+        replayerThread.setDaemon(true);
+        replayerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        synchronized (this) {
+            running = false;
+        }
+        synchronized (monitorFsync) {
+            monitorFsync.notifyAll();
+        }
+        unir(fsyncThread);
+        unir(replayerThread);
+        sincronizar();
+    }
+
+    private static void unir(Thread hilo) {
+        if (hilo == null) {
+            return;
+        }
+        try {
+            hilo.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Arranca después del writer y se detiene antes, para poder vaciar el
+        // journal mientras el writer sigue disponible.
+        return Integer.MAX_VALUE - 1024;
+    }
+}
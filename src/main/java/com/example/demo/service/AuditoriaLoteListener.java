@@ -0,0 +1,17 @@
+package com.example.demo.service;
+
+import java.util.List;
+
+/**
+ * Recibe cada lote de auditoría justo después de insertarse en
+ * auditoria_logs, con el usuario ya resuelto. Se invoca en el hilo que escribió
+ * el lote, así que no debe bloquear.
+ */
+public interface AuditoriaLoteListener {
+
+    /**
+     * @param ids id asignado a cada evento del lote, en el mismo orden (null si
+     *            el driver no lo devolvió)
+     */
+    void lotePersistido(List<AuditoriaEvento> lote, List<Long> ids);
+}
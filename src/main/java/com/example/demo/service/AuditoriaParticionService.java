@@ -0,0 +1,216 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantiene el particionado mensual de auditoria_logs: crea con antelación las
+ * particiones de los próximos meses (dividiendo p_futuro, que siempre está
+ * vacía) y aplica la retención eliminando o desacoplando particiones completas
+ * en lugar de borrar fila por fila.
+ *
+ * En bases sin particionado (H2, o MySQL antes de V7) la retención se aplica
+ * con DELETE por rangos acotados de created_at.
+ *
+ * Tras purgar filas se invalidan los estados reconstruidos en caché
+ * ({@link AuditoriaSnapshotService}), que podían partir de ellas.
+ */
+@Service
+public class AuditoriaParticionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaParticionService.class);
+
+    private static final String TABLA = "auditoria_logs";
+    private static final String PARTICION_FUTURO = "p_futuro";
+    private static final DateTimeFormatter NOMBRE_PARTICION = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter LIMITE_PARTICION = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int LOTE_BORRADO = 10000;
+
+    public enum ModoRetencion {
+        DROP, DETACH
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int mesesAdelante;
+    private final int retencionMeses;
+    private final ModoRetencion modoRetencion;
+    private final AuditoriaSnapshotService auditoriaSnapshotService;
+
+    public AuditoriaParticionService(JdbcTemplate jdbcTemplate, AuditoriaSnapshotService auditoriaSnapshotService,
+            @Value("${auditoria.particiones.enabled:true}") boolean enabled,
+            @Value("${auditoria.particiones.meses-adelante:3}") int mesesAdelante,
+            @Value("${auditoria.particiones.retencion-meses:0}") int retencionMeses,
+            @Value("${auditoria.particiones.modo-retencion:DROP}") ModoRetencion modoRetencion) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditoriaSnapshotService = auditoriaSnapshotService;
+        this.enabled = enabled;
+        this.mesesAdelante = Math.max(1, mesesAdelante);
+        this.retencionMeses = retencionMeses;
+        this.modoRetencion = modoRetencion;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        mantener();
+    }
+
+    @Scheduled(cron = "${auditoria.particiones.cron:0 15 3 * * *}")
+    public synchronized void mantener() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            List<Particion> particiones = esMySql() ? listarParticiones() : List.of();
+            if (particiones.isEmpty()) {
+                aplicarRetencionSinParticiones();
+                return;
+            }
+
+            crearParticionesFuturas(particiones);
+            aplicarRetencion(particiones);
+        } catch (Exception e) {
+            logger.error("Error al mantener las particiones de {}: {}", TABLA, e.getMessage());
+        }
+    }
+
+    private void crearParticionesFuturas(List<Particion> particiones) {
+        if (particiones.stream().noneMatch(p -> PARTICION_FUTURO.equals(p.nombre()))) {
+            logger.warn("{} no tiene la partición {}; no se crean particiones futuras", TABLA, PARTICION_FUTURO);
+            return;
+        }
+
+        long limiteActual = particiones.stream()
+                .filter(p -> p.limite() != null)
+                .mapToLong(Particion::limite)
+                .max()
+                .orElse(0L);
+
+        YearMonth hasta = YearMonth.now().plusMonths(mesesAdelante);
+        List<String> nuevas = new ArrayList<>();
+        for (YearMonth mes = YearMonth.now(); !mes.isAfter(hasta); mes = mes.plusMonths(1)) {
+            LocalDateTime finMes = mes.plusMonths(1).atDay(1).atStartOfDay();
+            if (unixTimestamp(finMes) <= limiteActual) {
+                continue;
+            }
+            nuevas.add("PARTITION " + mes.format(NOMBRE_PARTICION) + " VALUES LESS THAN (UNIX_TIMESTAMP('"
+                    + finMes.format(LIMITE_PARTICION) + "'))");
+        }
+
+        if (nuevas.isEmpty()) {
+            return;
+        }
+
+        // p_futuro nunca tiene filas (las particiones se crean meses antes), así
+        // que el REORGANIZE sólo cambia metadatos.
+        nuevas.add("PARTITION " + PARTICION_FUTURO + " VALUES LESS THAN MAXVALUE");
+        jdbcTemplate.execute("ALTER TABLE " + TABLA + " REORGANIZE PARTITION " + PARTICION_FUTURO
+                + " INTO (" + String.join(", ", nuevas) + ")");
+        logger.info("Particiones de {} creadas hasta {}", TABLA, hasta);
+    }
+
+    private void aplicarRetencion(List<Particion> particiones) {
+        if (retencionMeses <= 0) {
+            return;
+        }
+
+        long corte = unixTimestamp(inicioRetencion());
+        for (Particion particion : particiones) {
+            if (particion.limite() == null || particion.limite() > corte) {
+                continue;
+            }
+
+            if (modoRetencion == ModoRetencion.DETACH) {
+                desacoplar(particion.nombre());
+            } else {
+                jdbcTemplate.execute("ALTER TABLE " + TABLA + " DROP PARTITION " + particion.nombre());
+                logger.info("Partición {} de {} eliminada por retención", particion.nombre(), TABLA);
+            }
+            auditoriaSnapshotService.invalidarTodo();
+        }
+    }
+
+    /**
+     * Mueve la partición a una tabla independiente (auditoria_logs_archivo_*)
+     * con EXCHANGE PARTITION, que sólo intercambia metadatos, y después elimina
+     * la partición ya vacía.
+     */
+    private void desacoplar(String particion) {
+        String archivo = TABLA + "_archivo_" + particion.substring(1);
+        jdbcTemplate.execute("CREATE TABLE " + archivo + " LIKE " + TABLA);
+        jdbcTemplate.execute("ALTER TABLE " + archivo + " REMOVE PARTITIONING");
+        jdbcTemplate.execute("ALTER TABLE " + TABLA + " EXCHANGE PARTITION " + particion + " WITH TABLE " + archivo);
+        jdbcTemplate.execute("ALTER TABLE " + TABLA + " DROP PARTITION " + particion);
+        logger.info("Partición {} de {} desacoplada en {}", particion, TABLA, archivo);
+    }
+
+    private void aplicarRetencionSinParticiones() {
+        if (retencionMeses <= 0) {
+            return;
+        }
+
+        Timestamp corte = Timestamp.valueOf(inicioRetencion());
+        int total = 0;
+        int borradas;
+        do {
+            borradas = jdbcTemplate.update("DELETE FROM " + TABLA + " WHERE created_at < ? LIMIT " + LOTE_BORRADO,
+                    corte);
+            total += borradas;
+        } while (borradas == LOTE_BORRADO);
+
+        if (total > 0) {
+            auditoriaSnapshotService.invalidarTodo();
+            logger.info("Retención de {} sin particiones: {} filas anteriores a {} eliminadas", TABLA, total, corte);
+        }
+    }
+
+    private LocalDateTime inicioRetencion() {
+        return YearMonth.now().minusMonths(retencionMeses).atDay(1).atStartOfDay();
+    }
+
+    private List<Particion> listarParticiones() {
+        return jdbcTemplate.query(
+                "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+                        + "ORDER BY PARTITION_ORDINAL_POSITION",
+                (rs, rowNum) -> {
+                    String descripcion = rs.getString("PARTITION_DESCRIPTION");
+                    Long limite = descripcion == null || "MAXVALUE".equalsIgnoreCase(descripcion) ? null
+                            : Long.valueOf(descripcion);
+                    return new Particion(rs.getString("PARTITION_NAME"), limite);
+                },
+                TABLA);
+    }
+
+    private long unixTimestamp(LocalDateTime fecha) {
+        // Se calcula en la base de datos para usar la misma zona horaria que la
+        // expresión de particionado UNIX_TIMESTAMP(created_at).
+        Long valor = jdbcTemplate.queryForObject("SELECT UNIX_TIMESTAMP(?)", Long.class,
+                fecha.format(LIMITE_PARTICION));
+        return valor != null ? valor : 0L;
+    }
+
+    private boolean esMySql() {
+        String producto = jdbcTemplate.execute(
+                (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        return producto != null && producto.toLowerCase().contains("mysql");
+    }
+
+    private record Particion(String nombre, Long limite) {
+    }
+}
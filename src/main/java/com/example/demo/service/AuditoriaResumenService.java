@@ -0,0 +1,291 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AuditoriaResumenDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rollups de auditoría por hora y por día (tabla auditoria_resumen).
+ *
+ * Cada lote persistido por el writer incrementa contadores LongAdder en
+ * memoria; un proceso periódico los vuelca sumándolos a la tabla con un
+ * upsert por lotes. Como sólo se suman incrementos, varias instancias pueden
+ * volcar sobre la misma tabla sin coordinarse.
+ */
+@Service
+public class AuditoriaResumenService implements AuditoriaLoteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditoriaResumenService.class);
+
+    public enum Granularidad {
+        HORA, DIA
+    }
+
+    private static final String UPSERT_SQL = "INSERT INTO auditoria_resumen "
+            + "(granularidad, periodo, model, accion, user_id, total) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE total = total + VALUES(total)";
+
+    /** Totales por hora de un día, agregados en la base de datos (mismas claves que {@link #valor}). */
+    private static final String RECONSTRUIR_HORAS_SQL = "INSERT INTO auditoria_resumen "
+            + "(granularidad, periodo, model, accion, user_id, total) "
+            + "SELECT 'HORA', DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00'), LEFT(COALESCE(model, ''), 100), "
+            + "LEFT(COALESCE(accion, ''), 100), COALESCE(user_id, 0), COUNT(*) "
+            + "FROM auditoria_logs WHERE created_at >= ? AND created_at < ? "
+            + "GROUP BY DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00'), LEFT(COALESCE(model, ''), 100), "
+            + "LEFT(COALESCE(accion, ''), 100), COALESCE(user_id, 0)";
+
+    /** Total del día a partir de sus filas por hora, sin volver a leer auditoria_logs. */
+    private static final String RECONSTRUIR_DIA_SQL = "INSERT INTO auditoria_resumen "
+            + "(granularidad, periodo, model, accion, user_id, total) "
+            + "SELECT 'DIA', ?, model, accion, user_id, SUM(total) FROM auditoria_resumen "
+            + "WHERE granularidad = 'HORA' AND periodo >= ? AND periodo < ? GROUP BY model, accion, user_id";
+
+    /** Dimensiones por las que se puede agrupar en /stats y su columna. */
+    private static final Map<String, String> DIMENSIONES = Map.of(
+            "periodo", "periodo",
+            "model", "model",
+            "accion", "accion",
+            "user_id", "user_id");
+
+    private record Clave(Granularidad granularidad, LocalDateTime periodo, String model, String accion,
+            long userId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final boolean enabled;
+    private final ConcurrentHashMap<Clave, LongAdder> contadores = new ConcurrentHashMap<>();
+
+    public AuditoriaResumenService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${auditoria.resumen.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void lotePersistido(List<AuditoriaEvento> lote, List<Long> ids) {
+        if (!enabled) {
+            return;
+        }
+        for (AuditoriaEvento evento : lote) {
+            LocalDateTime hora = evento.createdAt().truncatedTo(ChronoUnit.HOURS);
+            String model = valor(evento.model());
+            String accion = valor(evento.accion());
+            long userId = evento.userId() != null ? evento.userId() : 0L;
+            incrementar(new Clave(Granularidad.HORA, hora, model, accion, userId), 1);
+            incrementar(new Clave(Granularidad.DIA, hora.truncatedTo(ChronoUnit.DAYS), model, accion, userId), 1);
+        }
+    }
+
+    private void incrementar(Clave clave, long cantidad) {
+        contadores.computeIfAbsent(clave, c -> new LongAdder()).add(cantidad);
+    }
+
+    /**
+     * Vuelca a la tabla lo acumulado desde el último volcado. Las claves de
+     * periodos ya cerrados se retiran del mapa para que no crezca sin límite.
+     */
+    @Scheduled(fixedDelayString = "${auditoria.resumen.intervalo-flush-ms:5000}")
+    @PreDestroy
+    public synchronized void volcar() {
+        if (contadores.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime horaActual = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        List<Map.Entry<Clave, Long>> filas = new ArrayList<>();
+        for (Map.Entry<Clave, LongAdder> entrada : contadores.entrySet()) {
+            Clave clave = entrada.getKey();
+            long total = entrada.getValue().sumThenReset();
+            if (cerrado(clave, horaActual) && contadores.remove(clave, entrada.getValue())) {
+                // Recoge lo que se haya sumado entre el reset y la retirada
+                total += entrada.getValue().sumThenReset();
+            }
+            if (total > 0) {
+                filas.add(Map.entry(clave, total));
+            }
+        }
+        if (filas.isEmpty()) {
+            return;
+        }
+
+        try {
+            sumar(filas);
+        } catch (RuntimeException e) {
+            // Se devuelven los incrementos al mapa para el siguiente volcado
+            for (Map.Entry<Clave, Long> fila : filas) {
+                incrementar(fila.getKey(), fila.getValue());
+            }
+            logger.warn("No se pudo volcar auditoria_resumen ({} filas): {}", filas.size(), e.getMessage());
+        }
+    }
+
+    private void sumar(List<Map.Entry<Clave, Long>> filas) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, filas, 500, (ps, fila) -> {
+            Clave clave = fila.getKey();
+            ps.setString(1, clave.granularidad().name());
+            ps.setTimestamp(2, Timestamp.valueOf(clave.periodo()));
+            ps.setString(3, clave.model());
+            ps.setString(4, clave.accion());
+            ps.setLong(5, clave.userId());
+            ps.setLong(6, fila.getValue());
+        });
+    }
+
+    private static boolean cerrado(Clave clave, LocalDateTime horaActual) {
+        // Margen de un periodo para los eventos que llegan con retraso por la cola
+        return clave.granularidad() == Granularidad.HORA
+                ? clave.periodo().isBefore(horaActual.minusHours(1))
+                : clave.periodo().isBefore(horaActual.truncatedTo(ChronoUnit.DAYS).minusDays(1));
+    }
+
+    /**
+     * Totales del periodo agrupados por las dimensiones indicadas (periodo,
+     * model, accion, user_id); las no agrupadas se devuelven en null. Sin
+     * fechas se usan las últimas 24 horas (HORA) o los últimos 30 días (DIA).
+     */
+    public List<AuditoriaResumenDTO> estadisticas(Granularidad granularidad, LocalDateTime desde,
+            LocalDateTime hasta, List<String> agrupar, String model, String accion, Long userId) {
+        LocalDateTime ahora = LocalDateTime.now();
+        if (hasta == null) {
+            hasta = ahora.plusHours(1).truncatedTo(ChronoUnit.HOURS);
+        }
+        if (desde == null) {
+            desde = granularidad == Granularidad.HORA
+                    ? ahora.truncatedTo(ChronoUnit.HOURS).minusHours(23)
+                    : ahora.truncatedTo(ChronoUnit.DAYS).minusDays(29);
+        }
+
+        List<String> columnas = new ArrayList<>();
+        for (String dimension : agrupar) {
+            String columna = DIMENSIONES.get(dimension);
+            if (columna == null) {
+                throw new IllegalArgumentException("Dimensión no válida: " + dimension);
+            }
+            if (!columnas.contains(columna)) {
+                columnas.add(columna);
+            }
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("granularidad", granularidad.name())
+                .addValue("desde", Timestamp.valueOf(desde))
+                .addValue("hasta", Timestamp.valueOf(hasta));
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (String columna : columnas) {
+            sql.append(columna).append(", ");
+        }
+        sql.append("SUM(total) AS total FROM auditoria_resumen WHERE granularidad = :granularidad "
+                + "AND periodo >= :desde AND periodo < :hasta");
+        if (model != null && !model.isBlank()) {
+            sql.append(" AND model = :model");
+            params.addValue("model", model);
+        }
+        if (accion != null && !accion.isBlank()) {
+            sql.append(" AND accion = :accion");
+            params.addValue("accion", accion);
+        }
+        if (userId != null) {
+            sql.append(" AND user_id = :userId");
+            params.addValue("userId", userId);
+        }
+        if (!columnas.isEmpty()) {
+            String lista = String.join(", ", columnas);
+            sql.append(" GROUP BY ").append(lista).append(" ORDER BY ").append(lista);
+        }
+
+        return namedJdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> {
+            AuditoriaResumenDTO dto = new AuditoriaResumenDTO();
+            if (columnas.contains("periodo")) {
+                dto.setPeriodo(rs.getTimestamp("periodo").toLocalDateTime());
+            }
+            if (columnas.contains("model")) {
+                dto.setModel(rs.getString("model"));
+            }
+            if (columnas.contains("accion")) {
+                dto.setAccion(rs.getString("accion"));
+            }
+            if (columnas.contains("user_id")) {
+                dto.setUser_id(rs.getLong("user_id"));
+            }
+            dto.setTotal(rs.getLong("total"));
+            return dto;
+        });
+    }
+
+    /**
+     * Recalcula auditoria_resumen desde auditoria_logs para los días completos
+     * entre {@code desde} y ayer, día a día y agregando en la base de datos.
+     * Cada día se borra y se vuelve a escribir en una sola transacción, así
+     * que /stats nunca lo ve a medias. El día en curso se deja a los
+     * contadores en vivo.
+     *
+     * @return filas de resumen escritas
+     */
+    public long reconstruir(LocalDate desde) {
+        LocalDate hoy = LocalDate.now();
+        if (desde == null) {
+            Timestamp primero = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM auditoria_logs",
+                    Timestamp.class);
+            if (primero == null) {
+                return 0;
+            }
+            desde = primero.toLocalDateTime().toLocalDate();
+        }
+
+        long filas = 0;
+        for (LocalDate dia = desde; dia.isBefore(hoy); dia = dia.plusDays(1)) {
+            filas += reconstruirDia(dia);
+        }
+        return filas;
+    }
+
+    private long reconstruirDia(LocalDate dia) {
+        LocalDateTime inicio = dia.atStartOfDay();
+        LocalDateTime fin = inicio.plusDays(1);
+        synchronized (this) {
+            // Lo que quede en memoria de este día ya está en auditoria_logs y lo
+            // cuenta la reconstrucción; volcarlo después lo sumaría dos veces
+            contadores.keySet().removeIf(clave -> !clave.periodo().isBefore(inicio) && clave.periodo().isBefore(fin));
+            Long filas = transaccion.execute(status -> {
+                jdbcTemplate.update("DELETE FROM auditoria_resumen WHERE periodo >= ? AND periodo < ?",
+                        Timestamp.valueOf(inicio), Timestamp.valueOf(fin));
+                long horas = jdbcTemplate.update(RECONSTRUIR_HORAS_SQL, Timestamp.valueOf(inicio),
+                        Timestamp.valueOf(fin));
+                long dias = jdbcTemplate.update(RECONSTRUIR_DIA_SQL, Timestamp.valueOf(inicio),
+                        Timestamp.valueOf(inicio), Timestamp.valueOf(fin));
+                return horas + dias;
+            });
+            return filas != null ? filas : 0;
+        }
+    }
+
+    private static String valor(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        return texto.length() > 100 ? texto.substring(0, 100) : texto;
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.AuditoriaFiltroDTO;
+import com.example.demo.dto.AuditoriaLogDTO;
+import com.example.demo.dto.AuditoriaPaginaDTO;
 import com.example.demo.model.AuditoriaLog;
-import com.example.demo.model.User;
 import com.example.demo.repository.AuditoriaLogRepository;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.repository.AuditoriaQueryRepository;
+import com.example.demo.security.UsuarioAutenticado;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,6 +14,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -18,15 +24,26 @@ import java.util.Optional;
 @Service
 public class AuditoriaService {
 
+    private static final int LIMITE_POR_DEFECTO = 50;
+    private static final int LIMITE_MAXIMO = 500;
+
     private final AuditoriaLogRepository auditoriaLogRepository;
-    private final UserRepository userRepository;
+    private final AuditoriaQueryRepository auditoriaQueryRepository;
+    private final AuditoriaBatchWriter auditoriaBatchWriter;
+    private final AuditoriaJournal auditoriaJournal;
     private final ObjectMapper objectMapper;
+    private final AuditoriaSnapshotService auditoriaSnapshotService;
 
-    public AuditoriaService(AuditoriaLogRepository auditoriaLogRepository, UserRepository userRepository,
-            ObjectMapper objectMapper) {
+    public AuditoriaService(AuditoriaLogRepository auditoriaLogRepository,
+            AuditoriaQueryRepository auditoriaQueryRepository, AuditoriaBatchWriter auditoriaBatchWriter,
+            AuditoriaJournal auditoriaJournal, ObjectMapper objectMapper,
+            AuditoriaSnapshotService auditoriaSnapshotService) {
         this.auditoriaLogRepository = auditoriaLogRepository;
-        this.userRepository = userRepository;
+        this.auditoriaQueryRepository = auditoriaQueryRepository;
+        this.auditoriaBatchWriter = auditoriaBatchWriter;
+        this.auditoriaJournal = auditoriaJournal;
         this.objectMapper = objectMapper;
+        this.auditoriaSnapshotService = auditoriaSnapshotService;
     }
 
     public void registrarAuditoria(
@@ -38,53 +55,145 @@ public class AuditoriaService {
             String observaciones,
             HttpServletRequest request) {
 
-        AuditoriaLog log = new AuditoriaLog();
-
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.isAuthenticated()
-                && !authentication.getPrincipal().equals("anonymousUser")) {
-            String email = authentication.getName(); // Asumiendo que el username es el email
-            Optional<User> userOpt = userRepository.findByEmail(email);
-            userOpt.ifPresent(log::setUser);
-        }
-
-        log.setModel(modelName);
-        log.setModelId(modelId);
-        log.setAccion(requestMethod);
-
+        String datosAnteriores = null;
+        String datosNuevos = null;
         try {
             if (oldData != null && !oldData.isEmpty()) {
-                log.setDatos_anteriores(objectMapper.writeValueAsString(oldData));
+                datosAnteriores = objectMapper.writeValueAsString(oldData);
             }
             if (newData != null && !newData.isEmpty()) {
-                log.setDatos_nuevos(objectMapper.writeValueAsString(newData));
+                datosNuevos = objectMapper.writeValueAsString(newData);
             }
         } catch (JsonProcessingException e) {
             System.err.println("Error al serializar datos de la auditoria: " + e.getMessage());
         }
 
+        registrarSerializado(requestMethod, modelName, modelId, datosAnteriores, datosNuevos, observaciones, request);
+    }
+
+    /**
+     * Igual que {@link #registrarAuditoria} pero con los datos ya serializados a
+     * JSON, para quien los escribe directamente sin pasar por un Map.
+     */
+    public void registrarSerializado(
+            String requestMethod,
+            String modelName,
+            Long modelId,
+            String datosAnteriores,
+            String datosNuevos,
+            String observaciones,
+            HttpServletRequest request) {
+        registrarSerializado(requestMethod, modelName, modelId, datosAnteriores, datosNuevos, observaciones, request,
+                false);
+    }
+
+    /**
+     * Con {@code sincrono} el evento se inserta antes de volver, sin pasar por
+     * la cola ni el journal.
+     */
+    public void registrarSerializado(
+            String requestMethod,
+            String modelName,
+            Long modelId,
+            String datosAnteriores,
+            String datosNuevos,
+            String observaciones,
+            HttpServletRequest request,
+            boolean sincrono) {
+
+        Long userId = null;
+        String userEmail = null;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UsuarioAutenticado usuario) {
+            userId = usuario.getId();
+            userEmail = usuario.getUsername();
+        } else if (authentication != null && authentication.isAuthenticated()
+                && !authentication.getPrincipal().equals("anonymousUser")) {
+            userEmail = authentication.getName(); // Asumiendo que el username es el email
+        }
+
+        String ipAddress = null;
+        String userAgent = null;
+        String url = null;
         if (request != null) {
             // Manejar proxy inverso si existe
-            String ipAddress = request.getHeader("X-FORWARDED-FOR");
+            ipAddress = request.getHeader("X-FORWARDED-FOR");
             if (ipAddress == null) {
                 ipAddress = request.getRemoteAddr();
             }
-            log.setIp(ipAddress);
-            log.setUserAgent(request.getHeader("User-Agent"));
-            log.setUrl(request.getRequestURL().toString());
+            userAgent = request.getHeader("User-Agent");
+            url = request.getRequestURL().toString();
         }
 
-        log.setObservaciones(observaciones);
-
-        try {
-            auditoriaLogRepository.save(log);
-        } catch (Exception ex) {
-            System.err.println("Falla al guardar log de auditoria: " + ex.getMessage());
+        // El id del usuario sale del principal de la sesión; sólo si no lo hay el
+        // writer lo resuelve por email en su hilo de fondo, junto con el INSERT.
+        AuditoriaEvento evento = new AuditoriaEvento(
+                userId,
+                userEmail,
+                modelName,
+                modelId,
+                requestMethod,
+                datosAnteriores,
+                datosNuevos,
+                ipAddress,
+                userAgent,
+                url,
+                observaciones,
+                LocalDateTime.now(),
+                null,
+                null,
+                null);
+        if (sincrono) {
+            auditoriaBatchWriter.escribir(List.of(evento));
+        } else if (auditoriaJournal.isActivo()) {
+            auditoriaJournal.registrar(evento);
+        } else {
+            auditoriaBatchWriter.enviar(evento);
         }
     }
 
-    public List<AuditoriaLog> findAll() {
-        return auditoriaLogRepository.findAll();
+    public AuditoriaPaginaDTO buscar(AuditoriaFiltroDTO filtro) {
+        return paginar(filtro.getCursor(), filtro.getLimit(),
+                (cursorFecha, cursorId, limit) -> auditoriaQueryRepository.buscar(filtro, cursorFecha, cursorId,
+                        limit));
+    }
+
+    /**
+     * Línea de tiempo de un registro, paginada con el mismo cursor que
+     * {@link #buscar}.
+     */
+    public AuditoriaPaginaDTO historial(String model, Long modelId, String cursor, Integer limit,
+            boolean conDatos) {
+        return paginar(cursor, limit,
+                (cursorFecha, cursorId, n) -> auditoriaQueryRepository.historial(model, modelId, cursorFecha,
+                        cursorId, n, conDatos));
+    }
+
+    private AuditoriaPaginaDTO paginar(String cursorTexto, Integer limitPedido, Consulta consulta) {
+        int limit = limitPedido == null ? LIMITE_POR_DEFECTO
+                : Math.max(1, Math.min(limitPedido, LIMITE_MAXIMO));
+
+        LocalDateTime cursorFecha = null;
+        Long cursorId = null;
+        if (cursorTexto != null && !cursorTexto.isBlank()) {
+            Cursor cursor = decodificarCursor(cursorTexto);
+            cursorFecha = cursor.createdAt();
+            cursorId = cursor.id();
+        }
+
+        // Se pide una fila de más para saber si hay página siguiente sin COUNT(*)
+        List<AuditoriaLogDTO> filas = consulta.buscar(cursorFecha, cursorId, limit + 1);
+        boolean hasMore = filas.size() > limit;
+        if (hasMore) {
+            filas = filas.subList(0, limit);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            AuditoriaLogDTO ultima = filas.get(filas.size() - 1);
+            nextCursor = codificarCursor(ultima.getCreated_at(), ultima.getId());
+        }
+        return new AuditoriaPaginaDTO(filas, nextCursor, hasMore, limit);
     }
 
     public Optional<AuditoriaLog> findById(Long id) {
@@ -92,10 +201,53 @@ public class AuditoriaService {
     }
 
     public void deleteById(Long id) {
+        Optional<AuditoriaLog> anterior = auditoriaLogRepository.findById(id);
         auditoriaLogRepository.deleteById(id);
+        anterior.ifPresent(fila -> invalidarEstados(fila.getModel(), fila.getModelId()));
     }
 
+    /**
+     * Al editar una fila se invalidan los estados del registro al que apuntaba
+     * y del que apunta ahora, por si cambia model o model_id.
+     */
     public AuditoriaLog save(AuditoriaLog log) {
-        return auditoriaLogRepository.save(log);
+        Optional<AuditoriaLog> anterior = log.getId() != null ? auditoriaLogRepository.findById(log.getId())
+                : Optional.empty();
+        // Se leen antes de guardar: con open-in-view save() actualiza esa misma entidad
+        String modelAnterior = anterior.map(AuditoriaLog::getModel).orElse(null);
+        Long modelIdAnterior = anterior.map(AuditoriaLog::getModelId).orElse(null);
+        AuditoriaLog guardado = auditoriaLogRepository.save(log);
+        invalidarEstados(modelAnterior, modelIdAnterior);
+        invalidarEstados(guardado.getModel(), guardado.getModelId());
+        return guardado;
+    }
+
+    private void invalidarEstados(String model, Long modelId) {
+        if (model != null && modelId != null) {
+            auditoriaSnapshotService.invalidar(model, modelId);
+        }
+    }
+
+    private static String codificarCursor(LocalDateTime createdAt, Long id) {
+        String valor = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodificarCursor(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = valor.split("\\|");
+            return new Cursor(LocalDateTime.parse(partes[0]), Long.valueOf(partes[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    private record Cursor(LocalDateTime createdAt, Long id) {
+    }
+
+    @FunctionalInterface
+    private interface Consulta {
+        List<AuditoriaLogDTO> buscar(LocalDateTime cursorFecha, Long cursorId, int limit);
     }
 }
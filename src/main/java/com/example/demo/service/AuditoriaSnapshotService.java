@@ -0,0 +1,275 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reconstruye el estado completo de un registro auditado (model, model_id)
+ * partiendo del CHECKPOINT más cercano y aplicando los DELTA posteriores.
+ *
+ * Las filas sin formato (snapshot completo de versiones anteriores o del modo
+ * SNAPSHOT) se combinan sobre el estado acumulado.
+ *
+ * Los resultados de {@link #estadoHasta} y {@link #estadoEn} se cachean por id
+ * de fila, y el último estado calculado de cada registro sirve de punto de
+ * partida para plegar sólo las filas nuevas. Las filas de auditoría pueden
+ * editarse, borrarse o purgarse por retención: quien lo hace llama a
+ * {@link #invalidar} o {@link #invalidarTodo}, que llegan a todos los nodos por
+ * la región "auditoria:" de {@link CacheVersiones}.
+ */
+@Service
+public class AuditoriaSnapshotService {
+
+    public static final String CHECKPOINT = "CHECKPOINT";
+    public static final String DELTA = "DELTA";
+
+    private static final String REGION = "auditoria:";
+    private static final String TODOS = "*";
+
+    private static final TypeReference<LinkedHashMap<String, Object>> TIPO_MAPA = new TypeReference<>() {
+    };
+    private static final TypeReference<List<Map<String, Object>>> TIPO_DELTA = new TypeReference<>() {
+    };
+
+    public record Estado(Long logId, Integer secuencia, LocalDateTime createdAt, Map<String, Object> datos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Estado> porFila;
+    private final Map<String, Estado> ultimos;
+    private final CacheVersiones cacheVersiones;
+    // Sube con cada invalidación: un plegado que empezó antes no se cachea
+    private long generacion;
+
+    public AuditoriaSnapshotService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            CacheVersiones cacheVersiones, @Value("${auditoria.historial.cache-estados:5000}") int cacheEstados) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.cacheVersiones = cacheVersiones;
+        this.porFila = lru(cacheEstados);
+        this.ultimos = lru(cacheEstados);
+    }
+
+    @PostConstruct
+    void suscribir() {
+        cacheVersiones.suscribir(REGION, cambio -> olvidar(cambio.region().substring(REGION.length())));
+    }
+
+    /** Las filas de auditoría del registro han cambiado o se han borrado. */
+    public void invalidar(String model, Long modelId) {
+        cacheVersiones.invalidar(REGION + model + ":" + modelId);
+    }
+
+    /** Se han purgado filas de cualquier registro (retención). */
+    public void invalidarTodo() {
+        cacheVersiones.invalidar(REGION + TODOS);
+    }
+
+    private synchronized void olvidar(String registro) {
+        generacion++;
+        if (TODOS.equals(registro)) {
+            porFila.clear();
+            ultimos.clear();
+            return;
+        }
+        String prefijo = registro + ":";
+        porFila.keySet().removeIf(clave -> clave.startsWith(prefijo));
+        ultimos.remove(registro);
+    }
+
+    /**
+     * Estado del registro tras aplicar todas las filas hasta hastaLogId
+     * (incluida); si hastaLogId es null, el estado más reciente. Sin caché.
+     */
+    public Optional<Estado> reconstruir(String model, Long modelId, Long hastaLogId) {
+        return plegar(model, modelId, null, hastaLogId);
+    }
+
+    /** Como {@link #reconstruir} pero usando la caché de estados. */
+    public Optional<Estado> estadoHasta(String model, Long modelId, Long hastaLogId) {
+        List<Object> params = new ArrayList<>(List.of(model, modelId));
+        String sql = "SELECT MAX(id) FROM auditoria_logs WHERE model = ? AND model_id = ?";
+        if (hastaLogId != null) {
+            sql += " AND id <= ?";
+            params.add(hastaLogId);
+        }
+        return estadoEnFila(model, modelId, jdbcTemplate.queryForObject(sql, Long.class, params.toArray()));
+    }
+
+    /**
+     * Estado del registro en un instante: el resultante de la última fila con
+     * created_at &lt;= fecha. Los lotes asíncronos y los demás nodos insertan
+     * fuera de orden, así que la última es la de mayor created_at y no la de
+     * mayor id; el orden coincide con idx_auditoria_model_historial.
+     */
+    public Optional<Estado> estadoEn(String model, Long modelId, LocalDateTime fecha) {
+        List<Long> filas = jdbcTemplate.queryForList(
+                "SELECT id FROM auditoria_logs WHERE model = ? AND model_id = ? AND created_at <= ? "
+                        + "ORDER BY created_at DESC, id DESC LIMIT 1",
+                Long.class, model, modelId, Timestamp.valueOf(fecha));
+        return estadoEnFila(model, modelId, filas.isEmpty() ? null : filas.get(0));
+    }
+
+    private Optional<Estado> estadoEnFila(String model, Long modelId, Long logId) {
+        if (logId == null) {
+            return Optional.empty();
+        }
+
+        String registro = model + ":" + modelId;
+        String clave = registro + ":" + logId;
+        Estado base;
+        long generacionInicial;
+        synchronized (this) {
+            Estado cacheado = porFila.get(clave);
+            if (cacheado != null) {
+                return Optional.of(cacheado);
+            }
+            base = ultimos.get(registro);
+            generacionInicial = generacion;
+        }
+
+        // Si ya se calculó una versión anterior del registro, sólo se pliegan
+        // las filas posteriores a ella.
+        Optional<Estado> estado = plegar(model, modelId, base != null && base.logId() < logId ? base : null, logId);
+        estado.ifPresent(e -> {
+            synchronized (this) {
+                if (generacion != generacionInicial) {
+                    return;
+                }
+                porFila.put(clave, e);
+                Estado ultimo = ultimos.get(registro);
+                if (ultimo == null || ultimo.logId() < e.logId()) {
+                    ultimos.put(registro, e);
+                }
+            }
+        });
+        return estado;
+    }
+
+    /**
+     * Aplica sobre {@code base} (o sobre un estado vacío) las filas posteriores
+     * a ella hasta hastaLogId, empezando por el CHECKPOINT más reciente del
+     * tramo si lo hay.
+     */
+    private Optional<Estado> plegar(String model, Long modelId, Estado base, Long hastaLogId) {
+        List<Object> params = new ArrayList<>(List.of(model, modelId));
+        String limite = "";
+        if (hastaLogId != null) {
+            limite += " AND id <= ?";
+            params.add(hastaLogId);
+        }
+        if (base != null) {
+            limite += " AND id > ?";
+            params.add(base.logId());
+        }
+
+        Long checkpointId = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM auditoria_logs WHERE model = ? AND model_id = ? AND formato = '" + CHECKPOINT
+                        + "'" + limite,
+                Long.class, params.toArray());
+
+        Acumulador acumulador = new Acumulador();
+        if (checkpointId == null && base != null) {
+            acumulador.datos = base.datos();
+            acumulador.logId = base.logId();
+            acumulador.secuencia = base.secuencia();
+            acumulador.createdAt = base.createdAt();
+        }
+        params.add(checkpointId != null ? checkpointId : 0L);
+        jdbcTemplate.query(
+                "SELECT id, formato, secuencia, datos_nuevos, created_at FROM auditoria_logs "
+                        + "WHERE model = ? AND model_id = ?" + limite + " AND id >= ? ORDER BY id",
+                rs -> {
+                    acumulador.datos = aplicar(acumulador.datos, rs.getString("formato"),
+                            rs.getString("datos_nuevos"));
+                    acumulador.logId = rs.getLong("id");
+                    acumulador.secuencia = rs.getObject("secuencia") != null ? rs.getInt("secuencia") : null;
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    acumulador.createdAt = createdAt != null ? createdAt.toLocalDateTime() : null;
+                },
+                params.toArray());
+
+        if (acumulador.logId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new Estado(acumulador.logId, acumulador.secuencia, acumulador.createdAt,
+                acumulador.datos));
+    }
+
+    /**
+     * Aplica una fila de auditoría sobre el estado acumulado y devuelve el nuevo
+     * estado. Nunca modifica el mapa recibido.
+     */
+    Map<String, Object> aplicar(Map<String, Object> estado, String formato, String datos) {
+        if (datos == null || datos.isBlank()) {
+            return estado;
+        }
+
+        try {
+            if (CHECKPOINT.equals(formato)) {
+                return objectMapper.readValue(datos, TIPO_MAPA);
+            }
+
+            Map<String, Object> resultado = new LinkedHashMap<>(estado);
+            if (DELTA.equals(formato)) {
+                for (Map<String, Object> operacion : objectMapper.readValue(datos, TIPO_DELTA)) {
+                    String campo = campoDesdeRuta((String) operacion.get("path"));
+                    if ("remove".equals(operacion.get("op"))) {
+                        resultado.remove(campo);
+                    } else {
+                        resultado.put(campo, operacion.get("value"));
+                    }
+                }
+            } else if (datos.trim().startsWith("{")) {
+                Map<String, Object> snapshot = objectMapper.readValue(datos, TIPO_MAPA);
+                if (snapshot.containsKey(AuditoriaEvento.TRUNCADO)) {
+                    // Sólo guarda el inicio del JSON: no aporta campos al estado
+                    return estado;
+                }
+                resultado.putAll(snapshot);
+            }
+            return resultado;
+        } catch (JsonProcessingException e) {
+            // Filas truncadas o con JSON inválido no interrumpen la reconstrucción
+            return estado;
+        }
+    }
+
+    static String rutaDesdeCampo(String campo) {
+        return "/" + campo.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static String campoDesdeRuta(String ruta) {
+        return ruta.substring(1).replace("~1", "/").replace("~0", "~");
+    }
+
+    private static <V> Map<String, V> lru(int maximo) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maximo;
+            }
+        };
+    }
+
+    private static final class Acumulador {
+        private Map<String, Object> datos = new LinkedHashMap<>();
+        private Long logId;
+        private Integer secuencia;
+        private LocalDateTime createdAt;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.demo.service;
+
+import com.example.demo.config.CacheSegundoNivelConfig;
+import com.example.demo.model.Role;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.metamodel.mapping.EntityValuedModelPart;
+import org.hibernate.metamodel.mapping.PluralAttributeMapping;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.cache.CacheManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coherencia y estadísticas de la caché de segundo nivel.
+ *
+ * Las bajas son lógicas (status = 0) y @SQLRestriction sólo filtra las
+ * consultas SQL: una entidad dada de baja que siguiera en caché se devolvería
+ * en find(). Por eso, al confirmarse un UPDATE que deja status distinto de 1,
+ * se desaloja la entidad, sus colecciones cacheadas y las colecciones que
+ * pueden contenerla. Las escrituras por JDBC sobre role_has_permissions
+ * avisan con {@link #invalidarPermisosDeRoles}.
+ *
+ * Cada nodo tiene su propia caché, así que cuando otro nodo confirma cambios
+ * en una tabla (región "tabla:" de {@link CacheVersiones}) se desalojan aquí
+ * las entidades y colecciones guardadas en ella y las consultas cacheadas.
+ */
+@Service
+public class CacheSegundoNivelService implements PostCommitUpdateEventListener {
+
+    private static final String ROL_PERMISOS = Role.class.getName() + ".permissions";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheManager cacheSegundoNivelManager;
+    private final CacheVersiones cacheVersiones;
+
+    private SessionFactoryImplementor sessionFactory;
+    /** Por entidad cacheada: colecciones de las que es dueña y colecciones que la contienen. */
+    private final Map<String, List<String>> coleccionesPropias = new HashMap<>();
+    private final Map<String, List<String>> coleccionesQueLaContienen = new HashMap<>();
+    /** Por tabla: entidades y colecciones cacheadas que se guardan en ella. */
+    private final Map<String, List<String>> entidadesPorTabla = new HashMap<>();
+    private final Map<String, List<String>> coleccionesPorTabla = new HashMap<>();
+
+    public CacheSegundoNivelService(EntityManagerFactory entityManagerFactory, CacheManager cacheSegundoNivelManager,
+            CacheVersiones cacheVersiones) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheSegundoNivelManager = cacheSegundoNivelManager;
+        this.cacheVersiones = cacheVersiones;
+    }
+
+    @PostConstruct
+    void registrar() {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        sessionFactory.getMappingMetamodel().forEachEntityDescriptor(entidad -> {
+            if (entidad.canWriteToCache() && entidad instanceof AbstractEntityPersister persister) {
+                entidadesPorTabla.computeIfAbsent(tabla(persister.getTableName()),
+                        t -> new ArrayList<>()).add(persister.getEntityName());
+            }
+        });
+        sessionFactory.getMappingMetamodel().forEachCollectionDescriptor(coleccion -> {
+            if (!coleccion.hasCache()) {
+                return;
+            }
+            if (coleccion instanceof AbstractCollectionPersister persister) {
+                coleccionesPorTabla.computeIfAbsent(tabla(persister.getTableName()),
+                        t -> new ArrayList<>()).add(coleccion.getRole());
+            }
+            PluralAttributeMapping atributo = coleccion.getAttributeMapping();
+            coleccionesPropias.computeIfAbsent(atributo.findContainingEntityMapping().getEntityName(),
+                    e -> new ArrayList<>()).add(coleccion.getRole());
+            if (atributo.getElementDescriptor() instanceof EntityValuedModelPart elemento) {
+                coleccionesQueLaContienen.computeIfAbsent(elemento.getEntityMappingType().getEntityName(),
+                        e -> new ArrayList<>()).add(coleccion.getRole());
+            }
+        });
+        sessionFactory.getServiceRegistry()
+                .requireService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        cacheVersiones.suscribir(VersionTablas.REGION, this::tablaModificada);
+    }
+
+    /** Sólo cambios de otros nodos: los locales ya los aplica Hibernate a la caché. */
+    private void tablaModificada(CacheVersiones.Cambio cambio) {
+        if (!cambio.remoto()) {
+            return;
+        }
+        String tabla = cambio.region().substring(VersionTablas.REGION.length());
+        Cache cache = sessionFactory.getCache();
+        for (String entidad : entidadesPorTabla.getOrDefault(tabla, List.of())) {
+            cache.evictEntityData(entidad);
+            for (String coleccion : coleccionesQueLaContienen.getOrDefault(entidad, List.of())) {
+                cache.evictCollectionData(coleccion);
+            }
+        }
+        for (String coleccion : coleccionesPorTabla.getOrDefault(tabla, List.of())) {
+            cache.evictCollectionData(coleccion);
+        }
+        cache.evictQueryRegions();
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.canWriteToCache() && indiceStatus(persister) >= 0;
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        EntityPersister persister = event.getPersister();
+        int indice = indiceStatus(persister);
+        if (indice < 0 || activo(event.getState()[indice])) {
+            return;
+        }
+        Cache cache = sessionFactory.getCache();
+        String entidad = persister.getEntityName();
+        cache.evictEntityData(entidad, event.getId());
+        for (String coleccion : coleccionesPropias.getOrDefault(entidad, List.of())) {
+            cache.evictCollectionData(coleccion, event.getId());
+        }
+        for (String coleccion : coleccionesQueLaContienen.getOrDefault(entidad, List.of())) {
+            cache.evictCollectionData(coleccion);
+        }
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // Si no se confirmó, la caché sigue siendo válida
+    }
+
+    /**
+     * Desaloja Role.permissions de los roles indicados y los resultados de
+     * consultas cacheadas, al confirmarse la transacción actual (o en el
+     * momento si no hay ninguna).
+     */
+    public void invalidarPermisosDeRoles(Collection<Long> roles) {
+        List<Long> copia = List.copyOf(roles);
+        Runnable invalidar = () -> {
+            Cache cache = sessionFactory.getCache();
+            copia.forEach(rol -> cache.evictCollectionData(ROL_PERMISOS, rol));
+            cache.evictQueryRegions();
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidar.run();
+                }
+            });
+        } else {
+            invalidar.run();
+        }
+    }
+
+    /** Aciertos, fallos y tamaño por región, para ajustar cache.l2.region.*. */
+    public Map<String, Object> estadisticas() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("estadisticasActivas", statistics.isStatisticsEnabled());
+        resultado.put("aciertos", statistics.getSecondLevelCacheHitCount());
+        resultado.put("fallos", statistics.getSecondLevelCacheMissCount());
+        resultado.put("escrituras", statistics.getSecondLevelCachePutCount());
+        resultado.put("consultasAciertos", statistics.getQueryCacheHitCount());
+        resultado.put("consultasFallos", statistics.getQueryCacheMissCount());
+
+        Map<String, Object> regiones = new LinkedHashMap<>();
+        for (String region : CacheSegundoNivelConfig.REGIONES.values()) {
+            CacheRegionStatistics estadisticasRegion = statistics.getCacheRegionStatistics(region);
+            if (estadisticasRegion == null) {
+                continue;
+            }
+            long total = estadisticasRegion.getHitCount() + estadisticasRegion.getMissCount();
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("aciertos", estadisticasRegion.getHitCount());
+            datos.put("fallos", estadisticasRegion.getMissCount());
+            datos.put("escrituras", estadisticasRegion.getPutCount());
+            datos.put("elementos", elementos(region));
+            datos.put("ratioAciertos", total > 0 ? (double) estadisticasRegion.getHitCount() / total : null);
+            regiones.put(region, datos);
+        }
+        resultado.put("regiones", regiones);
+        return resultado;
+    }
+
+    /** JCache no expone el tamaño; se pide a la caché de Caffeine que hay debajo. */
+    private Long elementos(String region) {
+        javax.cache.Cache<Object, Object> cache = cacheSegundoNivelManager.getCache(region);
+        try {
+            return cache != null ? cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class).estimatedSize() : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String tabla(String nombre) {
+        return nombre.replace("`", "").replace("\"", "").toLowerCase();
+    }
+
+    private static int indiceStatus(EntityPersister persister) {
+        return Arrays.asList(persister.getPropertyNames()).indexOf("status");
+    }
+
+    private static boolean activo(Object status) {
+        return Integer.valueOf(1).equals(status) || Boolean.TRUE.equals(status);
+    }
+}
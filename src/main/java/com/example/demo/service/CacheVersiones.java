@@ -0,0 +1,253 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Bus de invalidación de las cachés locales entre nodos, sobre la tabla
+ * cache_versiones y sin broker.
+ *
+ * Quien escribe llama a {@link #invalidar} dentro de su transacción. Una vez
+ * confirmada se sube la versión de cada región en una transacción aparte y
+ * corta (en orden alfabético, para que dos nodos no se bloqueen entre sí) y se
+ * avisa en el momento a los suscriptores del propio nodo. Así la fila de
+ * cache_versiones no queda bloqueada mientras dura la escritura, que de otro
+ * modo serializaría en todo el clúster las escrituras de una misma tabla. Si
+ * la subida falla se reintenta en el siguiente {@link #sondear}.
+ *
+ * El resto de nodos lo ve en {@link #sondear}, que sólo lee las filas
+ * cambiadas en la ventana reciente. Las regiones son nombres libres
+ * ("permisos", "tabla:empresas", "rol:5"...) y los suscriptores se registran
+ * por prefijo.
+ */
+@Service
+public class CacheVersiones {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheVersiones.class);
+
+    private static final String SUBIR_SQL = "INSERT INTO cache_versiones (region, version, actualizado) "
+            + "VALUES (?, 1, CURRENT_TIMESTAMP(3)) "
+            + "ON DUPLICATE KEY UPDATE version = version + 1, actualizado = CURRENT_TIMESTAMP(3)";
+
+    /** Nueva versión de una región; {@code remoto} si la confirmó otro nodo. */
+    public record Cambio(String region, long version, long instante, boolean remoto) {
+    }
+
+    @FunctionalInterface
+    public interface Suscriptor {
+        void invalidar(Cambio cambio);
+    }
+
+    private record Suscripcion(String prefijo, Suscriptor suscriptor) {
+    }
+
+    private record Conocida(long version, long instante) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final long margenMs;
+    private final Counter remotas;
+    private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+    /** Última versión vista de cada región dentro de la ventana de sondeo. */
+    private final Map<String, Conocida> conocidas = new ConcurrentHashMap<>();
+    /** Regiones cuya subida falló tras confirmar, a reintentar. */
+    private final Set<String> sinSubir = ConcurrentHashMap.newKeySet();
+    /** Mayor instante visto en cache_versiones, con la hora de la base de datos. */
+    private volatile long ultimo;
+
+    public CacheVersiones(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${cache.versiones.margen-segundos:30}") long margenSegundos, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.margenMs = margenSegundos * 1000;
+        this.remotas = Counter.builder("cache.versiones.remotas")
+                .description("Invalidaciones de caché recibidas de otros nodos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Parte de las versiones ya persistidas: lo cambiado en la ventana reciente
+     * queda como conocido, para que el primer sondeo no lo tome por cambios de
+     * otros nodos. Los suscriptores que necesiten el estado anterior lo leen
+     * con {@link #versiones}.
+     */
+    @PostConstruct
+    void iniciar() {
+        ultimo = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP(3)", Timestamp.class).getTime();
+        jdbcTemplate.query("SELECT region, version, actualizado FROM cache_versiones WHERE actualizado >= ?", rs -> {
+            Cambio cambio = cambio(rs, false);
+            conocidas.put(cambio.region(), new Conocida(cambio.version(), cambio.instante()));
+            ultimo = Math.max(ultimo, cambio.instante());
+        }, new Timestamp(ultimo - margenMs));
+    }
+
+    /** Registra un suscriptor para las regiones que empiezan por {@code prefijo}. */
+    public void suscribir(String prefijo, Suscriptor suscriptor) {
+        suscripciones.add(new Suscripcion(prefijo, suscriptor));
+    }
+
+    /**
+     * Sube la versión de la región al confirmarse la transacción actual (una
+     * vez aunque se pida varias), o en el momento si no hay ninguna.
+     */
+    public void invalidar(String region) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            confirmadas(List.of(region));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> pendientes = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pendientes == null) {
+            Set<String> nuevas = new TreeSet<>();
+            TransactionSynchronizationManager.bindResource(this, nuevas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    confirmadas(nuevas);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheVersiones.this);
+                }
+            });
+            pendientes = nuevas;
+        }
+        pendientes.add(region);
+    }
+
+    /** Sube y notifica las regiones escritas por una transacción ya confirmada. */
+    public void confirmadas(Collection<String> regiones) {
+        notificar(subir(regiones));
+    }
+
+    /**
+     * Sube las versiones en su propia transacción. Si falla, las regiones
+     * quedan para el siguiente sondeo y los suscriptores locales reciben de
+     * momento un cambio con versión 0.
+     */
+    private List<Cambio> subir(Collection<String> regiones) {
+        try {
+            return transaccion.execute(status -> escribir(regiones));
+        } catch (DataAccessException e) {
+            logger.warn("No se pudo subir la versión de {}, se reintentará: {}", regiones, e.getMessage());
+            sinSubir.addAll(regiones);
+            long ahora = System.currentTimeMillis();
+            return regiones.stream().map(region -> new Cambio(region, 0, ahora, false)).toList();
+        }
+    }
+
+    /** Sube las versiones en la transacción actual y devuelve las nuevas. */
+    private List<Cambio> escribir(Collection<String> regiones) {
+        if (regiones.isEmpty()) {
+            return List.of();
+        }
+        List<String> ordenadas = new ArrayList<>(new TreeSet<>(regiones));
+        jdbcTemplate.batchUpdate(SUBIR_SQL, ordenadas, ordenadas.size(), (ps, region) -> ps.setString(1, region));
+        return namedJdbcTemplate.query(
+                "SELECT region, version, actualizado FROM cache_versiones WHERE region IN (:regiones)",
+                Map.of("regiones", ordenadas), (rs, rowNum) -> cambio(rs, false));
+    }
+
+    /** Avisa a los suscriptores de cambios ya confirmados. */
+    private void notificar(List<Cambio> cambios) {
+        for (Cambio cambio : cambios) {
+            conocidas.merge(cambio.region(), new Conocida(cambio.version(), cambio.instante()),
+                    (anterior, nueva) -> nueva.version() > anterior.version() ? nueva : anterior);
+            for (Suscripcion suscripcion : suscripciones) {
+                if (!cambio.region().startsWith(suscripcion.prefijo())) {
+                    continue;
+                }
+                try {
+                    suscripcion.suscriptor().invalidar(cambio);
+                } catch (RuntimeException e) {
+                    logger.warn("Fallo al invalidar la región {}: {}", cambio.region(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Versión actual de las regiones que empiezan por {@code prefijo}. */
+    public List<Cambio> versiones(String prefijo) {
+        return jdbcTemplate.query("SELECT region, version, actualizado FROM cache_versiones WHERE region LIKE ?",
+                (rs, rowNum) -> cambio(rs, false), prefijo + "%");
+    }
+
+    /**
+     * Busca las regiones que otro nodo ha cambiado. La ventana arranca un
+     * margen antes del último cambio visto para no perder transacciones que
+     * subieron la versión antes pero confirmaron después.
+     */
+    @Scheduled(fixedDelayString = "${cache.versiones.intervalo-ms:2000}")
+    public void sondear() {
+        if (!sinSubir.isEmpty()) {
+            List<String> reintentos = new ArrayList<>(sinSubir);
+            sinSubir.removeAll(reintentos);
+            confirmadas(reintentos);
+        }
+
+        long desde = ultimo - margenMs;
+        List<Cambio> nuevos = new ArrayList<>();
+        long maximo;
+        try {
+            maximo = jdbcTemplate.query("SELECT region, version, actualizado FROM cache_versiones "
+                    + "WHERE actualizado >= ?", rs -> {
+                        long mayor = ultimo;
+                        while (rs.next()) {
+                            Cambio cambio = cambio(rs, true);
+                            mayor = Math.max(mayor, cambio.instante());
+                            Conocida conocida = conocidas.get(cambio.region());
+                            if (conocida == null || cambio.version() > conocida.version()) {
+                                nuevos.add(cambio);
+                            }
+                        }
+                        return mayor;
+                    }, new Timestamp(desde));
+        } catch (DataAccessException e) {
+            logger.warn("No se pudo consultar cache_versiones: {}", e.getMessage());
+            return;
+        }
+        ultimo = maximo;
+        if (!nuevos.isEmpty()) {
+            remotas.increment(nuevos.size());
+            notificar(nuevos);
+        }
+        // Lo que queda fuera de la ventana no se vuelve a leer salvo que cambie
+        conocidas.values().removeIf(conocida -> conocida.instante() < desde);
+    }
+
+    private static Cambio cambio(ResultSet rs, boolean remoto) throws SQLException {
+        return new Cambio(rs.getString("region"), rs.getLong("version"),
+                rs.getTimestamp("actualizado").getTime(), remoto);
+    }
+}
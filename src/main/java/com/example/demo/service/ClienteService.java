@@ -2,31 +2,50 @@ package com.example.demo.service;
 
 import com.example.demo.annotation.Loggable;
 import com.example.demo.dto.ClienteDTO;
+import com.example.demo.dto.ListadoDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.mapper.ClienteMapper;
 import com.example.demo.model.Cliente;
 import com.example.demo.repository.ClienteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ClienteService {
 
+    private static final Listado<Cliente> LISTADO = Listado.de(Cliente.class, "clientes", Sort.by("nombre"))
+            .ordenable("id", "id")
+            .ordenable("nombre", "nombre")
+            .ordenable("createdAt", "createdAt")
+            .ordenable("updatedAt", "updatedAt")
+            .filtrable("nombre", "nombre", Listado.Filtro.PREFIJO)
+            .busqueda("nombre");
+
     private final ClienteRepository clienteRepository;
     private final ClienteMapper clienteMapper;
+    private final ListadoService listadoService;
 
     @Autowired
-    public ClienteService(ClienteRepository clienteRepository, ClienteMapper clienteMapper) {
+    public ClienteService(ClienteRepository clienteRepository, ClienteMapper clienteMapper,
+            ListadoService listadoService) {
         this.clienteRepository = clienteRepository;
         this.clienteMapper = clienteMapper;
+        this.listadoService = listadoService;
     }
 
     public List<ClienteDTO> findAll() {
         return clienteMapper.toDTOs(clienteRepository.findAll());
     }
 
+    public PaginaDTO<ClienteDTO> paginar(ListadoDTO peticion, Map<String, String> parametros) {
+        return listadoService.paginar(LISTADO, peticion, parametros, clienteMapper::toDTOs);
+    }
+
     public Optional<ClienteDTO> findById(Long id) {
         return clienteRepository.findById(id).map(clienteMapper::toDTO);
     }
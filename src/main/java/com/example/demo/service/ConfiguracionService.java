@@ -3,20 +3,46 @@ package com.example.demo.service;
 import com.example.demo.annotation.Loggable;
 import com.example.demo.model.Configuracion;
 import com.example.demo.repository.ConfiguracionRepository;
+import com.example.demo.repository.EmpresaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class ConfiguracionService {
 
+    /**
+     * Configuración vigente (la primera activa) ya serializada, con su ETag
+     * fuerte calculado sobre esos mismos bytes.
+     */
+    public record Vigente(Configuracion configuracion, byte[] json, String etag) {
+    }
+
+    private static final Vigente NINGUNA = new Vigente(null, null, null);
+
     private final ConfiguracionRepository configuracionRepository;
+    private final EmpresaRepository empresaRepository;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<Vigente> vigente = new AtomicReference<>();
 
     @Autowired
-    public ConfiguracionService(ConfiguracionRepository configuracionRepository) {
+    public ConfiguracionService(ConfiguracionRepository configuracionRepository, EmpresaRepository empresaRepository,
+            ObjectMapper objectMapper, CacheVersiones cacheVersiones) {
         this.configuracionRepository = configuracionRepository;
+        this.empresaRepository = empresaRepository;
+        this.objectMapper = objectMapper;
+        // Cambios de la configuración o de la empresa (empresa_nombre), en
+        // éste o en otro nodo: se vuelve a cargar en la siguiente petición
+        cacheVersiones.suscribir(VersionTablas.REGION + "configuracion", cambio -> descartar());
+        cacheVersiones.suscribir(VersionTablas.REGION + "empresas", cambio -> descartar());
     }
 
     public List<Configuracion> findAll() {
@@ -27,13 +53,63 @@ public class ConfiguracionService {
         return configuracionRepository.findById(id);
     }
 
+    /**
+     * La configuración que usa el layout en cada página, desde memoria. Se
+     * carga la primera vez, se recalcula en cada save() y se descarta cuando
+     * cambian configuracion o empresas.
+     */
+    public Optional<Vigente> vigente() {
+        Vigente actual = vigente.get();
+        if (actual == null) {
+            actual = refrescar();
+        }
+        return actual == NINGUNA ? Optional.empty() : Optional.of(actual);
+    }
+
+    public boolean existe() {
+        return vigente().isPresent();
+    }
+
     @Loggable(model = "Configuracion", accion = "GUARDAR")
     public Configuracion save(Configuracion configuracion) {
-        return configuracionRepository.save(configuracion);
+        // empresa comparte columna con idDatosEmpresa y no se escribe; se enlaza
+        // aquí para que la entidad guardada (y la cacheada) no la pierda
+        configuracion.setEmpresa(configuracion.getIdDatosEmpresa() != null
+                ? empresaRepository.getReferenceById(configuracion.getIdDatosEmpresa())
+                : null);
+        Configuracion saved = configuracionRepository.save(configuracion);
+        refrescar();
+        return saved;
     }
 
     @Loggable(model = "Configuracion", accion = "ELIMINAR")
     public void deleteById(Long id) {
         configuracionRepository.deleteById(id);
+        refrescar();
+    }
+
+    private synchronized Vigente refrescar() {
+        Vigente nueva = configuracionRepository.findAll().stream()
+                .findFirst()
+                .map(this::serializar)
+                .orElse(NINGUNA);
+        vigente.set(nueva);
+        return nueva;
+    }
+
+    /** Sincronizado con refrescar() para que una carga en curso no deje datos viejos. */
+    private synchronized void descartar() {
+        vigente.set(null);
+    }
+
+    private Vigente serializar(Configuracion configuracion) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(configuracion);
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            String etag = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+            return new Vigente(configuracion, json, etag);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo serializar la configuración", e);
+        }
     }
 }
@@ -2,31 +2,56 @@ package com.example.demo.service;
 
 import com.example.demo.annotation.Loggable;
 import com.example.demo.dto.EmpresaDTO;
+import com.example.demo.dto.ListadoDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.mapper.EmpresaMapper;
 import com.example.demo.model.Empresa;
 import com.example.demo.repository.EmpresaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class EmpresaService {
 
+    private static final Listado<Empresa> LISTADO = Listado.de(Empresa.class, "empresas", Sort.by("nombre"))
+            .ordenable("id", "id")
+            .ordenable("nombre", "nombre")
+            .ordenable("rfc", "rfc")
+            .ordenable("razon_social", "razon_social")
+            .ordenable("createdAt", "createdAt")
+            .filtrable("nombre", "nombre", Listado.Filtro.PREFIJO)
+            .filtrable("rfc", "rfc", Listado.Filtro.PREFIJO)
+            .filtrable("razon_social", "razon_social", Listado.Filtro.PREFIJO)
+            .filtrable("tipoPersona", "tipoPersona", Listado.Filtro.IGUAL)
+            .filtrable("estado", "estado", Listado.Filtro.IGUAL)
+            .filtrable("municipio", "municipio", Listado.Filtro.IGUAL)
+            .busqueda("nombre", "rfc", "razon_social");
+
     private final EmpresaRepository empresaRepository;
     private final EmpresaMapper empresaMapper;
+    private final ListadoService listadoService;
 
     @Autowired
-    public EmpresaService(EmpresaRepository empresaRepository, EmpresaMapper empresaMapper) {
+    public EmpresaService(EmpresaRepository empresaRepository, EmpresaMapper empresaMapper,
+            ListadoService listadoService) {
         this.empresaRepository = empresaRepository;
         this.empresaMapper = empresaMapper;
+        this.listadoService = listadoService;
     }
 
     public List<EmpresaDTO> findAll() {
         return empresaMapper.toDTOs(empresaRepository.findAll());
     }
 
+    public PaginaDTO<EmpresaDTO> paginar(ListadoDTO peticion, Map<String, String> parametros) {
+        return listadoService.paginar(LISTADO, peticion, parametros, empresaMapper::toDTOs);
+    }
+
     public Optional<EmpresaDTO> findById(Long id) {
         return empresaRepository.findById(id).map(empresaMapper::toDTO);
     }
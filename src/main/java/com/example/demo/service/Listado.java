@@ -0,0 +1,154 @@
+package com.example.demo.service;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Definición de un listado paginado: por qué parámetros se puede ordenar y
+ * filtrar y a qué atributo de la entidad corresponde cada uno. Un orden fuera
+ * de la lista se rechaza y un filtro desconocido se ignora, así que el cliente
+ * no puede pedir consultas sobre columnas sin índice.
+ */
+public final class Listado<T> {
+
+    public enum Filtro {
+        IGUAL, PREFIJO
+    }
+
+    private record Campo(String atributo, Filtro filtro) {
+    }
+
+    private final Class<T> clase;
+    private final String tabla;
+    private final Sort porDefecto;
+    private final Map<String, String> ordenables = new LinkedHashMap<>();
+    private final Map<String, Campo> filtrables = new LinkedHashMap<>();
+    private final List<String> busqueda = new ArrayList<>();
+    private final List<String> asociaciones = new ArrayList<>();
+
+    private Listado(Class<T> clase, String tabla, Sort porDefecto) {
+        this.clase = clase;
+        this.tabla = tabla;
+        this.porDefecto = porDefecto;
+    }
+
+    /** {@code porDefecto} debería coincidir con un índice de la tabla. */
+    public static <T> Listado<T> de(Class<T> clase, String tabla, Sort porDefecto) {
+        return new Listado<>(clase, tabla, porDefecto);
+    }
+
+    public Listado<T> ordenable(String parametro, String atributo) {
+        ordenables.put(parametro, atributo);
+        return this;
+    }
+
+    public Listado<T> filtrable(String parametro, String atributo, Filtro filtro) {
+        filtrables.put(parametro, new Campo(atributo, filtro));
+        return this;
+    }
+
+    /** Atributos de texto en los que busca {@code q}, por prefijo. */
+    public Listado<T> busqueda(String... atributos) {
+        busqueda.addAll(List.of(atributos));
+        return this;
+    }
+
+    /** Asociación a traer en la misma consulta (LEFT JOIN FETCH). */
+    public Listado<T> cargar(String asociacion) {
+        asociaciones.add(asociacion);
+        return this;
+    }
+
+    Class<T> getClase() {
+        return clase;
+    }
+
+    String getTabla() {
+        return tabla;
+    }
+
+    List<String> getAsociaciones() {
+        return asociaciones;
+    }
+
+    /**
+     * Orden pedido ("nombre,-created_at") o el de por defecto. Siempre termina
+     * en id para que las páginas sean estables aunque haya empates.
+     */
+    Sort orden(String sort) {
+        Sort orden = porDefecto;
+        if (sort != null && !sort.isBlank()) {
+            List<Sort.Order> campos = new ArrayList<>();
+            for (String campo : sort.split(",")) {
+                campo = campo.trim();
+                boolean descendente = campo.startsWith("-");
+                String nombre = descendente ? campo.substring(1) : campo;
+                String atributo = ordenables.get(nombre);
+                if (atributo == null) {
+                    throw new IllegalArgumentException("No se puede ordenar por: " + nombre);
+                }
+                campos.add(descendente ? Sort.Order.desc(atributo) : Sort.Order.asc(atributo));
+            }
+            orden = Sort.by(campos);
+        }
+        return orden.getOrderFor("id") != null ? orden : orden.and(Sort.by("id"));
+    }
+
+    /** Filtros reconocidos en los parámetros, o null si no hay ninguno. */
+    Specification<T> filtros(String q, Map<String, String> parametros) {
+        List<Specification<T>> condiciones = new ArrayList<>();
+        for (Map.Entry<String, Campo> filtrable : filtrables.entrySet()) {
+            String valor = parametros.get(filtrable.getKey());
+            if (valor != null && !valor.isBlank()) {
+                condiciones.add(condicion(filtrable.getKey(), filtrable.getValue(), valor.trim()));
+            }
+        }
+        if (q != null && !q.isBlank() && !busqueda.isEmpty()) {
+            String patron = prefijo(q.trim());
+            condiciones.add((root, query, cb) -> cb.or(busqueda.stream()
+                    .map(atributo -> cb.like(ruta(root, atributo).as(String.class), patron, '\\'))
+                    .toArray(Predicate[]::new)));
+        }
+        return condiciones.isEmpty() ? null : Specification.allOf(condiciones);
+    }
+
+    private Specification<T> condicion(String parametro, Campo campo, String valor) {
+        if (campo.filtro() == Filtro.PREFIJO) {
+            String patron = prefijo(valor);
+            return (root, query, cb) -> cb.like(ruta(root, campo.atributo()).as(String.class), patron, '\\');
+        }
+        return (root, query, cb) -> igual(cb, ruta(root, campo.atributo()), parametro, valor);
+    }
+
+    private static Predicate igual(CriteriaBuilder cb, Path<?> ruta, String parametro, String valor) {
+        try {
+            return cb.equal(ruta, DefaultConversionService.getSharedInstance().convert(valor, ruta.getJavaType()));
+        } catch (ConversionException e) {
+            throw new IllegalArgumentException("Valor no válido para " + parametro + ": " + valor);
+        }
+    }
+
+    /** Ruta del atributo, con "." para entrar en asociaciones (role.id). */
+    static Path<?> ruta(Path<?> root, String atributo) {
+        Path<?> ruta = root;
+        for (String parte : atributo.split("\\.")) {
+            ruta = ruta.get(parte);
+        }
+        return ruta;
+    }
+
+    /** LIKE 'valor%' con los comodines escapados; usa el índice de la columna. */
+    private static String prefijo(String valor) {
+        return valor.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ListadoDTO;
+import com.example.demo.dto.PaginaDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Ejecuta un {@link Listado}: una consulta por página con LIMIT/OFFSET y,
+ * según el conteo pedido, el total exacto, uno estimado o ninguno.
+ *
+ * El COUNT(*) se evita cuando la propia página ya lo determina (la primera
+ * página incompleta o la última). Con NINGUNO se lee una fila de más para
+ * saber si hay otra página. Con ESTIMADO y sin filtros el total sale de las
+ * estadísticas de la tabla (information_schema.TABLES.TABLE_ROWS); si no hay
+ * estadísticas o hay filtros se cuenta.
+ *
+ * Los endpoints de listado sólo paginan cuando se pide {@code page}; sin él
+ * siguen devolviendo la lista completa para los clientes que ya la usaban. La
+ * SPA pide siempre la versión paginada (hooks/useListado).
+ */
+@Service
+public class ListadoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListadoService.class);
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final int porPagina;
+    private final int maximoPorPagina;
+
+    public ListadoService(EntityManager entityManager, JdbcTemplate jdbcTemplate,
+            @Value("${listado.por-pagina:20}") int porPagina,
+            @Value("${listado.maximo-por-pagina:100}") int maximoPorPagina) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.porPagina = porPagina;
+        this.maximoPorPagina = maximoPorPagina;
+    }
+
+    /**
+     * Página pedida del listado, ya convertida con {@code mapear}. Lanza
+     * IllegalArgumentException si el orden o algún filtro no es válido.
+     */
+    @Transactional(readOnly = true)
+    public <T, D> PaginaDTO<D> paginar(Listado<T> listado, ListadoDTO peticion, Map<String, String> parametros,
+            Function<List<T>, List<D>> mapear) {
+        int tamano = Math.min(Math.max(peticion.getPer_page() != null ? peticion.getPer_page() : porPagina, 1),
+                maximoPorPagina);
+        int pagina = Math.max(peticion.getPage() != null ? peticion.getPage() : 1, 1);
+        long desplazamiento = (long) (pagina - 1) * tamano;
+        if (desplazamiento > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Página fuera de rango: " + pagina);
+        }
+        PaginaDTO.Conteo conteo = peticion.getConteo() != null ? peticion.getConteo() : PaginaDTO.Conteo.EXACTO;
+        Sort orden = listado.orden(peticion.getSort());
+        Specification<T> filtros = listado.filtros(peticion.getQ(), parametros);
+
+        int limite = conteo == PaginaDTO.Conteo.NINGUNO ? tamano + 1 : tamano;
+        List<T> filas = consultar(listado, filtros, orden, (int) desplazamiento, limite);
+
+        Long total = null;
+        boolean hayMas;
+        if (conteo == PaginaDTO.Conteo.NINGUNO) {
+            hayMas = filas.size() > tamano;
+            if (hayMas) {
+                filas = filas.subList(0, tamano);
+            }
+        } else {
+            if (filas.size() < tamano && (desplazamiento == 0 || !filas.isEmpty())) {
+                // La página incompleta es la última: el total ya se conoce
+                total = desplazamiento + filas.size();
+                conteo = PaginaDTO.Conteo.EXACTO;
+            } else {
+                Long estimado = conteo == PaginaDTO.Conteo.ESTIMADO && filtros == null
+                        ? estimar(listado.getTabla())
+                        : null;
+                if (estimado != null) {
+                    total = Math.max(estimado, desplazamiento + filas.size());
+                } else {
+                    total = contar(listado, filtros);
+                    conteo = PaginaDTO.Conteo.EXACTO;
+                }
+            }
+            hayMas = desplazamiento + filas.size() < total;
+        }
+
+        Integer ultimaPagina = total != null ? (int) Math.max(1, (total + tamano - 1) / tamano) : null;
+        return new PaginaDTO<>(mapear.apply(filas), pagina, tamano, total, ultimaPagina, hayMas, conteo);
+    }
+
+    private <T> List<T> consultar(Listado<T> listado, Specification<T> filtros, Sort orden, int desplazamiento,
+            int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(listado.getClase());
+        Root<T> root = query.from(listado.getClase());
+        listado.getAsociaciones().forEach(asociacion -> root.fetch(asociacion, JoinType.LEFT));
+        aplicar(filtros, root, query, cb);
+        // Sin QueryUtils.toOrders: PropertyPath parte razon_social por el "_"
+        query.orderBy(orden.stream()
+                .map(o -> o.isAscending() ? cb.asc(Listado.ruta(root, o.getProperty()))
+                        : cb.desc(Listado.ruta(root, o.getProperty())))
+                .toList());
+        return entityManager.createQuery(query)
+                .setFirstResult(desplazamiento)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+
+    private <T> long contar(Listado<T> listado, Specification<T> filtros) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(listado.getClase());
+        query.select(cb.count(root));
+        aplicar(filtros, root, query, cb);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static <T> void aplicar(Specification<T> filtros, Root<T> root, CriteriaQuery<?> query,
+            CriteriaBuilder cb) {
+        if (filtros != null) {
+            Predicate predicado = filtros.toPredicate(root, query, cb);
+            if (predicado != null) {
+                query.where(predicado);
+            }
+        }
+    }
+
+    /** Filas según las estadísticas de MySQL; null si la base no las ofrece. */
+    private Long estimar(String tabla) {
+        try {
+            return jdbcTemplate.queryForObject("SELECT TABLE_ROWS FROM information_schema.TABLES "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", Long.class, tabla);
+        } catch (DataAccessException e) {
+            logger.debug("Sin estadísticas de {}, se cuenta: {}", tabla, e.getMessage());
+            return null;
+        }
+    }
+}
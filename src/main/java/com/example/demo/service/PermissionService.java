@@ -5,6 +5,7 @@ import com.example.demo.dto.PermissionDTO;
 import com.example.demo.mapper.PermissionMapper;
 import com.example.demo.model.Permission;
 import com.example.demo.repository.PermissionRepository;
+import com.example.demo.security.MatrizPermisos;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -17,11 +18,14 @@ public class PermissionService {
 
     private final PermissionRepository permissionRepository;
     private final PermissionMapper permissionMapper;
+    private final MatrizPermisos matrizPermisos;
 
     @Autowired
-    public PermissionService(PermissionRepository permissionRepository, PermissionMapper permissionMapper) {
+    public PermissionService(PermissionRepository permissionRepository, PermissionMapper permissionMapper,
+            MatrizPermisos matrizPermisos) {
         this.permissionRepository = permissionRepository;
         this.permissionMapper = permissionMapper;
+        this.matrizPermisos = matrizPermisos;
     }
 
     public List<PermissionDTO> findAll() {
@@ -35,12 +39,15 @@ public class PermissionService {
     @Loggable(model = "Permiso", accion = "GUARDAR")
     public PermissionDTO save(PermissionDTO permissionDTO) {
         Permission permission = permissionMapper.toEntity(permissionDTO);
-        return permissionMapper.toDTO(permissionRepository.save(permission));
+        PermissionDTO saved = permissionMapper.toDTO(permissionRepository.save(permission));
+        matrizPermisos.recompilarTrasCommit();
+        return saved;
     }
 
     @Loggable(model = "Permiso", accion = "ELIMINAR")
     public void deleteById(Long id) {
         permissionRepository.deleteById(id);
+        matrizPermisos.recompilarTrasCommit();
     }
 
     public List<Permission> findAllById(List<Long> ids) {
@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import com.example.demo.annotation.Loggable;
+import com.example.demo.dto.RolModuloPermisoLoteDTO;
+import com.example.demo.dto.RolModuloPermisoResultadoDTO;
+import com.example.demo.dto.RolPermisosDTO;
+import com.example.demo.repository.RolModuloPermisoRepository;
+import com.example.demo.repository.RolPermisoRepository;
+import com.example.demo.security.MatrizPermisos;
+import com.example.demo.security.UsuarioAutenticadoRegistro;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Asignación de permisos a roles por diferencia: se calcula qué se concede y
+ * qué se revoca respecto al estado actual y se aplica con un DELETE y un batch
+ * de INSERT. La auditoría registra sólo ese cambio.
+ *
+ * Las concesiones por módulo (rol_modulo_permiso) se aplican en bloque con
+ * sentencias set-based y se reflejan también en role_has_permissions, que es
+ * lo que comprueba {@link MatrizPermisos}; revocar un módulo no quita los
+ * permisos asignados directamente al rol. Como estas escrituras no pasan por
+ * Hibernate, se desaloja a mano Role.permissions de la caché de segundo nivel.
+ */
+@Service
+public class RolPermisoService {
+
+    private static final Pattern ACCION = Pattern.compile("[a-záéíóúñ]+");
+
+    private final RolPermisoRepository rolPermisoRepository;
+    private final RolModuloPermisoRepository rolModuloPermisoRepository;
+    private final UsuarioAutenticadoRegistro usuarioAutenticadoRegistro;
+    private final MatrizPermisos matrizPermisos;
+    private final CacheSegundoNivelService cacheSegundoNivelService;
+    private final VersionTablas versionTablas;
+
+    public RolPermisoService(RolPermisoRepository rolPermisoRepository,
+            RolModuloPermisoRepository rolModuloPermisoRepository,
+            UsuarioAutenticadoRegistro usuarioAutenticadoRegistro, MatrizPermisos matrizPermisos,
+            CacheSegundoNivelService cacheSegundoNivelService, VersionTablas versionTablas) {
+        this.rolPermisoRepository = rolPermisoRepository;
+        this.rolModuloPermisoRepository = rolModuloPermisoRepository;
+        this.usuarioAutenticadoRegistro = usuarioAutenticadoRegistro;
+        this.matrizPermisos = matrizPermisos;
+        this.cacheSegundoNivelService = cacheSegundoNivelService;
+        this.versionTablas = versionTablas;
+    }
+
+    /**
+     * Deja al rol exactamente con los permisos indicados. Los ids que no
+     * existen se ignoran, igual que hacía findAllById.
+     */
+    @Transactional
+    @Loggable(model = "Rol", accion = "PERMISOS")
+    public RolPermisosDTO sincronizar(Long rolId, Collection<Long> permisos) {
+        TreeSet<Long> actuales = new TreeSet<>(rolPermisoRepository.permisosDeRol(rolId));
+        TreeSet<Long> deseados = new TreeSet<>(permisos);
+
+        TreeSet<Long> revocados = new TreeSet<>(actuales);
+        revocados.removeAll(deseados);
+        TreeSet<Long> candidatos = new TreeSet<>(deseados);
+        candidatos.removeAll(actuales);
+        TreeSet<Long> agregados = new TreeSet<>(rolPermisoRepository.existentes(candidatos));
+
+        rolPermisoRepository.revocar(rolId, revocados);
+        rolPermisoRepository.conceder(rolId, agregados);
+
+        if (!agregados.isEmpty() || !revocados.isEmpty()) {
+            usuarioAutenticadoRegistro.rolModificado(rolId);
+            matrizPermisos.recompilarTrasCommit();
+            cacheSegundoNivelService.invalidarPermisosDeRoles(List.of(rolId));
+            versionTablas.modificada("role_has_permissions");
+        }
+
+        actuales.removeAll(revocados);
+        actuales.addAll(agregados);
+        RolPermisosDTO delta = new RolPermisosDTO();
+        delta.setId(rolId);
+        delta.setAgregados(new ArrayList<>(agregados));
+        delta.setRevocados(new ArrayList<>(revocados));
+        delta.setPermisos(new ArrayList<>(actuales));
+        return delta;
+    }
+
+    /**
+     * Aplica un lote de concesiones y revocaciones por módulo en una sola
+     * transacción: primero las revocaciones y después las concesiones, cada
+     * matriz con una sentencia por tabla. Repetir el lote no cambia nada.
+     */
+    @Transactional
+    @Loggable(model = "Rol", accion = "PERMISOS_MODULO")
+    public RolModuloPermisoResultadoDTO aplicarLote(RolModuloPermisoLoteDTO lote) {
+        List<RolModuloPermisoLoteDTO.Matriz> revocar = lote.getRevocar() != null ? lote.getRevocar() : List.of();
+        List<RolModuloPermisoLoteDTO.Matriz> conceder = lote.getConceder() != null ? lote.getConceder() : List.of();
+        Set<Long> roles = new TreeSet<>();
+        RolModuloPermisoResultadoDTO resultado = new RolModuloPermisoResultadoDTO();
+
+        for (RolModuloPermisoLoteDTO.Matriz matriz : revocar) {
+            List<String> acciones = acciones(matriz);
+            // role_has_permissions primero: sólo se revoca lo que cubrían las filas que se borran
+            resultado.setPermisosRevocados(resultado.getPermisosRevocados()
+                    + rolModuloPermisoRepository.revocarPermisos(matriz.getRoles(), matriz.getModulos(), acciones));
+            resultado.setRevocados(resultado.getRevocados()
+                    + rolModuloPermisoRepository.revocar(matriz.getRoles(), matriz.getModulos(), acciones));
+            roles.addAll(matriz.getRoles());
+        }
+        for (RolModuloPermisoLoteDTO.Matriz matriz : conceder) {
+            List<String> acciones = acciones(matriz);
+            resultado.setConcedidos(resultado.getConcedidos()
+                    + rolModuloPermisoRepository.conceder(matriz.getRoles(), matriz.getModulos(), acciones));
+            resultado.setPermisosConcedidos(resultado.getPermisosConcedidos()
+                    + rolModuloPermisoRepository.concederPermisos(matriz.getRoles(), matriz.getModulos(), acciones));
+            roles.addAll(matriz.getRoles());
+        }
+
+        if (resultado.getPermisosConcedidos() > 0 || resultado.getPermisosRevocados() > 0) {
+            roles.forEach(usuarioAutenticadoRegistro::rolModificado);
+            matrizPermisos.recompilarTrasCommit();
+            cacheSegundoNivelService.invalidarPermisosDeRoles(roles);
+            versionTablas.modificada("role_has_permissions");
+        }
+        if (resultado.getConcedidos() > 0 || resultado.getRevocados() > 0) {
+            versionTablas.modificada("rol_modulo_permiso");
+        }
+        return resultado;
+    }
+
+    /** Valida la matriz y devuelve sus acciones normalizadas, sin repetir. */
+    private static List<String> acciones(RolModuloPermisoLoteDTO.Matriz matriz) {
+        if (matriz.getRoles() == null || matriz.getRoles().isEmpty() || matriz.getModulos() == null
+                || matriz.getModulos().isEmpty()) {
+            throw new IllegalArgumentException("Cada matriz necesita al menos un rol y un módulo");
+        }
+        if (matriz.getAcciones() == null) {
+            return List.of();
+        }
+        Set<String> acciones = new LinkedHashSet<>();
+        for (String accion : matriz.getAcciones()) {
+            String normalizada = accion == null ? "" : accion.trim().toLowerCase(Locale.ROOT);
+            if (!ACCION.matcher(normalizada).matches()) {
+                throw new IllegalArgumentException("Acción no válida: " + accion);
+            }
+            acciones.add(normalizada);
+        }
+        return new ArrayList<>(acciones);
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.demo.service;
 
 import com.example.demo.annotation.Loggable;
+import com.example.demo.dto.RolPermisosDTO;
 import com.example.demo.dto.RoleDTO;
 import com.example.demo.mapper.RoleMapper;
 import com.example.demo.model.Role;
 import com.example.demo.repository.RoleRepository;
+import com.example.demo.security.MatrizPermisos;
+import com.example.demo.security.UsuarioAutenticadoRegistro;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,13 +20,18 @@ public class RoleService {
 
     private final RoleRepository roleRepository;
     private final RoleMapper roleMapper;
-    private final PermissionService permissionService;
+    private final RolPermisoService rolPermisoService;
+    private final UsuarioAutenticadoRegistro usuarioAutenticadoRegistro;
+    private final MatrizPermisos matrizPermisos;
 
     @Autowired
-    public RoleService(RoleRepository roleRepository, RoleMapper roleMapper, PermissionService permissionService) {
+    public RoleService(RoleRepository roleRepository, RoleMapper roleMapper, RolPermisoService rolPermisoService,
+            UsuarioAutenticadoRegistro usuarioAutenticadoRegistro, MatrizPermisos matrizPermisos) {
         this.roleRepository = roleRepository;
         this.roleMapper = roleMapper;
-        this.permissionService = permissionService;
+        this.rolPermisoService = rolPermisoService;
+        this.usuarioAutenticadoRegistro = usuarioAutenticadoRegistro;
+        this.matrizPermisos = matrizPermisos;
     }
 
     public List<RoleDTO> findAll() {
@@ -33,17 +42,37 @@ public class RoleService {
         return roleRepository.findById(id).map(roleMapper::toDTO);
     }
 
+    /**
+     * Guarda los datos del rol y, si vienen permisos, aplica sólo la diferencia
+     * con los actuales mediante {@link RolPermisoService}.
+     */
+    @Transactional
     @Loggable(model = "Rol", accion = "GUARDAR")
     public RoleDTO save(RoleDTO roleDTO) {
-        Role role = roleMapper.toEntity(roleDTO);
+        // Cargado sin la colección de permisos para que Hibernate no la reescriba
+        Role role = roleDTO.getId() != null
+                ? roleRepository.findSinPermisosById(roleDTO.getId()).orElseGet(Role::new)
+                : new Role();
+        roleMapper.updateEntity(roleDTO, role);
+        role = roleRepository.save(role);
+
+        RoleDTO saved;
         if (roleDTO.getPermisos() != null) {
-            role.setPermissions(permissionService.findAllById(roleDTO.getPermisos()));
+            RolPermisosDTO delta = rolPermisoService.sincronizar(role.getId(), roleDTO.getPermisos());
+            saved = roleMapper.toDTOSinPermisos(role);
+            saved.setPermisos(delta.getPermisos());
+        } else {
+            saved = roleMapper.toDTO(role);
         }
-        return roleMapper.toDTO(roleRepository.save(role));
+        usuarioAutenticadoRegistro.rolModificado(saved.getId());
+        matrizPermisos.recompilarTrasCommit();
+        return saved;
     }
 
     @Loggable(model = "Rol", accion = "ELIMINAR")
     public void deleteById(Long id) {
         roleRepository.deleteById(id);
+        usuarioAutenticadoRegistro.rolModificado(id);
+        matrizPermisos.recompilarTrasCommit();
     }
 }
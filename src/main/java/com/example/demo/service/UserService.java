@@ -1,34 +1,60 @@
 package com.example.demo.service;
 
 import com.example.demo.annotation.Loggable;
+import com.example.demo.dto.ListadoDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.dto.UserDTO;
 import com.example.demo.mapper.UserMapper;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.UsuarioAutenticadoRegistro;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class UserService {
 
+    private static final Listado<User> LISTADO = Listado.de(User.class, "users", Sort.by("name"))
+            .ordenable("id", "id")
+            .ordenable("nombre", "name")
+            .ordenable("email", "email")
+            .ordenable("created_at", "createdAt")
+            .filtrable("nombre", "name", Listado.Filtro.PREFIJO)
+            .filtrable("email", "email", Listado.Filtro.PREFIJO)
+            .filtrable("rol_id", "role.id", Listado.Filtro.IGUAL)
+            .busqueda("name", "email")
+            .cargar("role");
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final ListadoService listadoService;
     private final PasswordEncoder passwordEncoder;
+    private final UsuarioAutenticadoRegistro usuarioAutenticadoRegistro;
 
     @Autowired
-    public UserService(UserRepository userRepository, UserMapper userMapper, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, UserMapper userMapper, PasswordEncoder passwordEncoder,
+            UsuarioAutenticadoRegistro usuarioAutenticadoRegistro,
+            ListadoService listadoService) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
+        this.listadoService = listadoService;
         this.passwordEncoder = passwordEncoder;
+        this.usuarioAutenticadoRegistro = usuarioAutenticadoRegistro;
     }
 
     public List<UserDTO> findAll() {
         return userMapper.toDTOs(userRepository.findAll());
     }
 
+    public PaginaDTO<UserDTO> paginar(ListadoDTO peticion, Map<String, String> parametros) {
+        return listadoService.paginar(LISTADO, peticion, parametros, userMapper::toDTOs);
+    }
+
     public Optional<UserDTO> findById(Long id) {
         return userRepository.findById(id).map(userMapper::toDTO);
     }
@@ -39,14 +65,36 @@ public class UserService {
 
         if (userDTO.getPassword() != null && !userDTO.getPassword().isEmpty()) {
             user.setPassword(passwordEncoder.encode(userDTO.getPassword()));
+        } else if (user.getId() != null) {
+            // Sin contraseña en la petición se conserva la actual
+            user.setPassword(userRepository.findPasswordById(user.getId()).orElse(null));
         }
 
+        UserDTO saved = userMapper.toDTO(userRepository.save(user));
+        usuarioAutenticadoRegistro.usuarioModificado(saved.getId());
+        return saved;
+    }
+
+    /** Cambia la contraseña de un usuario ya cargado; {@code password} va en claro. */
+    @Loggable(model = "Usuario", accion = "GUARDAR", payload = Loggable.Payload.ID)
+    public UserDTO cambiarPassword(User user, String password) {
+        user.setPassword(passwordEncoder.encode(password));
         return userMapper.toDTO(userRepository.save(user));
     }
 
+    /** Baja lógica de un usuario ya cargado. */
+    @Loggable(model = "Usuario", accion = "ELIMINAR", payload = Loggable.Payload.ID)
+    public UserDTO desactivar(User user) {
+        user.setStatus(0);
+        UserDTO saved = userMapper.toDTO(userRepository.save(user));
+        usuarioAutenticadoRegistro.usuarioModificado(saved.getId());
+        return saved;
+    }
+
     @Loggable(model = "Usuario", accion = "ELIMINAR")
     public void deleteById(Long id) {
         userRepository.deleteById(id);
+        usuarioAutenticadoRegistro.usuarioModificado(id);
     }
 
     public Optional<UserDTO> findByEmail(String email) {
@@ -62,4 +110,8 @@ public class UserService {
     public Optional<User> findEntityByEmail(String email) {
         return userRepository.findByEmail(email);
     }
+
+    public Optional<User> findEntityById(Long id) {
+        return userRepository.findById(id);
+    }
 }
@@ -0,0 +1,200 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Número de versión por tabla, para los ETag de {@code @RespuestaCondicional}.
+ *
+ * Cada tabla es la región "tabla:" + nombre de {@link CacheVersiones}, así
+ * que la versión se comparte entre nodos y sobrevive a los reinicios. Las
+ * escrituras por JPA se detectan con los eventos de Hibernate (entidades y
+ * colecciones) y suben la versión al confirmarse la transacción; las que van
+ * por JDBC avisan con {@link #modificada}. Sube una vez por tabla y
+ * transacción aunque se escriban muchas filas.
+ */
+@Service
+public class VersionTablas implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private record Version(long numero, long instante) {
+    }
+
+    public static final String REGION = "tabla:";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheVersiones cacheVersiones;
+    private final long arranque = System.currentTimeMillis();
+    private final Map<String, Version> versiones = new ConcurrentHashMap<>();
+    /** Tablas escritas por cada sesión de Hibernate con transacción en curso. */
+    private final Map<EventSource, Set<String>> pendientes = new ConcurrentHashMap<>();
+    /** Tabla de cada entidad y de cada colección mapeada. */
+    private final Map<String, String> tablaEntidad = new HashMap<>();
+    private final Map<String, String> tablaColeccion = new HashMap<>();
+
+    public VersionTablas(EntityManagerFactory entityManagerFactory, CacheVersiones cacheVersiones) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheVersiones = cacheVersiones;
+    }
+
+    @PostConstruct
+    void registrar() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        sessionFactory.getMappingMetamodel().forEachEntityDescriptor(entidad -> {
+            if (entidad instanceof AbstractEntityPersister persister) {
+                tablaEntidad.put(persister.getEntityName(), normalizar(persister.getTableName()));
+            }
+        });
+        sessionFactory.getMappingMetamodel().forEachCollectionDescriptor(coleccion -> {
+            if (coleccion instanceof AbstractCollectionPersister persister) {
+                tablaColeccion.put(persister.getRole(), normalizar(persister.getTableName()));
+            }
+        });
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry()
+                .requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+
+        cacheVersiones.versiones(REGION).forEach(this::actualizar);
+        cacheVersiones.suscribir(REGION, this::actualizar);
+    }
+
+    /** ETag débil con la versión de cada tabla, en el orden recibido. */
+    public String etag(String... tablas) {
+        StringBuilder etag = new StringBuilder("W/\"v");
+        for (String tabla : tablas) {
+            Version version = versiones.get(tabla);
+            etag.append('-').append(version != null ? version.numero() : 0);
+        }
+        return etag.append('"').toString();
+    }
+
+    /** Última modificación conocida de las tablas; el arranque si no ha habido ninguna. */
+    public long ultimaModificacion(String... tablas) {
+        long ultima = arranque;
+        for (String tabla : tablas) {
+            Version version = versiones.get(tabla);
+            if (version != null) {
+                ultima = Math.max(ultima, version.instante());
+            }
+        }
+        return ultima;
+    }
+
+    /**
+     * Marca como modificada una tabla escrita fuera de Hibernate: la versión
+     * sube al confirmarse la transacción actual, o en el momento si no hay
+     * ninguna.
+     */
+    public void modificada(String tabla) {
+        cacheVersiones.invalidar(REGION + tabla);
+    }
+
+    private void actualizar(CacheVersiones.Cambio cambio) {
+        String tabla = cambio.region().substring(REGION.length());
+        versiones.merge(tabla, new Version(cambio.version(), cambio.instante()),
+                (anterior, nueva) -> nueva.numero() > anterior.numero() ? nueva : anterior);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        entidadModificada(event.getSession(), event.getPersister());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        entidadModificada(event.getSession(), event.getPersister());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        entidadModificada(event.getSession(), event.getPersister());
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        coleccionModificada(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        coleccionModificada(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        coleccionModificada(event);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void entidadModificada(EventSource sesion, EntityPersister persister) {
+        String tabla = tablaEntidad.get(persister.getEntityName());
+        if (tabla != null) {
+            modificada(sesion, tabla);
+        }
+    }
+
+    private void coleccionModificada(AbstractCollectionEvent event) {
+        String tabla = tablaColeccion.get(event.getCollection().getRole());
+        if (tabla != null) {
+            modificada(event.getSession(), tabla);
+        }
+    }
+
+    /**
+     * Las tablas se recogen desde la cola de acciones de la sesión y no con una
+     * sincronización de Spring: el flush de la confirmación ocurre después de
+     * beforeCommit y sus escrituras se perderían.
+     */
+    private void modificada(EventSource sesion, String tabla) {
+        pendientes.computeIfAbsent(sesion, s -> {
+            Set<String> regiones = ConcurrentHashMap.newKeySet();
+            s.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (exito, session) -> {
+                pendientes.remove(s);
+                if (exito) {
+                    cacheVersiones.confirmadas(regiones);
+                }
+            });
+            return regiones;
+        }).add(REGION + tabla);
+    }
+
+    private static String normalizar(String tabla) {
+        return tabla.replace("`", "").replace("\"", "").toLowerCase();
+    }
+}
@@ -0,0 +1,11 @@
+-- Rollups de auditoría por hora y por día para el dashboard. Se actualizan en
+-- lotes con INSERT ... ON DUPLICATE KEY UPDATE total = total + n.
+CREATE TABLE auditoria_resumen (
+    granularidad VARCHAR(4) NOT NULL,
+    periodo DATETIME NOT NULL,
+    model VARCHAR(100) NOT NULL,
+    accion VARCHAR(100) NOT NULL,
+    user_id BIGINT NOT NULL DEFAULT 0,
+    total BIGINT NOT NULL,
+    PRIMARY KEY (granularidad, periodo, model, accion, user_id)
+);
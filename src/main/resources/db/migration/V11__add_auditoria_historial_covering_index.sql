@@ -0,0 +1,7 @@
+-- Índice cubriente para el historial por registro (/api/auditoria/{model}/{id}/history):
+-- además del rango (model, model_id, created_at, id) incluye las columnas que
+-- devuelve la línea de tiempo, así que la página se lee sólo del índice.
+-- Sustituye a idx_auditoria_model_created (V6), que es un prefijo de éste.
+CREATE INDEX idx_auditoria_model_historial ON auditoria_logs (model, model_id, created_at, id, accion, user_id, formato, secuencia);
+
+DROP INDEX idx_auditoria_model_created ON auditoria_logs;
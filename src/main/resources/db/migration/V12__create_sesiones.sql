@@ -0,0 +1,21 @@
+-- Sesiones HTTP compartidas entre nodos (auth.sesion.almacen=JDBC). primary_id
+-- es fijo; session_id cambia al rotar el id tras el login.
+CREATE TABLE sesiones (
+    primary_id CHAR(36) NOT NULL,
+    session_id CHAR(36) NOT NULL,
+    creado BIGINT NOT NULL,
+    ultimo_acceso BIGINT NOT NULL,
+    max_inactivo INT NOT NULL,
+    expira BIGINT NOT NULL,
+    PRIMARY KEY (primary_id),
+    UNIQUE KEY uk_sesiones_session_id (session_id),
+    KEY idx_sesiones_expira (expira)
+);
+
+CREATE TABLE sesion_atributos (
+    sesion_primary_id CHAR(36) NOT NULL,
+    nombre VARCHAR(200) NOT NULL,
+    valor LONGBLOB NOT NULL,
+    PRIMARY KEY (sesion_primary_id, nombre),
+    CONSTRAINT fk_sesion_atributos_sesion FOREIGN KEY (sesion_primary_id) REFERENCES sesiones (primary_id)
+);
@@ -0,0 +1,19 @@
+-- Permisos concedidos a un rol por módulo. Hasta ahora la tabla sólo la creaba
+-- Hibernate (ddl-auto); la clave única hace idempotentes las concesiones en
+-- bloque (INSERT ... SELECT ... WHERE NOT EXISTS).
+CREATE TABLE IF NOT EXISTS rol_modulo_permiso (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    role_id BIGINT NOT NULL,
+    modulo_id BIGINT NOT NULL,
+    permission_id BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Si Hibernate ya la había creado pueden existir duplicados
+DELETE a FROM rol_modulo_permiso a
+JOIN rol_modulo_permiso b ON a.role_id = b.role_id AND a.modulo_id = b.modulo_id
+    AND a.permission_id = b.permission_id AND a.id > b.id;
+
+CREATE UNIQUE INDEX uk_rol_modulo_permiso ON rol_modulo_permiso (role_id, modulo_id, permission_id);
+CREATE INDEX idx_rol_modulo_permiso_modulo ON rol_modulo_permiso (modulo_id, permission_id);
@@ -0,0 +1,11 @@
+-- Bus de invalidación entre nodos: cada escritura sube la versión de las
+-- regiones que afecta en su misma transacción, y cada nodo consulta las filas
+-- cambiadas recientemente (idx_cache_versiones_actualizado) para desalojar
+-- sus cachés locales.
+CREATE TABLE cache_versiones (
+    region VARCHAR(150) NOT NULL,
+    version BIGINT NOT NULL,
+    actualizado TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (region),
+    KEY idx_cache_versiones_actualizado (actualizado)
+);
@@ -0,0 +1,37 @@
+-- Índices para los listados paginados (/api/clientes, /api/empresas, /api/users
+-- con ?page=): todas las consultas filtran por status = 1 y ordenan por el
+-- nombre, así que (status, nombre) sirve el ORDER BY ... LIMIT sin filesort y
+-- los filtros por prefijo del nombre. El id que desempata el orden va implícito
+-- en el índice secundario de InnoDB.
+-- status lo añade Hibernate (ddl-auto) en algunas bases, por eso cada índice se
+-- crea sólo si existen las columnas y aún no existe el índice.
+
+SET @sql = IF(
+    (SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = 'clientes' AND column_name IN ('status', 'nombre')) = 2
+    AND (SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'clientes' AND index_name = 'idx_clientes_status_nombre') = 0,
+    'CREATE INDEX idx_clientes_status_nombre ON clientes (status, nombre)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF(
+    (SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = 'empresas' AND column_name IN ('status', 'nombre')) = 2
+    AND (SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'empresas' AND index_name = 'idx_empresas_status_nombre') = 0,
+    'CREATE INDEX idx_empresas_status_nombre ON empresas (status, nombre)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF(
+    (SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name IN ('status', 'name')) = 2
+    AND (SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'users' AND index_name = 'idx_users_status_name') = 0,
+    'CREATE INDEX idx_users_status_name ON users (status, name)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
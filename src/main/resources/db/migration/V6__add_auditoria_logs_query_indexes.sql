@@ -0,0 +1,8 @@
+-- Índices para la consulta paginada por cursor de auditoria_logs.
+-- Todos terminan en (created_at, id) para que el filtro + ORDER BY + cursor
+-- se resuelvan con un rango sobre el índice, sin ordenar en memoria.
+CREATE INDEX idx_auditoria_created_id ON auditoria_logs (created_at, id);
+CREATE INDEX idx_auditoria_model_created ON auditoria_logs (model, model_id, created_at, id);
+CREATE INDEX idx_auditoria_user_created ON auditoria_logs (user_id, created_at, id);
+CREATE INDEX idx_auditoria_accion_created ON auditoria_logs (accion, created_at, id);
+CREATE INDEX idx_auditoria_ip_created ON auditoria_logs (ip, created_at, id);
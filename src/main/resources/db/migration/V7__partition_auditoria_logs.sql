@@ -0,0 +1,23 @@
+-- Particionado mensual de auditoria_logs por created_at.
+-- MySQL exige que la columna de partición forme parte de toda clave única
+-- (incluida la primaria) y no admite claves foráneas en tablas particionadas.
+ALTER TABLE auditoria_logs DROP FOREIGN KEY fk_auditoria_users;
+
+UPDATE auditoria_logs SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+ALTER TABLE auditoria_logs MODIFY created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+ALTER TABLE auditoria_logs DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at);
+
+-- Todo lo existente queda en p_historico (hasta el inicio del mes siguiente);
+-- p_futuro queda vacía y AuditoriaParticionService la divide en particiones
+-- mensuales por adelantado.
+SET @corte = DATE_FORMAT(CURRENT_DATE + INTERVAL 1 MONTH, '%Y-%m-01 00:00:00');
+SET @sql = CONCAT(
+    'ALTER TABLE auditoria_logs PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (',
+    'PARTITION p_historico VALUES LESS THAN (UNIX_TIMESTAMP(''', @corte, ''')), ',
+    'PARTITION p_futuro VALUES LESS THAN MAXVALUE)'
+);
+
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
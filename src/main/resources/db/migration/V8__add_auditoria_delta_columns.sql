@@ -0,0 +1,6 @@
+-- Almacenamiento por deltas de datos_nuevos: formato indica si la fila es un
+-- CHECKPOINT (estado completo) o un DELTA respecto a la versión anterior del
+-- mismo (model, model_id); secuencia es el número de versión de ese registro.
+ALTER TABLE auditoria_logs
+ADD COLUMN formato VARCHAR(16) NULL,
+    ADD COLUMN secuencia INT NULL;
@@ -0,0 +1,7 @@
+-- Identificador del evento en el journal local de auditoría (nodo:secuencia).
+-- Al reenviar el journal tras una caída se consultan estos ids para no
+-- insertar dos veces el mismo evento.
+ALTER TABLE auditoria_logs
+ADD COLUMN evento_id VARCHAR(40) NULL;
+
+CREATE INDEX idx_auditoria_logs_evento_id ON auditoria_logs (evento_id);
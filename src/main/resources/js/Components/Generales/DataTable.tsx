@@ -19,6 +19,8 @@ interface DataTableProps {
     expandableRowsComponent?: React.FC<any> | any;
     expandableRowExpanded?: ((row: any) => boolean) | any;
     isLoading?: boolean;
+    // Con paginación en el servidor, la búsqueda también se hace allí
+    onBuscar?: (valor: string | number) => void;
     [key: string]: any;
 }
 
@@ -30,6 +32,7 @@ const DataTablecustom: React.FC<DataTableProps> = ({
     expandableRowsComponent = null,
     expandableRowExpanded = null,
     isLoading = false,
+    onBuscar,
     ...otherProps
 }) => {
     const [filterValue, setFilterValue] = useState("");
@@ -49,6 +52,10 @@ const DataTablecustom: React.FC<DataTableProps> = ({
 
     const handleFilterChange = (searchValue) => {
         setFilterValue(searchValue);
+        if (onBuscar) {
+            onBuscar(searchValue);
+            return;
+        }
         if (!searchValue || searchValue.length === 0) {
             setFilteredData(datos);
             return;
@@ -139,7 +146,8 @@ const DataTablecustom: React.FC<DataTableProps> = ({
         const { reorder, ...safeProps } = col;
         return {
             ...safeProps,
-            sortable: !isLoading,
+            // Con orden en el servidor sólo se ordena por las columnas con sortField
+            sortable: !isLoading && (!otherProps.sortServer || !!col.sortField),
             center: true,
         };
     });
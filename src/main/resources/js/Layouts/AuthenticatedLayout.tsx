@@ -46,7 +46,8 @@ export default function Authenticated({ auth, user, children }: AuthenticatedPro
 
     const getConfiguracion = async () => {
         try {
-            const res = await axios.get("/api/configuracion");
+            // Servida desde memoria con ETag; el navegador revalida y recibe 304
+            const res = await axios.get("/api/configuracion/actual");
             // Logic mirrored from your working Index.jsx to ensure we get the right data
             const configDataRaw = Array.isArray(res.data) ? res.data[0] : (res.data.data ? res.data.data[0] : res.data);
             
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from "react";
+import React from "react";
 import ContainerApp from "@/Components/Generales/ContainerApp";
 import Authenticated from "@/Layouts/AuthenticatedLayout";
 import { Link, useNavigate } from "react-router-dom";
@@ -10,6 +10,7 @@ import { faPlus, faUserTie, faEdit, faTrash, faUsers } from "@fortawesome/free-s
 import Swal from "sweetalert2";
 import axios from "axios";
 import useAuth from "@/hooks/useAuth";
+import useListado from "@/hooks/useListado";
 
 interface Cliente {
     id: number;
@@ -17,26 +18,20 @@ interface Cliente {
 }
 
 const Index = () => {
-    const [clientes, setClientes] = useState<Cliente[]>([]);
-    const [loading, setLoading] = useState(true);
     const { user } = useAuth();
     const navigate = useNavigate();
-
-    useEffect(() => {
-        fetchClientes();
-    }, []);
-
-    const fetchClientes = async () => {
-        try {
-            const res = await axios.get("/api/clientes");
-            setClientes(res.data);
-        } catch (err) {
-            console.error("Error al cargar clientes:", err);
-            Swal.fire("Error", "No se pudieron cargar los clientes", "error");
-        } finally {
-            setLoading(false);
-        }
-    };
+    const {
+        datos: clientes,
+        total,
+        pagina,
+        ultimaPagina,
+        cargando: loading,
+        recargar: fetchClientes,
+        setPagina,
+    } = useListado<Cliente>("/api/clientes", {
+        porPagina: 20,
+        alFallar: () => Swal.fire("Error", "No se pudieron cargar los clientes", "error"),
+    });
 
     const eliminarCliente = (id: number) => {
         Swal.fire({
@@ -63,7 +58,7 @@ const Index = () => {
         });
     };
 
-    if (loading) return <div>Cargando...</div>;
+    if (loading && clientes.length === 0) return <div>Cargando...</div>;
 
     return (
         <Authenticated user={user}>
@@ -150,6 +145,22 @@ const Index = () => {
                         </tbody>
                     </table>
                 </div>
+
+                {ultimaPagina > 1 && (
+                    <div className="flex items-center justify-between mt-4 text-xs text-slate-500 dark:text-slate-400">
+                        <span>
+                            Página {pagina} de {ultimaPagina} · {total} clientes
+                        </span>
+                        <div className="flex gap-2">
+                            <SecondaryButton disabled={loading || pagina <= 1} onClick={() => setPagina(pagina - 1)}>
+                                Anterior
+                            </SecondaryButton>
+                            <SecondaryButton disabled={loading || pagina >= ultimaPagina} onClick={() => setPagina(pagina + 1)}>
+                                Siguiente
+                            </SecondaryButton>
+                        </div>
+                    </div>
+                )}
             </ContainerApp>
         </Authenticated>
     );
@@ -1,4 +1,4 @@
-import React, { useEffect, useState, useCallback } from "react";
+import React, { useState } from "react";
 import ContainerApp from "@/Components/Generales/ContainerApp";
 import Authenticated from "@/Layouts/AuthenticatedLayout";
 import DataTablecustom from "@/Components/Generales/DataTable";
@@ -8,37 +8,21 @@ import utc from "dayjs/plugin/utc";
 import localizedFormat from "dayjs/plugin/localizedFormat";
 import ModalCustom from "@/Components/Generales/ModalCustom";
 import Acciones from "./Acciones";
-import axios from "axios";
 import useAuth from "@/hooks/useAuth";
+import useListado from "@/hooks/useListado";
 
 dayjs.extend(utc);
 dayjs.extend(localizedFormat);
 
 const Index = () => {
     const { user } = useAuth();
-    const [empresas, setEmpresas] = useState([]);
-    const [loading, setLoading] = useState(true);
+    const { recargar: fetchEmpresas, propsTabla } = useListado("/api/empresas");
     const [showModal, setShowModal] = useState(false);
     const [contentModal, setContentModal] = useState(null);
     const [titulosModal, setTitulosModal] = useState(null);
 
     const isAuditor = user?.id_rol === 5;
 
-    const fetchEmpresas = useCallback(async () => {
-        try {
-            const response = await axios.get("/api/empresas");
-            setEmpresas(response.data);
-        } catch (error) {
-            console.error("Error fetching companies:", error);
-        } finally {
-            setLoading(false);
-        }
-    }, []);
-
-    useEffect(() => {
-        fetchEmpresas();
-    }, [fetchEmpresas]);
-
     const abrirModal = (titulo, contenido) => {
         setTitulosModal(titulo);
         setContentModal(contenido);
@@ -50,17 +34,20 @@ const Index = () => {
             name: "ID",
             selector: (row) => row.id,
             sortable: true,
+            sortField: "id",
             width: "80px",
         },
         {
             name: "Nombre",
             selector: (row) => row.nombre,
             sortable: true,
+            sortField: "nombre",
         },
         {
             name: "Razón Social",
             selector: (row) => row.razon_social,
             sortable: true,
+            sortField: "razon_social",
         },
         {
             name: "Tipo Persona",
@@ -92,6 +79,7 @@ const Index = () => {
             selector: (row) =>
                 dayjs.utc(row.created_at).format("DD/MM/YYYY h:mm:ss A"),
             sortable: true,
+            sortField: "createdAt",
         },
         {
             name: "Acciones",
@@ -133,8 +121,6 @@ const Index = () => {
         },
     ];
 
-    if (loading) return <div>Cargando...</div>;
-
     return (
         <Authenticated user={user}>
             <ContainerApp
@@ -156,7 +142,7 @@ const Index = () => {
                 </div>
 
                 <div className="mt-4">
-                    <DataTablecustom datos={empresas} columnas={columns} />
+                    <DataTablecustom columnas={columns} {...propsTabla} />
                 </div>
 
                 <ModalCustom show={showModal} onClose={() => setShowModal(false)} maxWidth="lg">
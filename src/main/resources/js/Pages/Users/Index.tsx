@@ -8,24 +8,17 @@ import { FontAwesomeIcon } from "@fortawesome/react-fontawesome";
 import { faPlus, faUsers, faUserShield, faExclamationTriangle, faEyeSlash, faLock, faUserPlus } from "@fortawesome/free-solid-svg-icons";
 import TblUsers from "./TblUsers";
 import useAuth from "@/hooks/useAuth";
+import useListado from "@/hooks/useListado";
 import PrimaryButton from "@/Components/PrimaryButton";
 import SecondaryButton from "@/Components/SecondaryButton";
 
 const Index = () => {
     const { user, rolNombre, hasModuleAccess, hasPermission } = useAuth();
-    const [users, setUsers] = useState([]);
     const [roles, setRoles] = useState([]);
     const [loading, setLoading] = useState(true);
     const [modalOpen, setModalOpen] = useState(false);
-
-    const fetchUsers = async () => {
-        try {
-            const response = await axios.get("/api/users");
-            setUsers(response.data);
-        } catch (error) {
-            console.error("Error fetching users:", error);
-        }
-    };
+    const puedeVer = hasModuleAccess('Users') && hasPermission('ver users');
+    const { recargar: fetchUsers, propsTabla } = useListado("/api/users", { activo: puedeVer });
 
     const getRoles = async () => {
         try {
@@ -38,13 +31,13 @@ const Index = () => {
 
     useEffect(() => {
         const loadData = async () => {
-            if (hasModuleAccess('Users') && hasPermission('ver users')) {
-                await Promise.all([fetchUsers(), getRoles()]);
+            if (puedeVer) {
+                await getRoles();
             }
             setLoading(false);
         };
         loadData();
-    }, [hasModuleAccess, hasPermission]);
+    }, [puedeVer]);
 
     const abrirModal = () => setModalOpen(true);
     const cerrarModal = () => setModalOpen(false);
@@ -141,7 +134,7 @@ const Index = () => {
 
                 <div className="mt-4">
                     <TblUsers
-                        users={users}
+                        listado={propsTabla}
                         roles={roles}
                         onRefresh={fetchUsers}
                         permisos={{
@@ -6,20 +6,17 @@
  * personalizado y modales para las acciones CRUD.
  * 
  * @param {Object} props - Propiedades del componente
- * @param {Array} props.users - Lista de usuarios a mostrar en la tabla
+ * @param {Object} props.listado - Página de usuarios y props de paginación de useListado
  * @param {Array} props.roles - Lista de roles disponibles para asignar
  */
 
-import { useState, useEffect } from "react";
+import { useState } from "react";
 import DataTablecustom from "@/Components/Generales/DataTable";
 import DropdownActions from "@/Components/Generales/DropdownActions"; // Importar nuevo componente
 import ModalCustom from "@/Components/Generales/ModalCustom";
 import Acciones from "./Acciones";
 
-const TblUsers = ({ users, roles, permisos, onRefresh }) => {
-    // Estado para manejar los usuarios filtrados (útil para futuras funcionalidades de búsqueda)
-    const [filteredUsers, setFilteredUsers] = useState(users);
-
+const TblUsers = ({ listado, roles, permisos, onRefresh }) => {
     // Permisos por defecto si no se pasan
     const permisosDefault = {
         editar: false,
@@ -27,14 +24,6 @@ const TblUsers = ({ users, roles, permisos, onRefresh }) => {
         ...permisos
     };
 
-    /**
-     * Hook useEffect para actualizar los usuarios filtrados cuando cambia la prop users
-     * Esto asegura que la tabla se actualice automáticamente cuando se modifiquen los datos
-     */
-    useEffect(() => {
-        setFilteredUsers(users);
-    }, [users]);
-
     // Estados para el manejo del modal de acciones
     const [showModal, setShowModal] = useState(false);      // Controla la visibilidad del modal
     const [contentModal, setContentModal] = useState(null); // Contenido dinámico del modal
@@ -70,13 +59,15 @@ const TblUsers = ({ users, roles, permisos, onRefresh }) => {
             name: "ID",
             selector: (row) => row.id,
             sortable: true,
+            sortField: "id",
             width: "80px"
         },
         // Columna para mostrar el nombre del usuario
         {
             name: "Nombre",
             selector: (row) => row.nombre,
-            sortable: true
+            sortable: true,
+            sortField: "nombre"
         },
         // Columna para mostrar el rol del usuario
         {
@@ -88,7 +79,8 @@ const TblUsers = ({ users, roles, permisos, onRefresh }) => {
         {
             name: "Correo electrónico",
             selector: (row) => row.email,
-            sortable: true
+            sortable: true,
+            sortField: "email"
         },
         // Columna de acciones con dropdown de opciones
         {
@@ -152,7 +144,7 @@ const TblUsers = ({ users, roles, permisos, onRefresh }) => {
     return (
         <>
             {/* DataTable personalizado que renderiza la tabla de usuarios */}
-            <DataTablecustom datos={users} columnas={columns} />
+            <DataTablecustom columnas={columns} {...listado} />
 
             {/* Modal reutilizable para mostrar formularios de edición/eliminación */}
             <ModalCustom show={showModal} onClose={() => setShowModal(false)} maxWidth="lg">
@@ -0,0 +1,126 @@
+/**
+ * Hook para listados paginados en el servidor
+ *
+ * Pide al endpoint la página actual con ?page, per_page, sort y q, y devuelve
+ * los datos junto con las props que necesita DataTablecustom para paginar,
+ * ordenar y buscar contra el servidor en lugar de cargar la lista completa.
+ *
+ * La búsqueda se aplica cuando el usuario deja de escribir (opción espera, en
+ * ms) y cada petición cancela la anterior, así que una respuesta lenta de una
+ * búsqueda vieja nunca pisa la de la actual.
+ */
+
+import { useState, useEffect, useCallback, useRef } from 'react';
+import axios from 'axios';
+
+export interface Pagina<T> {
+    data: T[];
+    page: number;
+    per_page: number;
+    total: number | null;
+    last_page: number | null;
+    has_more: boolean;
+}
+
+interface OpcionesListado {
+    porPagina?: number;
+    activo?: boolean;
+    espera?: number;
+    alFallar?: (error: unknown) => void;
+}
+
+export default function useListado<T>(url: string, { porPagina: inicial = 10, activo = true, espera = 300, alFallar }: OpcionesListado = {}) {
+    const [pagina, setPagina] = useState(1);
+    const [porPagina, setPorPagina] = useState(inicial);
+    const [orden, setOrden] = useState<string | undefined>();
+    const [busqueda, setBusqueda] = useState('');
+    const [busquedaAplicada, setBusquedaAplicada] = useState('');
+    const [datos, setDatos] = useState<T[]>([]);
+    const [total, setTotal] = useState(0);
+    const [ultimaPagina, setUltimaPagina] = useState(1);
+    const [cargando, setCargando] = useState(true);
+    const peticion = useRef<AbortController | null>(null);
+
+    const recargar = useCallback(async () => {
+        peticion.current?.abort();
+        if (!activo) {
+            setCargando(false);
+            return;
+        }
+        const controlador = new AbortController();
+        peticion.current = controlador;
+        setCargando(true);
+        try {
+            const { data } = await axios.get<Pagina<T>>(url, {
+                params: { page: pagina, per_page: porPagina, sort: orden, q: busquedaAplicada || undefined },
+                signal: controlador.signal,
+            });
+            setDatos(data.data);
+            setTotal(data.total ?? 0);
+            setUltimaPagina(data.last_page ?? 1);
+        } catch (error) {
+            // Cancelada por una petición más reciente, que es la que manda
+            if (axios.isCancel(error)) return;
+            console.error(`Error al cargar ${url}:`, error);
+            alFallar?.(error);
+        } finally {
+            if (peticion.current === controlador) {
+                setCargando(false);
+            }
+        }
+    }, [url, activo, pagina, porPagina, orden, busquedaAplicada]);
+
+    useEffect(() => {
+        recargar();
+    }, [recargar]);
+
+    useEffect(() => () => peticion.current?.abort(), []);
+
+    // La página vuelve a 1 junto con la búsqueda aplicada, en una sola petición
+    useEffect(() => {
+        if (busqueda === busquedaAplicada) return;
+        const temporizador = setTimeout(() => {
+            setBusquedaAplicada(busqueda);
+            setPagina(1);
+        }, espera);
+        return () => clearTimeout(temporizador);
+    }, [busqueda, busquedaAplicada, espera]);
+
+    const cambiarPorPagina = (nuevo: number) => {
+        setPorPagina(nuevo);
+        setPagina(1);
+    };
+
+    // sortField de la columna = parámetro ordenable del listado en el backend
+    const ordenar = (columna: { sortField?: string }, direccion: 'asc' | 'desc') => {
+        if (!columna.sortField) return;
+        setOrden(direccion === 'desc' ? `-${columna.sortField}` : columna.sortField);
+        setPagina(1);
+    };
+
+    const buscar = (valor: string | number) => {
+        setBusqueda(String(valor));
+    };
+
+    return {
+        datos,
+        total,
+        pagina,
+        ultimaPagina,
+        cargando,
+        recargar,
+        setPagina,
+        propsTabla: {
+            datos,
+            isLoading: cargando,
+            paginationServer: true,
+            paginationTotalRows: total,
+            paginationPerPage: porPagina,
+            onChangePage: setPagina,
+            onChangeRowsPerPage: cambiarPorPagina,
+            sortServer: true,
+            onSort: ordenar,
+            onBuscar: buscar,
+        },
+    };
+}
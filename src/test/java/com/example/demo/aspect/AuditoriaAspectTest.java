@@ -0,0 +1,56 @@
+package com.example.demo.aspect;
+
+import com.example.demo.service.AuditoriaEvento;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditoriaAspectTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static int bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Test
+    void unPayloadQueCabeNoSeToca() throws Exception {
+        String json = objectMapper.writeValueAsString(Map.of("nombre", "Peña"));
+
+        assertThat(AuditoriaEvento.truncar(objectMapper, json, 100)).isEqualTo(json);
+    }
+
+    @Test
+    void elRecorteCabeEnLaColumnaAunqueHayaQueEscapar() throws Exception {
+        // Comillas, barras y caracteres de varios bytes: el escapado dentro de
+        // _inicio y UTF-8 hacen que el texto ocupe más que sus caracteres.
+        String valor = "\"\\ñ€😀\n".repeat(20_000);
+        String json = objectMapper.writeValueAsString(List.of(Map.of("nota", valor)));
+
+        String resultado = AuditoriaEvento.truncar(objectMapper, json, Integer.MAX_VALUE);
+
+        assertThat(bytes(resultado)).isLessThanOrEqualTo(AuditoriaEvento.MAX_TEXT)
+                .isGreaterThan(AuditoriaEvento.MAX_TEXT - 8);
+        JsonNode truncado = objectMapper.readTree(resultado);
+        assertThat(truncado.get(AuditoriaEvento.TRUNCADO).asBoolean()).isTrue();
+        assertThat(truncado.get("_longitud").asInt()).isEqualTo(bytes(json));
+        assertThat(json).startsWith(truncado.get("_inicio").asText());
+    }
+
+    @Test
+    void elLimiteSeMideEnBytes() throws Exception {
+        String json = objectMapper.writeValueAsString(Map.of("nombre", "ñ".repeat(60)));
+
+        String resultado = AuditoriaEvento.truncar(objectMapper, json, 100);
+
+        assertThat(json.length()).isLessThanOrEqualTo(100);
+        assertThat(bytes(resultado)).isLessThanOrEqualTo(100);
+        assertThat(objectMapper.readTree(resultado).has(AuditoriaEvento.TRUNCADO)).isTrue();
+    }
+}
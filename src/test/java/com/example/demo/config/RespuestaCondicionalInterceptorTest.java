@@ -0,0 +1,111 @@
+package com.example.demo.config;
+
+import com.example.demo.annotation.RespuestaCondicional;
+import com.example.demo.service.VersionTablas;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RespuestaCondicionalInterceptorTest {
+
+    static class Controlador {
+        @RespuestaCondicional({ "clientes", "empresas" })
+        public void listar() {
+        }
+
+        @RespuestaCondicional(value = "roles", maxAge = 60)
+        public void roles() {
+        }
+
+        public void sinAnotar() {
+        }
+    }
+
+    private static final String ETAG = "W/\"v-4-2\"";
+
+    private final VersionTablas versionTablas = mock(VersionTablas.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RespuestaCondicionalInterceptor interceptor;
+
+    @BeforeEach
+    void crear() {
+        when(versionTablas.etag("clientes", "empresas")).thenReturn(ETAG);
+        when(versionTablas.ultimaModificacion("clientes", "empresas")).thenReturn(1_700_000_000_000L);
+        when(versionTablas.etag("roles")).thenReturn("W/\"v-1\"");
+        interceptor = new RespuestaCondicionalInterceptor(versionTablas, meterRegistry);
+    }
+
+    private static HandlerMethod handler(String metodo) throws NoSuchMethodException {
+        return new HandlerMethod(new Controlador(), Controlador.class.getMethod(metodo));
+    }
+
+    private double noModificadas() {
+        return meterRegistry.counter("http.condicional.no_modificadas").count();
+    }
+
+    @Test
+    void sinVersionDelClienteSigueYPoneLasCabeceras() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(new MockHttpServletRequest("GET", "/api/clientes"), response,
+                handler("listar"))).isTrue();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache, private");
+        assertThat(response.getDateHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(1_700_000_000_000L);
+    }
+
+    @Test
+    void conLaMismaVersionResponde304() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/clientes");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, handler("listar"))).isFalse();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache, private");
+        assertThat(noModificadas()).isEqualTo(1);
+    }
+
+    @Test
+    void conOtraVersionSigue() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/clientes");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"v-3-2\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, handler("listar"))).isTrue();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(noModificadas()).isZero();
+    }
+
+    @Test
+    void maxAgePermiteReutilizarSinRevalidar() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(new MockHttpServletRequest("GET", "/api/roles"), response, handler("roles"));
+
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=60, private");
+    }
+
+    @Test
+    void noAplicaAMetodosSinAnotarNiAEscrituras() throws Exception {
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/api/otros");
+        get.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(get, response, handler("sinAnotar"))).isTrue();
+        assertThat(response.getHeaderNames()).isEmpty();
+
+        MockHttpServletRequest put = new MockHttpServletRequest("PUT", "/api/clientes");
+        put.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+        response = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(put, response, handler("listar"))).isTrue();
+        assertThat(response.getHeaderNames()).isEmpty();
+    }
+}
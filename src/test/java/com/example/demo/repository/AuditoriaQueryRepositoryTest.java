@@ -0,0 +1,88 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.AuditoriaFiltroDTO;
+import com.example.demo.dto.AuditoriaLogDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditoriaQueryRepositoryTest {
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbcTemplate;
+    private AuditoriaQueryRepository repository;
+
+    @BeforeEach
+    void crear() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(255), email VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE auditoria_logs (id BIGINT PRIMARY KEY, user_id BIGINT, model VARCHAR(255), "
+                + "model_id BIGINT, accion VARCHAR(255), datos_anteriores TEXT, datos_nuevos TEXT, ip VARCHAR(255), "
+                + "user_agent VARCHAR(255), url VARCHAR(255), observaciones TEXT, formato VARCHAR(16), "
+                + "secuencia INT, created_at TIMESTAMP)");
+        // Varias filas por instante para que el cursor tenga que desempatar por id
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+        jdbcTemplate.batchUpdate("INSERT INTO auditoria_logs (id, model, accion, created_at) VALUES (?, ?, ?, ?)",
+                LongStream.rangeClosed(1, 50).mapToObj(id -> new Object[] { id, id % 2 == 0 ? "Cliente" : "Empresa",
+                        "CREAR", Timestamp.valueOf(base.plusSeconds((50 - id) / 4)) }).toList());
+        repository = new AuditoriaQueryRepository(new NamedParameterJdbcTemplate(db), db, 7, 5);
+    }
+
+    @AfterEach
+    void cerrar() {
+        db.shutdown();
+    }
+
+    @Test
+    void recorrerEntregaTodoEnOrdenPorBloques() {
+        List<Integer> bloques = new ArrayList<>();
+        List<AuditoriaLogDTO> filas = new ArrayList<>();
+        repository.recorrer(new AuditoriaFiltroDTO(), bloque -> {
+            bloques.add(bloque.size());
+            filas.addAll(bloque);
+        });
+
+        assertThat(filas).hasSize(50);
+        assertThat(filas.stream().map(AuditoriaLogDTO::getId).distinct()).hasSize(50);
+        assertThat(bloques).allMatch(tamano -> tamano <= 7);
+        for (int i = 1; i < filas.size(); i++) {
+            AuditoriaLogDTO anterior = filas.get(i - 1);
+            AuditoriaLogDTO actual = filas.get(i);
+            assertThat(actual.getCreated_at().isAfter(anterior.getCreated_at())
+                    || actual.getCreated_at().equals(anterior.getCreated_at()) && actual.getId() > anterior.getId())
+                    .isTrue();
+        }
+    }
+
+    @Test
+    void recorrerAplicaElFiltroEnCadaBloque() {
+        AuditoriaFiltroDTO filtro = new AuditoriaFiltroDTO();
+        filtro.setModel("Cliente");
+        List<AuditoriaLogDTO> filas = new ArrayList<>();
+        repository.recorrer(filtro, filas::addAll);
+
+        assertThat(filas).hasSize(25).allMatch(fila -> "Cliente".equals(fila.getModel()));
+    }
+
+    @Test
+    void recorrerTextosLeeElRangoPorBloques() {
+        List<Long> ids = new ArrayList<>();
+        repository.recorrerTextos(10, 45, rs -> ids.add(rs.getLong("id")));
+
+        assertThat(ids).containsExactlyElementsOf(LongStream.rangeClosed(11, 45).boxed().toList());
+    }
+}
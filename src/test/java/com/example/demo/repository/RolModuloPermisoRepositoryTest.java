@@ -0,0 +1,113 @@
+package com.example.demo.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RolModuloPermisoRepositoryTest {
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbcTemplate;
+    private RolModuloPermisoRepository repository;
+
+    @BeforeEach
+    void crear() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute("CREATE TABLE roles (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE permissions (id BIGINT PRIMARY KEY, name VARCHAR(255), modulo_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE role_has_permissions (role_id BIGINT, permission_id BIGINT, "
+                + "PRIMARY KEY (role_id, permission_id))");
+        jdbcTemplate.execute("CREATE TABLE rol_modulo_permiso (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "role_id BIGINT, modulo_id BIGINT, permission_id BIGINT, created_at TIMESTAMP, "
+                + "updated_at TIMESTAMP, UNIQUE (role_id, modulo_id, permission_id))");
+        jdbcTemplate.update("INSERT INTO roles VALUES (1, 'admin'), (2, 'ventas')");
+        // Módulo 10 = clientes, 20 = empresas
+        jdbcTemplate.update("INSERT INTO permissions VALUES (1, 'ver clientes', 10), (2, 'editar clientes', 10), "
+                + "(3, 'ver empresas', 20), (4, 'editar empresas', 20)");
+        repository = new RolModuloPermisoRepository(new NamedParameterJdbcTemplate(db));
+    }
+
+    @AfterEach
+    void cerrar() {
+        db.shutdown();
+    }
+
+    private List<Long> permisos(long rol) {
+        return jdbcTemplate.queryForList("SELECT permission_id FROM role_has_permissions WHERE role_id = ? "
+                + "ORDER BY permission_id", Long.class, rol);
+    }
+
+    @Test
+    void revocarUnModuloConservaLosPermisosDirectos() {
+        // "editar clientes" se asignó directamente al rol, fuera de la matriz por módulo
+        jdbcTemplate.update("INSERT INTO role_has_permissions VALUES (2, 2)");
+        repository.conceder(List.of(2L), List.of(10L), List.of("ver"));
+        repository.concederPermisos(List.of(2L), List.of(10L), List.of("ver"));
+        assertThat(permisos(2)).containsExactly(1L, 2L);
+
+        assertThat(repository.revocarPermisos(List.of(2L), List.of(10L), List.of())).isEqualTo(1);
+        assertThat(repository.revocar(List.of(2L), List.of(10L), List.of())).isEqualTo(1);
+
+        assertThat(permisos(2)).containsExactly(2L);
+    }
+
+    @Test
+    void unPermisoQueOtroModuloSigueCubriendoNoSeRevoca() {
+        jdbcTemplate.update("INSERT INTO role_has_permissions VALUES (1, 1)");
+        // El mismo permiso concedido también desde el módulo 30
+        jdbcTemplate.update("INSERT INTO rol_modulo_permiso (role_id, modulo_id, permission_id) "
+                + "VALUES (1, 10, 1), (1, 30, 1)");
+
+        assertThat(repository.revocarPermisos(List.of(1L), List.of(10L), List.of())).isZero();
+        assertThat(repository.revocar(List.of(1L), List.of(10L), List.of())).isEqualTo(1);
+        assertThat(permisos(1)).containsExactly(1L);
+
+        jdbcTemplate.update("UPDATE rol_modulo_permiso SET modulo_id = 10");
+        assertThat(repository.revocarPermisos(List.of(1L), List.of(10L), List.of())).isEqualTo(1);
+        assertThat(permisos(1)).isEmpty();
+    }
+
+    @Test
+    void revocarFiltraPorAccion() {
+        repository.conceder(List.of(1L, 2L), List.of(10L, 20L), List.of());
+        repository.concederPermisos(List.of(1L, 2L), List.of(10L, 20L), List.of());
+
+        assertThat(repository.revocarPermisos(List.of(1L), List.of(10L, 20L), List.of("editar"))).isEqualTo(2);
+        assertThat(repository.revocar(List.of(1L), List.of(10L, 20L), List.of("editar"))).isEqualTo(2);
+
+        assertThat(permisos(1)).containsExactly(1L, 3L);
+        assertThat(permisos(2)).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void concederEsIdempotenteYRespetaLoExistente() {
+        // "ver empresas" ya estaba asignado directamente al rol 1
+        jdbcTemplate.update("INSERT INTO role_has_permissions VALUES (1, 3)");
+
+        assertThat(repository.conceder(List.of(1L, 2L), List.of(10L, 20L), List.of("ver"))).isEqualTo(4);
+        assertThat(repository.concederPermisos(List.of(1L, 2L), List.of(10L, 20L), List.of("ver"))).isEqualTo(3);
+        assertThat(permisos(1)).containsExactly(1L, 3L);
+        assertThat(permisos(2)).containsExactly(1L, 3L);
+
+        // Repetir el lote no inserta nada
+        assertThat(repository.conceder(List.of(1L, 2L), List.of(10L, 20L), List.of("ver"))).isZero();
+        assertThat(repository.concederPermisos(List.of(1L, 2L), List.of(10L, 20L), List.of("ver"))).isZero();
+
+        // Sin acciones se concede todo el módulo; un rol inexistente no genera filas
+        assertThat(repository.conceder(List.of(1L, 99L), List.of(10L), List.of())).isEqualTo(1);
+        assertThat(repository.concederPermisos(List.of(1L, 99L), List.of(10L), List.of())).isEqualTo(1);
+        assertThat(permisos(1)).containsExactly(1L, 2L, 3L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rol_modulo_permiso", Integer.class))
+                .isEqualTo(5);
+    }
+}
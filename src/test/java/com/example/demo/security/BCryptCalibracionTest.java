@@ -0,0 +1,40 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BCryptCalibracionTest {
+
+    @Test
+    void soloSeReHasheaPorDebajoDelMinimoComun() {
+        // Dos nodos calibrados con costes distintos y el mismo mínimo
+        BCryptCalibracion.Encoder rapido = new BCryptCalibracion.Encoder(5, 5);
+        BCryptCalibracion.Encoder lento = new BCryptCalibracion.Encoder(6, 5);
+
+        String deRapido = rapido.encode("secreto");
+        String deLento = lento.encode("secreto");
+
+        assertThat(rapido.upgradeEncoding(deLento)).isFalse();
+        assertThat(lento.upgradeEncoding(deRapido)).isFalse();
+        assertThat(lento.upgradeEncoding(BCrypt.hashpw("secreto", BCrypt.gensalt(4)))).isTrue();
+    }
+
+    @Test
+    void elCosteNuncaBajaDelMinimo() {
+        BCryptCalibracion.Encoder encoder = new BCryptCalibracion.Encoder(4, 5);
+
+        assertThat(BCryptCalibracion.coste(encoder.encode("secreto"))).isEqualTo(5);
+    }
+
+    @Test
+    void leeElCosteConYSinPrefijo() {
+        String hash = BCrypt.hashpw("secreto", BCrypt.gensalt(4));
+
+        assertThat(BCryptCalibracion.coste(hash)).isEqualTo(4);
+        assertThat(BCryptCalibracion.coste("{bcrypt}" + hash)).isEqualTo(4);
+        assertThat(BCryptCalibracion.coste("{noop}secreto")).isEqualTo(-1);
+        assertThat(BCryptCalibracion.coste(null)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginThrottleTest {
+
+    private static final int MAX_FALLOS_EMAIL = 5;
+    private static final int MAX_FALLOS_IP = 20;
+
+    private static LoginThrottle throttle(int maxClaves) {
+        return new LoginThrottle(new SimpleMeterRegistry(), maxClaves, MAX_FALLOS_EMAIL, MAX_FALLOS_IP, 300);
+    }
+
+    /** Lanza los intentos a la vez desde varios hilos y cuenta los que llegan a verificarse. */
+    private static int reservasConcurrentes(LoginThrottle throttle, int intentos, IntFunction<String[]> origen)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            CountDownLatch salida = new CountDownLatch(1);
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (int i = 0; i < intentos; i++) {
+                String[] emailIp = origen.apply(i);
+                resultados.add(pool.submit(() -> {
+                    salida.await();
+                    return throttle.reservar(emailIp[0], emailIp[1]) == 0;
+                }));
+            }
+            salida.countDown();
+            int permitidos = 0;
+            for (Future<Boolean> resultado : resultados) {
+                if (resultado.get()) {
+                    permitidos++;
+                }
+            }
+            return permitidos;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void intentosConcurrentesNoPasanDelLimitePorEmail() throws Exception {
+        LoginThrottle throttle = throttle(10_000);
+
+        int permitidos = reservasConcurrentes(throttle, 500,
+                i -> new String[] { "victima@example.com", "10.0." + (i >> 8) + "." + (i & 255) });
+
+        assertThat(permitidos).isEqualTo(MAX_FALLOS_EMAIL);
+    }
+
+    @Test
+    void unOrigenRotandoEmailsLoFrenaElLimitePorIp() throws Exception {
+        LoginThrottle throttle = throttle(10_000);
+
+        int permitidos = reservasConcurrentes(throttle, 1000,
+                i -> new String[] { "rotacion" + i + "@example.com", "192.0.2.1" });
+
+        assertThat(permitidos).isEqualTo(MAX_FALLOS_IP);
+        assertThat(throttle.reservar("otro@example.com", "192.0.2.1")).isPositive();
+    }
+
+    @Test
+    void unLoginCorrectoDevuelveSuReserva() {
+        LoginThrottle throttle = throttle(10_000);
+        for (int i = 0; i < MAX_FALLOS_EMAIL - 1; i++) {
+            assertThat(throttle.reservar("usuario@example.com", "192.0.2.1")).isZero();
+        }
+        assertThat(throttle.reservar("usuario@example.com", "192.0.2.1")).isZero();
+        throttle.registrarExito("usuario@example.com", "192.0.2.1");
+
+        // El email vuelve a empezar y la IP sólo conserva los cuatro fallos
+        for (int i = 0; i < MAX_FALLOS_EMAIL; i++) {
+            assertThat(throttle.reservar("usuario@example.com", "192.0.2.1")).isZero();
+        }
+        assertThat(throttle.reservar("usuario@example.com", "192.0.2.1")).isPositive();
+        for (int i = 0; i < MAX_FALLOS_IP - 2 * MAX_FALLOS_EMAIL + 1; i++) {
+            assertThat(throttle.reservar("otro" + i + "@example.com", "192.0.2.1")).isZero();
+        }
+        assertThat(throttle.reservar("ultimo@example.com", "192.0.2.1")).isPositive();
+    }
+
+    @Test
+    void liberarNoCuentaElIntentoComoFallo() {
+        LoginThrottle throttle = throttle(10_000);
+        for (int i = 0; i < 3 * MAX_FALLOS_EMAIL; i++) {
+            assertThat(throttle.reservar("usuario@example.com", "192.0.2.1")).isZero();
+            throttle.liberar("usuario@example.com", "192.0.2.1");
+        }
+        assertThat(throttle.claves()).isZero();
+    }
+
+    @Test
+    void laMemoriaQuedaAcotadaConMuchosAtacantes() {
+        int maxClaves = 5_000;
+        LoginThrottle throttle = throttle(maxClaves);
+        LongAdder verificaciones = new LongAdder();
+
+        // Cada atacante (email + IP distintos) insiste hasta quedar bloqueado
+        IntStream.range(0, 50_000).parallel().forEach(i -> {
+            String email = "atacante" + i + "@example.com";
+            String ip = "10." + ((i >> 16) & 255) + "." + ((i >> 8) & 255) + "." + (i & 255);
+            for (int intento = 0; intento < MAX_FALLOS_EMAIL + 3; intento++) {
+                if (throttle.reservar(email, ip) == 0) {
+                    verificaciones.increment();
+                }
+            }
+        });
+
+        assertThat(verificaciones.sum()).isEqualTo(50_000L * MAX_FALLOS_EMAIL);
+        assertThat(throttle.claves()).isLessThanOrEqualTo(maxClaves);
+    }
+}
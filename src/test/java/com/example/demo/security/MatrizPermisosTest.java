@@ -0,0 +1,74 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.service.CacheVersiones;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MatrizPermisosTest {
+
+    private final PermissionRepository permissionRepository = mock(PermissionRepository.class);
+    private final RoleRepository roleRepository = mock(RoleRepository.class);
+    private final List<Object[]> rolePermissions = new ArrayList<>();
+    private MatrizPermisos matriz;
+
+    @BeforeEach
+    void crear() {
+        // Ids dispersos: el ordinal es denso pero permisos() devuelve ids
+        when(permissionRepository.findIdsAndNames()).thenReturn(List.of(
+                new Object[] { 3L, "ver clientes" },
+                new Object[] { 70L, "editar clientes" },
+                new Object[] { 900L, "ver clientes" }));
+        when(roleRepository.findRolePermissionIds()).thenAnswer(i -> List.copyOf(rolePermissions));
+        rolePermissions.add(new Object[] { 1L, 3L });
+        rolePermissions.add(new Object[] { 1L, 70L });
+        rolePermissions.add(new Object[] { 2L, 900L });
+        // Un permiso que ya no existe se ignora
+        rolePermissions.add(new Object[] { 2L, 12345L });
+        matriz = new MatrizPermisos(permissionRepository, roleRepository, mock(CacheVersiones.class));
+    }
+
+    @Test
+    void compruebaPermisosPorRol() {
+        assertThat(matriz.permite(1L, "ver clientes")).isTrue();
+        assertThat(matriz.permite(1L, "editar clientes")).isTrue();
+        assertThat(matriz.permite(3L, "ver clientes")).isFalse();
+        assertThat(matriz.permite(null, "ver clientes")).isFalse();
+        assertThat(matriz.permite(1L, "borrar clientes")).isFalse();
+        assertThat(matriz.existe("editar clientes")).isTrue();
+        assertThat(matriz.existe("borrar clientes")).isFalse();
+    }
+
+    @Test
+    void conNombresRepetidosCuentaElDeMenorId() {
+        // El rol 2 sólo tiene el duplicado con id 900
+        assertThat(matriz.permite(2L, "ver clientes")).isFalse();
+        assertThat(matriz.permisos(2L).stream()).containsExactly(900);
+    }
+
+    @Test
+    void permisosDevuelveIdsDePermiso() {
+        assertThat(matriz.permisos(1L).stream()).containsExactly(3, 70);
+        assertThat(matriz.permisos(3L).isEmpty()).isTrue();
+        assertThat(matriz.permisos(null).isEmpty()).isTrue();
+    }
+
+    @Test
+    void recompilarSustituyeLaMatriz() {
+        assertThat(matriz.permite(1L, "editar clientes")).isTrue();
+        rolePermissions.remove(1);
+
+        assertThat(matriz.permite(1L, "editar clientes")).isTrue();
+        matriz.recompilar();
+        assertThat(matriz.permite(1L, "editar clientes")).isFalse();
+        assertThat(matriz.permite(1L, "ver clientes")).isTrue();
+    }
+}
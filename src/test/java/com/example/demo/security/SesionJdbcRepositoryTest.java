@@ -0,0 +1,94 @@
+package com.example.demo.security;
+
+import com.example.demo.service.CacheVersiones;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.Driver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SesionJdbcRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void crear() {
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(UsuarioAutenticadoRegistroTest.TABLA);
+        jdbcTemplate.execute("CREATE TABLE sesiones (primary_id CHAR(36) NOT NULL PRIMARY KEY, "
+                + "session_id CHAR(36) NOT NULL UNIQUE, creado BIGINT NOT NULL, ultimo_acceso BIGINT NOT NULL, "
+                + "max_inactivo INT NOT NULL, expira BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE sesion_atributos (sesion_primary_id CHAR(36) NOT NULL, "
+                + "nombre VARCHAR(200) NOT NULL, valor LONGBLOB NOT NULL, PRIMARY KEY (sesion_primary_id, nombre), "
+                + "CONSTRAINT fk_sesion_atributos_sesion FOREIGN KEY (sesion_primary_id) "
+                + "REFERENCES sesiones (primary_id))");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void cerrar() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    /** Almacén y bus de versiones de un nodo, con una caché que no caduca durante el test. */
+    private record Nodo(CacheVersiones versiones, SesionJdbcRepository sesiones) {
+    }
+
+    private Nodo nodo() {
+        CacheVersiones versiones = new CacheVersiones(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate),
+                transactionTemplate, 30, new SimpleMeterRegistry());
+        SesionJdbcRepository sesiones = new SesionJdbcRepository(jdbcTemplate, transactionTemplate, versiones,
+                getClass().getClassLoader(), Duration.ofMinutes(30), 60_000, 100, Duration.ofSeconds(60), 500);
+        sesiones.suscribir();
+        return new Nodo(versiones, sesiones);
+    }
+
+    private String guardada(Nodo nodo) {
+        SesionJdbc sesion = nodo.sesiones().createSession();
+        sesion.setAttribute("usuario", 7L);
+        nodo.sesiones().save(sesion);
+        return sesion.getId();
+    }
+
+    @Test
+    void guardarUnaSesionQueOtroNodoBorroNoLaResucita() {
+        Nodo a = nodo();
+        Nodo b = nodo();
+        String id = guardada(a);
+        SesionJdbc enB = b.sesiones().findById(id);
+
+        a.sesiones().deleteById(id);
+        enB.setAttribute("filtro", "activos");
+        b.sesiones().save(enB);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sesion_atributos", Integer.class)).isZero();
+        assertThat(b.sesiones().findById(id)).isNull();
+    }
+
+    @Test
+    void unLogoutSeVeEnLosDemasNodosSinEsperarALaCache() {
+        Nodo a = nodo();
+        Nodo b = nodo();
+        String id = guardada(a);
+        assertThat(b.sesiones().findById(id)).isNotNull();
+
+        a.sesiones().deleteById(id);
+        assertThat(b.sesiones().findById(id)).isNotNull();
+        b.versiones().sondear();
+
+        assertThat(b.sesiones().findById(id)).isNull();
+    }
+}
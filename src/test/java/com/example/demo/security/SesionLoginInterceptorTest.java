@@ -0,0 +1,72 @@
+package com.example.demo.security;
+
+import com.example.demo.dto.LoginRespuesta;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SesionLoginInterceptorTest {
+
+    private final SesionLoginInterceptor interceptor = new SesionLoginInterceptor();
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @AfterEach
+    void limpiar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /** Simula que el pool de login completó la petición y el contenedor la vuelve a despachar. */
+    private void completar(Object resultado) throws Exception {
+        request.setAsyncSupported(true);
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+        DeferredResult<Object> diferido = new DeferredResult<>();
+        asyncManager.startDeferredResultProcessing(diferido);
+        diferido.setResult(resultado);
+        request.setDispatcherType(DispatcherType.ASYNC);
+    }
+
+    @Test
+    void guardaElContextoYCambiaElIdDeSesion() throws Exception {
+        MockHttpSession anonima = new MockHttpSession(null, "fijada");
+        request.setSession(anonima);
+        Authentication autenticacion = new UsernamePasswordAuthenticationToken("admin@tsf.com", null, List.of());
+        completar(ResponseEntity.ok(new LoginRespuesta("Login exitoso", "admin@tsf.com", autenticacion)));
+
+        assertThat(interceptor.preHandle(request, response, new Object())).isTrue();
+
+        assertThat(request.getSession(false).getId()).isNotEqualTo("fijada");
+        SecurityContext guardado = (SecurityContext) request.getSession(false)
+                .getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+        assertThat(guardado.getAuthentication()).isSameAs(autenticacion);
+    }
+
+    @Test
+    void noCreaSesionParaUnLoginFallidoNiEnElPrimerDespacho() throws Exception {
+        assertThat(interceptor.preHandle(request, response, new Object())).isTrue();
+        assertThat(request.getSession(false)).isNull();
+
+        completar(ResponseEntity.status(401).body(Map.of("email", "no")));
+        assertThat(interceptor.preHandle(request, response, new Object())).isTrue();
+        assertThat(request.getSession(false)).isNull();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseCookie;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.BitSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SesionTokenServiceTest {
+
+    private static final String CLAVE_A = "a:" + Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String CLAVE_B = "b:" + Base64.getEncoder().encodeToString("otra-clave-de-32-bytes-de-prueba".getBytes());
+
+    private static SesionTokenService servicio(String claves) {
+        return new SesionTokenService("TOKEN", claves, "AUTH_TOKEN", false, 60, 720);
+    }
+
+    private static UsuarioAutenticado usuario() {
+        return new UsuarioAutenticado(7L, "ana@tsf.com", "Ana", 3L, "Admin", new BitSet(), null,
+                new UsuarioAutenticado.Version(4, 9, System.currentTimeMillis()));
+    }
+
+    @Test
+    void unTokenFirmadoSeVerifica() {
+        SesionTokenService servicio = servicio(CLAVE_A);
+
+        SesionTokenService.Datos datos = servicio.verificar(servicio.emitir(usuario()).getValue()).orElseThrow();
+
+        assertThat(datos.userId()).isEqualTo(7L);
+        assertThat(datos.rolId()).isEqualTo(3L);
+        assertThat(datos.email()).isEqualTo("ana@tsf.com");
+        assertThat(datos.version().usuario()).isEqualTo(4);
+        assertThat(datos.version().rol()).isEqualTo(9);
+        assertThat(servicio.debeRenovar(datos)).isFalse();
+    }
+
+    @Test
+    void unTokenAlteradoOConOtraClaveNoSeAcepta() {
+        String token = servicio(CLAVE_A).emitir(usuario()).getValue();
+        int punto = token.indexOf('.');
+        String alterado = token.substring(0, punto - 2) + (token.charAt(punto - 2) == 'A' ? 'B' : 'A')
+                + token.substring(punto - 1);
+
+        assertThat(servicio(CLAVE_A).verificar(alterado)).isEmpty();
+        assertThat(servicio(CLAVE_B).verificar(token)).isEmpty();
+        assertThat(servicio(CLAVE_A).verificar("basura")).isEmpty();
+    }
+
+    @Test
+    void unaClaveNuevaVerificaLosTokensViejosYLosRenueva() {
+        String viejo = servicio(CLAVE_A).emitir(usuario()).getValue();
+        SesionTokenService rotado = servicio(CLAVE_B + "," + CLAVE_A);
+
+        SesionTokenService.Datos datos = rotado.verificar(viejo).orElseThrow();
+
+        assertThat(datos.kid()).isEqualTo("a");
+        assertThat(rotado.debeRenovar(datos)).isTrue();
+        assertThat(rotado.verificar(rotado.emitir(usuario(), datos.inicio()).getValue()).orElseThrow().kid())
+                .isEqualTo("b");
+    }
+
+    @Test
+    void renovarConservaElLoginYNoPasaDeLaVidaMaxima() {
+        SesionTokenService servicio = servicio(CLAVE_A);
+        long ahora = System.currentTimeMillis();
+        long inicio = ahora - Duration.ofMinutes(700).toMillis();
+
+        ResponseCookie cookie = servicio.emitir(usuario(), inicio);
+        SesionTokenService.Datos datos = servicio.verificar(cookie.getValue()).orElseThrow();
+
+        // Quedan 20 minutos de vida máxima: el token no dura los 60 habituales
+        assertThat(datos.inicio()).isEqualTo(inicio);
+        assertThat(datos.expira()).isEqualTo(inicio + Duration.ofMinutes(720).toMillis());
+        assertThat(cookie.getMaxAge()).isLessThanOrEqualTo(Duration.ofMinutes(20));
+        // Pasa de la mitad de su vida, pero no se puede ampliar
+        assertThat(servicio.debeRenovar(datos)).isFalse();
+    }
+
+    @Test
+    void unLoginQueSuperaLaVidaMaximaYaNoVale() {
+        SesionTokenService servicio = servicio(CLAVE_A);
+        long inicio = System.currentTimeMillis() - Duration.ofMinutes(721).toMillis();
+
+        assertThat(servicio.verificar(servicio.emitir(usuario(), inicio).getValue())).isEmpty();
+    }
+}
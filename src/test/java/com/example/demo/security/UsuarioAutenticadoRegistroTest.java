@@ -0,0 +1,133 @@
+package com.example.demo.security;
+
+import com.example.demo.service.CacheVersiones;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.Driver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.BitSet;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsuarioAutenticadoRegistroTest {
+
+    static final String TABLA = "CREATE TABLE cache_versiones (region VARCHAR(150) NOT NULL PRIMARY KEY, "
+            + "version BIGINT NOT NULL, actualizado TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3))";
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void crear() {
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(TABLA);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void cerrar() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    /** Registro y bus de versiones de un nodo. */
+    private record Nodo(CacheVersiones versiones, UsuarioAutenticadoRegistro registro) {
+    }
+
+    private Nodo nodo() {
+        CacheVersiones versiones = new CacheVersiones(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate),
+                transactionTemplate, 30, new SimpleMeterRegistry());
+        UsuarioAutenticadoRegistro registro = new UsuarioAutenticadoRegistro(versiones, 60);
+        registro.suscribir();
+        return new Nodo(versiones, registro);
+    }
+
+    private static UsuarioAutenticado principal(UsuarioAutenticado.Version version) {
+        return new UsuarioAutenticado(7L, "a@b.c", "Ana", 3L, "Admin", new BitSet(), null, version);
+    }
+
+    private static UsuarioAutenticado construir(UsuarioAutenticadoRegistro registro) {
+        return principal(registro.version(7L, 3L, registro.cambiosVistos()));
+    }
+
+    @Test
+    void unCambioDelRolDejaViejosLosPrincipalesAnteriores() {
+        Nodo a = nodo();
+        UsuarioAutenticado antes = construir(a.registro());
+
+        a.registro().rolModificado(3L);
+
+        assertThat(a.registro().vigente(antes)).isFalse();
+        UsuarioAutenticado despues = construir(a.registro());
+        assertThat(despues.getVersion().rol()).isEqualTo(1);
+        assertThat(a.registro().vigente(despues)).isTrue();
+    }
+
+    @Test
+    void lasVersionesSonComparablesEntreNodos() {
+        Nodo a = nodo();
+        Nodo b = nodo();
+        a.registro().usuarioModificado(7L);
+        a.registro().usuarioModificado(7L);
+        b.versiones().sondear();
+
+        // Un token emitido en A con la versión 2 vale en B, uno anterior no
+        UsuarioAutenticado deA = construir(a.registro());
+        assertThat(deA.getVersion().usuario()).isEqualTo(2);
+        assertThat(b.registro().vigente(deA)).isTrue();
+        assertThat(b.registro().vigente(principal(new UsuarioAutenticado.Version(1, 0,
+                System.currentTimeMillis())))).isFalse();
+    }
+
+    @Test
+    void unCambioDuranteLaLecturaDejaElPrincipalViejo() {
+        Nodo a = nodo();
+        long cambios = a.registro().cambiosVistos();
+        a.registro().usuarioModificado(7L);
+
+        UsuarioAutenticado leido = principal(a.registro().version(7L, 3L, cambios));
+
+        assertThat(a.registro().vigente(leido)).isFalse();
+        assertThat(a.registro().vigente(construir(a.registro()))).isTrue();
+    }
+
+    @Test
+    void unPrincipalQueSuperaLaVidaMaximaSeRefresca() {
+        Nodo a = nodo();
+        long haceDosHoras = System.currentTimeMillis() - 2 * 60 * 60 * 1000;
+
+        assertThat(a.registro().vigente(principal(new UsuarioAutenticado.Version(0, 0, haceDosHoras)))).isFalse();
+    }
+
+    @Test
+    void laLimpiezaConservaLosCambiosRecientes() {
+        Nodo a = nodo();
+        UsuarioAutenticado antes = construir(a.registro());
+        a.registro().usuarioModificado(7L);
+
+        a.registro().podar();
+
+        assertThat(a.registro().vigente(antes)).isFalse();
+    }
+
+    @Test
+    void alArrancarCargaLosCambiosPersistidos() {
+        Nodo a = nodo();
+        UsuarioAutenticado antes = construir(a.registro());
+        a.registro().rolModificado(3L);
+
+        // Un nodo que arranca después del cambio no acepta el token anterior
+        Nodo reiniciado = nodo();
+        assertThat(reiniciado.registro().vigente(antes)).isFalse();
+        assertThat(reiniciado.registro().vigente(construir(reiniciado.registro()))).isTrue();
+    }
+}
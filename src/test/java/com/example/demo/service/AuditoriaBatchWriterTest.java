@@ -0,0 +1,103 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditoriaBatchWriterTest {
+
+    static final String TABLA = "CREATE TABLE auditoria_logs (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, "
+            + "model VARCHAR(255) NOT NULL, model_id BIGINT, accion VARCHAR(255) NOT NULL, datos_anteriores TEXT, "
+            + "datos_nuevos TEXT, ip VARCHAR(255), user_agent VARCHAR(255), url VARCHAR(255), observaciones TEXT, "
+            + "created_at TIMESTAMP NOT NULL, formato VARCHAR(16), secuencia INT, evento_id VARCHAR(40))";
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry registry;
+    private AuditoriaBatchWriter writer;
+
+    @BeforeEach
+    void crear() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute(TABLA);
+        registry = new SimpleMeterRegistry();
+        writer = writer(jdbcTemplate, registry, List.of());
+    }
+
+    @AfterEach
+    void cerrar() {
+        db.shutdown();
+    }
+
+    static AuditoriaBatchWriter writer(JdbcTemplate jdbcTemplate, SimpleMeterRegistry registry,
+            List<AuditoriaLoteListener> listeners) {
+        AuditoriaDeltaEncoder encoder = new AuditoriaDeltaEncoder(null, null, new ObjectMapper(),
+                AuditoriaDeltaEncoder.ModoAlmacenamiento.SNAPSHOT, 20, 100);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        return new AuditoriaBatchWriter(jdbcTemplate, tx, encoder, listeners, registry, false, 10, 200, 500,
+                AuditoriaBatchWriter.PoliticaSaturacion.SYNC);
+    }
+
+    static AuditoriaEvento evento(String accion, long modelId) {
+        return new AuditoriaEvento(null, null, "Cliente", modelId, accion, null, "{\"nombre\":\"x\"}", "127.0.0.1",
+                "curl", "http://localhost/api/clientes", null, LocalDateTime.now(), null, null, null);
+    }
+
+    @Test
+    void unaFilaMalaNoTiraElLote() {
+        List<AuditoriaEvento> lote = new ArrayList<>();
+        for (int i = 1; i <= 9; i++) {
+            lote.add(evento(i == 6 ? null : "ACTUALIZAR", i));
+        }
+        List<Long> persistidos = new ArrayList<>();
+        writer = writer(jdbcTemplate, registry, List.of((eventos, ids) -> persistidos.addAll(ids)));
+
+        assertThat(writer.escribir(lote)).isTrue();
+
+        assertThat(jdbcTemplate.queryForList("SELECT model_id FROM auditoria_logs ORDER BY id", Long.class))
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 7L, 8L, 9L);
+        assertThat(persistidos).hasSize(8).doesNotContainNull();
+        assertThat(registry.counter("auditoria.eventos.fallidos").count()).isEqualTo(1);
+    }
+
+    @Test
+    void recortaUserAgentYUrlASusColumnas() {
+        String largo = "Mozilla/5.0 ".repeat(40);
+        AuditoriaEvento evento = new AuditoriaEvento(null, null, "Cliente", 1L, "CREAR", null, null, "10.0.0.1",
+                largo, "http://localhost/?q=" + largo, null, LocalDateTime.now(), null, null, null);
+
+        assertThat(evento.userAgent()).hasSize(AuditoriaEvento.MAX_VARCHAR);
+        assertThat(writer.escribir(List.of(evento))).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT LENGTH(url) FROM auditoria_logs", Integer.class))
+                .isEqualTo(AuditoriaEvento.MAX_VARCHAR);
+    }
+
+    @Test
+    void elRecorteNoParteParesSustitutos() {
+        String valor = "a".repeat(AuditoriaEvento.MAX_VARCHAR - 1) + "😀";
+        assertThat(AuditoriaEvento.recortar(valor)).isEqualTo("a".repeat(AuditoriaEvento.MAX_VARCHAR - 1));
+    }
+
+    @Test
+    void unFalloQueNoEsDeDatosNoSeParte() {
+        jdbcTemplate.execute("DROP TABLE auditoria_logs");
+
+        assertThat(writer.escribir(List.of(evento("CREAR", 1), evento("CREAR", 2)))).isFalse();
+        assertThat(registry.counter("auditoria.eventos.fallidos").count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AuditoriaDeltaEncoderTest {
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbcTemplate;
+    private AuditoriaSnapshotService snapshotService;
+
+    @BeforeEach
+    void crear() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute(AuditoriaBatchWriterTest.TABLA);
+        snapshotService = new AuditoriaSnapshotService(jdbcTemplate, new ObjectMapper(), mock(CacheVersiones.class),
+                100);
+    }
+
+    @AfterEach
+    void cerrar() {
+        db.shutdown();
+    }
+
+    /** Un writer en modo DELTA con su propia caché, como un nodo del clúster. */
+    private AuditoriaBatchWriter nodo() {
+        AuditoriaDeltaEncoder encoder = new AuditoriaDeltaEncoder(snapshotService, new NamedParameterJdbcTemplate(db),
+                new ObjectMapper(), AuditoriaDeltaEncoder.ModoAlmacenamiento.DELTA, 20, 100);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(db));
+        return new AuditoriaBatchWriter(jdbcTemplate, tx, encoder, List.of(), new SimpleMeterRegistry(), false, 10,
+                200, 500, AuditoriaBatchWriter.PoliticaSaturacion.SYNC);
+    }
+
+    private static AuditoriaEvento evento(String anteriores, String nuevos) {
+        return new AuditoriaEvento(null, null, "Cliente", 1L, "ACTUALIZAR", anteriores, nuevos, "127.0.0.1", "curl",
+                "http://localhost/api/clientes/1", null, LocalDateTime.now(), null, null, null);
+    }
+
+    private Map<String, Object> estado() {
+        return snapshotService.reconstruir("Cliente", 1L, null).orElseThrow().datos();
+    }
+
+    private List<String> formatos() {
+        return jdbcTemplate.queryForList("SELECT formato FROM auditoria_logs ORDER BY id", String.class);
+    }
+
+    @Test
+    void unNodoConCacheViejaNoPierdeCambiosDeOtro() {
+        AuditoriaBatchWriter a = nodo();
+        AuditoriaBatchWriter b = nodo();
+
+        a.escribir(List.of(evento(null, "{\"nombre\":\"uno\",\"rfc\":\"X\"}")));
+        b.escribir(List.of(evento(null, "{\"nombre\":\"dos\",\"rfc\":\"X\"}")));
+        // La caché de A sigue en "uno": un diff contra ella omitiría el nombre
+        a.escribir(List.of(evento(null, "{\"nombre\":\"uno\",\"rfc\":\"Y\"}")));
+
+        assertThat(estado()).containsExactly(Map.entry("nombre", "uno"), Map.entry("rfc", "Y"));
+        assertThat(formatos()).containsExactly("CHECKPOINT", "CHECKPOINT", "CHECKPOINT");
+        assertThat(jdbcTemplate.queryForList("SELECT secuencia FROM auditoria_logs ORDER BY id", Integer.class))
+                .containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void unCampoQueDesapareceSeGuardaComoRemove() {
+        AuditoriaBatchWriter a = nodo();
+
+        a.escribir(List.of(evento(null, "{\"nombre\":\"uno\",\"rfc\":\"X\"}")));
+        a.escribir(List.of(evento(null, "{\"nombre\":\"uno\"}")));
+
+        assertThat(formatos()).containsExactly("CHECKPOINT", "DELTA");
+        assertThat(jdbcTemplate.queryForObject("SELECT datos_nuevos FROM auditoria_logs ORDER BY id DESC LIMIT 1",
+                String.class)).contains("\"op\":\"remove\"").contains("\"path\":\"/rfc\"");
+        assertThat(estado()).containsExactly(Map.entry("nombre", "uno"));
+    }
+
+    @Test
+    void unCambioParcialSeAplicaSobreElEstadoPersistido() {
+        nodo().escribir(List.of(evento(null, "{\"nombre\":\"uno\",\"rfc\":\"X\",\"email\":\"a@b.c\"}")));
+        // Otro nodo sin caché recibe un cambio sólo de los campos modificados
+        AuditoriaBatchWriter b = nodo();
+        b.escribir(List.of(evento("{\"rfc\":\"X\",\"email\":\"a@b.c\"}", "{\"rfc\":\"Y\"}")));
+        b.escribir(List.of(evento("{\"nombre\":\"uno\"}", "{\"nombre\":\"dos\"}")));
+
+        assertThat(formatos()).containsExactly("CHECKPOINT", "CHECKPOINT", "DELTA");
+        assertThat(estado()).containsExactly(Map.entry("nombre", "dos"), Map.entry("rfc", "Y"));
+    }
+
+    @Test
+    void dosNodosConLaMismaVersionFuerzanCheckpoint() {
+        AuditoriaBatchWriter a = nodo();
+        AuditoriaBatchWriter b = nodo();
+        a.escribir(List.of(evento(null, "{\"nombre\":\"uno\"}")));
+        b.escribir(List.of(evento(null, "{\"nombre\":\"uno\"}")));
+        a.escribir(List.of(evento(null, "{\"nombre\":\"dos\"}")));
+        // Simula que B escribió la misma secuencia a la vez que A
+        jdbcTemplate.update("UPDATE auditoria_logs SET secuencia = 2 WHERE secuencia = 3");
+
+        a.escribir(List.of(evento(null, "{\"nombre\":\"tres\"}")));
+
+        assertThat(formatos()).last().isEqualTo("CHECKPOINT");
+        assertThat(estado()).containsEntry("nombre", "tres");
+    }
+
+    @Test
+    void unPayloadTruncadoNoEntraEnElEstado() {
+        AuditoriaBatchWriter a = nodo();
+        a.escribir(List.of(evento(null, "{\"nombre\":\"uno\"}")));
+        a.escribir(List.of(evento(null, "{\"_truncado\":true,\"_longitud\":70000,\"_inicio\":\"{\\\"nombre\"}")));
+
+        assertThat(formatos()).containsExactly("CHECKPOINT", null);
+        assertThat(estado()).containsExactly(Map.entry("nombre", "uno"));
+
+        a.escribir(List.of(evento(null, "{\"nombre\":\"dos\"}")));
+        assertThat(formatos()).last().isEqualTo("CHECKPOINT");
+        assertThat(estado()).containsExactly(Map.entry("nombre", "dos"));
+    }
+
+    @Test
+    void unEstadoQueNoCabeEnTextSeGuardaRecortado() {
+        String largo = "x".repeat(40_000);
+        AuditoriaBatchWriter a = nodo();
+        a.escribir(List.of(evento(null, "{\"a\":\"" + largo + "\"}")));
+        // El estado acumulado pasa de 64 KB, pero el delta cabe
+        a.escribir(List.of(evento("{}", "{\"b\":\"" + largo + "\"}")));
+        // Un nodo sin caché tendría que guardar el estado completo como CHECKPOINT
+        nodo().escribir(List.of(evento("{}", "{\"c\":\"y\"}")));
+
+        assertThat(formatos()).containsExactly("CHECKPOINT", "DELTA", null);
+        Map<String, Object> ultima = jdbcTemplate.queryForMap(
+                "SELECT datos_nuevos, secuencia FROM auditoria_logs ORDER BY id DESC LIMIT 1");
+        assertThat((String) ultima.get("datos_nuevos")).startsWith("{\"_truncado\":true");
+        assertThat(((String) ultima.get("datos_nuevos")).getBytes(StandardCharsets.UTF_8))
+                .hasSizeLessThanOrEqualTo(AuditoriaEvento.MAX_TEXT);
+        assertThat(ultima.get("secuencia")).isNull();
+        assertThat(estado()).containsOnlyKeys("a", "b");
+    }
+}
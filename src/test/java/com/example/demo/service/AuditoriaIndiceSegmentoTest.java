@@ -0,0 +1,82 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditoriaIndiceSegmentoTest {
+
+    @TempDir
+    Path directorio;
+
+    private static List<Long> recorrer(AuditoriaIndiceCursor cursor) {
+        List<Long> ids = new ArrayList<>();
+        for (; cursor.id() != AuditoriaIndiceCursor.FIN; cursor.siguiente()) {
+            ids.add(cursor.id());
+        }
+        return ids;
+    }
+
+    private AuditoriaIndiceSegmento segmento(String nombre, Map<String, long[]> listas) throws Exception {
+        return AuditoriaIndiceSegmento.escribir(directorio.resolve(nombre), listas, 1000);
+    }
+
+    @Test
+    void elCursorRecorreYSaltaEntreBloques() throws Exception {
+        // 1000 múltiplos de 3: ocho bloques, el último incompleto
+        long[] multiplos = LongStream.rangeClosed(1, 1000).map(i -> i * 3).toArray();
+        AuditoriaIndiceSegmento escrito = segmento("a.idx", Map.of("tres", multiplos));
+        AuditoriaIndiceSegmento leido = AuditoriaIndiceSegmento.leer(escrito.getRuta());
+
+        for (AuditoriaIndiceSegmento segmento : List.of(escrito, leido)) {
+            assertThat(recorrer(segmento.cursor("tres"))).hasSize(1000).startsWith(3000L).endsWith(3L);
+
+            AuditoriaIndiceCursor cursor = segmento.cursor("tres");
+            cursor.bajarA(2000);
+            assertThat(cursor.id()).isEqualTo(1998);
+            // Dentro del mismo bloque y hacia un bloque anterior, justo en un límite
+            cursor.bajarA(1990);
+            assertThat(cursor.id()).isEqualTo(1989);
+            cursor.bajarA(384);
+            assertThat(cursor.id()).isEqualTo(384);
+            cursor.bajarA(385);
+            assertThat(cursor.id()).isEqualTo(384);
+            cursor.siguiente();
+            assertThat(cursor.id()).isEqualTo(381);
+            cursor.bajarA(2);
+            assertThat(cursor.id()).isEqualTo(AuditoriaIndiceCursor.FIN);
+        }
+        assertThat(escrito.postings("tres")).isEqualTo(multiplos);
+        assertThat(escrito.cursor("otro").id()).isEqualTo(AuditoriaIndiceCursor.FIN);
+    }
+
+    @Test
+    void unirEIntersectarSinOrdenarDeNuevo() throws Exception {
+        long[] pares = LongStream.rangeClosed(1, 600).map(i -> i * 2).toArray();
+        long[] multiplosDeTres = LongStream.rangeClosed(1, 400).map(i -> i * 3).toArray();
+        AuditoriaIndiceSegmento viejo = segmento("a.idx", Map.of("par", pares, "tres", multiplosDeTres));
+        // El segundo segmento repite algunos ids del primero
+        AuditoriaIndiceSegmento nuevo = segmento("b.idx", Map.of("par", new long[] { 1200, 1202, 1204 },
+                "tres", new long[] { 1200, 1203 }));
+
+        AuditoriaIndiceCursor par = AuditoriaIndiceCursor.unir(List.of(viejo.cursor("par"), nuevo.cursor("par")));
+        AuditoriaIndiceCursor tres = AuditoriaIndiceCursor.unir(
+                List.of(viejo.cursor("tres"), nuevo.cursor("tres")));
+        AuditoriaIndiceCursor seis = AuditoriaIndiceCursor.intersectar(List.of(par, tres));
+
+        List<Long> esperados = LongStream.iterate(1200, i -> i > 0, i -> i - 6).boxed().toList();
+        assertThat(recorrer(seis)).isEqualTo(esperados);
+
+        AuditoriaIndiceSegmento fusionado = AuditoriaIndiceSegmento.fusionar(directorio.resolve("c.idx"),
+                List.of(viejo, nuevo));
+        assertThat(fusionado.postings("par")).hasSize(602).startsWith(2, 4).endsWith(1200, 1202, 1204);
+        assertThat(fusionado.postings("tres")).hasSize(401).endsWith(1200, 1203);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.AuditoriaQueryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditoriaIndiceServiceTest {
+
+    @TempDir
+    Path directorio;
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbcTemplate;
+    private AuditoriaIndiceService indice;
+
+    @BeforeEach
+    void crear() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute(AuditoriaBatchWriterTest.TABLA);
+        indice = nuevoIndice();
+    }
+
+    /** Segmentos de 100 documentos, el mínimo, para que se escriban a disco enseguida. */
+    private AuditoriaIndiceService nuevoIndice() {
+        return new AuditoriaIndiceService(new AuditoriaQueryRepository(new NamedParameterJdbcTemplate(db), db, 2, 5),
+                jdbcTemplate, true, directorio.toString(), 100, 8, 60);
+    }
+
+    @AfterEach
+    void cerrar() {
+        indice.stop();
+        db.shutdown();
+    }
+
+    /** Una fila escrita por otro nodo: no pasa por lotePersistido. */
+    private void insertar(long id, String observaciones) {
+        jdbcTemplate.update("INSERT INTO auditoria_logs (id, model, accion, observaciones, created_at) "
+                + "VALUES (?, 'Cliente', 'CREAR', ?, CURRENT_TIMESTAMP)", id, observaciones);
+    }
+
+    private List<Long> buscar(String consulta) {
+        return indice.buscar(consulta, null, 10).ids();
+    }
+
+    /** Pide un sondeo (se ignora si ya hay uno en curso) y evalúa la condición. */
+    private boolean sondeado(BooleanSupplier condicion) {
+        indice.sondear();
+        return condicion.getAsBoolean();
+    }
+
+    private static void esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!condicion.getAsBoolean() && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertThat(condicion.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    void elSondeoIndexaLasFilasDeOtrosNodos() throws Exception {
+        insertar(1, "alta inicial");
+        indice.start();
+        esperar(() -> buscar("alta").equals(List.of(1L)));
+
+        insertar(2, "cambio remoto");
+        insertar(3, "otro cambio remoto");
+
+        esperar(() -> sondeado(() -> buscar("remoto").equals(List.of(3L, 2L))));
+    }
+
+    @Test
+    void unaFilaConfirmadaTardeSeRecuperaDelHueco() throws Exception {
+        insertar(1, "primera");
+        indice.start();
+        esperar(() -> buscar("primera").equals(List.of(1L)));
+        insertar(3, "tercera");
+        esperar(() -> sondeado(() -> buscar("tercera").equals(List.of(3L))));
+
+        // La transacción del id 2 se confirma después de que el sondeo pasara por el 3
+        insertar(2, "segunda");
+
+        esperar(() -> sondeado(() -> buscar("segunda").equals(List.of(2L))));
+    }
+
+    @Test
+    void lasFilasQueLleganDesordenadasSeEncuentranYSePagina() throws Exception {
+        indice.start();
+        indice.lotePersistido(List.of(evento("uno"), evento("uno dos")), List.of(10L, 20L));
+        // Una fila de otro nodo con id menor que las ya indexadas
+        indice.lotePersistido(List.of(evento("uno dos"), evento("dos")), List.of(15L, 30L));
+
+        assertThat(buscar("uno")).containsExactly(20L, 15L, 10L);
+        assertThat(buscar("uno dos")).containsExactly(20L, 15L);
+        AuditoriaIndiceService.Resultado pagina = indice.buscar("cliente uno", 20L, 1);
+        assertThat(pagina.ids()).containsExactly(15L);
+        assertThat(pagina.hasMore()).isTrue();
+        assertThat(pagina.nextAntesDe()).isEqualTo(15L);
+    }
+
+    @Test
+    void unaCaidaNoPierdeLoQueSoloEstabaEnMemoria() throws Exception {
+        // El 50 falta al arrancar: es una transacción de otro nodo todavía abierta
+        for (long id = 1; id <= 101; id++) {
+            if (id != 50) {
+                insertar(id, "fila " + id);
+            }
+        }
+        indice.start();
+        Path marca = directorio.resolve("indice.marca");
+        esperar(() -> Files.exists(marca) && buscar("101").equals(List.of(101L)));
+
+        insertar(50, "tardia");
+        esperar(() -> sondeado(() -> buscar("tardia").equals(List.of(50L))));
+
+        // Se cae sin escribir el segmento en memoria, que es el único que tiene el 50
+        AuditoriaIndiceService anterior = indice;
+        indice = nuevoIndice();
+        indice.start();
+        try {
+            esperar(() -> buscar("tardia").equals(List.of(50L)));
+            assertThat(buscar("fila")).hasSize(10).first().isEqualTo(101L);
+        } finally {
+            anterior.stop();
+        }
+    }
+
+    private static AuditoriaEvento evento(String observaciones) {
+        return new AuditoriaEvento(null, null, "Cliente", 1L, "CREAR", null, null, null, null, null, observaciones,
+                null, null, null, null);
+    }
+}
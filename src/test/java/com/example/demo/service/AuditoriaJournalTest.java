@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditoriaJournalTest {
+
+    @TempDir
+    Path directorio;
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry registry;
+    private AuditoriaJournal journal;
+
+    @BeforeEach
+    void crear() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute(AuditoriaBatchWriterTest.TABLA);
+    }
+
+    @AfterEach
+    void cerrar() {
+        if (journal != null) {
+            journal.stop();
+        }
+        db.shutdown();
+    }
+
+    private AuditoriaJournal iniciar() {
+        // Registro nuevo: el gauge de pendientes queda ligado a la primera instancia
+        registry = new SimpleMeterRegistry();
+        AuditoriaBatchWriter writer = AuditoriaBatchWriterTest.writer(jdbcTemplate, registry, List.of());
+        journal = new AuditoriaJournal(writer, new NamedParameterJdbcTemplate(db),
+                new ObjectMapper().findAndRegisterModules(), registry, true, directorio.toString(), 64 * 1024, 1,
+                false, 500, 2);
+        journal.start();
+        return journal;
+    }
+
+    private long filas() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM auditoria_logs", Long.class);
+    }
+
+    private double pendientes() {
+        return registry.get("auditoria.journal.pendientes").gauge().value();
+    }
+
+    private static void esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!condicion.getAsBoolean() && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertThat(condicion.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    void unEventoInvalidoVaACuarentenaYElJournalAvanza() throws Exception {
+        iniciar();
+        for (int i = 1; i <= 5; i++) {
+            journal.registrar(AuditoriaBatchWriterTest.evento(i == 3 ? null : "ACTUALIZAR", i));
+        }
+
+        esperar(() -> pendientes() == 0);
+        assertThat(filas()).isEqualTo(4);
+        assertThat(registry.counter("auditoria.journal.cuarentena").count()).isEqualTo(1);
+        List<String> apartados = Files.readAllLines(directorio.resolve("cuarentena.ndjson"));
+        assertThat(apartados).hasSize(1);
+        assertThat(apartados.get(0)).contains("\"modelId\":3");
+
+        // Los eventos siguientes no quedan atascados detrás del inválido
+        journal.registrar(AuditoriaBatchWriterTest.evento("ACTUALIZAR", 6));
+        esperar(() -> filas() == 5);
+    }
+
+    @Test
+    void unaCaidaDeLaBaseDeDatosSeReintenta() throws Exception {
+        jdbcTemplate.execute("ALTER TABLE auditoria_logs RENAME TO auditoria_logs_fuera");
+        iniciar();
+        for (int i = 1; i <= 5; i++) {
+            journal.registrar(AuditoriaBatchWriterTest.evento("ACTUALIZAR", i));
+        }
+        Thread.sleep(300);
+        assertThat(pendientes()).isEqualTo(5);
+
+        jdbcTemplate.execute("ALTER TABLE auditoria_logs_fuera RENAME TO auditoria_logs");
+        esperar(() -> pendientes() == 0);
+        assertThat(filas()).isEqualTo(5);
+        assertThat(registry.counter("auditoria.journal.cuarentena").count()).isZero();
+    }
+
+    @Test
+    void alReiniciarNoReenviaLoYaEscrito() throws Exception {
+        iniciar();
+        for (int i = 1; i <= 3; i++) {
+            journal.registrar(AuditoriaBatchWriterTest.evento("ACTUALIZAR", i));
+        }
+        esperar(() -> filas() == 3);
+        journal.stop();
+        // Simula una caída entre el INSERT y el checkpoint
+        Files.writeString(directorio.resolve("checkpoint"), "0");
+
+        iniciar();
+        journal.registrar(AuditoriaBatchWriterTest.evento("ACTUALIZAR", 4));
+        esperar(() -> pendientes() == 0);
+        assertThat(jdbcTemplate.queryForList("SELECT model_id FROM auditoria_logs ORDER BY id", Long.class))
+                .containsExactly(1L, 2L, 3L, 4L);
+    }
+}
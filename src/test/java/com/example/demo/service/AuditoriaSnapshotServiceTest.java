@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.Driver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditoriaSnapshotServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void crear() {
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(AuditoriaBatchWriterTest.TABLA);
+        jdbcTemplate.execute(CacheVersionesTest.TABLA);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void cerrar() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    /** Un nodo: su propio bus de versiones y su propia caché de estados. */
+    private record Nodo(CacheVersiones versiones, AuditoriaSnapshotService snapshots) {
+    }
+
+    private Nodo nodo() {
+        CacheVersiones versiones = CacheVersionesTest.nodo(jdbcTemplate, transactionTemplate);
+        AuditoriaSnapshotService snapshots = new AuditoriaSnapshotService(jdbcTemplate, new ObjectMapper(),
+                versiones, 100);
+        snapshots.suscribir();
+        return new Nodo(versiones, snapshots);
+    }
+
+    private void insertar(long id, String datos, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO auditoria_logs (id, model, model_id, accion, datos_nuevos, created_at) "
+                + "VALUES (?, 'Cliente', 1, 'ACTUALIZAR', ?, ?)", id, datos, Timestamp.valueOf(createdAt));
+    }
+
+    private static Map<String, Object> datos(Nodo nodo) {
+        return nodo.snapshots().estadoHasta("Cliente", 1L, null).orElseThrow().datos();
+    }
+
+    @Test
+    void editarOBorrarUnaFilaInvalidaElEstadoEnTodosLosNodos() {
+        insertar(1, "{\"nombre\":\"Ana\"}", T0);
+        insertar(2, "{\"telefono\":\"555\"}", T0.plusMinutes(1));
+        Nodo a = nodo();
+        Nodo b = nodo();
+        assertThat(datos(a)).containsEntry("telefono", "555");
+        assertThat(datos(b)).containsEntry("telefono", "555");
+
+        jdbcTemplate.update("UPDATE auditoria_logs SET datos_nuevos = '{\"telefono\":\"777\"}' WHERE id = 2");
+        a.snapshots().invalidar("Cliente", 1L);
+        assertThat(datos(a)).containsEntry("telefono", "777");
+
+        // El otro nodo lo ve en su siguiente sondeo
+        b.versiones().sondear();
+        assertThat(datos(b)).containsEntry("telefono", "777");
+
+        jdbcTemplate.update("DELETE FROM auditoria_logs WHERE id = 2");
+        a.snapshots().invalidarTodo();
+        assertThat(datos(a)).doesNotContainKey("telefono");
+        assertThat(a.snapshots().estadoHasta("Cliente", 1L, null).orElseThrow().logId()).isEqualTo(1L);
+    }
+
+    @Test
+    void estadoEnTomaLaUltimaFilaPorFechaYNoPorId() {
+        insertar(1, "{\"nombre\":\"Ana\"}", T0);
+        // La fila 2 llegó en un lote posterior con una fecha más tardía que la 3
+        insertar(2, "{\"nombre\":\"Bea\"}", T0.plusMinutes(10));
+        insertar(3, "{\"telefono\":\"555\"}", T0.plusMinutes(5));
+        AuditoriaSnapshotService snapshots = nodo().snapshots();
+
+        assertThat(snapshots.estadoEn("Cliente", 1L, T0.plusMinutes(7)).orElseThrow().logId()).isEqualTo(3L);
+        assertThat(snapshots.estadoEn("Cliente", 1L, T0.plusMinutes(12)).orElseThrow().logId()).isEqualTo(2L);
+        assertThat(snapshots.estadoEn("Cliente", 1L, T0.minusMinutes(1))).isEmpty();
+    }
+}
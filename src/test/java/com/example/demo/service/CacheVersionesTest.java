@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.Driver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheVersionesTest {
+
+    static final String TABLA = "CREATE TABLE cache_versiones (region VARCHAR(150) NOT NULL PRIMARY KEY, "
+            + "version BIGINT NOT NULL, actualizado TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3))";
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private final List<CacheVersiones.Cambio> recibidos = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void crear() {
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(TABLA);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void cerrar() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    /** Un nodo con su propio estado, sobre la misma base de datos. */
+    static CacheVersiones nodo(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        CacheVersiones nodo = new CacheVersiones(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate),
+                transactionTemplate, 30, new SimpleMeterRegistry());
+        nodo.iniciar();
+        return nodo;
+    }
+
+    private CacheVersiones nodo() {
+        CacheVersiones nodo = nodo(jdbcTemplate, transactionTemplate);
+        nodo.suscribir("tabla:", recibidos::add);
+        return nodo;
+    }
+
+    private Long version(String region) {
+        List<Long> versiones = jdbcTemplate.queryForList("SELECT version FROM cache_versiones WHERE region = ?",
+                Long.class, region);
+        return versiones.isEmpty() ? null : versiones.get(0);
+    }
+
+    @Test
+    void laVersionSubeDespuesDeConfirmarYNoDentroDeLaEscritura() {
+        CacheVersiones nodo = nodo();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            nodo.invalidar("tabla:empresas");
+            nodo.invalidar("tabla:empresas");
+            // Mientras dura la escritura la fila de la región no se toca
+            assertThat(version("tabla:empresas")).isNull();
+        });
+
+        assertThat(version("tabla:empresas")).isEqualTo(1);
+        assertThat(recibidos).extracting(CacheVersiones.Cambio::version).containsExactly(1L);
+    }
+
+    @Test
+    void unaTransaccionDeshechaNoSubeLaVersion() {
+        CacheVersiones nodo = nodo();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            nodo.invalidar("tabla:empresas");
+            status.setRollbackOnly();
+        });
+
+        assertThat(version("tabla:empresas")).isNull();
+        assertThat(recibidos).isEmpty();
+    }
+
+    @Test
+    void unaSubidaFallidaSeReintentaAlSondear() {
+        CacheVersiones nodo = nodo();
+        jdbcTemplate.execute("ALTER TABLE cache_versiones RENAME TO cache_versiones_fuera");
+
+        nodo.invalidar("tabla:empresas");
+        assertThat(recibidos).extracting(CacheVersiones.Cambio::version).containsExactly(0L);
+
+        jdbcTemplate.execute("ALTER TABLE cache_versiones_fuera RENAME TO cache_versiones");
+        nodo.sondear();
+        assertThat(version("tabla:empresas")).isEqualTo(1);
+        assertThat(recibidos).extracting(CacheVersiones.Cambio::version).containsExactly(0L, 1L);
+    }
+
+    @Test
+    void otroNodoVeElCambioYUnNodoNuevoNoReprocesaLoAnterior() {
+        CacheVersiones a = nodo();
+        a.invalidar("tabla:clientes");
+        recibidos.clear();
+
+        // Al arrancar, lo ya persistido no se toma por un cambio remoto
+        CacheVersiones b = nodo();
+        b.sondear();
+        assertThat(recibidos).isEmpty();
+
+        a.invalidar("tabla:clientes");
+        recibidos.clear();
+        b.sondear();
+        assertThat(recibidos).singleElement().satisfies(cambio -> {
+            assertThat(cambio.version()).isEqualTo(2);
+            assertThat(cambio.remoto()).isTrue();
+        });
+    }
+}
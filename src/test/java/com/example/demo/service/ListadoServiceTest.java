@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ListadoDTO;
+import com.example.demo.dto.PaginaDTO;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ListadoServiceTest {
+
+    @Entity
+    @Table(name = "filas")
+    static class Fila {
+        @Id
+        Long id;
+        String nombre;
+    }
+
+    private static final Listado<Fila> LISTADO = Listado.de(Fila.class, "filas", Sort.by("nombre"))
+            .ordenable("id", "id")
+            .ordenable("nombre", "nombre")
+            .filtrable("nombre", "nombre", Listado.Filtro.PREFIJO)
+            .busqueda("nombre");
+
+    private EmbeddedDatabase db;
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private Statistics statistics;
+    private ListadoService listadoService;
+
+    @BeforeEach
+    void crear() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute("CREATE TABLE filas (id BIGINT PRIMARY KEY, nombre VARCHAR(255))");
+        // 48 filas: "fila-01" ... "fila-45" y "otra-46" ... "otra-48"
+        jdbcTemplate.batchUpdate("INSERT INTO filas (id, nombre) VALUES (?, ?)",
+                IntStream.rangeClosed(1, 48).mapToObj(i -> new Object[] { (long) i,
+                        i <= 45 ? String.format("fila-%02d", i) : "otra-" + i }).toList());
+
+        LocalContainerEntityManagerFactoryBean factoria = new LocalContainerEntityManagerFactoryBean();
+        factoria.setDataSource(db);
+        factoria.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoria.setPersistenceUnitPostProcessors(unidad -> unidad.addManagedClassName(Fila.class.getName()));
+        factoria.setPackagesToScan();
+        factoria.setJpaPropertyMap(Map.of("hibernate.generate_statistics", "true"));
+        factoria.afterPropertiesSet();
+        entityManagerFactory = factoria.getObject();
+        entityManager = entityManagerFactory.createEntityManager();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        listadoService = new ListadoService(entityManager, jdbcTemplate, 10, 20);
+    }
+
+    @AfterEach
+    void cerrar() {
+        entityManager.close();
+        entityManagerFactory.close();
+        db.shutdown();
+    }
+
+    private PaginaDTO<String> paginar(Integer page, Integer perPage, String sort, String q,
+            PaginaDTO.Conteo conteo, Map<String, String> parametros) {
+        ListadoDTO peticion = new ListadoDTO();
+        peticion.setPage(page);
+        peticion.setPer_page(perPage);
+        peticion.setSort(sort);
+        peticion.setQ(q);
+        peticion.setConteo(conteo);
+        statistics.clear();
+        return listadoService.paginar(LISTADO, peticion, parametros,
+                filas -> filas.stream().map(f -> f.nombre).toList());
+    }
+
+    @Test
+    void unaPaginaIntermediaCuentaElTotal() {
+        PaginaDTO<String> pagina = paginar(2, null, null, null, PaginaDTO.Conteo.EXACTO, Map.of());
+
+        assertThat(pagina.getData()).hasSize(10).first().isEqualTo("fila-11");
+        assertThat(pagina.getTotal()).isEqualTo(48);
+        assertThat(pagina.getLast_page()).isEqualTo(5);
+        assertThat(pagina.isHas_more()).isTrue();
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void laUltimaPaginaIncompletaNoCuenta() {
+        PaginaDTO<String> pagina = paginar(5, null, null, null, PaginaDTO.Conteo.EXACTO, Map.of());
+
+        assertThat(pagina.getData()).hasSize(8).endsWith("otra-46", "otra-47", "otra-48");
+        assertThat(pagina.getTotal()).isEqualTo(48);
+        assertThat(pagina.isHas_more()).isFalse();
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void sinConteoLeeUnaFilaDeMas() {
+        PaginaDTO<String> pagina = paginar(1, 20, "-id", null, PaginaDTO.Conteo.NINGUNO, Map.of());
+
+        assertThat(pagina.getData()).hasSize(20).first().isEqualTo("otra-48");
+        assertThat(pagina.getTotal()).isNull();
+        assertThat(pagina.isHas_more()).isTrue();
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void filtraPorPrefijoYAcotaElTamano() {
+        PaginaDTO<String> busqueda = paginar(1, 500, null, "otra", PaginaDTO.Conteo.EXACTO, Map.of());
+        assertThat(busqueda.getPer_page()).isEqualTo(20);
+        assertThat(busqueda.getData()).containsExactly("otra-46", "otra-47", "otra-48");
+
+        // "_" y "%" son literales, no comodines
+        PaginaDTO<String> filtro = paginar(1, null, null, null, PaginaDTO.Conteo.EXACTO,
+                Map.of("nombre", "fila-4", "desconocido", "x"));
+        assertThat(filtro.getData()).containsExactly("fila-40", "fila-41", "fila-42", "fila-43", "fila-44",
+                "fila-45");
+        assertThat(paginar(1, null, null, "fila_", PaginaDTO.Conteo.EXACTO, Map.of()).getData()).isEmpty();
+    }
+
+    @Test
+    void unOrdenNoPermitidoSeRechaza() {
+        assertThatThrownBy(() -> paginar(1, null, "nombre,-password", null, PaginaDTO.Conteo.EXACTO, Map.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("password");
+        assertThat(LISTADO.orden(null).toString()).isEqualTo("nombre: ASC,id: ASC");
+    }
+}
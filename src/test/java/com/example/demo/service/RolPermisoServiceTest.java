@@ -0,0 +1,94 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RolPermisosDTO;
+import com.example.demo.repository.RolModuloPermisoRepository;
+import com.example.demo.repository.RolPermisoRepository;
+import com.example.demo.security.MatrizPermisos;
+import com.example.demo.security.UsuarioAutenticadoRegistro;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class RolPermisoServiceTest {
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbcTemplate;
+    private final UsuarioAutenticadoRegistro usuarioAutenticadoRegistro = mock(UsuarioAutenticadoRegistro.class);
+    private final MatrizPermisos matrizPermisos = mock(MatrizPermisos.class);
+    private final CacheSegundoNivelService cacheSegundoNivelService = mock(CacheSegundoNivelService.class);
+    private final VersionTablas versionTablas = mock(VersionTablas.class);
+    private RolPermisoService service;
+
+    @BeforeEach
+    void crear() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(db);
+        jdbcTemplate.execute("CREATE TABLE permissions (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE role_has_permissions (role_id BIGINT, permission_id BIGINT, "
+                + "PRIMARY KEY (role_id, permission_id))");
+        jdbcTemplate.update("INSERT INTO permissions VALUES (1, 'ver clientes'), (2, 'editar clientes'), "
+                + "(3, 'ver empresas'), (4, 'editar empresas')");
+        jdbcTemplate.update("INSERT INTO role_has_permissions VALUES (1, 1), (1, 2), (2, 1)");
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(db);
+        service = new RolPermisoService(new RolPermisoRepository(named), new RolModuloPermisoRepository(named),
+                usuarioAutenticadoRegistro, matrizPermisos, cacheSegundoNivelService, versionTablas);
+    }
+
+    @AfterEach
+    void cerrar() {
+        db.shutdown();
+    }
+
+    private List<Long> permisos(long rol) {
+        return jdbcTemplate.queryForList("SELECT permission_id FROM role_has_permissions WHERE role_id = ? "
+                + "ORDER BY permission_id", Long.class, rol);
+    }
+
+    @Test
+    void aplicaSoloLaDiferencia() {
+        // 99 no existe y se ignora
+        RolPermisosDTO delta = service.sincronizar(1L, List.of(2L, 3L, 4L, 99L));
+
+        assertThat(delta.getAgregados()).containsExactly(3L, 4L);
+        assertThat(delta.getRevocados()).containsExactly(1L);
+        assertThat(delta.getPermisos()).containsExactly(2L, 3L, 4L);
+        assertThat(permisos(1)).containsExactly(2L, 3L, 4L);
+        assertThat(permisos(2)).containsExactly(1L);
+
+        verify(usuarioAutenticadoRegistro).rolModificado(1L);
+        verify(matrizPermisos).recompilarTrasCommit();
+        verify(cacheSegundoNivelService).invalidarPermisosDeRoles(List.of(1L));
+        verify(versionTablas).modificada("role_has_permissions");
+    }
+
+    @Test
+    void sinCambiosNoInvalidaNada() {
+        RolPermisosDTO delta = service.sincronizar(1L, List.of(2L, 1L, 99L));
+
+        assertThat(delta.getAgregados()).isEmpty();
+        assertThat(delta.getRevocados()).isEmpty();
+        assertThat(delta.getPermisos()).containsExactly(1L, 2L);
+        verifyNoInteractions(usuarioAutenticadoRegistro, matrizPermisos, cacheSegundoNivelService, versionTablas);
+    }
+
+    @Test
+    void unaListaVaciaLoRevocaTodo() {
+        RolPermisosDTO delta = service.sincronizar(1L, List.of());
+
+        assertThat(delta.getRevocados()).containsExactly(1L, 2L);
+        assertThat(delta.getPermisos()).isEmpty();
+        assertThat(permisos(1)).isEmpty();
+    }
+}